@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Erlend S. Halvorsen and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Erlend S. Halvorsen - initial API and implementation
+ *    Christian Schwarz - enhanced features, bug fixes and usability improvements
+ *******************************************************************************/
+package org.cubictest.recorder;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cubictest.model.PageElement;
+import org.cubictest.model.PropertyAwareObject;
+import org.cubictest.model.context.IContext;
+
+/**
+ * Index of the root elements of a context by {@link PageElement#modelHash()}, used by the recorder to find
+ * an element equal to a recorded one without comparing it to every element of the context.
+ * <p>
+ * The index follows elements being added to and removed from the context. It is rebuilt on other child changes.
+ * Elements edited in place while recording are not re-indexed until the index is rebuilt.
+ * 
+ * @author Christian Schwarz
+ */
+class ContextElementIndex implements PropertyChangeListener {
+
+	private final IContext context;
+	private Map<Integer, List<PageElement>> elementsByHash;
+
+	public ContextElementIndex(IContext context) {
+		this.context = context;
+		if (context instanceof PropertyAwareObject) {
+			((PropertyAwareObject) context).addPropertyChangeListener(this);
+		}
+	}
+
+	/**
+	 * Gets the first root element of the context that is equal to the element (see {@link PageElement#equalsModel(Object)}).
+	 * @return the equal element, or <code>null</code> if the context has none.
+	 */
+	public synchronized PageElement findEqual(PageElement element) {
+		if (elementsByHash == null) {
+			elementsByHash = new HashMap<Integer, List<PageElement>>();
+			for (PageElement pe : context.getRootElements()) {
+				add(pe);
+			}
+		}
+		List<PageElement> candidates = elementsByHash.get(element.modelHash());
+		if (candidates != null) {
+			for (PageElement candidate : candidates) {
+				if (candidate.equalsModel(element)) {
+					return candidate;
+				}
+			}
+		}
+		return null;
+	}
+
+	public synchronized void propertyChange(PropertyChangeEvent evt) {
+		if (!PropertyAwareObject.CHILD.equals(evt.getPropertyName()) || elementsByHash == null) {
+			return;
+		}
+		if (evt.getOldValue() == null && evt.getNewValue() instanceof PageElement) {
+			add((PageElement) evt.getNewValue());
+		}
+		else if (evt.getNewValue() == null && evt.getOldValue() instanceof PageElement) {
+			remove((PageElement) evt.getOldValue());
+		}
+		else {
+			elementsByHash = null;
+		}
+	}
+
+	/**
+	 * Stops following changes of the context.
+	 */
+	public void dispose() {
+		if (context instanceof PropertyAwareObject) {
+			((PropertyAwareObject) context).removePropertyChangeListener(this);
+		}
+	}
+
+	private void add(PageElement pe) {
+		Integer hash = pe.modelHash();
+		List<PageElement> elements = elementsByHash.get(hash);
+		if (elements == null) {
+			elements = new ArrayList<PageElement>(1);
+			elementsByHash.put(hash, elements);
+		}
+		elements.add(pe);
+	}
+
+	private void remove(PageElement pe) {
+		//the element may have been edited since it was added, so its hash can not be used:
+		for (List<PageElement> elements : elementsByHash.values()) {
+			for (int i = 0; i < elements.size(); i++) {
+				if (elements.get(i) == pe) {
+					elements.remove(i);
+					return;
+				}
+			}
+		}
+	}
+}
@@ -13,6 +13,9 @@ package org.cubictest.recorder;
 
 import static org.cubictest.model.ActionType.CLICK;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import org.cubictest.exporters.selenium.common.BrowserType;
 import org.cubictest.model.AbstractPage;
 import org.cubictest.model.ActionType;
@@ -49,6 +52,7 @@ public class CubicRecorder implements IRecorder {
 	private final AutoLayout autoLayout;
 	private boolean enabled;
 	private final Display display;
+	private final Map<IContext, ContextElementIndex> elementIndexes = new IdentityHashMap<IContext, ContextElementIndex>();
 	
 	public CubicRecorder(final Test test, SynchronizedCommandStack comandStack, AutoLayout autoLayout, Display display) {
 		this.test = test;
@@ -128,17 +132,12 @@ public class CubicRecorder implements IRecorder {
 		}
 		
 		IContext ctx = (parent instanceof IContext) ? (IContext) parent : cursor;
-		boolean unique = true;
-		for (PageElement pe : ctx.getRootElements()) {
-			pe.resetStatus();
-			((PageElement) action.getElement()).resetStatus();
-			if (pe.isEqualTo(action.getElement())) {
-				unique = false;
-				action.setElement(pe);
-				break;
-			}
+		((PageElement) action.getElement()).resetStatus();
+		PageElement existing = getElementIndex(ctx).findEqual((PageElement) action.getElement());
+		if (existing != null) {
+			action.setElement(existing);
 		}
-		if (unique) {
+		else {
 			this.addPageElement((PageElement) action.getElement(), parent);
 		}
 
@@ -155,6 +154,15 @@ public class CubicRecorder implements IRecorder {
 		}
 	}
 
+	private synchronized ContextElementIndex getElementIndex(IContext ctx) {
+		ContextElementIndex index = elementIndexes.get(ctx);
+		if (index == null) {
+			index = new ContextElementIndex(ctx);
+			elementIndexes.put(ctx, index);
+		}
+		return index;
+	}
+	
 	/**
 	 * Advance the cursor, creating a new user interaction transition if needed.
 	 */
@@ -231,6 +239,15 @@ public class CubicRecorder implements IRecorder {
 
 	public void setEnabled(boolean enabled) {
 		this.enabled = enabled;
+		if (!enabled) {
+			//stop listening to the test while not recording:
+			synchronized (this) {
+				for (ContextElementIndex index : elementIndexes.values()) {
+					index.dispose();
+				}
+				elementIndexes.clear();
+			}
+		}
 	}
 
 	public void addToTest(final Transition transition, final AbstractPage endPage) {
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.cubictest;
 
+import org.cubictest.persistence.CubicTestSerializer;
+import org.cubictest.resources.TestDependencyIndex;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
@@ -39,6 +41,15 @@ public class CubicTestPlugin extends AbstractUIPlugin {
 	@Override
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
+		
+		//set up the XML mapping in the background, so that it is ready when the first test is opened:
+		Thread warmUp = new Thread(new Runnable() {
+			public void run() {
+				CubicTestSerializer.warmUp();
+			}
+		}, "CubicTest serializer warm-up");
+		warmUp.setDaemon(true);
+		warmUp.start();
 	}
 
 	/**
@@ -46,6 +57,7 @@ public class CubicTestPlugin extends AbstractUIPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		TestDependencyIndex.disposeWorkspaceIndex();
 		super.stop(context);
 	}
 
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.cubictest;
 
+import org.cubictest.resources.TestDependencyIndex;
 import org.cubictest.ui.eclipse.CubicTestResourceChangeListener;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -33,6 +34,7 @@ public class CubicTestStartup implements IStartup {
 		CubicTestPlugin.getDefault().savePluginPreferences();
 		ResourcesPlugin.getWorkspace().addResourceChangeListener(
 			 listener, IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.PRE_DELETE);
+		TestDependencyIndex.startWorkspaceIndex();
 	}
 
 }
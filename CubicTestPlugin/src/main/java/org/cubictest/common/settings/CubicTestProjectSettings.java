@@ -33,7 +33,7 @@ import org.eclipse.core.resources.IProject;
 public class CubicTestProjectSettings {
 
 	/** The property file to load */
-	static final String FILE_NAME = "test-project.properties";
+	public static final String FILE_NAME = "test-project.properties";
 
 	/** The test project's properties */
 	Properties properties;
@@ -11,46 +11,22 @@
  *******************************************************************************/
 package org.cubictest.common.utils;
 
-import java.lang.reflect.Method;
-
-import org.cubictest.persistence.CubicTestXStream;
-import org.eclipse.core.resources.IProject;
+import org.cubictest.persistence.ModelCopier;
 
 
 /**
- * Creates a deep copy of an object using XStream.
+ * Creates a deep copy of an object.
  * 
  * @author Christian Schwarz
  */
 public class CubicCloner {
 
-	public static CubicTestXStream xStream;
-	
 	/**
-	 * Returns a deep copy of an object using XStream.
+	 * Returns a deep copy of an object, equal to what an XStream round trip would give.
+	 * The project of sub tests is kept. 
+	 * @see ModelCopier
 	 */
 	public static Object deepCopy(Object oldObj) {
-
-		if (xStream == null) {
-			xStream = new CubicTestXStream();
-		}
-		String xml = xStream.toXML(oldObj);
-		Object newObj = xStream.fromXML(xml);
-		
-		//check if the variable "project" can be set (typically transient, and thus not copied by XStream):
-		IProject project = null;
-		try {
-			Method getProject = oldObj.getClass().getMethod("getProject", null);
-			if (getProject != null) {
-				project = (IProject) getProject.invoke(oldObj, null);
-			}
-			Method setProject = oldObj.getClass().getMethod("setProject", new Class[] {IProject.class});
-			if (setProject != null) {
-				setProject.invoke(newObj, project);
-			}
-		} catch (Exception e) {
-			//ignore
-		}
-		return newObj;
+		return ModelCopier.deepCopy(oldObj);
 	}
 }
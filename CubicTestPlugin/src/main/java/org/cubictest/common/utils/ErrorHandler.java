@@ -14,6 +14,7 @@ package org.cubictest.common.utils;
 import java.lang.reflect.InvocationTargetException;
 
 import org.cubictest.common.exception.CubicException;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
 /**
@@ -108,6 +109,10 @@ public class ErrorHandler {
 	public static void logAndShowErrorDialogAndRethrow(String message, Throwable e, Shell shell) {
 		Logger.error(message, e);
 		if (EnvironmentInfo.isRunningInEclipse()) {
+			if (shell == null && Display.getCurrent() == null) {
+				//not on the UI thread, e.g. in a background export. The caller must report the rethrown error.
+				rethrow(message, e);
+			}
 			if (shell == null) {
 				shell = new Shell();
 			}
@@ -239,17 +239,7 @@ public class ModelUtil {
 	 */
 	public static boolean isOnPathToNode(TransitionNode nodeToCheck, TransitionNode targetNode) {
 
-		String targetNodeId = targetNode.getId();
-		
-		if (targetNode instanceof ExtensionStartPoint) {
-			targetNodeId = ((ExtensionStartPoint) targetNode).getSourceExtensionPointPageId();
-		} 
-		else if (targetNode instanceof ExtensionPoint) {
-			targetNodeId = ((ExtensionPoint) targetNode).getPageId();
-		}
-		else if (targetNode instanceof Page) {
-			targetNodeId = ((Page) targetNode).getId();
-		}
+		String targetNodeId = getPathTargetId(targetNode);
 
 		if (nodeToCheck.getId().equals(targetNodeId)) {
 			return true;
@@ -265,7 +255,23 @@ public class ModelUtil {
 		return false;
 	}
 
-	
+
+	/**
+	 * Gets the ID of the node that a path to the target node must end in.
+	 * For extension points and extension start points, this is the ID of the page they extend from.
+	 * @param targetNode the node we want to be able to reach
+	 */
+	public static String getPathTargetId(TransitionNode targetNode) {
+		if (targetNode instanceof ExtensionStartPoint) {
+			return ((ExtensionStartPoint) targetNode).getSourceExtensionPointPageId();
+		}
+		else if (targetNode instanceof ExtensionPoint) {
+			return ((ExtensionPoint) targetNode).getPageId();
+		}
+		return targetNode.getId();
+	}
+
+
 	/**
 	 * Gets action elements from Abstract page, including those from the connected commons.
 	 */
@@ -334,7 +334,7 @@ public class ViewUtil {
 						if (actionElement instanceof PageElement) {
 							boolean elementFound = false;
 							for (PageElement pe : UserInteractionDialogUtil.getFlattenedPageElements(((AbstractPage) sourceClone).getRootElements())) {
-								if (pe.isEqualTo(actionElement)) {
+								if (pe.equalsModel(actionElement)) {
 									action.setElement(pe);
 									elementFound = true;
 								}
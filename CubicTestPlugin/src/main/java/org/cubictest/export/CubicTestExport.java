@@ -51,7 +51,8 @@ public class CubicTestExport {
 			new DirectoryWalker<T>(res, testWalker, outFileExtension, resultHolder);
 		
 		try {
-			new ProgressMonitorDialog(new Shell()).run(false, false, dirWalker);
+			//fork, so that the UI thread is not blocked while the tests are converted:
+			new ProgressMonitorDialog(new Shell()).run(true, false, dirWalker);
 		}
 		catch (Exception e) {
 			ErrorHandler.logAndRethrow("Error occured when exporting file(s)", e);
@@ -63,7 +64,7 @@ public class CubicTestExport {
 	public static void exportWithCustomDirectoryWalker(IRunnableWithProgress directoryWalker) {
 		
 		try {
-			new ProgressMonitorDialog(new Shell()).run(false, false, directoryWalker);
+			new ProgressMonitorDialog(new Shell()).run(true, false, directoryWalker);
 		}
 		catch (Exception e) {
 			ErrorHandler.logAndRethrow("Error occured when exporting file(s)", e);
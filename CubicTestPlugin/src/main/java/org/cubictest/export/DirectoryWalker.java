@@ -11,37 +11,76 @@
 package org.cubictest.export;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
+import org.cubictest.common.exception.CubicException;
 import org.cubictest.common.exception.ResourceNotCubicTestFileException;
 import org.cubictest.common.settings.CubicTestProjectSettings;
 import org.cubictest.common.utils.ErrorHandler;
 import org.cubictest.common.utils.ModelUtil;
 import org.cubictest.export.converters.TreeTestWalker;
 import org.cubictest.export.holders.IResultHolder;
+import org.cubictest.export.holders.IStreamingResultHolder;
+import org.cubictest.export.utils.ExportManifest;
 import org.cubictest.export.utils.FileExportUtils;
 import org.cubictest.export.utils.exported.ExportUtils;
+import org.cubictest.model.CustomTestStepHolder;
+import org.cubictest.model.ExtensionStartPoint;
+import org.cubictest.model.SubTest;
 import org.cubictest.model.Test;
 import org.cubictest.persistence.TestPersistance;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 
 /**
  * Directory walker for CubicTest export.
+ * <p>
+ * The tests of a directory tree are converted in parallel, with one test walker per thread.
+ * Tests whose input files (the test, its subtests, custom steps, parameter file and the project settings)
+ * are unchanged since the last export with the same exporter are skipped. The input files and their 
+ * content hashes are recorded in a manifest in the "generated" folder. A selected single file is always exported.
  * 
  * @author ovstetun
  * @author chr_schwarz
  */
 public class DirectoryWalker<T extends IResultHolder> implements IRunnableWithProgress  {
+	
+	/** Max number of tests to convert at the same time. */
+	private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+	
+	private static final String MANIFEST_FILE_PREFIX = ".export-manifest.";
+	
 	private IResource resource;
 	private String outFileExtension;
 	private TreeTestWalker<T> testWalker;
 	private final Class<? extends T> resultHolderClass;
+	private ExportManifest manifest;
+
+	/** The test walkers of the conversion threads, as a walker can only convert one test at a time. */
+	private final ThreadLocal<TreeTestWalker<T>> threadWalkers = new ThreadLocal<TreeTestWalker<T>>() {
+		@Override
+		protected TreeTestWalker<T> initialValue() {
+			return new TreeTestWalker<T>(testWalker);
+		}
+	};
 
 	
 	
@@ -69,6 +108,10 @@ public class DirectoryWalker<T extends IResultHolder> implements IRunnableWithPr
 			IProject project = resource.getProject();
 			IFolder destFolder = FileExportUtils.prepareOutputFolder(monitor, project, resource);
 			
+			File manifestFile = project.getFolder("generated").getFile(MANIFEST_FILE_PREFIX + outFileExtension).getRawLocation().toFile();
+			manifest = new ExportManifest(manifestFile, resultHolderClass.getName());
+			manifest.load();
+			
 			if(resource.getRawLocation().toFile().isFile()) {
 				if (ModelUtil.isTestFile(resource.getName())) {
 					convertCubicTestFile((IFile)resource, destFolder, monitor, true);
@@ -81,6 +124,7 @@ public class DirectoryWalker<T extends IResultHolder> implements IRunnableWithPr
 				traverseFolder(project.getFolder(resource.getProjectRelativePath()), destFolder, monitor);
 			}
 			
+			manifest.save();
 			destFolder.refreshLocal(IResource.DEPTH_INFINITE, null);
 			
 			if (monitor != null) {
@@ -96,10 +140,17 @@ public class DirectoryWalker<T extends IResultHolder> implements IRunnableWithPr
 
 
 	/**
-	 * Traverses a directory. 
+	 * Traverses a directory, creating the output folders, and converts the tests in it. 
 	 * @throws Exception 
 	 */
 	public void traverseFolder(IFolder selectedFolder, IFolder destFolder, IProgressMonitor monitor) throws Exception {
+		List<ExportJob> jobs = new ArrayList<ExportJob>();
+		collectTestFiles(selectedFolder, destFolder, monitor, jobs);
+		convertTestFiles(jobs, monitor);
+	}
+
+	
+	private void collectTestFiles(IFolder selectedFolder, IFolder destFolder, IProgressMonitor monitor, List<ExportJob> jobs) throws Exception {
 		for (IResource entry : selectedFolder.members()) {
 			if (entry.getType() == IResource.FOLDER) {
 				IFolder newOutFolder = destFolder.getFolder(entry.getName());
@@ -110,20 +161,80 @@ public class DirectoryWalker<T extends IResultHolder> implements IRunnableWithPr
 					monitor.worked(1);
 				}
 				//recursive call:
-				traverseFolder((IFolder)entry, newOutFolder, monitor);
+				collectTestFiles((IFolder)entry, newOutFolder, monitor, jobs);
 			} 
-			else {
-				// convert file if it is a CubicTest test
-				String fileName = entry.getName();
-
-				if (ModelUtil.isTestFile(fileName)) {
-					convertCubicTestFile((IFile)entry, destFolder, monitor, false);
+			else if (ModelUtil.isTestFile(entry.getName())) {
+				jobs.add(new ExportJob((IFile) entry, destFolder));
+			}
+			else if (monitor != null) {
+				monitor.worked(1);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Converts the test files, on up to one thread per processor.
+	 * Progress is reported in the order of the files. If a conversion fails, the conversions that have not started
+	 * are cancelled, and the errors of all failed conversions are rethrown together, for the caller to report.
+	 */
+	private void convertTestFiles(List<ExportJob> jobs, IProgressMonitor monitor) throws Exception {
+		int threads = Math.min(MAX_THREADS, jobs.size());
+		if (threads <= 1) {
+			for (ExportJob job : jobs) {
+				convertCubicTestFile(job.testFile, job.outFolder, monitor, false);
+				if (monitor != null) {
+					monitor.worked(1);
+				}
+			}
+			return;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<String> errors = new ArrayList<String>();
+		Throwable firstError = null;
+		try {
+			List<Future<Object>> results = new ArrayList<Future<Object>>();
+			for (final ExportJob job : jobs) {
+				results.add(executor.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						convertCubicTestFile(job.testFile, job.outFolder, null, false, threadWalkers.get());
+						return null;
+					}
+				}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				try {
+					results.get(i).get();
+				}
+				catch (CancellationException e) {
+					continue;
+				}
+				catch (ExecutionException e) {
+					Throwable cause = ErrorHandler.getCause(e.getCause());
+					if (firstError == null) {
+						firstError = cause;
+						for (Future<Object> result : results) {
+							result.cancel(false);
+						}
+					}
+					errors.add(jobs.get(i).testFile.getName() + ": " + cause);
+					continue;
 				}
 				if (monitor != null) {
 					monitor.worked(1);
 				}
 			}
 		}
+		finally {
+			executor.shutdownNow();
+		}
+		if (errors.size() == 1) {
+			ErrorHandler.rethrow(firstError);
+		}
+		else if (errors.size() > 1) {
+			throw new CubicException("Export failed for " + errors.size() + " tests:\n" + StringUtils.join(errors, "\n"), firstError);
+		}
 	}
 	
 
@@ -132,6 +243,25 @@ public class DirectoryWalker<T extends IResultHolder> implements IRunnableWithPr
 	 * Exports a CubicTest file.
 	 */
 	protected void convertCubicTestFile(IFile testFile, IFolder outFolder, IProgressMonitor monitor, boolean isSelected) throws Exception {
+		convertCubicTestFile(testFile, outFolder, monitor, isSelected, testWalker);
+	}
+	
+	
+	private void convertCubicTestFile(IFile testFile, IFolder outFolder, IProgressMonitor monitor, boolean isSelected, 
+			TreeTestWalker<T> walker) throws Exception {
+		String testFileName = testFile.getName();
+		int length = testFileName.length() - 4;
+		String outFileName = testFileName.substring(0, length) + "." + outFileExtension;
+		File outFile = outFolder.getFile(outFileName).getRawLocation().toFile();
+		String manifestKey = testFile.getProjectRelativePath().toString();
+		
+		if (manifest != null) {
+			if (!isSelected && manifest.isUpToDate(manifestKey, outFile)) {
+				return;
+			}
+			manifest.remove(manifestKey);
+		}
+		
 		//load Test and start the conversion:
 		Test test = TestPersistance.loadFromFile(testFile);
 		test.refreshAndVerifySubFiles();
@@ -150,20 +280,82 @@ public class DirectoryWalker<T extends IResultHolder> implements IRunnableWithPr
 		T resultHolder = resultHolderClass.newInstance();
 		resultHolder.setSettings(new CubicTestProjectSettings(testFile.getProject()));
 		resultHolder.setTestName(StringUtils.isBlank(test.getName()) ? test.getFile().getName() : test.getName());
-		testWalker.convertTest(test, resultHolder);
-
-		//write result to file:
-		String testFileName = testFile.getName();
-		int length = testFileName.length() - 4;
-		String outFileName = testFileName.substring(0, length) + "." + outFileExtension;
 		if (!outFolder.exists()) {
 			outFolder.create(false, true, monitor);
 		}
-		File outFile = outFolder.getFile(outFileName).getRawLocation().toFile();
-    	FileWriter out = new FileWriter(outFile);
-        out.write(resultHolder.toResultString());
-        out.close();
+		
+		if (resultHolder instanceof IStreamingResultHolder) {
+			//write result to file while converting:
+			IStreamingResultHolder streamingHolder = (IStreamingResultHolder) resultHolder;
+			Writer out = FileExportUtils.newFileWriter(outFile);
+			boolean finished = false;
+			try {
+				streamingHolder.setOutput(out);
+				walker.convertTest(test, resultHolder);
+				streamingHolder.finishOutput();
+				finished = true;
+			}
+			finally {
+				out.close();
+				if (!finished) {
+					outFile.delete();
+				}
+			}
+		}
+		else {
+			walker.convertTest(test, resultHolder);
+	
+			//write result to file:
+			FileExportUtils.writeFile(outFile, resultHolder.toResultString());
+		}
+		
+		if (manifest != null) {
+			Set<File> inputFiles = new LinkedHashSet<File>();
+			addFile(inputFiles, testFile.getProject().getFile(CubicTestProjectSettings.FILE_NAME).getRawLocation());
+			addInputFiles(inputFiles, test);
+			manifest.setInputFiles(manifestKey, inputFiles);
+		}
 	}
 
+
+	/**
+	 * Adds the files that the export of the test depends on, including those of its subtests.
+	 */
+	private void addInputFiles(Set<File> inputFiles, Test test) {
+		if (test.getFile() != null && !addFile(inputFiles, test.getFile().getRawLocation())) {
+			//already added, guards against subtest cycles:
+			return;
+		}
+		if (test.getParamList() != null && StringUtils.isNotBlank(test.getParamList().getFileName())) {
+			IFile paramFile = ResourcesPlugin.getWorkspace().getRoot().getFile(new Path(test.getParamList().getFileName()));
+			addFile(inputFiles, paramFile.getRawLocation());
+		}
+		for (CustomTestStepHolder customStep : test.getCustomTestSteps()) {
+			addFile(inputFiles, customStep.getFile().getRawLocation());
+		}
+		for (SubTest subTest : test.getSubTests()) {
+			addInputFiles(inputFiles, subTest.getTest(false));
+		}
+		if (test.getStartPoint() instanceof ExtensionStartPoint) {
+			addInputFiles(inputFiles, ((ExtensionStartPoint) test.getStartPoint()).getTest(false));
+		}
+	}
+	
+	private boolean addFile(Set<File> inputFiles, IPath location) {
+		return location != null && inputFiles.add(location.toFile());
+	}
 	
+	
+	/**
+	 * A test file to convert, and the folder to write the result to.
+	 */
+	private static class ExportJob {
+		private final IFile testFile;
+		private final IFolder outFolder;
+		
+		public ExportJob(IFile testFile, IFolder outFolder) {
+			this.testFile = testFile;
+			this.outFolder = outFolder;
+		}
+	}
 }
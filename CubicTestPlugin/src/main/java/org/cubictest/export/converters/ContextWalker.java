@@ -10,7 +10,9 @@
  *******************************************************************************/
 package org.cubictest.export.converters;
 
-import org.cubictest.common.utils.ErrorHandler;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.cubictest.export.holders.IResultHolder;
 import org.cubictest.model.PageElement;
 import org.cubictest.model.context.IContext;
@@ -26,36 +28,85 @@ import org.cubictest.model.context.IContext;
  */
 public class ContextWalker<T extends IResultHolder> {
 
-	private Class<? extends IPageElementConverter<T>> pec;
+	private final ConverterFactory<IPageElementConverter<T>> pec;
 
-	private final Class<? extends IContextConverter<T>> cc;
+	private final ConverterFactory<IContextConverter<T>> cc;
+	
+	private final boolean isBatchConverter;
 
+	/**
+	 * Creates a walker that uses one instance of each converter per run.
+	 */
 	public ContextWalker(Class<? extends IPageElementConverter<T>> pec,
 			Class<? extends IContextConverter<T>> cc) {
-		this.pec = pec;
-		this.cc = cc;
+		this(pec, cc, ConverterLifecycle.PER_RUN);
+	}
+
+	public ContextWalker(Class<? extends IPageElementConverter<T>> pec,
+			Class<? extends IContextConverter<T>> cc, ConverterLifecycle lifecycle) {
+		this.pec = new ConverterFactory<IPageElementConverter<T>>(pec, lifecycle);
+		this.cc = new ConverterFactory<IContextConverter<T>>(cc, lifecycle);
+		this.isBatchConverter = IPageElementBatchConverter.class.isAssignableFrom(pec);
 	}
 
 	public void handleContext(T resultHolder, IContext context) {
-		try{
-			IContextConverter<T> cc = this.cc.newInstance();
-			cc.handlePreContext(resultHolder, context);
+		IContextConverter<T> contextConverter = cc.getConverter();
+		contextConverter.handlePreContext(resultHolder, context);
+		if (isBatchConverter) {
+			handleContextInBatch(resultHolder, context, (IPageElementBatchConverter<T>) pec.getConverter());
+		}
+		else {
 			for (PageElement pe : context.getRootElements()) {
 	
 				if (pe instanceof IContext) {
-					new ContextWalker<T>(pec, this.cc).handleContext(resultHolder,
-							(IContext) pe);
+					handleContext(resultHolder, (IContext) pe);
 				} else {
-					pec.newInstance().handlePageElement(resultHolder, pe);
+					pec.getConverter().handlePageElement(resultHolder, pe);
 				}
 	
 			}
-			cc.handlePostContext(resultHolder, context);
-		} catch (InstantiationException e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow(e);
-		} catch (IllegalAccessException e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow(e);
 		}
-		
+		contextConverter.handlePostContext(resultHolder, context);
+	}
+	
+	/**
+	 * Called when a new conversion of a test starts. Converters with per run lifecycle are recreated.
+	 */
+	public void startNewRun() {
+		pec.startNewRun();
+		cc.startNewRun();
+	}
+	
+	public Class<? extends IPageElementConverter<T>> getPageElementConverterClass() {
+		return pec.getConverterClass();
+	}
+	
+	public Class<? extends IContextConverter<T>> getContextConverterClass() {
+		return cc.getConverterClass();
+	}
+	
+	public ConverterLifecycle getLifecycle() {
+		return pec.getLifecycle();
+	}
+
+	/**
+	 * Handles all page elements of the context with one call to the converter, then the sub contexts.
+	 */
+	private void handleContextInBatch(T resultHolder, IContext context, IPageElementBatchConverter<T> elementConverter) {
+		List<PageElement> pageElements = new ArrayList<PageElement>();
+		List<IContext> subContexts = new ArrayList<IContext>();
+		for (PageElement pe : context.getRootElements()) {
+			if (pe instanceof IContext) {
+				subContexts.add((IContext) pe);
+			} else {
+				pageElements.add(pe);
+			}
+		}
+		if (!pageElements.isEmpty()) {
+			elementConverter.handlePageElements(resultHolder, pageElements);
+		}
+		for (IContext subContext : subContexts) {
+			handleContext(resultHolder, subContext);
+		}
 	}
 }
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.converters;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.cubictest.common.utils.ErrorHandler;
+
+/**
+ * Provides the converter instances used by the test walkers, according to a {@link ConverterLifecycle}.
+ * 
+ * @author Christian Schwarz
+ */
+public class ConverterFactory<C> {
+
+	private static final ConcurrentMap<Class<?>, Object> singletons = new ConcurrentHashMap<Class<?>, Object>();
+	
+	private final Class<? extends C> converterClass;
+	private final ConverterLifecycle lifecycle;
+	private C runConverter;
+	private ThreadLocal<C> threadConverter;
+
+	
+	public ConverterFactory(Class<? extends C> converterClass, ConverterLifecycle lifecycle) {
+		this.converterClass = converterClass;
+		this.lifecycle = lifecycle;
+		if (lifecycle == ConverterLifecycle.PER_THREAD) {
+			threadConverter = new ThreadLocal<C>();
+		}
+	}
+
+	
+	/**
+	 * Gets the converter to use, creating it if the lifecycle requires a new one.
+	 */
+	@SuppressWarnings("unchecked")
+	public C getConverter() {
+		switch (lifecycle) {
+		case PER_RUN:
+			if (runConverter == null) {
+				runConverter = createConverter();
+			}
+			return runConverter;
+		case PER_THREAD:
+			C converter = threadConverter.get();
+			if (converter == null) {
+				converter = createConverter();
+				threadConverter.set(converter);
+			}
+			return converter;
+		case SINGLETON:
+			Object singleton = singletons.get(converterClass);
+			if (singleton == null) {
+				singleton = createConverter();
+				Object existing = singletons.putIfAbsent(converterClass, singleton);
+				if (existing != null) {
+					singleton = existing;
+				}
+			}
+			return (C) singleton;
+		default:
+			return createConverter();
+		}
+	}
+	
+	
+	/**
+	 * Called when a new conversion of a test starts. Converters with per run lifecycle are recreated.
+	 */
+	public void startNewRun() {
+		runConverter = null;
+	}
+	
+	
+	public Class<? extends C> getConverterClass() {
+		return converterClass;
+	}
+	
+	public ConverterLifecycle getLifecycle() {
+		return lifecycle;
+	}
+
+	
+	private C createConverter() {
+		try {
+			return converterClass.newInstance();
+		} catch (InstantiationException e) {
+			ErrorHandler.logAndShowErrorDialogAndRethrow(e);
+		} catch (IllegalAccessException e) {
+			ErrorHandler.logAndShowErrorDialogAndRethrow(e);
+		}
+		return null;
+	}
+}
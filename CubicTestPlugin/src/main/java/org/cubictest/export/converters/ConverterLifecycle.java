@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.converters;
+
+/**
+ * How long a converter instance is used by the test walkers before a new one is created.
+ * 
+ * @author Christian Schwarz
+ */
+public enum ConverterLifecycle {
+	
+	/** A new converter for every node, context or page element that is converted. */
+	PER_USE,
+	
+	/** One converter per conversion of a test. */
+	PER_RUN,
+	
+	/** One converter per thread using the walker. */
+	PER_THREAD,
+	
+	/** One converter of the class, shared by all walkers and threads. The converter must be stateless. */
+	SINGLETON
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.converters;
+
+import java.util.List;
+
+import org.cubictest.export.holders.IResultHolder;
+import org.cubictest.model.PageElement;
+
+
+/**
+ * Page element converter that can verify all page elements of a page or context together,
+ * e.g. to check them with a single request to the browser.
+ * Used by the ContextWalker instead of calling handlePageElement for each page element.
+ *
+ * @author chr_schwarz
+*/
+public interface IPageElementBatchConverter<T extends IResultHolder> extends IPageElementConverter<T> {
+
+	/**
+	 * Verifies that the page elements are present. A result must be given for each page element,
+	 * the same way as handlePageElement would give it.
+	 * @param pageElements the page elements of a page or context that are not contexts themselves, in model order.
+	 */
+	public void handlePageElements(T t, List<PageElement> pageElements);
+	
+}
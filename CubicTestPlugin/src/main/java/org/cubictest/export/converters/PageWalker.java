@@ -33,6 +33,11 @@ public class PageWalker<T extends IResultHolder> extends ContextWalker<T> {
 		super(pec, cc);
 	}
 
+	public PageWalker(Class<? extends IPageElementConverter<T>> pec,
+			Class<? extends IContextConverter<T>> cc, ConverterLifecycle lifecycle) {
+		super(pec, cc, lifecycle);
+	}
+
 	public void handlePage(T resultHolder, Page page) {
 		super.handleContext(resultHolder, page);
 		for (CommonTransition at : page.getCommonTransitions()) {
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.converters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cubictest.common.utils.Logger;
+import org.cubictest.common.utils.ModelUtil;
+import org.cubictest.model.ExtensionPoint;
+import org.cubictest.model.Transition;
+import org.cubictest.model.TransitionNode;
+
+/**
+ * Computes the paths through a test graph that the TreeTestWalker should convert.
+ * All paths are found in a single depth first traversal, and results are memoized per node identity,
+ * so that subtests and extension start points that are expanded several times are only resolved once.
+ * <p>
+ * An instance should only live for one conversion of a test, as the model is not watched for changes.
+ *
+ * @author Christian Schwarz
+ */
+public class TreeTestPathFinder {
+
+	private Map<TransitionNode, List<List<Transition>>> allPaths = new IdentityHashMap<TransitionNode, List<List<Transition>>>();
+
+	private Map<TransitionNode, Map<TransitionNode, List<Transition>>> targetPaths = new IdentityHashMap<TransitionNode, Map<TransitionNode, List<Transition>>>();
+
+	private Map<TransitionNode, Map<TransitionNode, Boolean>> reachability = new IdentityHashMap<TransitionNode, Map<TransitionNode, Boolean>>();
+
+
+	/**
+	 * Gets all paths from the start node to the leaves of the tree, in depth first order.
+	 * A path is given as the list of transitions to follow from the start node (empty if the start node is a leaf).
+	 * Nodes reachable from more than one path are only included in the first path that reaches them.
+	 * Transitions to extension points are not followed, as there is nothing to convert there.
+	 *
+	 * @param startNode the node to find all paths from.
+	 * @return the paths, in the order they should be converted.
+	 */
+	public List<List<Transition>> getAllPaths(TransitionNode startNode) {
+		List<List<Transition>> paths = allPaths.get(startNode);
+		if (paths == null) {
+			paths = new ArrayList<List<Transition>>();
+			Map<TransitionNode, Boolean> visited = new IdentityHashMap<TransitionNode, Boolean>();
+			collectPaths(startNode, new ArrayList<Transition>(), paths, visited);
+			allPaths.put(startNode, paths);
+		}
+		return paths;
+	}
+
+
+	/**
+	 * Gets the single path from the start node towards the target node.
+	 * At each node, the first out transition whose end node is on path to the target is followed.
+	 *
+	 * @param startNode the node to start from.
+	 * @param targetNode the node that the path should lead to.
+	 * @param stopAtTarget whether the path should end when it gets to the target node.
+	 * @return the transitions to follow from the start node, or <code>null</code> if the start node is not on path to the target.
+	 */
+	public List<Transition> getPathToNode(TransitionNode startNode, TransitionNode targetNode, boolean stopAtTarget) {
+		Map<TransitionNode, List<Transition>> pathsToTarget = targetPaths.get(targetNode);
+		if (pathsToTarget == null) {
+			pathsToTarget = new IdentityHashMap<TransitionNode, List<Transition>>();
+			targetPaths.put(targetNode, pathsToTarget);
+		}
+		if (pathsToTarget.containsKey(startNode)) {
+			return pathsToTarget.get(startNode);
+		}
+
+		List<Transition> path = null;
+		if (isOnPathToNode(startNode, targetNode)) {
+			path = new ArrayList<Transition>();
+			Map<TransitionNode, Boolean> visited = new IdentityHashMap<TransitionNode, Boolean>();
+			TransitionNode node = startNode;
+			while (node != null && !(stopAtTarget && node == targetNode)) {
+				visited.put(node, Boolean.TRUE);
+				Transition next = null;
+				for (Transition outTransition : node.getOutTransitions()) {
+					TransitionNode endNode = outTransition.getEnd();
+					if (endNode != null && !visited.containsKey(endNode) && isOnPathToNode(endNode, targetNode)) {
+						next = outTransition;
+						break;
+					}
+				}
+				if (next == null) {
+					break;
+				}
+				path.add(next);
+				node = next.getEnd();
+			}
+			path = Collections.unmodifiableList(path);
+		}
+		pathsToTarget.put(startNode, path);
+		return path;
+	}
+
+
+	/**
+	 * Checks if there is a way to get from the node to check to the target node.
+	 * Same semantics as {@link ModelUtil#isOnPathToNode(TransitionNode, TransitionNode)}, but each node
+	 * is only examined once per target.
+	 *
+	 * @param nodeToCheck the node to check all routes from
+	 * @param targetNode the node we want to be able to reach
+	 */
+	public boolean isOnPathToNode(TransitionNode nodeToCheck, TransitionNode targetNode) {
+		if (nodeToCheck == null) {
+			Logger.warn("Encountered null node in traversal of test. Skipping it");
+			return false;
+		}
+		Map<TransitionNode, Boolean> reachesTarget = reachability.get(targetNode);
+		if (reachesTarget == null) {
+			reachesTarget = new IdentityHashMap<TransitionNode, Boolean>();
+			reachability.put(targetNode, reachesTarget);
+		}
+		return reaches(nodeToCheck, ModelUtil.getPathTargetId(targetNode), reachesTarget);
+	}
+
+
+	private boolean reaches(TransitionNode node, String targetNodeId, Map<TransitionNode, Boolean> reachesTarget) {
+		Boolean known = reachesTarget.get(node);
+		if (known != null) {
+			return known;
+		}
+		//guard against cycles while the node is being examined:
+		reachesTarget.put(node, Boolean.FALSE);
+
+		boolean result = node.getId().equals(targetNodeId);
+		if (!result) {
+			for (Transition outTransition : node.getOutTransitions()) {
+				TransitionNode endNode = outTransition.getEnd();
+				if (endNode != null && reaches(endNode, targetNodeId, reachesTarget)) {
+					result = true;
+					break;
+				}
+			}
+		}
+		reachesTarget.put(node, result);
+		return result;
+	}
+
+
+	private void collectPaths(TransitionNode node, List<Transition> currentPath, List<List<Transition>> paths,
+			Map<TransitionNode, Boolean> visited) {
+
+		//mark as being on the current path, so that a cycle in the model can not cause an infinite traversal:
+		visited.put(node, Boolean.FALSE);
+		boolean isLeaf = true;
+
+		for (Transition outTransition : node.getOutTransitions()) {
+			TransitionNode endNode = outTransition.getEnd();
+			if (endNode == null) {
+				Logger.warn("Encountered null node in traversal of test. Skipping it");
+				continue;
+			}
+			if (endNode instanceof ExtensionPoint || visited.containsKey(endNode)) {
+				continue;
+			}
+			isLeaf = false;
+			currentPath.add(outTransition);
+			collectPaths(endNode, currentPath, paths, visited);
+			currentPath.remove(currentPath.size() - 1);
+		}
+
+		if (isLeaf) {
+			paths.add(Collections.unmodifiableList(new ArrayList<Transition>(currentPath)));
+		}
+		visited.put(node, Boolean.TRUE);
+	}
+}
@@ -10,14 +10,18 @@
  *******************************************************************************/
 package org.cubictest.export.converters;
 
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.cubictest.common.utils.ErrorHandler;
 import org.cubictest.common.utils.Logger;
 import org.cubictest.common.utils.ModelUtil;
 import org.cubictest.export.exceptions.AssertionFailedException;
 import org.cubictest.export.exceptions.ExporterException;
+import org.cubictest.export.holders.ContextHolder;
 import org.cubictest.export.holders.IResultHolder;
 import org.cubictest.model.ConnectionPoint;
 import org.cubictest.model.CustomTestStepHolder;
@@ -43,29 +47,76 @@ import org.cubictest.model.UserInteractionsTransition;
  */
 public class TreeTestWalker<T extends IResultHolder> {
 
-	private List<TransitionNode> convertedNodes = new ArrayList<TransitionNode>();
-
-	private Class<? extends IUrlStartPointConverter<T>> urlStartPointConverter;
+	/** The kinds of nodes that the walker converts differently. */
+	private enum NodeKind { URL_START_POINT, EXTENSION_START_POINT, SUB_TEST, PAGE, CUSTOM_STEP, OTHER }
+	
+	/** The node kind of each base node class. Subclasses get the kind of their nearest superclass in the table. */
+	private static final Map<Class<?>, NodeKind> baseNodeKinds = new HashMap<Class<?>, NodeKind>();
+	
+	/** The node kind of each node class that has been converted. */
+	private static final Map<Class<?>, NodeKind> nodeKinds = new ConcurrentHashMap<Class<?>, NodeKind>();
+
+	static {
+		baseNodeKinds.put(UrlStartPoint.class, NodeKind.URL_START_POINT);
+		baseNodeKinds.put(ExtensionStartPoint.class, NodeKind.EXTENSION_START_POINT);
+		baseNodeKinds.put(SubTest.class, NodeKind.SUB_TEST);
+		baseNodeKinds.put(Page.class, NodeKind.PAGE);
+		baseNodeKinds.put(CustomTestStepHolder.class, NodeKind.CUSTOM_STEP);
+	}
+	
+	private ConverterFactory<IUrlStartPointConverter<T>> urlStartPointConverter;
 
 	private PageWalker<T> pageWalker;
 
-	private Class<? extends ITransitionConverter<T>> transitionConverter;
+	private ConverterFactory<ITransitionConverter<T>> transitionConverter;
+
+	private ConverterFactory<ICustomTestStepConverter<T>> customTestStepConverter;
 
-	private Class<? extends ICustomTestStepConverter<T>> customTestStepConverter;
+	private TreeTestPathFinder pathFinder = new TreeTestPathFinder();
+
+	private Map<SubTest, Boolean> loadedSubTests = new IdentityHashMap<SubTest, Boolean>();
 
 	
 	/**
 	 * Public constructor. Accepts the generic converters.
+	 * One instance of each converter is used per run.
 	 */
 	public TreeTestWalker(Class<? extends IUrlStartPointConverter<T>> urlSpc,
 			Class<? extends IPageElementConverter<T>> pec,
 			Class<? extends IContextConverter<T>> cc,
 			Class<? extends ITransitionConverter<T>> tc,
 			Class<? extends ICustomTestStepConverter<T>> ctsc) {
-		this.urlStartPointConverter = urlSpc;
-		this.pageWalker = new PageWalker<T>(pec,cc);
-		this.transitionConverter = tc;
-		this.customTestStepConverter = ctsc;
+		this(urlSpc, pec, cc, tc, ctsc, ConverterLifecycle.PER_RUN);
+	}
+
+	
+	/**
+	 * Public constructor. Accepts the generic converters, and how long each converter instance should be used.
+	 */
+	public TreeTestWalker(Class<? extends IUrlStartPointConverter<T>> urlSpc,
+			Class<? extends IPageElementConverter<T>> pec,
+			Class<? extends IContextConverter<T>> cc,
+			Class<? extends ITransitionConverter<T>> tc,
+			Class<? extends ICustomTestStepConverter<T>> ctsc,
+			ConverterLifecycle lifecycle) {
+		this.urlStartPointConverter = new ConverterFactory<IUrlStartPointConverter<T>>(urlSpc, lifecycle);
+		this.pageWalker = new PageWalker<T>(pec, cc, lifecycle);
+		this.transitionConverter = new ConverterFactory<ITransitionConverter<T>>(tc, lifecycle);
+		this.customTestStepConverter = new ConverterFactory<ICustomTestStepConverter<T>>(ctsc, lifecycle);
+	}
+
+	
+	/**
+	 * Creates a walker with the same converters and lifecycle as the given walker.
+	 * A walker keeps state while converting a test, so each thread that converts tests must have its own walker.
+	 */
+	public TreeTestWalker(TreeTestWalker<T> walker) {
+		this(walker.urlStartPointConverter.getConverterClass(),
+				walker.pageWalker.getPageElementConverterClass(),
+				walker.pageWalker.getContextConverterClass(),
+				walker.transitionConverter.getConverterClass(),
+				walker.customTestStepConverter.getConverterClass(),
+				walker.urlStartPointConverter.getLifecycle());
 	}
 
 	
@@ -76,21 +127,15 @@ public class TreeTestWalker<T extends IResultHolder> {
 	public void convertTest(Test test, T resultHolder) {
 		
 		//If multiple paths in tree test, we should start from the very beginning for each path.
-		//As we use extension points etc., we do not know in advance how many times to process a node.
-		//We therefore use a strategy of looping over the tree many times and maintaing a list of converted nodes.
+		//All root-to-leaf paths are computed in advance, and each of them is converted from the start point.
 		//See JUnit test case.
 		
+		startNewRun();
 		try {
-			//be sure to cover all paths in tree test:
-			for (int path = 0; path < 42; path++) {
-				convertTransitionNode(resultHolder, test.getStartPoint(), null, null);
-			}
-		} 
-		catch (IllegalAccessException e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow(e);
+			convertTransitionNode(resultHolder, test.getStartPoint(), null, null);
 		}
-		catch (InstantiationException e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow(e);
+		finally {
+			endRun(resultHolder);
 		}
 	}
 
@@ -122,14 +167,12 @@ public class TreeTestWalker<T extends IResultHolder> {
 		}
 		
 		//we have a target; do not traverse tree
+		startNewRun();
 		try {
 			convertTransitionNode(resultHolder, test.getStartPoint(), targetExtensionPoint, targetPage);
-		} 
-		catch (IllegalAccessException e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow(e);
 		}
-		catch (InstantiationException e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow(e);
+		finally {
+			endRun(resultHolder);
 		}
 	}
 	
@@ -140,125 +183,159 @@ public class TreeTestWalker<T extends IResultHolder> {
 	 * only convert the used path in the subtest (the path leading to the
 	 * extension point that is extended from).
 	 * Stops at targetPage if non-null.
+	 * If neither target is set, all paths from the node are converted.
 	 * 
 	 * @param resultHolder object holding results.
 	 * @param node the node to convert.
 	 * @param targetExtensionPoint if non-null, only convert node on path to this ExtensionPoint.
 	 * @param targetPage page that the walker should stop when it gets to
-	 * @return whether the node is finished (all paths in tree containing node has been traversed).
 	 */
-	protected boolean convertTransitionNode(T resultHolder, TransitionNode node, ConnectionPoint targetExtensionPoint, TransitionNode targetPage)
-			throws InstantiationException, IllegalAccessException {
+	protected void convertTransitionNode(T resultHolder, TransitionNode node, ConnectionPoint targetExtensionPoint, TransitionNode targetPage) {
 
-		boolean nodeFinished = true; //init
-
-		//If multiple paths in tree test, we should start from the very beginning for each path.
-		//As we use extension points etc., we do not know in advance how many times to process a node.
-		//We therefore use a strategy of looping over the tree many times and maintaing a list of converted nodes.
-		//See JUnit test case.
-		if (convertedNodes.contains(node)) {
-			return true;
+		if (node == null) {
+			Logger.warn("Encountered null node in traversal of test. Skipping it");
+			return;
 		}
-
-		if (nodeShouldBeConverted(node, targetExtensionPoint, targetPage)) {
-			
-			if (node instanceof UrlStartPoint) {
-				resultHolder.pushBreadcrumb(node);
-				urlStartPointConverter.newInstance().handleUrlStartPoint(resultHolder, (UrlStartPoint) node, targetExtensionPoint == null);
-				resultHolder.popBreadcrumb();
-			} 
-			else if (node instanceof ExtensionStartPoint) {
-				resultHolder.pushBreadcrumb(node);
-				handleExtensionStartPoint(resultHolder, node);
-				resultHolder.popBreadcrumb();
+		
+		if (targetExtensionPoint == null && targetPage == null) {
+			for (List<Transition> path : pathFinder.getAllPaths(node)) {
+				convertPath(resultHolder, node, path, null);
 			}
-			else if (node instanceof SubTest) {
-				resultHolder.pushBreadcrumb(node);
-				handleSubTest(resultHolder, node, targetExtensionPoint);
-				resultHolder.popBreadcrumb();
+		}
+		else if (targetPage == null) {
+			List<Transition> path = pathFinder.getPathToNode(node, targetExtensionPoint, false);
+			if (path != null) {
+				convertPath(resultHolder, node, path, targetExtensionPoint);
 			}
-			else if (node instanceof Page) {
-				resultHolder.pushBreadcrumb(node);
-				pageWalker.handlePage(resultHolder, (Page) node);
-				resultHolder.popBreadcrumb();
-			} 
-			else if (node instanceof CustomTestStepHolder) {
-				resultHolder.pushBreadcrumb(node);
-				handleCustomStep(resultHolder, node);
-				resultHolder.popBreadcrumb();
+		}
+		else if (targetExtensionPoint == null) {
+			List<Transition> path = pathFinder.getPathToNode(node, targetPage, true);
+			if (path != null) {
+				convertPath(resultHolder, node, path, null);
 			}
+		}
+	}
+
 
-			//OK, node converted, see if we should stop traversing the successor nodes:
-			if (node.equals(targetPage)) {
-				return true;
+	/**
+	 * Converts the start node and then each transition and end node of the path, in order.
+	 */
+	private void convertPath(T resultHolder, TransitionNode startNode, List<Transition> path, ConnectionPoint targetExtensionPoint) {
+		
+		convertNode(resultHolder, startNode, targetExtensionPoint);
+		for (Transition transition : path) {
+			if (transition instanceof UserInteractionsTransition) {
+				//convert user interactions transition:
+				transitionConverter.getConverter().handleUserInteractions(resultHolder,(UserInteractionsTransition) transition);
+			}
+			else {
+				//normal connection, only follow it
 			}
-			
-			//convert the successor nodes (depth first, starts recursive converting down each path):
-			int pathNum = 0;
-			for (Transition outTransition : node.getOutTransitions()) {
-				pathNum++;
-				nodeFinished = handleNextNode(resultHolder, node, targetExtensionPoint, targetPage, pathNum, outTransition);
-				if (!nodeFinished) {
-					//skip to (start from) *root* of tree before traversing the next path
+			convertNode(resultHolder, transition.getEnd(), targetExtensionPoint);
+		}
+	}
+
+
+	/**
+	 * Converts a single node (not its successors).
+	 */
+	private void convertNode(T resultHolder, TransitionNode node, ConnectionPoint targetExtensionPoint) {
+		
+		NodeKind kind = getNodeKind(node);
+		if (kind == NodeKind.OTHER) {
+			return;
+		}
+		resultHolder.pushBreadcrumb(node);
+		switch (kind) {
+		case URL_START_POINT:
+			urlStartPointConverter.getConverter().handleUrlStartPoint(resultHolder, (UrlStartPoint) node, targetExtensionPoint == null);
+			break;
+		case EXTENSION_START_POINT:
+			handleExtensionStartPoint(resultHolder, node);
+			break;
+		case SUB_TEST:
+			handleSubTest(resultHolder, node, targetExtensionPoint);
+			break;
+		case PAGE:
+			pageWalker.handlePage(resultHolder, (Page) node);
+			break;
+		case CUSTOM_STEP:
+			handleCustomStep(resultHolder, node);
+			break;
+		case OTHER:
+			//returned above
+			break;
+		}
+		resultHolder.popBreadcrumb();
+	}
+
+
+	/**
+	 * Gets the kind of the node from the node class, looking up the superclasses in the table of base node classes 
+	 * the first time a node class is seen.
+	 */
+	private static NodeKind getNodeKind(TransitionNode node) {
+		if (node == null) {
+			return NodeKind.OTHER;
+		}
+		NodeKind kind = nodeKinds.get(node.getClass());
+		if (kind == null) {
+			kind = NodeKind.OTHER;
+			for (Class<?> nodeClass = node.getClass(); nodeClass != null; nodeClass = nodeClass.getSuperclass()) {
+				NodeKind baseKind = baseNodeKinds.get(nodeClass);
+				if (baseKind != null) {
+					kind = baseKind;
 					break;
 				}
 			}
-			
-			//possible override of nodeFinished:
-			if (targetExtensionPoint != null) {
-				//there can exists a tree test *after* this test, so we do not know whether we are finished
-				nodeFinished = false;
-			}
-			
-			if (nodeFinished) {
-				convertedNodes.add(node);
-			}
+			nodeKinds.put(node.getClass(), kind);
 		}
-		return nodeFinished;
+		return kind;
 	}
 
 
+	/**
+	 * Clears the memoized paths and subtests from any previous conversion.
+	 */
+	private void startNewRun() {
+		pathFinder = new TreeTestPathFinder();
+		loadedSubTests.clear();
+		urlStartPointConverter.startNewRun();
+		pageWalker.startNewRun();
+		transitionConverter.startNewRun();
+		customTestStepConverter.startNewRun();
+	}
 
-	private boolean handleNextNode(T resultHolder, TransitionNode node,
-			ConnectionPoint targetExtensionPoint, TransitionNode targetPage,
-			int pathNum, Transition outTransition)
-			throws InstantiationException, IllegalAccessException {
-		
-		boolean nodeFinished = true; //init
-		TransitionNode endNode = (TransitionNode) outTransition.getEnd();
 
-		if (convertedNodes.contains(endNode)) {
-			//do not convert;
+	/**
+	 * Clears the cached XPaths of the result holder, so that the listeners it has added to the model are removed
+	 * and the model does not keep the holder (and e.g. its browser session) alive after the run.
+	 */
+	private void endRun(T resultHolder) {
+		if (resultHolder instanceof ContextHolder) {
+			((ContextHolder) resultHolder).clearXPathCache();
 		}
-		else {
-			if (nodeShouldBeConverted(endNode, targetExtensionPoint, targetPage)) {
-				
-				if (outTransition instanceof UserInteractionsTransition) {
-					//convert user interactions transition:
-					transitionConverter.newInstance().handleUserInteractions(resultHolder,(UserInteractionsTransition) outTransition);
-				}
-				else {
-					//normal connection, only follow it
-				}
-				
-				// convert end node recursively: 
-				nodeFinished = convertTransitionNode(resultHolder, endNode, targetExtensionPoint, targetPage);
+	}
 
-				if (pathNum < node.getOutTransitionsWithoutExtensionPoints().size() && targetExtensionPoint == null) {
-					//end node converted, skip to root of tree to start traversal of the other paths from there.
-					nodeFinished = false;
-				}
-			}
+
+	/**
+	 * Gets the test of the subtest. The file is (re)loaded the first time the subtest is converted in a run,
+	 * and the loaded test is reused when the subtest is on several paths of a tree.
+	 */
+	private Test getSubTestTest(SubTest subtest) {
+		if (loadedSubTests.containsKey(subtest)) {
+			return subtest.getTest(false);
 		}
-		return nodeFinished;
+		loadedSubTests.put(subtest, Boolean.TRUE);
+		return subtest.getTest(true);
 	}
 
 
 
-	private void handleCustomStep(T resultHolder, TransitionNode node) throws InstantiationException, IllegalAccessException {
+	private void handleCustomStep(T resultHolder, TransitionNode node) {
 		
 		CustomTestStepHolder ctsh = (CustomTestStepHolder) node;
-		ICustomTestStepConverter<T> ctsc = customTestStepConverter.newInstance();
+		ICustomTestStepConverter<T> ctsc = customTestStepConverter.getConverter();
 		ctsc.handleCustomStep(resultHolder,
 				ctsh, ctsc.getDataKey() == null ? null : ctsh.getCustomTestStep(false).getData( ctsc.getDataKey()));
 	}
@@ -268,7 +345,7 @@ public class TreeTestWalker<T extends IResultHolder> {
 	private void handleSubTest(T resultHolder, TransitionNode node, ConnectionPoint targetExtensionPoint) {
 		
 		SubTest subtest = (SubTest) node;
-		Test subtestTest = subtest.getTest(true);
+		Test subtestTest = getSubTestTest(subtest);
 		List<Transition> outTransitions = subtest.getOutTransitions();
 		ExtensionPoint subTestTargetExPoint = null;
 		if (outTransitions != null && outTransitions.size() > 0 && outTransitions.get(0) instanceof ExtensionTransition) {
@@ -307,9 +384,9 @@ public class TreeTestWalker<T extends IResultHolder> {
 
 
 
-	private void handleExtensionStartPoint(T resultHolder, TransitionNode node) throws InstantiationException, IllegalAccessException {
+	private void handleExtensionStartPoint(T resultHolder, TransitionNode node) {
 		ExtensionStartPoint exStartPoint = (ExtensionStartPoint) node;
-		Test subtestTest = (((SubTest) node).getTest(true));
+		Test subtestTest = getSubTestTest((SubTest) node);
 		ExtensionPoint targetInSubTest = ((ExtensionTransition) exStartPoint.getOutTransitions().get(0)).getExtensionPoint();
 		convertTransitionNode(resultHolder, subtestTest.getStartPoint(), targetInSubTest, null);
 		resultHolder.updateStatus(((SubTest) node), false, (ExtensionStartPoint) node);
@@ -317,24 +394,6 @@ public class TreeTestWalker<T extends IResultHolder> {
 
 
 
-	private boolean nodeShouldBeConverted(TransitionNode node, ConnectionPoint targetExtensionPoint, TransitionNode targetPage) {
-		if (node == null) {
-			Logger.warn("Encountered null node in traversal of test. Skipping it");
-			return false;
-		}
-		else if (targetExtensionPoint == null && targetPage == null) {
-			return true;
-		}
-		else if (targetPage == null) { 
-			return targetExtensionPoint == null || ModelUtil.isOnPathToNode(node, targetExtensionPoint);
-		}
-		else if (targetExtensionPoint == null) {
-			return targetPage == null || ModelUtil.isOnPathToNode(node, targetPage);
-		}
-		return false;
-	}
-
-
 	private void handleSubTestException(T resultHolder, SubTest subTest, ConnectionPoint targetExtensionPoint, Exception e) {
 		if (e instanceof AssertionFailedException) {
 			resultHolder.updateStatus(subTest, false, targetExtensionPoint);
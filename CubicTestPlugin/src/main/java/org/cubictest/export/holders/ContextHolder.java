@@ -10,7 +10,10 @@
  *******************************************************************************/
 package org.cubictest.export.holders;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Stack;
 
@@ -18,6 +21,7 @@ import org.apache.commons.lang.StringUtils;
 import org.cubictest.common.settings.CubicTestProjectSettings;
 import org.cubictest.export.utils.exported.XPathBuilder;
 import org.cubictest.model.ConnectionPoint;
+import org.cubictest.model.Identifier;
 import org.cubictest.model.PageElement;
 import org.cubictest.model.PropertyAwareObject;
 import org.cubictest.model.SubTest;
@@ -40,6 +44,20 @@ public abstract class ContextHolder implements IResultHolder {
 	private boolean useNamespace = false;
 	protected CubicTestProjectSettings settings;
 	
+	/** Full context XPaths of page elements, valid as long as no identifiers or context memberships change. */
+	private Map<PageElement, String> fullContextCache = new IdentityHashMap<PageElement, String>();
+	/** XPaths of page elements including their children, as used inside the XPath of their parent contexts. */
+	private Map<PageElement, String> childContextCache = new IdentityHashMap<PageElement, String>();
+	/** Page elements used in cached XPaths, and thus listened to for changes. */
+	private Map<PageElement, Boolean> watchedElements = new IdentityHashMap<PageElement, Boolean>();
+	private PropertyChangeListener cacheInvalidator = new PropertyChangeListener() {
+		public void propertyChange(PropertyChangeEvent evt) {
+			if (!PropertyAwareObject.STATUS.equals(evt.getPropertyName()) && !Identifier.ACTUAL.equals(evt.getPropertyName())) {
+				clearXPathCache();
+			}
+		}
+	};
+	
 	public CubicTestProjectSettings getSettings() {
 		return settings;
 	}
@@ -62,7 +80,7 @@ public abstract class ContextHolder implements IResultHolder {
 			
 			for (PageElement pe : ctx.getRootElements()) {
 				//setting current context as parent of each page element within context
-				elementParentMap.put(pe, (PageElement) ctx);
+				setParent(pe, (PageElement) ctx);
 			}
 		}
 	}
@@ -91,18 +109,32 @@ public abstract class ContextHolder implements IResultHolder {
 	 * Asserts all sibling elements in context present, and recurses into parent contexts to
 	 * give a precise XPath to identify the element.
 	 * Appends child element XPaths.
+	 * The XPath is cached until an identifier or the context of a page element it is built from changes.
 	 */
 	public String getFullContextWithAllElements(PageElement pageElement) {
-		String axis = "/descendant-or-self::";
-		if (!isInAContext(pageElement)) {
-			axis = "//";
+		String xpath = fullContextCache.get(pageElement);
+		if (xpath == null) {
+			String axis = "/descendant-or-self::";
+			if (!isInAContext(pageElement)) {
+				axis = "//";
+			}
+			StringBuilder buff = new StringBuilder();
+			appendFullContextWithAllElements(buff, pageElement, axis, true, null);
+			xpath = buff.toString();
+			fullContextCache.put(pageElement, xpath);
 		}
-		return getFullContextWithAllElements(pageElement, axis, true, null);
+		return xpath;
 	}
 	
-	 private String getFullContextWithAllElements(PageElement pageElement, String axis, boolean traverseParents, PageElement elementToIgnore) {
+	private void appendFullContextWithAllElements(StringBuilder buff, PageElement pageElement, String axis, boolean traverseParents, PageElement elementToIgnore) {
+		watch(pageElement);
 		
-		String elementExpression = axis + XPathBuilder.getXPathForSingleElement(pageElement, useNamespace);
+		if (traverseParents && isInAContext(pageElement) && !(getParent(pageElement) instanceof Frame)) {
+			appendFullContextWithAllElements(buff, getParent(pageElement), "/descendant-or-self::", true, pageElement);
+		}
+		
+		buff.append(axis);
+		XPathBuilder.appendXPathForSingleElement(buff, pageElement, useNamespace);
 		
 		if (pageElement instanceof IContext && !(pageElement instanceof Frame)) {
 			IContext context = (IContext) pageElement;
@@ -110,25 +142,64 @@ public abstract class ContextHolder implements IResultHolder {
 				if (child == elementToIgnore) {
 					continue;
 				}
-				String notStart = "";
-				String notEnd = "";
+				buff.append("[");
 				if (child.isNot()) {
-					notStart = "not(";
-					notEnd = ")";
+					buff.append("not(");
 				}
-				String childExpression = "[" + notStart + getFullContextWithAllElements(child, "descendant-or-self::", false, null) + notEnd + "]";
-				elementExpression += childExpression;
+				buff.append(getChildContextWithAllElements(child));
+				if (child.isNot()) {
+					buff.append(")");
+				}
+				buff.append("]");
 			}
 		}
-		
-		if (traverseParents && isInAContext(pageElement) && !(getParent(pageElement) instanceof Frame)) {
-			elementExpression = getFullContextWithAllElements(getParent(pageElement), "/descendant-or-self::", true, pageElement) + elementExpression;
-		}
-		
-		return elementExpression;
 	}
 
+	private String getChildContextWithAllElements(PageElement child) {
+		String xpath = childContextCache.get(child);
+		if (xpath == null) {
+			StringBuilder buff = new StringBuilder();
+			appendFullContextWithAllElements(buff, child, "descendant-or-self::", false, null);
+			xpath = buff.toString();
+			childContextCache.put(child, xpath);
+		}
+		return xpath;
+	}
 	
+	/**
+	 * Listens for changes of the page element and its identifiers, as they invalidate cached XPaths.
+	 */
+	private void watch(PageElement pageElement) {
+		if (watchedElements.put(pageElement, Boolean.TRUE) == null) {
+			pageElement.addPropertyChangeListener(cacheInvalidator);
+			for (Identifier identifier : pageElement.getIdentifiers()) {
+				identifier.addPropertyChangeListener(cacheInvalidator);
+			}
+		}
+	}
+
+	/**
+	 * Clears the cached XPaths of page elements, and stops listening for changes in the page elements.
+	 * Invoked by the test walker when a run ends.
+	 */
+	public void clearXPathCache() {
+		for (PageElement pageElement : watchedElements.keySet()) {
+			pageElement.removePropertyChangeListener(cacheInvalidator);
+			for (Identifier identifier : pageElement.getIdentifiers()) {
+				identifier.removePropertyChangeListener(cacheInvalidator);
+			}
+		}
+		watchedElements.clear();
+		fullContextCache.clear();
+		childContextCache.clear();
+	}
+
+	private void setParent(PageElement pageElement, PageElement parent) {
+		PageElement oldParent = elementParentMap.put(pageElement, parent);
+		if (oldParent != parent && watchedElements.containsKey(pageElement)) {
+			clearXPathCache();
+		}
+	}
 
 	private PageElement getParent(PageElement pageElement) {
 		return elementParentMap.get(pageElement);
@@ -176,7 +247,7 @@ public abstract class ContextHolder implements IResultHolder {
 		contextStack = new Stack<IContext>();
 		for (PageElement pe : frame.getRootElements()) {
 			//setting current context as parent of each page element within context
-			elementParentMap.put(pe, frame);
+			setParent(pe, frame);
 		}
 	}
 
@@ -198,6 +269,9 @@ public abstract class ContextHolder implements IResultHolder {
 	}
 	
 	public void setUseNamespace(boolean useNamespace) {
+		if (useNamespace != this.useNamespace) {
+			clearXPathCache();
+		}
 		this.useNamespace = useNamespace;
 	}
 	
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.holders;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Result holder that can write the result to a writer while the test is exported,
+ * instead of keeping the whole result in memory until {@link #toResultString()} is called.
+ * 
+ * @author chr_schwarz 
+ *
+ */
+public interface IStreamingResultHolder extends IResultHolder {
+
+	/**
+	 * Set the writer to write the result to. Must be called before the export of the test starts.
+	 * The writer is not closed by the result holder.
+	 */
+	public void setOutput(Writer output);
+	
+	
+	/**
+	 * Write the rest of the result to the writer and flush it (after export is done).
+	 */
+	public void finishOutput() throws IOException;
+}
@@ -36,12 +36,14 @@ public abstract class RunnerResultHolder extends ContextHolder {
 	protected List<PropertyAwareObject> elementsAsserted = new ArrayList<PropertyAwareObject>();
 	protected List<TestPartStatus> results = new ArrayList<TestPartStatus>();
 	protected final Display display;
+	protected final StatusUpdateQueue statusUpdates;
 	protected CubicTestProjectSettings settings;
 	private boolean failOnAssertionFailure;
 	private int nextPageElementTimeout;
 
 	public RunnerResultHolder(Display display, CubicTestProjectSettings settings, int initialPageElementTimeout) {
 		this.display = display;
+		this.statusUpdates = new StatusUpdateQueue(display);
 		this.settings = settings;
 		this.nextPageElementTimeout = initialPageElementTimeout;
 	}
@@ -64,19 +66,13 @@ public abstract class RunnerResultHolder extends ContextHolder {
 	}
 
 	
-	public void addResult(final PropertyAwareObject element, TestPartStatus result) {
+	public void addResult(PropertyAwareObject element, TestPartStatus result) {
 		elementsAsserted.add(element);
 		results.add(result);
 
-		//show result immediately in the GUI:
-		final TestPartStatus finalResult = result;
+		//show result in the GUI with the next batch of updates:
 		if (display != null) {
-			display.asyncExec(new Runnable() {
-				public void run() {
-					if(element != null)
-						element.setStatus(finalResult);
-				}
-			});
+			statusUpdates.setStatus(element, result);
 		}
 		if (result.equals(TestPartStatus.FAIL)) {
 			handleAssertionFailure(element);
@@ -97,29 +93,25 @@ public abstract class RunnerResultHolder extends ContextHolder {
 	
 	
 	@Override
-	public void updateStatus(SubTest st, boolean hadException, ConnectionPoint targetConnectionPoint) {
-		final boolean hadEx = hadException;
-		final SubTest subtest = st;
-		final ConnectionPoint targetConPoint = targetConnectionPoint;
+	public void updateStatus(SubTest subtest, boolean hadException, ConnectionPoint targetConnectionPoint) {
 		if (display != null) {
-			display.asyncExec(new Runnable() {
-				public void run() {
-					if(subtest != null)
-						subtest.updateStatus(hadEx, targetConPoint);
-				}
-			});
+			statusUpdates.updateStatus(subtest, hadException, targetConnectionPoint);
 		}
 	}
 
 	/**
 	 * Colors elements and gets result info string.
+	 * With a display, the updates not yet shown are applied (immediately if invoked in the GUI thread).
 	 */
 	public String getResults() {
+		if (display != null) {
+			flushStatusUpdates();
+		}
 		int pass = 0;
 		int failed = 0;
 		int i = 0;
 		for (PropertyAwareObject element : elementsAsserted) {
-			if (element != null) {
+			if (display == null && element != null) {
 				element.setStatus(results.get(i));
 			}
 			if (results.get(i).equals(TestPartStatus.PASS)) {
@@ -138,17 +130,19 @@ public abstract class RunnerResultHolder extends ContextHolder {
 		return res;
 	}
 
-	public void resetStatus(final PropertyAwareObject object) {
+	public void resetStatus(PropertyAwareObject object) {
 		if (display != null) {
-			display.asyncExec(new Runnable() {
-				public void run() {
-					if(object != null)
-						object.resetStatus();
-				}
-			});
+			statusUpdates.resetStatus(object);
 		}
 	}
 	
+	/**
+	 * Applies the status updates not yet shown in the GUI. They are applied immediately if invoked in the GUI thread.
+	 */
+	public void flushStatusUpdates() {
+		statusUpdates.flush();
+	}
+	
 	protected String getTestRunOkInfoAdditions() {
 		return "\n\nPress OK to close test browser.";
 	}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.holders;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.cubictest.model.ConnectionPoint;
+import org.cubictest.model.PropertyAwareObject;
+import org.cubictest.model.SubTest;
+import org.cubictest.model.TestPartStatus;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Collects status updates of test parts from the thread running a test, and applies them in the GUI thread
+ * in batches. At most one batch is applied per frame interval, and when an element has been updated several
+ * times since the last batch, only its last update is applied.
+ * <p>
+ * All updates of a batch are applied in one runnable, so that GEF validates and repaints the figures once per batch
+ * instead of once per element.
+ *
+ * @author Christian Schwarz
+ */
+public class StatusUpdateQueue {
+
+	/** Minimum time between two batches applied in the GUI, about one frame at 25 fps. */
+	public static final int FLUSH_INTERVAL_MILLIS = 40;
+
+	private final Display display;
+	private final ConcurrentLinkedQueue<StatusUpdate> pending = new ConcurrentLinkedQueue<StatusUpdate>();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+	/** Only accessed in the thread applying the updates. */
+	private long lastFlush;
+
+	private final Runnable flushTask = new Runnable() {
+		public void run() {
+			if (display.isDisposed()) {
+				return;
+			}
+			long wait = lastFlush + FLUSH_INTERVAL_MILLIS - System.currentTimeMillis();
+			if (wait > 0) {
+				display.timerExec((int) wait, this);
+				return;
+			}
+			//updates added from now on need a new flush:
+			flushScheduled.set(false);
+			applyPendingUpdates();
+		}
+	};
+
+
+	/**
+	 * @param display the display to apply the updates in, or <code>null</code> if the updates
+	 * should only be applied when {@link #flush()} is invoked.
+	 */
+	public StatusUpdateQueue(Display display) {
+		this.display = display;
+	}
+
+
+	/** Queues setting the status of the element. */
+	public void setStatus(PropertyAwareObject element, TestPartStatus status) {
+		add(new StatusUpdate(element, status, false, false, null));
+	}
+
+	/** Queues resetting the status of the element. */
+	public void resetStatus(PropertyAwareObject element) {
+		add(new StatusUpdate(element, null, true, false, null));
+	}
+
+	/** Queues updating the status of the subtest from the status of its contents. */
+	public void updateStatus(SubTest subtest, boolean hadException, ConnectionPoint targetConnectionPoint) {
+		add(new StatusUpdate(subtest, null, false, hadException, targetConnectionPoint));
+	}
+
+
+	/**
+	 * Applies the pending updates. If invoked in the GUI thread, or if there is no display, they are applied
+	 * before this method returns. Otherwise, they are applied as soon as possible in the GUI thread.
+	 */
+	public void flush() {
+		if (display == null || display.getThread() == Thread.currentThread()) {
+			applyPendingUpdates();
+		}
+		else {
+			scheduleFlush();
+		}
+	}
+
+
+	/** Gets the number of updates not yet applied. */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+
+	private void add(StatusUpdate update) {
+		if (update.element == null) {
+			return;
+		}
+		pending.add(update);
+		scheduleFlush();
+	}
+
+
+	private void scheduleFlush() {
+		if (display != null && !display.isDisposed() && flushScheduled.compareAndSet(false, true)) {
+			display.asyncExec(flushTask);
+		}
+	}
+
+
+	private void applyPendingUpdates() {
+		List<StatusUpdate> drained = new ArrayList<StatusUpdate>();
+		StatusUpdate update;
+		while ((update = pending.poll()) != null) {
+			drained.add(update);
+		}
+		lastFlush = System.currentTimeMillis();
+		if (drained.isEmpty()) {
+			return;
+		}
+
+		//keep the last update of each element, in the order of the last updates:
+		Map<PropertyAwareObject, Boolean> seen = new IdentityHashMap<PropertyAwareObject, Boolean>();
+		List<StatusUpdate> latest = new ArrayList<StatusUpdate>();
+		for (int i = drained.size() - 1; i >= 0; i--) {
+			StatusUpdate u = drained.get(i);
+			if (seen.put(u.element, Boolean.TRUE) == null) {
+				latest.add(u);
+			}
+		}
+		for (int i = latest.size() - 1; i >= 0; i--) {
+			latest.get(i).apply();
+		}
+	}
+
+
+	private static class StatusUpdate {
+		private final PropertyAwareObject element;
+		private final TestPartStatus status;
+		private final boolean reset;
+		private final boolean hadException;
+		private final ConnectionPoint targetConnectionPoint;
+
+		public StatusUpdate(PropertyAwareObject element, TestPartStatus status, boolean reset,
+				boolean hadException, ConnectionPoint targetConnectionPoint) {
+			this.element = element;
+			this.status = status;
+			this.reset = reset;
+			this.hadException = hadException;
+			this.targetConnectionPoint = targetConnectionPoint;
+		}
+
+		public void apply() {
+			if (reset) {
+				element.resetStatus();
+			}
+			else if (status != null) {
+				element.setStatus(status);
+			}
+			else {
+				((SubTest) element).updateStatus(hadException, targetConnectionPoint);
+			}
+		}
+	}
+}
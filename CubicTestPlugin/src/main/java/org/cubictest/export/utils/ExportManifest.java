@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.cubictest.common.utils.Logger;
+
+/**
+ * Records the input files of each exported test and their content hashes, so that an export can skip
+ * tests whose inputs are unchanged since the last export.
+ * <p>
+ * The manifest is a properties file. Each exported test has an entry with one line per input file,
+ * holding the hash and path of the file. A test can also have a status, e.g. the result of its last run,
+ * which is used by the Selenium runner to select the tests affected by changes.
+ * The manifest is discarded if it was written by another exporter.
+ * Content hashes are computed once per manifest instance, so a new instance should be used for each export.
+ * Safe for use by several threads.
+ * 
+ * @author Christian Schwarz
+ */
+public class ExportManifest {
+
+	private static final String EXPORTER_KEY = "exporter";
+	
+	private static final String MISSING_FILE = "-";
+	
+	private final File file;
+	
+	private final String exporterId;
+	
+	private final Properties entries = new Properties();
+	
+	private final ConcurrentMap<String, String> hashes = new ConcurrentHashMap<String, String>();
+	
+	
+	/**
+	 * @param file The properties file to load and save the manifest from.
+	 * @param exporterId Identifies the exporter and its settings. Entries written with another ID are not used.
+	 */
+	public ExportManifest(File file, String exporterId) {
+		this.file = file;
+		this.exporterId = exporterId;
+	}
+	
+	
+	/**
+	 * Loads the manifest from file. A missing or unreadable file gives an empty manifest.
+	 */
+	public void load() {
+		entries.clear();
+		if (!file.isFile()) {
+			return;
+		}
+		try {
+			InputStream in = new FileInputStream(file);
+			try {
+				entries.load(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException e) {
+			Logger.warn("Could not read export manifest " + file + ", exporting all tests.", e);
+			entries.clear();
+		}
+		if (!exporterId.equals(entries.getProperty(EXPORTER_KEY))) {
+			entries.clear();
+		}
+	}
+	
+	
+	/**
+	 * Saves the manifest to file.
+	 */
+	public void save() throws IOException {
+		entries.setProperty(EXPORTER_KEY, exporterId);
+		OutputStream out = new FileOutputStream(file);
+		try {
+			entries.store(out, "CubicTest export manifest. Do not edit.");
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	
+	/**
+	 * Checks whether the test was exported to the output file from the same inputs as those currently on disk. 
+	 * @param testKey Identifies the test, e.g. by its project relative path.
+	 * @param outFile The file that the test is exported to.
+	 */
+	public boolean isUpToDate(String testKey, File outFile) throws IOException {
+		if (!outFile.isFile()) {
+			return false;
+		}
+		List<File> changedFiles = getChangedInputFiles(testKey);
+		return changedFiles != null && changedFiles.isEmpty();
+	}
+
+	
+	/**
+	 * Gets the recorded input files of the test whose content is not the same as on disk.
+	 * @param testKey Identifies the test, e.g. by its project relative path.
+	 * @return The changed files, or <code>null</code> if no input files are recorded for the test.
+	 */
+	public List<File> getChangedInputFiles(String testKey) throws IOException {
+		String recorded = entries.getProperty(entryKey(testKey));
+		if (recorded == null) {
+			return null;
+		}
+		List<File> changedFiles = new ArrayList<File>();
+		for (String line : recorded.split("\n")) {
+			int separator = line.indexOf(' ');
+			if (separator < 0) {
+				return null;
+			}
+			String hash = line.substring(0, separator);
+			File inputFile = new File(line.substring(separator + 1));
+			if (!hash.equals(getHash(inputFile))) {
+				changedFiles.add(inputFile);
+			}
+		}
+		return changedFiles;
+	}
+
+	
+	/**
+	 * Records the input files that the test was exported from.
+	 */
+	public void setInputFiles(String testKey, Collection<File> inputFiles) throws IOException {
+		StringBuffer value = new StringBuffer();
+		for (File inputFile : inputFiles) {
+			if (value.length() > 0) {
+				value.append('\n');
+			}
+			value.append(getHash(inputFile)).append(' ').append(inputFile.getAbsolutePath());
+		}
+		entries.setProperty(entryKey(testKey), value.toString());
+	}
+	
+	
+	/**
+	 * Removes the entry of the test, so that it is exported next time.
+	 */
+	public void remove(String testKey) {
+		entries.remove(entryKey(testKey));
+		entries.remove(statusKey(testKey));
+	}
+	
+	
+	/**
+	 * Records a status of the test, e.g. the result of running it.
+	 */
+	public void setStatus(String testKey, String status) {
+		entries.setProperty(statusKey(testKey), status);
+	}
+	
+	
+	/**
+	 * @return The recorded status of the test, or <code>null</code> if none.
+	 */
+	public String getStatus(String testKey) {
+		return entries.getProperty(statusKey(testKey));
+	}
+	
+	
+	private String getHash(File inputFile) throws IOException {
+		String path = inputFile.getAbsolutePath();
+		String hash = hashes.get(path);
+		if (hash == null) {
+			hash = FileExportUtils.getContentHash(inputFile);
+			if (hash == null) {
+				hash = MISSING_FILE;
+			}
+			String existing = hashes.putIfAbsent(path, hash);
+			if (existing != null) {
+				hash = existing;
+			}
+		}
+		return hash;
+	}
+
+	private String entryKey(String testKey) {
+		return "test." + testKey;
+	}
+
+	private String statusKey(String testKey) {
+		return "status." + testKey;
+	}
+}
@@ -10,7 +10,22 @@
  *******************************************************************************/
 package org.cubictest.export.utils;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import org.cubictest.common.utils.ErrorHandler;
 import org.cubictest.common.utils.ModelUtil;
@@ -28,6 +43,10 @@ import org.eclipse.core.runtime.IProgressMonitor;
  */
 public class FileExportUtils {
 
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
 	/**
 	 * Counts the number of files and subfolders.
 	 * 
@@ -95,5 +114,106 @@ public class FileExportUtils {
 		return updatedFolder;
 	}
 	
+	
+	/**
+	 * Writes the string to the file in the platform default encoding, replacing any existing content.
+	 * Characters that can not be encoded are replaced, as with a {@link java.io.FileWriter}.
+	 * The string is encoded in chunks into a direct buffer that is written to the file channel, 
+	 * so that large results are not copied into one big byte array first.
+	 */
+	public static void writeFile(File file, String content) throws IOException {
+		CharsetEncoder encoder = newEncoder();
+		CharBuffer in = CharBuffer.wrap(content);
+		ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		FileOutputStream stream = new FileOutputStream(file);
+		try {
+			FileChannel channel = stream.getChannel();
+			boolean encoding = true;
+			while (true) {
+				CoderResult result = encoding ? encoder.encode(in, out, true) : encoder.flush(out);
+				if (result.isError()) {
+					result.throwException();
+				}
+				out.flip();
+				while (out.hasRemaining()) {
+					channel.write(out);
+				}
+				out.clear();
+				if (result.isUnderflow()) {
+					if (!encoding) {
+						break;
+					}
+					encoding = false;
+				}
+			}
+		}
+		finally {
+			stream.close();
+		}
+	}
+	
+	
+	/**
+	 * Opens a buffered writer to the file, with the same encoding as {@link #writeFile(File, String)}.
+	 * For writing results that are produced piece by piece. The caller must close the writer.
+	 */
+	public static Writer newFileWriter(File file) throws IOException {
+		FileOutputStream stream = new FileOutputStream(file);
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(Channels.newWriter(stream.getChannel(), newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+		}
+		finally {
+			if (writer == null) {
+				stream.close();
+			}
+		}
+		return writer;
+	}
+	
+	
+	private static CharsetEncoder newEncoder() {
+		return Charset.defaultCharset().newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+	
+	
+	/**
+	 * Gets the SHA-1 hash of the content of the file, as a hex string.
+	 * @return the hash, or <code>null</code> if the file does not exist.
+	 */
+	public static String getContentHash(File file) throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		FileInputStream stream = new FileInputStream(file);
+		try {
+			FileChannel channel = stream.getChannel();
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		finally {
+			stream.close();
+		}
+		byte[] hash = digest.digest();
+		char[] hex = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+		}
+		return new String(hex);
+	}
 
 }
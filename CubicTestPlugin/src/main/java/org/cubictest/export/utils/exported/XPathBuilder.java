@@ -63,28 +63,44 @@ public class XPathBuilder {
 	 * @return
 	 */
 	public static String getXPathForSingleElement(IActionElement element, boolean useNamespace) {
+		StringBuilder buff = new StringBuilder();
+		appendXPathForSingleElement(buff, element, useNamespace);
+		return buff.toString();
+	}
+
+	
+	/**
+	 * Append the Selenium locator-string for the element to a buffer, e.g. one holding the XPath of the surrounding contexts.
+	 * @param buff the buffer to append to
+	 * @param element
+	 * @param useNamespace 
+	 */
+	public static void appendXPathForSingleElement(StringBuilder buff, IActionElement element, boolean useNamespace) {
 		PageElement pe = (PageElement) element;
 		PredicateSeperator predicateSeperator = new PredicateSeperator();
+		int start = buff.length();
 
-		String predicates = 
-				getIndexAssertion(pe, predicateSeperator) + 
-				getLabelAssertion(pe, predicateSeperator, useNamespace) + 
-				getAttributeAssertions(pe, predicateSeperator); 
+		appendIndexAssertion(buff, pe, predicateSeperator);
+		appendLabelAssertion(buff, pe, predicateSeperator, useNamespace);
+		appendAttributeAssertions(buff, pe, predicateSeperator);
+		String elementType = getElementType(pe);
 
-		if (StringUtils.isBlank(predicates)) {
-			return getElementType(pe);
+		if (buff.length() == start) {
+			buff.append(elementType);
+		}
+		else {
+			buff.insert(start, (useNamespace ? "x:" : "") + elementType + "[").append("]");
 		}
-		return (useNamespace ? "x:" : "") + getElementType(pe) + "[" + predicates + "]";
 	}
 	
 	
 	
 	
 	/**
-	 * Get string to assert the index of the element (if ID present).
+	 * Append assertion of the index of the element (if ID present).
 	 */
-	private static String getIndexAssertion(PageElement pe, PredicateSeperator predicateSeperator) {
-		String result = predicateSeperator.getStartString();
+	private static void appendIndexAssertion(StringBuilder buff, PageElement pe, PredicateSeperator predicateSeperator) {
+		int mark = predicateSeperator.appendStartString(buff);
 		
 		//Start with index attribute (if it exists) to make XPath correct:
 		Identifier id = pe.getIdentifier(INDEX);
@@ -101,60 +117,49 @@ public class XPathBuilder {
 			}
 			try {
 				int index = Integer.parseInt(value);
-				result += "position()" + operator + index;
+				buff.append("position()").append(operator).append(index);
 			}
 			catch (NumberFormatException e) {
 				throw new CubicException("\"Index\" identifier of page element [" + pe.toString() + "] is not a number!");
 			}
 		}
 		
-		if (result.equals(predicateSeperator.getStartString())) {
-			return "";
-		}
-		else {
-			predicateSeperator.setNeedsSeparator(true);
-			return result;
-		}
+		predicateSeperator.endPredicate(buff, mark);
 	}
 	
 	
-	private static String getLabelAssertion(PageElement pe, PredicateSeperator predicateSeperator, boolean useNamespace) {
-		String result = predicateSeperator.getStartString();
+	private static void appendLabelAssertion(StringBuilder buff, PageElement pe, PredicateSeperator predicateSeperator, boolean useNamespace) {
+		int mark = predicateSeperator.appendStartString(buff);
 		
 		Identifier id = pe.getIdentifier(LABEL);
 		if (id != null && id.isNotIndifferent()) {
 			if (pe instanceof Text) {
-				result += "contains(normalize-space(.), " + getIdValueInQuotes(id) + ")";
+				buff.append("contains(normalize-space(.), ").append(getIdValueInQuotes(id)).append(")");
 			}
 			else if (pe instanceof Link || pe instanceof Option) {
-				result += getPageValueCheck(id, "normalize-space(.)");
+				appendPageValueCheck(buff, id, "normalize-space(.)");
 			}
 			else if (pe instanceof Button) {
-				result += getIdentifierCondition(id);
+				appendIdentifierCondition(buff, id);
 			}
 			else {
 				//get first element that has "id" attribute equal to the "for" attribute of label with the specified text:
-				String labelCondition = getPageValueCheck(id, "normalize-space(.)");
-				result += "@id" + getStringComparisonOperator(id) + 
-					"(//" + (useNamespace ? "x:" : "") + "label[" + labelCondition + "]/@for)";
+				buff.append("@id").append(getStringComparisonOperator(id));
+				buff.append("(//").append(useNamespace ? "x:" : "").append("label[");
+				appendPageValueCheck(buff, id, "normalize-space(.)");
+				buff.append("]/@for)");
 			}
 		}
 
-		if (result.equals(predicateSeperator.getStartString())) {
-			return "";
-		}
-		else {
-			predicateSeperator.setNeedsSeparator(true);
-			return result;
-		}
+		predicateSeperator.endPredicate(buff, mark);
 	}
 
 	/**
-	 * Get string to assert for all the page elements Identifier/HTML attribute values.
+	 * Append assertion for all the page elements Identifier/HTML attribute values.
 	 * E.g. [@id="someId"]
 	 */
-	private static String getAttributeAssertions(PageElement pe, PredicateSeperator predicateSeperator) {
-		String result = predicateSeperator.getStartString();
+	private static void appendAttributeAssertions(StringBuilder buff, PageElement pe, PredicateSeperator predicateSeperator) {
+		int mark = predicateSeperator.appendStartString(buff);
 		int i = 0;
 		
 		for (Identifier id : pe.getNonIndifferentIdentifierts()) {
@@ -165,74 +170,66 @@ public class XPathBuilder {
 				continue;
 			}
 			if (i > 0) {
-				result += " and ";
+				buff.append(" and ");
 			}
 			
-			result += getIdentifierCondition(id);
+			appendIdentifierCondition(buff, id);
 			i++;
 		}		
 		
-		if (result.equals(predicateSeperator.getStartString())) {
-			return "";
-		}
-		else {
-			predicateSeperator.setNeedsSeparator(true);
-			return result;
-		}
+		predicateSeperator.endPredicate(buff, mark);
 	}
 
 
-	private static String getIdentifierCondition(Identifier id) {
-		String result = "";
+	private static void appendIdentifierCondition(StringBuilder buff, Identifier id) {
 		if (id.getType().equals(CHECKED) || id.getType().equals(SELECTED) || id.getType().equals(MULTISELECT)) {
 			//idType with no value
 			if (id.getProbability() > 0) {
-				result += "@" + ExportUtils.getHtmlIdType(id);
+				buff.append("@").append(ExportUtils.getHtmlIdType(id));
 			}
 			else {
-				result += "not(@" + ExportUtils.getHtmlIdType(id) + ")";
+				buff.append("not(@").append(ExportUtils.getHtmlIdType(id)).append(")");
 			}
 		}
 		else {
 			//normal ID type (name, value)
 			String attr = getAttributeToCheck(id);
-			result += getPageValueCheck(id, attr);
+			appendPageValueCheck(buff, id, attr);
 		}
-		return result;
 	}
 
 
 
 	/**
-	 * Check a page value against an identifier
+	 * Append check of a page value against an identifier
+	 * @param buff the buffer to append to
 	 * @param id the identifier
 	 * @param pageValue the XPath fragement for which page value to check
-	 * @return
 	 */
-	private static String getPageValueCheck(Identifier id, String pageValue) {
-		String result = "";
+	private static void appendPageValueCheck(StringBuilder buff, Identifier id, String pageValue) {
 		String comparisonOperator = getStringComparisonOperator(id);
 		
 		String idValueInQuotes = getIdValueInQuotes(id);
 		
 		if (id.getModerator().equals(Moderator.EQUAL)) {
 			//normal equal check
-			result += pageValue + comparisonOperator + idValueInQuotes;
+			buff.append(pageValue).append(comparisonOperator).append(idValueInQuotes);
 		}
 		else {
 			String prefixOperator = getPrefixComparisonOperator(id);
 			if (id.getModerator().equals(Moderator.BEGIN)) {
-				result += "substring(" + pageValue + ", 0, string-length(" + idValueInQuotes + ") + 1) " + comparisonOperator + " " + idValueInQuotes;
+				buff.append("substring(").append(pageValue).append(", 0, string-length(").append(idValueInQuotes).append(") + 1) ")
+						.append(comparisonOperator).append(" ").append(idValueInQuotes);
 			}
 			else if (id.getModerator().equals(Moderator.CONTAIN)) {
-				result += prefixOperator + "(contains(" + pageValue + ", " + idValueInQuotes + "))";
+				buff.append(prefixOperator).append("(contains(").append(pageValue).append(", ").append(idValueInQuotes).append("))");
 			}
 			else if (id.getModerator().equals(Moderator.END)) {
-				result += "substring(" + pageValue + ", string-length(" + pageValue + ") - string-length(" + idValueInQuotes +")" +
-						" + 1, string-length(" + idValueInQuotes + ")) " + comparisonOperator + " " + idValueInQuotes;
+				buff.append("substring(").append(pageValue).append(", string-length(").append(pageValue).append(") - string-length(")
+						.append(idValueInQuotes).append(")").append(" + 1, string-length(").append(idValueInQuotes).append(")) ")
+						.append(comparisonOperator).append(" ").append(idValueInQuotes);
 			}
 		}
-		return result;
 	}
 
 	private static String getIdValueInQuotes(Identifier id) {
@@ -346,7 +343,29 @@ public class XPathBuilder {
 			}
 			return "";
 		}
-	}
-	
+		
+		/**
+		 * Appends the start string of a new predicate.
+		 * @return the length of the buffer before the start string was appended.
+		 */
+		public int appendStartString(StringBuilder buff) {
+			int mark = buff.length();
+			buff.append(getStartString());
+			return mark;
+		}
+		
+		/**
+		 * Ends a predicate started with {@link #appendStartString(StringBuilder)}. 
+		 * If nothing was appended after the start string, the start string is removed again.
+		 */
+		public void endPredicate(StringBuilder buff, int mark) {
+			if (buff.length() == mark + getStartString().length()) {
+				buff.setLength(mark);
+			}
+			else {
+				setNeedsSeparator(true);
+			}
+		}
+	}	
 
 }
@@ -26,11 +26,13 @@ public abstract class AbstractPage extends TransitionNode implements Cloneable,
 	protected List<PageElement> elements = new ArrayList<PageElement>();
 	private String name;
 	private String description = "";
+	private transient StatusCounter elementStatusCounter;
 	
 	public void addElement(PageElement pe, int index){
 		//idempotent:
 		if (!elements.contains(pe)) {
 			elements.add(index, pe);
+			invalidateElementStatusCounter();
 			firePropertyChange(CHILD,null,pe);
 		}
 	}
@@ -39,6 +41,7 @@ public abstract class AbstractPage extends TransitionNode implements Cloneable,
 		//idempotent:
 		if (!elements.contains(pe)) {
 			elements.add(pe);
+			invalidateElementStatusCounter();
 			firePropertyChange(CHILD,null,pe);
 		}
 	}
@@ -78,12 +81,36 @@ public abstract class AbstractPage extends TransitionNode implements Cloneable,
 	 */
 	public void setElements(List<PageElement> elements) {
 		this.elements = elements;
+		invalidateElementStatusCounter();
 	}
 	
 	public void removeElement(PageElement pe){
 		elements.remove(pe);
+		invalidateElementStatusCounter();
 		firePropertyChange(CHILD,pe,null);
 	}
+	
+	/**
+	 * Gets the number of elements of the page (including elements in contexts) with each status.
+	 * The counter is kept up to date when the status of an element is set, and is rebuilt when elements are added or removed.
+	 */
+	public StatusCounter getElementStatusCounter() {
+		if (elementStatusCounter == null || !elementStatusCounter.isValid()) {
+			StatusCounter counter = new StatusCounter();
+			for (PageElement element : getFlattenedElements()) {
+				element.setStatusCounter(counter);
+				counter.add(element.getStatus());
+			}
+			elementStatusCounter = counter;
+		}
+		return elementStatusCounter;
+	}
+	
+	private void invalidateElementStatusCounter() {
+		if (elementStatusCounter != null) {
+			elementStatusCounter.invalidate();
+		}
+	}
 
 	/**
 	 * @param child
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.cubictest.model;
 
+import org.cubictest.model.TestHeader.ExtensionPointHeader;
+
 /**
  * 
  * Transition from an ExtensionPoint in another Test to a Page/State in current test.
@@ -29,6 +31,9 @@ public class ExtensionTransition extends Transition {
 		this.id = extensionPoint.getPageId();
 	}
 	
+	/**
+	 * Gets the extension point in the subtest. Loads the pages of the subtest if they are not loaded.
+	 */
 	public ExtensionPoint getExtensionPoint() {
 		if(extensionPoint == null) {
 			for(AbstractPage page : ((SubTest)getStart()).getTest(false).getPages()) {
@@ -43,6 +48,26 @@ public class ExtensionTransition extends Transition {
 		}
 		return extensionPoint;
 	}
+	/**
+	 * Gets the name and ID of the extension point from the header of the subtest, without loading the pages of the subtest.
+	 * @return the extension point, or <code>null</code> if the subtest has no extension point from the page.
+	 */
+	public ExtensionPointHeader getExtensionPointHeader() {
+		for (ExtensionPointHeader header : ((SubTest) getStart()).getHeader().getExtensionPoints()) {
+			if (id != null && id.equals(header.getPageId())) {
+				return header;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Gets the ID of the page in the subtest that the extension point extends from, without loading the subtest.
+	 */
+	public String getExtensionPointPageId() {
+		return id;
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + ": ExtensionPoint (start) = " + getExtensionPoint() + ", end = " + getEnd();
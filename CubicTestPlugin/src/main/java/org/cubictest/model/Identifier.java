@@ -12,6 +12,7 @@ package org.cubictest.model;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
 import org.cubictest.common.utils.CubicCloner;
@@ -51,7 +52,7 @@ public class Identifier implements Cloneable, SationObserver{
 	private Moderator moderator = Moderator.EQUAL;
 	
 	public void setType(IdentifierType type){
-		IdentifierType oldType = type;
+		IdentifierType oldType = this.type;
 		this.type = type;
 		firePropertyChanged(TYPE, oldType, type);
 	}
@@ -194,4 +195,54 @@ public class Identifier implements Cloneable, SationObserver{
 		this.moderator = moderator;
 		firePropertyChanged(MODERATOR, oldModerator, moderator);
 	}
+	
+	/**
+	 * Compares the persisted data of this identifier with another. The actual value found when running a test is ignored.
+	 */
+	public boolean equalsModel(Identifier other) {
+		if (other == this) {
+			return true;
+		}
+		return other != null && type == other.type && probability == other.probability &&
+				getModerator() == other.getModerator() && StringUtils.equals(value, other.value) &&
+				useI18n == other.useI18n && StringUtils.equals(i18nKey, other.i18nKey) &&
+				useParam == other.useParam && StringUtils.equals(paramKey, other.paramKey);
+	}
+	
+	/**
+	 * Hash code of the persisted data of this identifier, consistent with {@link #equalsModel(Identifier)}.
+	 */
+	public int modelHash() {
+		int hash = (type == null) ? 0 : type.ordinal() + 1;
+		hash = 31 * hash + probability;
+		hash = 31 * hash + getModerator().ordinal();
+		hash = 31 * hash + ((value == null) ? 0 : value.hashCode());
+		return hash;
+	}
+	
+	/**
+	 * Compares two identifier lists with {@link #equalsModel(Identifier)}, in order.
+	 */
+	public static boolean equalsModel(List<Identifier> identifiers, List<Identifier> others) {
+		if (identifiers.size() != others.size()) {
+			return false;
+		}
+		for (int i = 0; i < identifiers.size(); i++) {
+			if (!identifiers.get(i).equalsModel(others.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Hash code of an identifier list, consistent with {@link #equalsModel(List, List)}.
+	 */
+	public static int modelHash(List<Identifier> identifiers) {
+		int hash = 1;
+		for (Identifier identifier : identifiers) {
+			hash = 31 * hash + identifier.modelHash();
+		}
+		return hash;
+	}
 }
@@ -12,8 +12,13 @@ package org.cubictest.model;
 
 import static org.cubictest.model.IdentifierType.LABEL;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.cubictest.common.utils.TextUtil;
@@ -34,6 +39,14 @@ public abstract class PageElement extends PropertyAwareObject
 	private Identifier directEditIdentifier;
 	private boolean not;
 	private transient boolean idListWashed;
+	private transient StatusCounter statusCounter;
+	
+	/** Index of the identifiers by type. Derived from the persisted identifier list. */
+	private transient Map<IdentifierType, Identifier> identifiersByType;
+	private transient List<Identifier> nonIndifferentIdentifiers;
+	private transient PropertyChangeListener identifierListener;
+	/** The identifiers that the identifier listener is added to. */
+	private transient List<Identifier> listenedIdentifiers;
 	
 	public PageElement() {
 		super();
@@ -44,9 +57,10 @@ public abstract class PageElement extends PropertyAwareObject
 	public String toString() {
 		StringBuffer buff = new StringBuffer();
 		buff.append("[" + getType() + ": '" + getDirectEditIdentifier().getValue() + "']");
-		if (getNonIndifferentIdentifierts().size() == 1 && 
-				getNonIndifferentIdentifierts().get(0).getType().equals(getDirectEditIdentifier().getType()) &&
-				getNonIndifferentIdentifierts().get(0).getProbability() > 0) {
+		List<Identifier> nonIndifferent = getNonIndifferentIdentifierts();
+		if (nonIndifferent.size() == 1 && 
+				nonIndifferent.get(0).getType().equals(getDirectEditIdentifier().getType()) &&
+				nonIndifferent.get(0).getProbability() > 0) {
 			//direct edit ID is only ID, do not repeat the ID in the toString signature
 		}
 		else {
@@ -100,6 +114,32 @@ public abstract class PageElement extends PropertyAwareObject
 		}
 	}
 	
+	@Override
+	public void setStatus(TestPartStatus newStatus) {
+		TestPartStatus old = getStatus();
+		super.setStatus(newStatus);
+		if (statusCounter != null) {
+			statusCounter.statusChanged(old, newStatus);
+		}
+	}
+	
+	/**
+	 * Sets the counter of the page that the status of this element is counted in.
+	 * @see AbstractPage#getElementStatusCounter()
+	 */
+	void setStatusCounter(StatusCounter statusCounter) {
+		this.statusCounter = statusCounter;
+	}
+	
+	/**
+	 * Invalidates the status counter this element is counted in. Must be invoked when child elements are changed.
+	 */
+	protected void invalidateStatusCounter() {
+		if (statusCounter != null) {
+			statusCounter.invalidate();
+		}
+	}
+	
 	/**
 	 * Get the text that is shown in the CubicTest GUI for the page element.
 	 * @return the text that is shown in the CubicTest GUI for the page element.
@@ -145,10 +185,12 @@ public abstract class PageElement extends PropertyAwareObject
 	
 	public void setIdentifiers(List<Identifier> identifiers) {
 		this.identifiers = identifiers;
+		invalidateIdentifierIndex();
 	}
 	
 	public List<Identifier> getIdentifiers() {
 		if(identifiers == null || identifiers.isEmpty()){
+			invalidateIdentifierIndex();
 			identifiers = new ArrayList<Identifier>();
 			for(IdentifierType type : getIdentifierTypes()){
 				Identifier identifier = new Identifier();
@@ -196,20 +238,29 @@ public abstract class PageElement extends PropertyAwareObject
 			}
 		}
 		identifiers.removeAll(toRemove);
+		invalidateIdentifierIndex();
 		idListWashed = true;
 	}
 	
 	
 	/**
 	 * Get the identifiers that have a value and do not have probability = indifferent.
+	 * The list is cached until the identifiers change, and can not be modified.
 	 * @return
 	 */
 	public List<Identifier> getNonIndifferentIdentifierts() {
-		List<Identifier> list = new ArrayList<Identifier>();
-		for (Identifier id : getIdentifiers()) {
-			if (id.getProbability() != 0) {
-				list.add(id);
+		List<Identifier> list = nonIndifferentIdentifiers;
+		if (list == null) {
+			//make sure identifier changes are listened to before caching:
+			getIdentifiersByType();
+			list = new ArrayList<Identifier>();
+			for (Identifier id : getIdentifiers()) {
+				if (id.getProbability() != 0) {
+					list.add(id);
+				}
 			}
+			list = Collections.unmodifiableList(list);
+			nonIndifferentIdentifiers = list;
 		}
 		return list;
 	}
@@ -219,6 +270,7 @@ public abstract class PageElement extends PropertyAwareObject
 	 */
 	public void addIdentifier(Identifier identifier) {
 		identifiers.add(identifier);
+		invalidateIdentifierIndex();
 		firePropertyChange(PropertyAwareObject.NAME, null, identifier);
 	}
 	
@@ -330,12 +382,70 @@ public abstract class PageElement extends PropertyAwareObject
 	 * @return
 	 */
 	public Identifier getIdentifier(IdentifierType idType) {
-		for (Identifier identifier : getIdentifiers()) {
-			if (identifier.getType().equals(idType)) {
-				return identifier;
+		if (idType == null) {
+			return null;
+		}
+		return getIdentifiersByType().get(idType);
+	}
+	
+	
+	/**
+	 * Gets the index of the identifiers by type. If the list has several identifiers of a type, the first is indexed.
+	 * The index is rebuilt when the identifier list or the type of an identifier is changed.
+	 */
+	private Map<IdentifierType, Identifier> getIdentifiersByType() {
+		Map<IdentifierType, Identifier> byType = identifiersByType;
+		if (byType == null) {
+			List<Identifier> all = getIdentifiers();
+			//the listener is removed first, so that it is never added twice:
+			removeIdentifierListener();
+			byType = new EnumMap<IdentifierType, Identifier>(IdentifierType.class);
+			for (Identifier identifier : all) {
+				identifier.addPropertyChangeListener(getIdentifierListener());
+				if (identifier.getType() != null && !byType.containsKey(identifier.getType())) {
+					byType.put(identifier.getType(), identifier);
+				}
 			}
+			listenedIdentifiers = new ArrayList<Identifier>(all);
+			identifiersByType = byType;
+		}
+		return byType;
+	}
+	
+	private PropertyChangeListener getIdentifierListener() {
+		if (identifierListener == null) {
+			identifierListener = new PropertyChangeListener() {
+				public void propertyChange(PropertyChangeEvent evt) {
+					if (Identifier.TYPE.equals(evt.getPropertyName())) {
+						identifiersByType = null;
+						nonIndifferentIdentifiers = null;
+					}
+					else if (Identifier.PROBABILITY.equals(evt.getPropertyName())) {
+						nonIndifferentIdentifiers = null;
+					}
+				}
+			};
+		}
+		return identifierListener;
+	}
+	
+	private void invalidateIdentifierIndex() {
+		removeIdentifierListener();
+		identifiersByType = null;
+		nonIndifferentIdentifiers = null;
+	}
+	
+	/**
+	 * Removes the identifier listener from all identifiers it was added to, also those that are not in the index
+	 * (e.g. a second identifier of a type) or no longer in the identifier list.
+	 */
+	private void removeIdentifierListener() {
+		if (listenedIdentifiers != null) {
+			for (Identifier identifier : listenedIdentifiers) {
+				identifier.removePropertyChangeListener(getIdentifierListener());
+			}
+			listenedIdentifiers = null;
 		}
-		return null;
 	}
 
 	
@@ -344,4 +454,61 @@ public abstract class PageElement extends PropertyAwareObject
 		return getText();
 	}
 	
+	
+	/**
+	 * Compares the model data of this page element with another object: the class, description, "not" flag,
+	 * identifiers and direct edit identifier type, and the child elements of contexts.
+	 * Transient fields, the status and the actual values found in a test run are ignored.
+	 * Unlike {@link #isEqualTo(Object)}, no strings are built, so it is cheap enough to call in loops.
+	 */
+	public boolean equalsModel(Object other) {
+		if (other == this) {
+			return true;
+		}
+		if (other == null || other.getClass() != getClass()) {
+			return false;
+		}
+		PageElement pe = (PageElement) other;
+		return not == pe.not && StringUtils.equals(description, pe.description) &&
+				Identifier.equalsModel(getIdentifiers(), pe.getIdentifiers()) &&
+				getDirectEditIdentifier().getType() == pe.getDirectEditIdentifier().getType();
+	}
+	
+	/**
+	 * Hash code of the model data of this page element, consistent with {@link #equalsModel(Object)}.
+	 */
+	public int modelHash() {
+		int hash = getClass().getName().hashCode();
+		hash = 31 * hash + (not ? 1 : 0);
+		hash = 31 * hash + ((description == null) ? 0 : description.hashCode());
+		hash = 31 * hash + Identifier.modelHash(getIdentifiers());
+		return hash;
+	}
+	
+	/**
+	 * Compares two page element lists with {@link #equalsModel(Object)}, in order.
+	 */
+	public static boolean equalsModel(List<PageElement> elements, List<PageElement> others) {
+		if (elements.size() != others.size()) {
+			return false;
+		}
+		for (int i = 0; i < elements.size(); i++) {
+			if (!elements.get(i).equalsModel(others.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Hash code of a page element list, consistent with {@link #equalsModel(List, List)}.
+	 */
+	public static int modelHash(List<PageElement> elements) {
+		int hash = 1;
+		for (PageElement element : elements) {
+			hash = 31 * hash + element.modelHash();
+		}
+		return hash;
+	}
+	
 }
\ No newline at end of file
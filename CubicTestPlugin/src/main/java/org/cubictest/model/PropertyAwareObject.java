@@ -35,6 +35,7 @@ public abstract class PropertyAwareObject implements Cloneable {
 	public static final String PARAM = "PARAM";
 	public static final String NOT = "NOT";
 	public static final String CUSTOMSTEP = "CUSTOMSTEP";
+	public static final String SUBTEST = "SUBTEST";
 	public static final String PARENT = "PARENT";
 	
 	protected TestPartStatus status;
@@ -85,6 +86,10 @@ public abstract class PropertyAwareObject implements Cloneable {
 		return (PropertyAwareObject) CubicCloner.deepCopy(this);
 	}
 	
+	/**
+	 * Compares all non-transient fields of the objects, including the status, by their string representations.
+	 * For page elements, {@link PageElement#equalsModel(Object)} is much cheaper and ignores the status.
+	 */
 	public boolean isEqualTo(Object other) {
 		if (toStringStyle == null) {
 			toStringStyle = new StandardToStringStyle();
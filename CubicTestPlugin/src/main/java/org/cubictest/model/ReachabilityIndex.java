@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cubictest.common.utils.ModelUtil;
+
+/**
+ * Index of which nodes of a test are on path to a target node.
+ * The predecessors of every node are found once when the index is built, and the nodes on path to a target
+ * are found once per target, by walking backwards from the nodes with the target ID.
+ * After that, {@link #isOnPathToNode(TransitionNode, TransitionNode)} is a map lookup.
+ * <p>
+ * The index is outdated as soon as a transition of any node is changed; see {@link #isUpToDate()}.
+ *
+ * @author Christian Schwarz
+ */
+public class ReachabilityIndex {
+
+	private final int structureVersion;
+	private final Map<TransitionNode, List<TransitionNode>> predecessors = new IdentityHashMap<TransitionNode, List<TransitionNode>>();
+	private final Map<String, List<TransitionNode>> nodesById = new HashMap<String, List<TransitionNode>>();
+	private final Map<String, Map<TransitionNode, Boolean>> nodesOnPath = new HashMap<String, Map<TransitionNode, Boolean>>();
+
+
+	/**
+	 * Builds the index of the nodes and all nodes reachable from them.
+	 */
+	public ReachabilityIndex(Collection<? extends TransitionNode> nodes) {
+		structureVersion = TransitionNode.getStructureVersion();
+		List<TransitionNode> toVisit = new ArrayList<TransitionNode>();
+		for (TransitionNode node : nodes) {
+			addNode(node, toVisit);
+		}
+		while (!toVisit.isEmpty()) {
+			TransitionNode node = toVisit.remove(toVisit.size() - 1);
+			for (Transition outTransition : node.getOutTransitions()) {
+				TransitionNode endNode = outTransition.getEnd();
+				if (endNode == null) {
+					continue;
+				}
+				addNode(endNode, toVisit);
+				predecessors.get(endNode).add(node);
+			}
+		}
+	}
+
+
+	/**
+	 * Checks if there is a way to get from the node to check to the target node.
+	 * Same semantics as {@link ModelUtil#isOnPathToNode(TransitionNode, TransitionNode)}.
+	 * Nodes that were not part of the test when the index was built are checked by traversing the graph.
+	 *
+	 * @param nodeToCheck the node to check all routes from
+	 * @param targetNode the node we want to be able to reach
+	 */
+	public boolean isOnPathToNode(TransitionNode nodeToCheck, TransitionNode targetNode) {
+		if (!predecessors.containsKey(nodeToCheck)) {
+			return ModelUtil.isOnPathToNode(nodeToCheck, targetNode);
+		}
+		return getNodesOnPath(ModelUtil.getPathTargetId(targetNode)).containsKey(nodeToCheck);
+	}
+
+
+	/**
+	 * Gets whether no transitions have been changed since the index was built.
+	 */
+	public boolean isUpToDate() {
+		return structureVersion == TransitionNode.getStructureVersion();
+	}
+
+
+	private void addNode(TransitionNode node, List<TransitionNode> toVisit) {
+		if (node == null || predecessors.containsKey(node)) {
+			return;
+		}
+		predecessors.put(node, new ArrayList<TransitionNode>());
+		List<TransitionNode> withId = nodesById.get(node.getId());
+		if (withId == null) {
+			withId = new ArrayList<TransitionNode>();
+			nodesById.put(node.getId(), withId);
+		}
+		withId.add(node);
+		toVisit.add(node);
+	}
+
+
+	private Map<TransitionNode, Boolean> getNodesOnPath(String targetNodeId) {
+		Map<TransitionNode, Boolean> onPath = nodesOnPath.get(targetNodeId);
+		if (onPath == null) {
+			onPath = new IdentityHashMap<TransitionNode, Boolean>();
+			List<TransitionNode> toVisit = new ArrayList<TransitionNode>();
+			List<TransitionNode> targets = nodesById.get(targetNodeId);
+			if (targets != null) {
+				toVisit.addAll(targets);
+			}
+			while (!toVisit.isEmpty()) {
+				TransitionNode node = toVisit.remove(toVisit.size() - 1);
+				if (onPath.put(node, Boolean.TRUE) == null) {
+					toVisit.addAll(predecessors.get(node));
+				}
+			}
+			nodesOnPath.put(targetNodeId, onPath);
+		}
+		return onPath;
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.model;
+
+/**
+ * Number of test parts with each status.
+ * A page keeps a counter of its page elements that is updated when the status of an element is set,
+ * so that the status of a test can be aggregated without visiting every element.
+ * <p>
+ * Parts without a status are included in the total, but not counted as any status.
+ *
+ * @author Christian Schwarz
+ */
+public class StatusCounter {
+
+	private final int[] counts = new int[TestPartStatus.values().length];
+	private int total;
+	private boolean valid = true;
+
+
+	public void add(TestPartStatus status) {
+		if (status != null) {
+			counts[status.ordinal()]++;
+		}
+		total++;
+	}
+
+	public void addAll(StatusCounter other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+	}
+
+	/**
+	 * Updates the counts when a counted part changes status.
+	 */
+	public void statusChanged(TestPartStatus oldStatus, TestPartStatus newStatus) {
+		if (oldStatus != null) {
+			counts[oldStatus.ordinal()]--;
+		}
+		if (newStatus != null) {
+			counts[newStatus.ordinal()]++;
+		}
+	}
+
+	public int getCount(TestPartStatus status) {
+		return counts[status.ordinal()];
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+
+	/**
+	 * Gets the aggregated status of the counted parts.
+	 * If all parts pass, the result is pass. Else it is fail if all fail, exception if any had an exception,
+	 * unknown if all are unknown, and warn otherwise.
+	 */
+	public TestPartStatus getAggregateStatus() {
+		if (getCount(TestPartStatus.PASS) == total)
+			return TestPartStatus.PASS;
+		else if (getCount(TestPartStatus.FAIL) == total)
+			return TestPartStatus.FAIL;
+		else if (getCount(TestPartStatus.EXCEPTION) > 0)
+			return TestPartStatus.EXCEPTION;
+		else if (getCount(TestPartStatus.UNKNOWN) == total)
+			return TestPartStatus.UNKNOWN;
+		else
+			return TestPartStatus.WARN;
+	}
+
+
+	/**
+	 * Marks the counter as outdated, e.g. because the set of counted parts has changed.
+	 */
+	public void invalidate() {
+		valid = false;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buff = new StringBuilder();
+		for (TestPartStatus status : TestPartStatus.values()) {
+			buff.append(status).append('=').append(getCount(status)).append(", ");
+		}
+		return buff.append("total=").append(total).toString();
+	}
+}
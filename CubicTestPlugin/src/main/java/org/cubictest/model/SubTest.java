@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.cubictest.model;
 
+import java.util.ArrayList;
+
 import org.apache.commons.lang.StringUtils;
 import org.cubictest.common.exception.CubicException;
 import org.cubictest.common.utils.Logger;
@@ -20,6 +22,8 @@ import org.eclipse.core.resources.IProject;
 
 /**
  * Subtest node that contains another test.
+ * The name and flags of the test are taken from its {@link TestHeader}, so that the pages of the test are only
+ * loaded when the test itself is needed (see {@link #getTest(boolean)}).
  * 
  * @author ehalvorsen
  * @author chr_schwarz
@@ -28,6 +32,7 @@ public class SubTest extends ConnectionPoint {
 	
 	private String filePath;
 	private transient Test test;
+	private transient TestHeader header;
 	private transient IProject project;
 	private transient IResourceMonitor resourceMonitor;
 	private transient boolean dangling;
@@ -44,7 +49,7 @@ public class SubTest extends ConnectionPoint {
 	}
 	
 	public boolean isDangling() {
-		getTest(false).getName();
+		getHeader();
 		return dangling;
 	}
 	
@@ -53,7 +58,7 @@ public class SubTest extends ConnectionPoint {
 	 * @return
 	 */
 	public boolean hasOwnParams() {
-		return getTest(false).hasParamsConfigured() && parameterIndex >= 0;
+		return parameterIndex >= 0 && getHeader().hasParamsConfigured();
 	}
 	
 	/**
@@ -61,7 +66,36 @@ public class SubTest extends ConnectionPoint {
 	 * @return
 	 */
 	public boolean hasOwnLanguage() {
-		return getTest(false).hasI18nConfigured() && language != null;
+		return language != null && getHeader().hasI18nConfigured();
+	}
+	
+	/**
+	 * Gets the header of the test (name, extension points etc.). 
+	 * Taken from the test if it is loaded, else read from file without loading the pages of the test.
+	 */
+	public TestHeader getHeader() {
+		if (test != null) {
+			return TestHeader.fromTest(test);
+		}
+		if (header == null) {
+			try {
+				header = TestPersistance.loadHeaderFromFile(project, getFilePath());
+				dangling = false;
+			} catch (Exception e) {
+				String message = "Failed to load test from file path " + getFilePath();
+				Logger.error(message, e);
+				dangling = true;
+				header = new TestHeader(message, null, new ArrayList<TestHeader.ExtensionPointHeader>(), false, false);
+			}
+		}
+		return header;
+	}
+	
+	/**
+	 * Gets whether the test has been loaded, e.g. by {@link #getTest(boolean)}.
+	 */
+	public boolean isTestLoaded() {
+		return test != null;
 	}
 	
 	/**
@@ -78,11 +112,26 @@ public class SubTest extends ConnectionPoint {
 		reloadTest(false);
 	}
 	
+	/**
+	 * Called when the file of the test, or a file it uses, has changed. A loaded test is reloaded, 
+	 * else only the header is read again when it is needed.
+	 */
+	public void reloadChangedTest() {
+		if (test != null) {
+			reloadTest();
+		}
+		else {
+			header = null;
+		}
+	}
+	
 	public void reloadTest(boolean rethrowOnError) {
+		Test oldTest = test;
 		try {
 			if (project == null && test != null) {
 				project = test.getProject();
 			}
+			header = null;
 			test = TestPersistance.loadFromFile(project, getFilePath());
 			test.setResourceMonitor(resourceMonitor);
 			test.resetStatus();
@@ -97,17 +146,20 @@ public class SubTest extends ConnectionPoint {
 				throw new CubicException(message, e);
 			}
 		}
+		finally {
+			firePropertyChange(SUBTEST, oldTest, test);
+		}
 	}
 	
 	@Override
 	public String getName() {
-		Test test = getTest(false);
-		if (StringUtils.isBlank(test.getName())) {
+		TestHeader header = getHeader();
+		if (StringUtils.isBlank(header.getName())) {
 			return getFileName();
 			
 		}
 		else {
-			return test.getName() + " (" + getFileName() + ")";
+			return header.getName() + " (" + getFileName() + ")";
 		}
 	}
 	
@@ -151,6 +203,7 @@ public class SubTest extends ConnectionPoint {
 	public void resetStatus() {
 		setStatus(TestPartStatus.UNKNOWN);
 		test = null;
+		header = null;
 	}
 
 	public void setResourceMonitor(IResourceMonitor resourceMonitor) {
@@ -10,10 +10,12 @@
  *******************************************************************************/
 package org.cubictest.model;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.cubictest.common.utils.ModelUtil;
+import org.cubictest.common.utils.CubicCloner;
 import org.cubictest.model.i18n.AllLanguages;
 import org.cubictest.model.i18n.Language;
 import org.cubictest.model.parameterization.ParameterList;
@@ -45,6 +47,9 @@ public class Test extends PropertyAwareObject implements NamePropertyObject {
 	private String id;
 	protected String modelVersion = ModelInfo.getCurrentModelVersion();
 	private transient AbstractPage dummyPageForScrolling;
+	private transient PropertyChangeListener layoutListener;
+	private transient int maxNodeY;
+	private transient ReachabilityIndex reachabilityIndex;
 	
 	private transient IFile filePath;
 	private transient IResourceMonitor resourceMonitor;
@@ -70,40 +75,138 @@ public class Test extends PropertyAwareObject implements NamePropertyObject {
 		//idempotent:
 		if (!getPages().contains(p)) {
 			getPages().add(p);
+			nodeAdded(p);
 			firePropertyChange(CHILD,null,p);
 		}
-		updateDummyPageForScrolling();
 	}
 	
 	public List<AbstractPage> getPages() {
 		if(pages == null) {
 			pages = new ArrayList<AbstractPage>();
 		}
-		updateDummyPageForScrolling();
 		return pages;
 	}
 	
-	/** Adds an invisible page to force a scrollbar and a larger canvas */ 
+	/**
+	 * Gets an invisible page below all other nodes of the test, to force a scrollbar and a larger canvas in the editor.
+	 * The page is not part of the pages of the test. It is moved when the position of a node changes.
+	 */
+	public AbstractPage getDummyPageForScrolling() {
+		if (dummyPageForScrolling == null) {
+			dummyPageForScrolling = new Page();
+			dummyPageForScrolling.setDimension(new Dimension(0, 0));
+			for (TransitionNode node : getNodesForScrolling()) {
+				node.addPropertyChangeListener(getLayoutListener());
+			}
+			updateDummyPageForScrolling();
+		}
+		return dummyPageForScrolling;
+	}
+	
+	/** Moves the dummy page below the lowest node, if the dummy page is in use */ 
 	private void updateDummyPageForScrolling() {
-		pages.remove(dummyPageForScrolling);
+		if (dummyPageForScrolling == null) {
+			return;
+		}
 		int maxY = 0;
-		List<TransitionNode> nodes = new ArrayList<TransitionNode>(pages);
-		nodes.addAll(subTests);
-		nodes.addAll(customTestSteps);
-		nodes.addAll(extensionPoints);
-		for (TransitionNode node : nodes) {
+		for (TransitionNode node : getNodesForScrolling()) {
 			if (node.getPosition().y > maxY) {
 				maxY = node.getPosition().y;
 			}
 		}
-		dummyPageForScrolling = new Page();
-		dummyPageForScrolling.setDimension(new Dimension(0, 0));
+		moveDummyPageForScrolling(maxY);
+	}
+	
+	private void moveDummyPageForScrolling(int maxY) {
+		maxNodeY = maxY;
 		dummyPageForScrolling.setPosition(new Point(0, maxY + 300));
-		pages.add(dummyPageForScrolling);
+	}
+	
+	private List<TransitionNode> getNodesForScrolling() {
+		List<TransitionNode> nodes = new ArrayList<TransitionNode>(getPages());
+		nodes.addAll(subTests);
+		nodes.addAll(customTestSteps);
+		nodes.addAll(getExtensionPoints());
+		return nodes;
+	}
+	
+	private PropertyChangeListener getLayoutListener() {
+		if (layoutListener == null) {
+			layoutListener = new PropertyChangeListener() {
+				public void propertyChange(PropertyChangeEvent evt) {
+					if (!LAYOUT.equals(evt.getPropertyName()) || !(evt.getNewValue() instanceof Point)) {
+						return;
+					}
+					int y = ((TransitionNode) evt.getSource()).getPosition().y;
+					if (y > maxNodeY) {
+						moveDummyPageForScrolling(y);
+					}
+					else if (evt.getOldValue() instanceof Point && ((Point) evt.getOldValue()).y >= maxNodeY) {
+						//the lowest node was moved up:
+						updateDummyPageForScrolling();
+					}
+				}
+			};
+		}
+		return layoutListener;
+	}
+	
+	private void nodeAdded(TransitionNode node) {
+		if (dummyPageForScrolling != null) {
+			//removed first, so that the listener is never added twice:
+			node.removePropertyChangeListener(getLayoutListener());
+			node.addPropertyChangeListener(getLayoutListener());
+			if (node.getPosition().y > maxNodeY) {
+				moveDummyPageForScrolling(node.getPosition().y);
+			}
+		}
+	}
+	
+	private void nodeRemoved(TransitionNode node) {
+		if (dummyPageForScrolling != null) {
+			node.removePropertyChangeListener(getLayoutListener());
+			if (node.getPosition().y >= maxNodeY) {
+				updateDummyPageForScrolling();
+			}
+		}
 	}
 	
 	public void setPages(List<AbstractPage> pages) {
+		if (dummyPageForScrolling != null) {
+			for (AbstractPage page : getPages()) {
+				page.removePropertyChangeListener(getLayoutListener());
+			}
+		}
 		this.pages = pages;
+		if (dummyPageForScrolling != null) {
+			for (AbstractPage page : getPages()) {
+				nodeAdded(page);
+			}
+			updateDummyPageForScrolling();
+		}
+	}
+	
+	/**
+	 * Removes the dummy pages for scrolling that older versions of CubicTest saved with the pages of the test:
+	 * pages of size zero without a name, elements or transitions.
+	 */
+	public void removeSavedDummyPagesForScrolling() {
+		List<AbstractPage> dummyPages = new ArrayList<AbstractPage>();
+		for (AbstractPage page : getPages()) {
+			Dimension dimension = page.getDimension();
+			if (page.getClass() != Page.class) {
+				continue;
+			}
+			List<CommonTransition> commonTransitions = ((Page) page).getCommonTransitions();
+			if (dimension.width == 0 && dimension.height == 0 && "".equals(page.getName()) && !page.hasElements() 
+					&& page.getInTransition() == null && !page.hasOutTransition() 
+					&& (commonTransitions == null || commonTransitions.isEmpty())) {
+				dummyPages.add(page);
+			}
+		}
+		for (AbstractPage page : dummyPages) {
+			removePage(page);
+		}
 	}
 	
 	/**
@@ -140,8 +243,8 @@ public class Test extends PropertyAwareObject implements NamePropertyObject {
 	
 	public void addExtensionPoint(ExtensionPoint point) {
 		getExtensionPoints().add(point);
+		nodeAdded(point);
 		firePropertyChange(CHILD,null,point);
-		updateDummyPageForScrolling();
 	}
 
 	/**
@@ -149,6 +252,7 @@ public class Test extends PropertyAwareObject implements NamePropertyObject {
 	 */
 	public void removeExtensionPoint(ExtensionPoint extensionPoint) {
 		getExtensionPoints().remove(extensionPoint);
+		nodeRemoved(extensionPoint);
 		firePropertyChange(CHILD,extensionPoint,null);
 	}
 	
@@ -179,6 +283,7 @@ public class Test extends PropertyAwareObject implements NamePropertyObject {
 	 */
 	public void removePage(AbstractPage page) {
 		pages.remove(page);
+		nodeRemoved(page);
 		firePropertyChange(CHILD,page,null);
 	}
 	/**
@@ -286,14 +391,15 @@ public class Test extends PropertyAwareObject implements NamePropertyObject {
 	
 	public void removeSubTest(SubTest subTest) {
 		subTests.remove(subTest);
+		nodeRemoved(subTest);
 		firePropertyChange(CHILD,subTest,null);
 	}
 	
 	public void addSubTest(SubTest test) {
 		test.setResourceMonitor(resourceMonitor);
 		subTests.add(test);
+		nodeAdded(test);
 		firePropertyChange(CHILD, null, test);
-		updateDummyPageForScrolling();
 	}
 	
 	public List<CustomTestStepHolder> getCustomTestSteps() {
@@ -302,12 +408,13 @@ public class Test extends PropertyAwareObject implements NamePropertyObject {
 	
 	public void removeCustomTestSteps(CustomTestStepHolder customTestStep) {
 		customTestSteps.remove(customTestStep);
+		nodeRemoved(customTestStep);
 		firePropertyChange(CHILD,customTestStep,null);
 	}
 	public void addCustomTestStep(CustomTestStepHolder customTestStep) {
 		customTestSteps.add(customTestStep);
+		nodeAdded(customTestStep);
 		firePropertyChange(CHILD, null, customTestStep);
-		updateDummyPageForScrolling();
 	}
 	public void updateObservers() {
 		if(allLanguages != null){
@@ -351,6 +458,26 @@ public class Test extends PropertyAwareObject implements NamePropertyObject {
 		return false;
 	}
 	
+	/**
+	 * Gets a copy of the test with the parameter values of the specified input row set.
+	 * The copy has its own page elements and parameter list, so this test and other copies are not changed,
+	 * and several copies can be run at the same time.
+	 * @param rowIndex the index of the parameter input row.
+	 * @return the copy bound to the row.
+	 */
+	public Test getParameterRowCopy(int rowIndex) {
+		if (paramList == null || rowIndex < 0 || rowIndex >= paramList.inputParameterSize()) {
+			throw new IllegalArgumentException("Test " + this + " has no parameter row " + rowIndex);
+		}
+		Test copy = (Test) CubicCloner.deepCopy(this);
+		if (filePath != null) {
+			copy.setFile(filePath);
+		}
+		copy.setResourceMonitor(resourceMonitor);
+		copy.getParamList().setParameterIndex(rowIndex);
+		return copy;
+	}
+	
 	/**
 	 * Get whether test has i18n enabled.
 	 * @return
@@ -371,68 +498,57 @@ public class Test extends PropertyAwareObject implements NamePropertyObject {
 	 * @return copy of the new status
 	 */
 	public TestPartStatus updateAndGetStatus(ConnectionPoint targetConnectionPoint) {
-		TestPartStatus status = null;
-		int passed = 0;
-		int failed = 0;
-		int exception = 0;
-		int warn = 0;
-		int unknown = 0;
-		List<PropertyAwareObject> testItems = new ArrayList<PropertyAwareObject>();
+		ReachabilityIndex index = (targetConnectionPoint == null) ? null : getReachabilityIndex();
+		StatusCounter counter = new StatusCounter();
 		for (AbstractPage page : getPages()) {
-			if (targetConnectionPoint != null && !ModelUtil.isOnPathToNode(page, targetConnectionPoint)) {
+			if (index != null && !index.isOnPathToNode(page, targetConnectionPoint)) {
 				continue;
 			}
-			for (PageElement pe : page.getFlattenedElements()) {
-				testItems.add(pe);
-			}
+			counter.addAll(page.getElementStatusCounter());
 		}
 		for (CustomTestStepHolder customStep : getCustomTestSteps()) {
-			if (targetConnectionPoint != null && !ModelUtil.isOnPathToNode(customStep, targetConnectionPoint)) {
+			if (index != null && !index.isOnPathToNode(customStep, targetConnectionPoint)) {
 				continue;
 			}
-			testItems.add(customStep);
+			counter.add(customStep.getStatus());
 		}
 		for (SubTest subTest : getSubTests()) {
-			if (targetConnectionPoint != null && !ModelUtil.isOnPathToNode(subTest, targetConnectionPoint)) {
+			if (index != null && !index.isOnPathToNode(subTest, targetConnectionPoint)) {
 				continue;
 			}
 			subTest.updateStatus(false, targetConnectionPoint);
-			testItems.add(subTest);
+			counter.add(subTest.getStatus());
 		}
 		if (getStartPoint() instanceof ExtensionStartPoint) {
 			ExtensionStartPoint exStartPoint = (ExtensionStartPoint) getStartPoint();
 			exStartPoint.updateStatus(false, exStartPoint);
-			testItems.add(exStartPoint);
-		}
-		
-		for (PropertyAwareObject object : testItems) {
-			if (object.getStatus().equals(TestPartStatus.PASS))
-				passed++;
-			else if (object.getStatus().equals(TestPartStatus.FAIL))
-				failed++;
-			else if (object.getStatus().equals(TestPartStatus.EXCEPTION))
-				exception++;
-			else if (object.getStatus().equals(TestPartStatus.WARN))
-				warn++;
-			else if (object.getStatus().equals(TestPartStatus.UNKNOWN))
-				unknown++;
+			counter.add(exStartPoint.getStatus());
 		}
 		
-		if (passed == testItems.size())
-			status = TestPartStatus.PASS;
-		else if (failed == testItems.size())
-			status = TestPartStatus.FAIL;
-		else if (exception > 0)
-			status = TestPartStatus.EXCEPTION;
-		else if (unknown == testItems.size())
-			status = TestPartStatus.UNKNOWN;
-		else
-			status = TestPartStatus.WARN;
-		
+		TestPartStatus status = counter.getAggregateStatus();
 		setStatus(status);
 		return status;
 	}
 	
+	/**
+	 * Gets the index of which nodes of the test are on path to other nodes.
+	 * The index is rebuilt if transitions have been changed since it was last built.
+	 */
+	public ReachabilityIndex getReachabilityIndex() {
+		if (reachabilityIndex == null || !reachabilityIndex.isUpToDate()) {
+			List<TransitionNode> nodes = new ArrayList<TransitionNode>();
+			if (startPoint != null) {
+				nodes.add(startPoint);
+			}
+			nodes.addAll(getPages());
+			nodes.addAll(subTests);
+			nodes.addAll(customTestSteps);
+			nodes.addAll(getExtensionPoints());
+			reachabilityIndex = new ReachabilityIndex(nodes);
+		}
+		return reachabilityIndex;
+	}
+	
 	public void refreshAndVerifySubFiles() {
 		for (CustomTestStepHolder holder : getCustomTestSteps()) {
 			holder.reloadCustomTestStep();
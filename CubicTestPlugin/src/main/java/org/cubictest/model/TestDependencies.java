@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.cubictest.model.i18n.Language;
+
+/**
+ * The files a test depends on: subtests (including the test of an extension start point), custom test steps,
+ * the parameter file and the language files, and the extension points of other tests that the test continues from.
+ * File names are as saved in the test: subtests and custom test steps relative to the project,
+ * parameter and language files relative to the workspace root.
+ * <p>
+ * Immutable.
+ *
+ * @author Christian Schwarz
+ */
+public class TestDependencies {
+
+	public static final TestDependencies NONE = new TestDependencies(new ArrayList<String>(), new ArrayList<String>(),
+			null, new ArrayList<String>(), new ArrayList<ExtensionPointUse>());
+
+	private final List<String> subTestFiles;
+	private final List<String> customStepFiles;
+	private final String paramsFile;
+	private final List<String> languageFiles;
+	private final List<ExtensionPointUse> extensionPointUses;
+
+
+	public TestDependencies(List<String> subTestFiles, List<String> customStepFiles, String paramsFile,
+			List<String> languageFiles, List<ExtensionPointUse> extensionPointUses) {
+		this.subTestFiles = unmodifiableDistinct(subTestFiles);
+		this.customStepFiles = unmodifiableDistinct(customStepFiles);
+		this.paramsFile = StringUtils.isBlank(paramsFile) ? null : paramsFile;
+		this.languageFiles = unmodifiableDistinct(languageFiles);
+		this.extensionPointUses = unmodifiableDistinct(extensionPointUses);
+	}
+
+
+	/**
+	 * Gets the dependencies of a loaded test. Does not load any subtests.
+	 */
+	public static TestDependencies fromTest(Test test) {
+		List<String> subTestFiles = new ArrayList<String>();
+		List<ExtensionPointUse> extensionPointUses = new ArrayList<ExtensionPointUse>();
+		if (test.getStartPoint() instanceof ExtensionStartPoint) {
+			ExtensionStartPoint startPoint = (ExtensionStartPoint) test.getStartPoint();
+			subTestFiles.add(startPoint.getFilePath());
+			extensionPointUses.add(new ExtensionPointUse(startPoint.getFilePath(), startPoint.getSourceExtensionPointPageId()));
+		}
+		for (SubTest subTest : test.getSubTests()) {
+			subTestFiles.add(subTest.getFilePath());
+		}
+		for (Transition transition : test.getTransitions()) {
+			if (transition instanceof ExtensionTransition && transition.getStart() instanceof SubTest) {
+				String filePath = ((SubTest) transition.getStart()).getFilePath();
+				extensionPointUses.add(new ExtensionPointUse(filePath, ((ExtensionTransition) transition).getExtensionPointPageId()));
+			}
+		}
+
+		List<String> customStepFiles = new ArrayList<String>();
+		for (CustomTestStepHolder holder : test.getCustomTestSteps()) {
+			customStepFiles.add(holder.getFilePath());
+		}
+
+		List<String> languageFiles = new ArrayList<String>();
+		if (test.getAllLanguages() != null) {
+			for (Language language : test.getAllLanguages().getLanguages()) {
+				languageFiles.add(language.getFileName());
+			}
+		}
+		String paramsFile = (test.getParamList() == null) ? null : test.getParamList().getFileName();
+		return new TestDependencies(subTestFiles, customStepFiles, paramsFile, languageFiles, extensionPointUses);
+	}
+
+
+	private static <T> List<T> unmodifiableDistinct(List<T> list) {
+		Set<T> distinct = new LinkedHashSet<T>();
+		for (T element : list) {
+			if (element != null && !"".equals(element)) {
+				distinct.add(element);
+			}
+		}
+		return Collections.unmodifiableList(new ArrayList<T>(distinct));
+	}
+
+
+	/**
+	 * Gets the file paths of the subtests, relative to the project.
+	 */
+	public List<String> getSubTestFiles() {
+		return subTestFiles;
+	}
+
+	/**
+	 * Gets the file paths of the custom test steps, relative to the project.
+	 */
+	public List<String> getCustomStepFiles() {
+		return customStepFiles;
+	}
+
+	/**
+	 * @return the parameter file relative to the workspace root, or <code>null</code> if the test has no parameter file.
+	 */
+	public String getParamsFile() {
+		return paramsFile;
+	}
+
+	/**
+	 * Gets the language files, relative to the workspace root.
+	 */
+	public List<String> getLanguageFiles() {
+		return languageFiles;
+	}
+
+	/**
+	 * Gets the extension points of subtests that the test continues from.
+	 */
+	public List<ExtensionPointUse> getExtensionPointUses() {
+		return extensionPointUses;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": SubTests = " + subTestFiles + ", CustomSteps = " + customStepFiles
+				+ ", ParamsFile = " + paramsFile + ", LanguageFiles = " + languageFiles + ", ExtensionPoints = " + extensionPointUses;
+	}
+
+
+	/**
+	 * An extension point of a subtest that a test continues from, identified by the file path of the subtest
+	 * and the ID of the page the extension point extends from.
+	 */
+	public static class ExtensionPointUse {
+		private final String testFile;
+		private final String pageId;
+
+		public ExtensionPointUse(String testFile, String pageId) {
+			this.testFile = testFile;
+			this.pageId = pageId;
+		}
+
+		public String getTestFile() {
+			return testFile;
+		}
+
+		public String getPageId() {
+			return pageId;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ExtensionPointUse)) {
+				return false;
+			}
+			ExtensionPointUse other = (ExtensionPointUse) obj;
+			return StringUtils.equals(testFile, other.testFile) && StringUtils.equals(pageId, other.pageId);
+		}
+
+		@Override
+		public int hashCode() {
+			return (testFile == null ? 0 : testFile.hashCode()) * 31 + (pageId == null ? 0 : pageId.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return testFile + "#" + pageId;
+		}
+	}
+}
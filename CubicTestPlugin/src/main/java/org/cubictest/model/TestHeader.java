@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The header of a test: what is needed to show and refer to a test, e.g. as a subtest, without its pages.
+ * Can be read from a test file without creating the page graph (see <code>TestPersistance.loadHeaderFromFile</code>),
+ * or be taken from a loaded test.
+ * <p>
+ * Immutable.
+ *
+ * @author Christian Schwarz
+ */
+public class TestHeader {
+
+	private final String name;
+	private final String description;
+	private final List<ExtensionPointHeader> extensionPoints;
+	private final boolean paramsConfigured;
+	private final boolean i18nConfigured;
+	private final TestDependencies dependencies;
+
+
+	public TestHeader(String name, String description, List<ExtensionPointHeader> extensionPoints,
+			boolean paramsConfigured, boolean i18nConfigured) {
+		this(name, description, extensionPoints, paramsConfigured, i18nConfigured, TestDependencies.NONE);
+	}
+
+	public TestHeader(String name, String description, List<ExtensionPointHeader> extensionPoints,
+			boolean paramsConfigured, boolean i18nConfigured, TestDependencies dependencies) {
+		this.name = name;
+		this.description = description;
+		this.extensionPoints = Collections.unmodifiableList(new ArrayList<ExtensionPointHeader>(extensionPoints));
+		this.paramsConfigured = paramsConfigured;
+		this.i18nConfigured = i18nConfigured;
+		this.dependencies = dependencies;
+	}
+
+
+	/**
+	 * Gets the header of a loaded test.
+	 */
+	public static TestHeader fromTest(Test test) {
+		List<ExtensionPointHeader> extensionPoints = new ArrayList<ExtensionPointHeader>();
+		for (ExtensionPoint point : test.getAllExtensionPoints()) {
+			String pageId = (point.getPage() == null) ? null : point.getPageId();
+			extensionPoints.add(new ExtensionPointHeader(point.getId(), point.getName(), pageId));
+		}
+		return new TestHeader(test.getName(), test.getDescription(), extensionPoints,
+				test.hasParamsConfigured(), test.hasI18nConfigured(), TestDependencies.fromTest(test));
+	}
+
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Gets the extension points of the test, in the order of the test's extension point list.
+	 */
+	public List<ExtensionPointHeader> getExtensionPoints() {
+		return extensionPoints;
+	}
+
+	/**
+	 * @see Test#hasParamsConfigured()
+	 */
+	public boolean hasParamsConfigured() {
+		return paramsConfigured;
+	}
+
+	/**
+	 * @see Test#hasI18nConfigured()
+	 */
+	public boolean hasI18nConfigured() {
+		return i18nConfigured;
+	}
+
+	/**
+	 * Gets the files and extension points the test depends on.
+	 */
+	public TestDependencies getDependencies() {
+		return dependencies;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": Name = " + name + ", ExtensionPoints = " + extensionPoints;
+	}
+
+
+	/**
+	 * The ID and name of an extension point, and the ID of the page it extends from.
+	 */
+	public static class ExtensionPointHeader {
+		private final String id;
+		private final String name;
+		private final String pageId;
+
+		public ExtensionPointHeader(String id, String name, String pageId) {
+			this.id = id;
+			this.name = name;
+			this.pageId = pageId;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the ID of the page, or <code>null</code> if the extension point is not connected to a page.
+		 */
+		public String getPageId() {
+			return pageId;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
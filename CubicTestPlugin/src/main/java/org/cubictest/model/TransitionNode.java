@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.cubictest.common.exception.CubicException;
 import org.cubictest.common.utils.CubicCloner;
@@ -28,6 +29,9 @@ import org.eclipse.draw2d.geometry.Point;
  * @author trond
  */
 public abstract class TransitionNode extends PropertyAwareObject implements NamePropertyObject {
+	/** Incremented whenever a transition or ID of any node is changed, to detect outdated reachability indexes. */
+	private static final AtomicInteger structureVersion = new AtomicInteger();
+
 	private Transition inTransition = null;
 	private List<Transition> outTransitions = new ArrayList<Transition>();
 	private String id = "";
@@ -36,7 +40,15 @@ public abstract class TransitionNode extends PropertyAwareObject implements Name
 	private String name = "";
 	
 	public TransitionNode() {
-		this.setId(getNewGeneratedId());
+		this.id = getNewGeneratedId();
+	}
+
+	/**
+	 * Gets the version of the transition structure of all nodes.
+	 * @see ReachabilityIndex
+	 */
+	public static int getStructureVersion() {
+		return structureVersion.get();
 	}
 
 	/**
@@ -113,6 +125,7 @@ public abstract class TransitionNode extends PropertyAwareObject implements Name
 	public void setInTransition(Transition inTransition) {
 		Transition oldTransition = this.inTransition;
 		this.inTransition = inTransition;
+		structureVersion.incrementAndGet();
 		if (inTransition != null)
 			firePropertyChange(PropertyAwareObject.INPUT,oldTransition,inTransition);
 	}
@@ -152,6 +165,7 @@ public abstract class TransitionNode extends PropertyAwareObject implements Name
 	 */
 	public void setOutTransitions(List<Transition> outTransitions) {
 		this.outTransitions = outTransitions;
+		structureVersion.incrementAndGet();
 	}
 	/**
 	 * @param transition
@@ -162,6 +176,7 @@ public abstract class TransitionNode extends PropertyAwareObject implements Name
 			Logger.warn("Removing duplicate out-transition from " + this.toString() + ".");
 		}
 		outTransitions.add(transition);
+		structureVersion.incrementAndGet();
 		firePropertyChange(PropertyAwareObject.OUTPUT,null,transition);
 	}
 	/**
@@ -175,12 +190,14 @@ public abstract class TransitionNode extends PropertyAwareObject implements Name
 	 */
 	public void setId(String id) {
 		this.id = id;
+		structureVersion.incrementAndGet();
 	}
 	/**
 	 * @param linkTransition
 	 */
 	public void removeOutTransition(Transition transition) {
 		outTransitions.remove(transition);
+		structureVersion.incrementAndGet();
 		firePropertyChange(PropertyAwareObject.OUTPUT,transition,null);
 	}
 	
@@ -198,6 +215,7 @@ public abstract class TransitionNode extends PropertyAwareObject implements Name
 	public void removeInTransition() {
 		Transition oldTrans = inTransition;
 		inTransition = null;
+		structureVersion.incrementAndGet();
 		firePropertyChange(PropertyAwareObject.INPUT,oldTrans,null);
 		
 	}
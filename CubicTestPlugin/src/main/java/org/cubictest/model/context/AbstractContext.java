@@ -39,6 +39,7 @@ public abstract class AbstractContext extends PageElement implements IContext {
 		//idempotent:
 		if (!elements.contains(pe)) {
 			elements.add(pe);
+			invalidateStatusCounter();
 			firePropertyChange(PropertyAwareObject.CHILD,null,pe);
 		}
 	}
@@ -47,12 +48,14 @@ public abstract class AbstractContext extends PageElement implements IContext {
 		//idempotent:
 		if (!elements.contains(pe)) {
 			elements.add(index,pe);
+			invalidateStatusCounter();
 			firePropertyChange(PropertyAwareObject.CHILD,null,pe);
 		}
 	}
 
 	public void removeElement(PageElement pe) {
 		elements.remove(pe);
+		invalidateStatusCounter();
 		firePropertyChange(PropertyAwareObject.CHILD,pe,null);
 	}
 	
@@ -75,6 +78,7 @@ public abstract class AbstractContext extends PageElement implements IContext {
 	
 	public void setElements(List<PageElement> elements) {
 		this.elements = elements;
+		invalidateStatusCounter();
 	}
 	
 	/**
@@ -111,6 +115,20 @@ public abstract class AbstractContext extends PageElement implements IContext {
 		}
 	}
 	
+	/**
+	 * Compares the context data and the child elements of the contexts.
+	 */
+	@Override
+	public boolean equalsModel(Object other) {
+		return super.equalsModel(other) && 
+				(other == this || PageElement.equalsModel(elements, ((AbstractContext) other).elements));
+	}
+	
+	@Override
+	public int modelHash() {
+		return 31 * super.modelHash() + PageElement.modelHash(elements);
+	}
+	
 	public boolean contains(PageElement pe) {
 		if(elements.contains(pe))
 			return true;
@@ -18,6 +18,7 @@ import static org.cubictest.model.IdentifierType.SELECTED;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
 import org.cubictest.model.ActionType;
 import org.cubictest.model.Identifier;
 import org.cubictest.model.IdentifierType;
@@ -67,5 +68,22 @@ public class Option extends Checkable{
 	protected void setDefaultIdentifierValues() {
 		getIdentifiers().get(0).setProbability(Identifier.MAX_PROBABILITY);
 	}
+	
+	/**
+	 * Compares the option data, and the description and identifiers of the parent selects.
+	 * The other options of the parents are not compared, as that would compare this option again.
+	 */
+	@Override
+	public boolean equalsModel(Object other) {
+		if (!super.equalsModel(other)) {
+			return false;
+		}
+		Select otherParent = ((Option) other).parent;
+		if (parent == null || otherParent == null || parent == otherParent) {
+			return parent == otherParent;
+		}
+		return StringUtils.equals(parent.getDescription(), otherParent.getDescription()) &&
+				Identifier.equalsModel(parent.getIdentifiers(), otherParent.getIdentifiers());
+	}
 
 }
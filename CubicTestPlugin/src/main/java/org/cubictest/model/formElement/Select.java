@@ -50,6 +50,7 @@ public class Select extends FormElement implements IContext {
 		if (pe instanceof Option && !elements.contains(pe)) {
 			((Option) pe).setParent(this);
 			elements.add(index, pe);
+			invalidateStatusCounter();
 			firePropertyChange(CHILD,null,pe);
 		}
 	}
@@ -59,6 +60,7 @@ public class Select extends FormElement implements IContext {
 		if (pe instanceof Option && !elements.contains(pe)) {
 			((Option) pe).setParent(this);
 			elements.add(pe);
+			invalidateStatusCounter();
 			firePropertyChange(CHILD,null,pe);
 		}
 	}
@@ -76,10 +78,12 @@ public class Select extends FormElement implements IContext {
 			((Option) element).setParent(this);
 		}
 		this.elements = elements;
+		invalidateStatusCounter();
 	}
 	
 	public void removeElement(PageElement pe){
 		elements.remove(pe);
+		invalidateStatusCounter();
 		firePropertyChange(CHILD,pe,null);
 	}
 
@@ -116,6 +120,20 @@ public class Select extends FormElement implements IContext {
 		return elements.contains(pe);
 	}
 	
+	/**
+	 * Compares the select data and the options of the selects.
+	 */
+	@Override
+	public boolean equalsModel(Object other) {
+		return super.equalsModel(other) && 
+				(other == this || PageElement.equalsModel(elements, ((Select) other).elements));
+	}
+	
+	@Override
+	public int modelHash() {
+		return 31 * super.modelHash() + PageElement.modelHash(elements);
+	}
+	
 	/**
 	 * Gets all page elements of a page in flat structure (traverse contexts). 
 	 */
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.cubictest.common.utils.Logger;
+import org.cubictest.model.Test;
+
+/**
+ * Optional cache of parsed tests in the {@link BinaryTestFormat}, stored in a sidecar directory next to the test files.
+ * The XML file is always the source of truth: a cached test is only used if the XML file has the same last modified
+ * time and size as when the cache file was written, otherwise the XML is parsed and the cache file rewritten.
+ * <p>
+ * Disabled by default. Can be enabled with {@link #setEnabled(boolean)} or the system property
+ * <code>cubictest.binaryTestCache=true</code>.
+ *
+ * @author Christian Schwarz
+ */
+public class BinaryTestCache {
+
+	public static final String CACHE_DIR_NAME = ".cubictest-cache";
+	public static final String CACHE_FILE_SUFFIX = ".bin";
+	public static final String ENABLED_PROPERTY = "cubictest.binaryTestCache";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final BinaryTestCache instance = new BinaryTestCache(Boolean.getBoolean(ENABLED_PROPERTY));
+
+	private volatile boolean enabled;
+
+
+	public BinaryTestCache(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public static BinaryTestCache getInstance() {
+		return instance;
+	}
+
+
+	/**
+	 * Gets the cache file of a test file.
+	 */
+	public static File getCacheFile(File testFile) {
+		File dir = new File(testFile.getAbsoluteFile().getParentFile(), CACHE_DIR_NAME);
+		return new File(dir, testFile.getName() + CACHE_FILE_SUFFIX);
+	}
+
+
+	/**
+	 * Reads the cached test of the file.
+	 * @param stamp the file stamp of the test file, taken before reading it.
+	 * @return the test, or <code>null</code> if the cache is disabled, the file is not cached or has changed,
+	 * or the cache file could not be read.
+	 */
+	public Test load(File testFile, ParsedTestCache.FileStamp stamp) {
+		if (!enabled) {
+			return null;
+		}
+		File cacheFile = getCacheFile(testFile);
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+		InputStream in = null;
+		try {
+			in = new BufferedInputStream(new FileInputStream(cacheFile), BUFFER_SIZE);
+			return (Test) BinaryTestFormat.read(in, stamp.getLastModified(), stamp.getLength());
+		}
+		catch (Exception e) {
+			Logger.warn("Could not read cached test " + cacheFile + ". Parsing " + testFile.getName() + " instead.", e);
+			return null;
+		}
+		finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+
+	/**
+	 * Writes the test parsed from the file to the cache.
+	 * Errors are logged and otherwise ignored, as the test can always be parsed from the XML file.
+	 * @param stamp the file stamp of the test file, taken before reading it.
+	 */
+	public void store(File testFile, ParsedTestCache.FileStamp stamp, Test test) {
+		if (!enabled) {
+			return;
+		}
+		File cacheFile = getCacheFile(testFile);
+		File tempFile = null;
+		OutputStream out = null;
+		try {
+			File dir = cacheFile.getParentFile();
+			if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+				throw new IOException("Could not create directory " + dir);
+			}
+			//write to a temp file first, so that other threads and processes never read a partly written file:
+			tempFile = File.createTempFile(testFile.getName(), ".tmp", dir);
+			out = new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE);
+			BinaryTestFormat.write(test, stamp.getLastModified(), stamp.getLength(), out);
+			out.close();
+			out = null;
+			if (!tempFile.renameTo(cacheFile)) {
+				cacheFile.delete();
+				if (!tempFile.renameTo(cacheFile)) {
+					throw new IOException("Could not rename " + tempFile + " to " + cacheFile);
+				}
+			}
+			tempFile = null;
+		}
+		catch (Exception e) {
+			Logger.warn("Could not write cached test " + cacheFile, e);
+		}
+		finally {
+			IOUtils.closeQuietly(out);
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
+	}
+
+
+	/**
+	 * Removes the cached test of the file, e.g. when the file has been saved.
+	 */
+	public void invalidate(File testFile) {
+		File cacheFile = getCacheFile(testFile);
+		if (cacheFile.exists()) {
+			cacheFile.delete();
+		}
+	}
+
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+}
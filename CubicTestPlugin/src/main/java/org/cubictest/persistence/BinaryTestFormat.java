@@ -0,0 +1,517 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.cubictest.common.exception.CubicException;
+import org.cubictest.model.ModelInfo;
+
+/**
+ * Compact binary encoding of tests (or other model objects), used for caching parsed XML.
+ * The object graph is walked by the {@link ModelGraph}, like by the {@link ModelCopier}, so reading a test back gives the same
+ * result as parsing its XML: objects are created without invoking constructors, transient and omitted fields
+ * are left unset, and shared references and cycles are kept.
+ * <p>
+ * The data starts with a header with the format version, the model version and the last modified time and size
+ * of the XML file it was made from. Class names, field names and string values (e.g. identifier values and IDs)
+ * are written once and then referred to by index, and integers (e.g. positions) are written as variable length numbers.
+ *
+ * @author Christian Schwarz
+ */
+public class BinaryTestFormat {
+
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int MAGIC = 0x43544246; //"CTBF"
+
+	//value tags:
+	private static final int NULL = 0;
+	private static final int REFERENCE = 1;
+	private static final int NEW_OBJECT = 2;
+	private static final int STRING = 3;
+	private static final int TRUE = 4;
+	private static final int FALSE = 5;
+	private static final int INTEGER = 6;
+	private static final int LONG = 7;
+	private static final int SHORT = 8;
+	private static final int BYTE = 9;
+	private static final int CHARACTER = 10;
+	private static final int FLOAT = 11;
+	private static final int DOUBLE = 12;
+	private static final int ENUM = 13;
+	private static final int CLASS = 14;
+
+	//field tags (other values are the index of a field already written, plus FIRST_FIELD_INDEX):
+	private static final int END_OF_FIELDS = 0;
+	private static final int NEW_FIELD = 1;
+	private static final int FIRST_FIELD_INDEX = 2;
+
+
+	/**
+	 * Writes the object graph, preceded by the header.
+	 * @param root the object to write.
+	 * @param sourceLastModified the last modified time of the file that the object was read from.
+	 * @param sourceLength the size of the file that the object was read from.
+	 */
+	public static void write(Object root, long sourceLastModified, long sourceLength, OutputStream output) throws IOException {
+		DataOutputStream out = new DataOutputStream(output);
+		out.writeInt(MAGIC);
+		writeVarInt(out, FORMAT_VERSION);
+		out.writeUTF(ModelInfo.getCurrentModelVersion());
+		out.writeLong(sourceLastModified);
+		out.writeLong(sourceLength);
+		new Writer(out, new ModelGraph(CubicTestSerializer.getXStream())).writeGraph(root);
+		out.flush();
+	}
+
+
+	/**
+	 * Reads an object graph written by {@link #write(Object, long, long, OutputStream)}.
+	 * @param sourceLastModified the current last modified time of the file that the object was read from.
+	 * @param sourceLength the current size of the file that the object was read from.
+	 * @return the object, or <code>null</code> if the data was written with another format or model version or from
+	 * another version of the file.
+	 */
+	public static Object read(InputStream input, long sourceLastModified, long sourceLength) throws IOException {
+		DataInputStream in = new DataInputStream(input);
+		if (in.readInt() != MAGIC || readVarInt(in) != FORMAT_VERSION
+				|| !ModelInfo.getCurrentModelVersion().equals(in.readUTF())
+				|| in.readLong() != sourceLastModified || in.readLong() != sourceLength) {
+			return null;
+		}
+		CubicTestXStream xStream = CubicTestSerializer.getXStream();
+		return new Reader(in, new ModelGraph(xStream), xStream.getClassLoader()).readGraph();
+	}
+
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable length number");
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable length number");
+	}
+
+	/** Maps signed numbers to unsigned, so that small negative numbers are also written in few bytes. */
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+
+	/**
+	 * Writes an object graph. Objects are written breadth first: the first time an object is reached,
+	 * only its class is written, and its contents are written after the contents of the objects reached before it.
+	 */
+	private static class Writer {
+		private final DataOutputStream out;
+		private final ModelGraph graph;
+		private final Map<Object, Integer> objectIds = new IdentityHashMap<Object, Integer>();
+		private final LinkedList<Object> pending = new LinkedList<Object>();
+		private final Map<String, Integer> strings = new HashMap<String, Integer>();
+		private final Map<Class<?>, Integer> classes = new HashMap<Class<?>, Integer>();
+		private final Map<String, Integer> fields = new HashMap<String, Integer>();
+
+		public Writer(DataOutputStream out, ModelGraph graph) {
+			this.out = out;
+			this.graph = graph;
+		}
+
+		public void writeGraph(Object root) throws IOException {
+			writeValue(root);
+			while (!pending.isEmpty()) {
+				writeContents(pending.removeFirst());
+			}
+		}
+
+		private void writeValue(Object value) throws IOException {
+			if (value == null) {
+				writeVarInt(out, NULL);
+			}
+			else if (value instanceof String) {
+				writeVarInt(out, STRING);
+				writeString((String) value);
+			}
+			else if (value instanceof Boolean) {
+				writeVarInt(out, ((Boolean) value).booleanValue() ? TRUE : FALSE);
+			}
+			else if (value instanceof Integer) {
+				writeVarInt(out, INTEGER);
+				writeVarInt(out, zigZag(((Integer) value).intValue()));
+			}
+			else if (value instanceof Long) {
+				writeVarInt(out, LONG);
+				writeVarLong(out, zigZag(((Long) value).longValue()));
+			}
+			else if (value instanceof Short) {
+				writeVarInt(out, SHORT);
+				writeVarInt(out, zigZag(((Short) value).intValue()));
+			}
+			else if (value instanceof Byte) {
+				writeVarInt(out, BYTE);
+				writeVarInt(out, zigZag(((Byte) value).intValue()));
+			}
+			else if (value instanceof Character) {
+				writeVarInt(out, CHARACTER);
+				writeVarInt(out, ((Character) value).charValue());
+			}
+			else if (value instanceof Float) {
+				writeVarInt(out, FLOAT);
+				out.writeFloat(((Float) value).floatValue());
+			}
+			else if (value instanceof Double) {
+				writeVarInt(out, DOUBLE);
+				out.writeDouble(((Double) value).doubleValue());
+			}
+			else if (value instanceof Enum) {
+				writeVarInt(out, ENUM);
+				writeClass(((Enum<?>) value).getDeclaringClass());
+				writeString(((Enum<?>) value).name());
+			}
+			else if (value instanceof Class) {
+				writeVarInt(out, CLASS);
+				writeClass((Class<?>) value);
+			}
+			else {
+				Integer id = objectIds.get(value);
+				if (id != null) {
+					writeVarInt(out, REFERENCE);
+					writeVarInt(out, id.intValue());
+				}
+				else {
+					objectIds.put(value, objectIds.size());
+					pending.add(value);
+					writeVarInt(out, NEW_OBJECT);
+					writeClass(value.getClass());
+					if (value.getClass().isArray()) {
+						writeVarInt(out, Array.getLength(value));
+					}
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private void writeContents(Object object) throws IOException {
+			Class<?> type = object.getClass();
+			if (type.isArray()) {
+				for (int i = 0; i < Array.getLength(object); i++) {
+					writeValue(Array.get(object, i));
+				}
+			}
+			else if (graph.isWalkedByElements(type)) {
+				if (object instanceof Map) {
+					Map<Object, Object> map = (Map<Object, Object>) object;
+					writeVarInt(out, map.size());
+					for (Map.Entry<Object, Object> entry : map.entrySet()) {
+						writeValue(entry.getKey());
+						writeValue(entry.getValue());
+					}
+				}
+				else {
+					Collection<Object> collection = (Collection<Object>) object;
+					writeVarInt(out, collection.size());
+					for (Object element : collection) {
+						writeValue(element);
+					}
+				}
+			}
+			else {
+				final List<Object> fieldValues = new ArrayList<Object>();
+				graph.visitFields(object, new ModelGraph.FieldVisitor() {
+					public void visit(Class<?> definedIn, String name, Object value) {
+						fieldValues.add(definedIn);
+						fieldValues.add(name);
+						fieldValues.add(value);
+					}
+				});
+				for (int i = 0; i < fieldValues.size(); i += 3) {
+					writeField((Class<?>) fieldValues.get(i), (String) fieldValues.get(i + 1));
+					writeValue(fieldValues.get(i + 2));
+				}
+				writeVarInt(out, END_OF_FIELDS);
+			}
+		}
+
+		private void writeField(Class<?> definedIn, String name) throws IOException {
+			String key = definedIn.getName() + "#" + name;
+			Integer index = fields.get(key);
+			if (index != null) {
+				writeVarInt(out, index.intValue() + FIRST_FIELD_INDEX);
+			}
+			else {
+				fields.put(key, fields.size());
+				writeVarInt(out, NEW_FIELD);
+				writeClass(definedIn);
+				writeString(name);
+			}
+		}
+
+		/** Writes the index of a class already written, plus one, or zero followed by the class name. */
+		private void writeClass(Class<?> type) throws IOException {
+			Integer index = classes.get(type);
+			if (index != null) {
+				writeVarInt(out, index.intValue() + 1);
+			}
+			else {
+				classes.put(type, classes.size());
+				writeVarInt(out, 0);
+				writeString(type.getName());
+			}
+		}
+
+		/** Writes the index of a string already written, plus one, or zero followed by the string. */
+		private void writeString(String string) throws IOException {
+			Integer index = strings.get(string);
+			if (index != null) {
+				writeVarInt(out, index.intValue() + 1);
+			}
+			else {
+				strings.put(string, strings.size());
+				writeVarInt(out, 0);
+				byte[] bytes = string.getBytes("UTF-8");
+				writeVarInt(out, bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+
+	/**
+	 * Reads an object graph in the order it was written by the Writer.
+	 */
+	private static class Reader {
+		private final DataInputStream in;
+		private final ModelGraph graph;
+		private final ClassLoader classLoader;
+		private final List<Object> objects = new ArrayList<Object>();
+		private final LinkedList<Object> pending = new LinkedList<Object>();
+		private final List<String> strings = new ArrayList<String>();
+		private final List<Class<?>> classes = new ArrayList<Class<?>>();
+		private final List<Class<?>> fieldClasses = new ArrayList<Class<?>>();
+		private final List<String> fieldNames = new ArrayList<String>();
+
+		public Reader(DataInputStream in, ModelGraph graph, ClassLoader classLoader) {
+			this.in = in;
+			this.graph = graph;
+			this.classLoader = classLoader;
+		}
+
+		public Object readGraph() throws IOException {
+			Object root = readValue();
+			while (!pending.isEmpty()) {
+				readContents(pending.removeFirst());
+			}
+			graph.fillHashedCollections();
+			return root;
+		}
+
+		private Object readValue() throws IOException {
+			int tag = readVarInt(in);
+			switch (tag) {
+			case NULL:
+				return null;
+			case REFERENCE:
+				int id = readVarInt(in);
+				if (id >= objects.size()) {
+					throw new IOException("Reference to unknown object " + id);
+				}
+				return objects.get(id);
+			case NEW_OBJECT:
+				return readNewObject();
+			case STRING:
+				return readString();
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			case INTEGER:
+				return Integer.valueOf(unZigZag(readVarInt(in)));
+			case LONG:
+				return Long.valueOf(unZigZag(readVarLong(in)));
+			case SHORT:
+				return Short.valueOf((short) unZigZag(readVarInt(in)));
+			case BYTE:
+				return Byte.valueOf((byte) unZigZag(readVarInt(in)));
+			case CHARACTER:
+				return Character.valueOf((char) readVarInt(in));
+			case FLOAT:
+				return Float.valueOf(in.readFloat());
+			case DOUBLE:
+				return Double.valueOf(in.readDouble());
+			case ENUM:
+				return readEnum();
+			case CLASS:
+				return readClass();
+			default:
+				throw new IOException("Unknown value tag " + tag);
+			}
+		}
+
+		private Object readEnum() throws IOException {
+			Class<?> type = readClass();
+			String name = readString();
+			if (!type.isEnum()) {
+				throw new IOException("Not an enum type: " + type.getName());
+			}
+			for (Object constant : type.getEnumConstants()) {
+				if (((Enum<?>) constant).name().equals(name)) {
+					return constant;
+				}
+			}
+			throw new IOException("Unknown enum constant " + type.getName() + "." + name);
+		}
+
+		private Object readNewObject() throws IOException {
+			Class<?> type = readClass();
+			Object object;
+			try {
+				object = graph.newInstance(type, type.isArray() ? readVarInt(in) : 0);
+			} catch (CubicException e) {
+				throw new IOException(e.getMessage() + ": " + e.getCause());
+			}
+			objects.add(object);
+			pending.add(object);
+			return object;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void readContents(Object object) throws IOException {
+			Class<?> type = object.getClass();
+			if (type.isArray()) {
+				for (int i = 0; i < Array.getLength(object); i++) {
+					Array.set(object, i, readValue());
+				}
+			}
+			else if (graph.isWalkedByElements(type)) {
+				int size = readVarInt(in);
+				if (ModelGraph.isHashed(object)) {
+					int values = (object instanceof Map) ? size * 2 : size;
+					List<Object> contents = new ArrayList<Object>(values);
+					for (int i = 0; i < values; i++) {
+						contents.add(readValue());
+					}
+					graph.addHashedContents(object, contents);
+				}
+				else {
+					Collection<Object> collection = (Collection<Object>) object;
+					for (int i = 0; i < size; i++) {
+						collection.add(readValue());
+					}
+				}
+			}
+			else {
+				int field;
+				while ((field = readVarInt(in)) != END_OF_FIELDS) {
+					if (field == NEW_FIELD) {
+						fieldClasses.add(readClass());
+						fieldNames.add(readString());
+						field = fieldNames.size() - 1 + FIRST_FIELD_INDEX;
+					}
+					int index = field - FIRST_FIELD_INDEX;
+					if (index >= fieldNames.size()) {
+						throw new IOException("Reference to unknown field " + index);
+					}
+					graph.writeField(object, fieldClasses.get(index), fieldNames.get(index), readValue());
+				}
+			}
+		}
+
+		private Class<?> readClass() throws IOException {
+			int index = readVarInt(in);
+			if (index > 0) {
+				if (index > classes.size()) {
+					throw new IOException("Reference to unknown class " + index);
+				}
+				return classes.get(index - 1);
+			}
+			String name = readString();
+			try {
+				Class<?> type = Class.forName(name, false, classLoader);
+				classes.add(type);
+				return type;
+			}
+			catch (ClassNotFoundException e) {
+				throw new IOException("Unknown class " + name);
+			}
+		}
+
+		private String readString() throws IOException {
+			int index = readVarInt(in);
+			if (index > 0) {
+				if (index > strings.size()) {
+					throw new IOException("Reference to unknown string " + index);
+				}
+				return strings.get(index - 1);
+			}
+			byte[] bytes = new byte[readVarInt(in)];
+			in.readFully(bytes);
+			String string = new String(bytes, "UTF-8");
+			strings.add(string);
+			return string;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import org.cubictest.common.utils.Logger;
+import org.cubictest.model.Link;
+import org.cubictest.model.Page;
+import org.cubictest.model.SimpleTransition;
+import org.cubictest.model.Test;
+import org.cubictest.model.Text;
+import org.cubictest.model.UrlStartPoint;
+import org.cubictest.model.UserInteractionsTransition;
+import org.cubictest.model.formElement.TextField;
+
+
+/**
+ * Shared serializer for all CubicTest XML (tests, parameters and custom steps).
+ * Wraps a single CubicTestXStream that is configured once and never changed afterwards. 
+ * XStream is thread safe when not reconfigured, so the methods may be used from any thread.
+ * 
+ * @author Christian Schwarz
+ */
+public final class CubicTestSerializer {
+
+	private CubicTestSerializer() {}
+	
+	/** Lazy holder of the XStream instance, initialized by the class loader on first use. */
+	private static class Holder {
+		private static final CubicTestXStream xStream = new CubicTestXStream();
+	}
+	
+	public static String toXML(Object obj) {
+		return Holder.xStream.toXML(obj);
+	}
+
+	public static Object fromXML(String xml) {
+		return Holder.xStream.fromXML(xml);
+	}
+	
+	/**
+	 * Gets the shared XStream, e.g. for copying objects with the same mapping. Must not be reconfigured.
+	 */
+	static CubicTestXStream getXStream() {
+		return Holder.xStream;
+	}
+	
+	
+	/**
+	 * Builds the alias mapping and fills XStream's reflection and converter caches for the common model classes,
+	 * so that the first test that is opened or run does not have to pay for it.
+	 */
+	public static void warmUp() {
+		try {
+			Test test = new Test();
+			test.setName("Warm up");
+			UrlStartPoint startPoint = new UrlStartPoint();
+			startPoint.setBeginAt("http://localhost/");
+			test.setStartPoint(startPoint);
+			Page first = new Page();
+			first.addElement(new Text());
+			first.addElement(new Link());
+			first.addElement(new TextField());
+			new SimpleTransition(startPoint, first).connect();
+			new UserInteractionsTransition(first, new Page()).connect();
+			fromXML(toXML(test));
+		}
+		catch (Exception e) {
+			Logger.warn("Could not warm up the CubicTest serializer", e);
+		}
+	}
+}
@@ -70,6 +70,7 @@ import com.thoughtworks.xstream.XStream;
 
 /**
  * CubicTest specific XStream mapping.
+ * Use the shared {@link CubicTestSerializer} rather than creating new instances, as setting up the mapping is expensive.
  * 
  * @author chr_schwarz
  */
@@ -61,7 +61,7 @@ public class CustomTestStepPersistance {
 		}
 		CustomTestStep customStep = null;
 		try{
-			customStep = (CustomTestStep) new CubicTestXStream().fromXML(xml);
+			customStep = (CustomTestStep) CubicTestSerializer.fromXML(xml);
 			return customStep;
 		}catch(StreamException e){
 		}
@@ -71,7 +71,7 @@ public class CustomTestStepPersistance {
 	}
 
 	public static void saveToFile(CustomTestStep customStep, IFile file) {
-		String xml = new CubicTestXStream().toXML(customStep);
+		String xml = CubicTestSerializer.toXML(customStep);
 		try {
 			String charset = TestPersistance.getCharset(file.getLocation().toFile());
 			String charsetHeader = TestPersistance.getCharsetHeader(charset);
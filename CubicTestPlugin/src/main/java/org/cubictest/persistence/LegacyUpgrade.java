@@ -10,28 +10,48 @@
  *******************************************************************************/
 package org.cubictest.persistence;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.StringReader;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.cubictest.common.utils.ErrorHandler;
 import org.cubictest.common.utils.Logger;
+import org.cubictest.common.utils.ModelUtil;
 import org.cubictest.common.utils.TextUtil;
+import org.cubictest.model.ModelInfo;
+import org.cubictest.model.Test;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.runtime.CoreException;
 import org.jaxen.jdom.JDOMXPath;
 import org.jdom.Attribute;
+import org.jdom.CDATA;
 import org.jdom.Document;
 import org.jdom.Element;
+import org.jdom.Text;
 import org.jdom.input.SAXBuilder;
 import org.jdom.output.XMLOutputter;
 
 /**
  * Used for upgrading old CubicTest XML files to the newest standard.
  * See the <code>ModelInfo</code> class for info about model versions.
+ * The textual upgrades of the oldest versions are done on the XML string, and version 4 is upgraded on a parsed document.
+ * The later versions are upgraded in a single streaming pass, see {@link StreamingModelUpgrade}.
  * @author chr_schwarz
  */
 public class LegacyUpgrade {
 
+	private static final int CURRENT_MODEL_VERSION = Integer.parseInt(ModelInfo.getCurrentModelVersion());
+
 	/**
 	 * Upgrade model XML.
 	 * Project may be null, must be handled by the upgrade code.
@@ -46,14 +66,84 @@ public class LegacyUpgrade {
 		xml = upgradeModel2to3(xml, version, project);
 		xml = upgradeModel3to4(xml, version);
 		xml = upgradeModel4to5(xml, version);
-		xml = upgradeModel5to6(xml, version, project);
-		xml = upgradeModel6to7(xml, version, project);
-		xml = upgradeModel7to8(xml, version, project);
-		xml = upgradeModel8to9(xml, version, project);
-		xml = upgradeModel9to10(xml, version, project);
+		if (version.getVersion() >= 5 && version.getVersion() < CURRENT_MODEL_VERSION) {
+			try {
+				xml = StreamingModelUpgrade.upgrade(xml, version.getVersion(), project);
+				while (version.getVersion() < StreamingModelUpgrade.TARGET_VERSION) {
+					version.increment();
+				}
+			}
+			catch (IOException e) {
+				ErrorHandler.logAndShowErrorDialogAndRethrow("Could not convert old file format to new format.", e);
+			}
+		}
 		return xml;
 	}
+	
+	
+	/**
+	 * Upgrades all tests in the project that have an old model version, and saves them in the new format.
+	 * Old tests are otherwise upgraded every time they are loaded.
+	 * @return the number of tests that were upgraded.
+	 */
+	public static int upgradeProjectInPlace(IProject project) {
+		final List<File> files = new ArrayList<File>();
+		try {
+			project.accept(new IResourceVisitor() {
+				public boolean visit(IResource resource) throws CoreException {
+					if (resource.getType() == IResource.FILE && ModelUtil.isTestFile(resource.getName()) && resource.getLocation() != null) {
+						files.add(resource.getLocation().toFile());
+					}
+					return true;
+				}
+			});
+			int upgraded = upgradeFilesInPlace(files, project);
+			project.refreshLocal(IResource.DEPTH_INFINITE, null);
+			return upgraded;
+		}
+		catch (CoreException e) {
+			ErrorHandler.logAndRethrow("Could not upgrade tests in project " + project.getName(), e);
+		}
+		return 0;
+	}
+	
+	
+	/**
+	 * Upgrades the tests that have an old model version, and saves them in the new format.
+	 * Project may be null (e.g. when not running in Eclipse). The subtest paths of
+	 * tests older than version 6 can only be upgraded with a project, so these tests 
+	 * are skipped and left untouched when there is none.
+	 * A test that cannot be upgraded is logged and does not stop the upgrade of the others.
+	 * @return the number of tests that were upgraded.
+	 */
+	public static int upgradeFilesInPlace(Collection<File> files, IProject project) {
+		int upgraded = 0;
+		for (File file : files) {
+			try {
+				String xml = FileUtils.readFileToString(file, TestPersistance.getCharset(file));
+				int version = getModelVersion(xml).getVersion();
+				if (version >= CURRENT_MODEL_VERSION) {
+					continue;
+				}
+				if (version < 6 && project == null) {
+					Logger.warn("Not upgrading test without a project, its subtest paths need the project name: " + file.getPath());
+					continue;
+				}
+				Test test = TestPersistance.loadFromFile(file, project);
+				//getting the start point updates the model version of the test to the current version:
+				test.getStartPoint();
+				TestPersistance.saveToFile(test, file);
+				upgraded++;
+				Logger.info("Upgraded test to current model version: " + file.getPath());
+			}
+			catch (Exception e) {
+				Logger.error("Could not upgrade test " + file.getPath(), e);
+			}
+		}
+		return upgraded;
+	}
 
+	
 	private static String upgradeModel1to2(String xml, ModelVersion version) {
 		if (version.getVersion() != 1) {
 			return xml;
@@ -112,6 +202,10 @@ public class LegacyUpgrade {
 		return xml;
 	}
 	
+	/**
+	 * Upgrades model version 4 to 5 on a parsed document, as XStream references must be resolved and page elements
+	 * are rebuilt from child elements that can come in any order. The later versions are upgraded by {@link StreamingModelUpgrade}.
+	 */
 	private static String upgradeModel4to5(String xml, ModelVersion version) {
 		if (version.getVersion() != 4) {
 			return xml;
@@ -119,71 +213,50 @@ public class LegacyUpgrade {
 		try {
 			Document document = new SAXBuilder().build(new StringReader(xml));
 			Element rootElement = document.getRootElement();
-
 			//Expanding references in elements:
-			JDOMXPath xpath = new JDOMXPath("//sationType|//identifierType|//action");
-			for(Object obj : xpath.selectNodes(rootElement)){
-				if(obj instanceof Element){
-					Element element = (Element) obj;
-					Attribute reference = element.getAttribute("reference");
-					if(reference != null){
-						//getting the referred element:
-						JDOMXPath refXpath = new JDOMXPath(reference.getValue());
-						Element realElement = (Element)refXpath.selectSingleNode(element);
-						element.setText(realElement.getText());
-						element.removeAttribute(reference);
-					}
+			for(Element element : getDescendants(rootElement, "sationType", "identifierType", "action")){
+				Attribute reference = element.getAttribute("reference");
+				if(reference != null){
+					//getting the referred element:
+					JDOMXPath refXpath = new JDOMXPath(reference.getValue());
+					Element realElement = (Element)refXpath.selectSingleNode(element);
+					element.setText(realElement.getText());
+					element.removeAttribute(reference);
 				}
 			}
-			
+		
 			//Fixing Page Elements:
-			xpath = new JDOMXPath("//elements");
-			for(Object node : xpath.selectNodes(rootElement)){
-				if(node instanceof Element){
-					Element elements = (Element) node;
-					for(Object pageElement : elements.getChildren()){
-						if(pageElement instanceof Element){
-							upgradePageElement4to5((Element) pageElement);
-						}
+			for(Element elements : getDescendants(rootElement, "elements")){
+				for(Object pageElement : elements.getChildren()){
+					if(pageElement instanceof Element){
+						upgradePageElement4to5((Element) pageElement);
 					}
 				}
 			}
-			xpath = new JDOMXPath("//element");
-			for(Object pageElement : xpath.selectNodes(rootElement)){
-				if(pageElement instanceof Element){
-					upgradePageElement4to5((Element) pageElement);
-				}
+			for(Element pageElement : getDescendants(rootElement, "element")){
+				upgradePageElement4to5(pageElement);
 			}
-			xpath = new JDOMXPath("//observers");
-			for(Object node : xpath.selectNodes(rootElement)){
-				if(node instanceof Element){
-					Element elements = (Element) node;
-					for(Object pageElement : elements.getChildren()){
-						if(pageElement instanceof Element){
-							upgradePageElement4to5((Element) pageElement);
-						}
+			for(Element elements : getDescendants(rootElement, "observers")){
+				for(Object pageElement : elements.getChildren()){
+					if(pageElement instanceof Element){
+						upgradePageElement4to5((Element) pageElement);
 					}
 				}
 			}
-			
+		
 			//Fixing user interactions:
-			xpath = new JDOMXPath("//userInteraction");
-			for(Object node : xpath.selectNodes(rootElement)){
-				if(node instanceof Element){
-					Element element = (Element) node;
-					
-					Element sationType = element.getChild("sationType");
-					convertI18nAndParams4to5(element, element, sationType);
-					element.removeContent(sationType);
-				}
+			for(Element element : getDescendants(rootElement, "userInteraction")){
+				Element sationType = element.getChild("sationType");
+				convertI18nAndParams4to5(element, element, sationType);
+				element.removeContent(sationType);
 			}
-			
+		
+			removeEmptyText(rootElement);
 			xml = new XMLOutputter().outputString(document);
 		}
 		catch (Exception e) {
 			ErrorHandler.logAndShowErrorDialogAndRethrow("Could not convert old file format to new format.", e);
 		}
-		
 		version.increment();
 		return xml;
 	}
@@ -281,134 +354,38 @@ public class LegacyUpgrade {
 		element.removeContent(key);
 	}
 
-	private static String upgradeModel5to6(String xml, ModelVersion version, IProject project) {
-		if (version.getVersion() != 5) {
-			return xml;
-		}
-		if (project == null) {
-			Logger.error("Could not update subtest paths when converting test file to new format. " +
-					"Paths in the test file will have to be upgraded manually.");
-			version.increment();
-			return xml;
-		}
-		
-		try {
-			Document document = new SAXBuilder().build(new StringReader(xml));
-			Element rootElement = document.getRootElement();
-			String filePath = "";
-			
-			JDOMXPath xpath = new JDOMXPath("//filePath");
-			for(Object pathNode : xpath.selectNodes(rootElement)){
-				if(pathNode instanceof Element){
-					Element path = (Element) pathNode;
-					filePath = path.getText();
-					if (filePath.startsWith(project.getName())) {
-						filePath = filePath.substring(project.getName().length());
-					}
-					else if (filePath.startsWith("/" + project.getName())) {
-						filePath = filePath.substring(project.getName().length() + 1);
-					}
-					path.setText(filePath);
-				}
-			}
-			xml = new XMLOutputter().outputString(document);
-		}
-		catch (Exception e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow("Could not convert old file format to new format.", e);
-		}
-
-		version.increment();
-		return xml;
-	}
-	
-	private static String upgradeModel6to7(String xml, ModelVersion version, IProject project) {
-		if (version.getVersion() != 6) {
-			return xml;
-		}
-		try {
-			Document document = new SAXBuilder().build(new StringReader(xml));
-			Element rootElement = document.getRootElement();
-			JDOMXPath xpath = new JDOMXPath("//autoPosition");
-			for(Object pathNode : xpath.selectNodes(rootElement)){
-				if(pathNode instanceof Element){
-					((Element) pathNode).detach();
-				}
-			}
-			xml = new XMLOutputter().outputString(document);
-		}
-		catch (Exception e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow("Could not convert old file format to new format.", e);
-		}
-		version.increment();
-		return xml;
-	}
-	
-	private static String upgradeModel7to8(String xml, ModelVersion version, IProject project) {
-		if (version.getVersion() != 7) {
-			return xml;
-		}
-		if (xml.indexOf("<filePath>/") > 0) {
-			xml = StringUtils.replace(xml, "<filePath>/", "<filePath>");
-		}
-		version.increment();
-		return xml;
+	/**
+	 * Gets the element and all its descendants that have one of the names, in document order.
+	 * Same result as the XPath "//name1|//name2" evaluated on the document, without the overhead of XPath.
+	 */
+	private static List<Element> getDescendants(Element rootElement, String... names) {
+		List<Element> result = new ArrayList<Element>();
+		collectDescendants(rootElement, Arrays.asList(names), result);
+		return result;
 	}
 
-	private static String upgradeModel8to9(String xml, ModelVersion version, IProject project) {
-		if (version.getVersion() != 8) {
-			return xml;
-		}
-		try {
-			//Setting parameterIndex to -1 (did not exist before version 9)
-			Document document = new SAXBuilder().build(new StringReader(xml));
-			Element rootElement = document.getRootElement();
-			JDOMXPath xpath = new JDOMXPath("//*[@class=\"subTest\"]");
-			for(Object pathNode : xpath.selectNodes(rootElement)){
-				if(pathNode instanceof Element){
-					((Element) pathNode).addContent(new Element("parameterIndex").setText("-1"));
-				}
+	/**
+	 * Removes empty text nodes (e.g. from setting a null text), so that empty elements are written as when they are parsed.
+	 */
+	private static void removeEmptyText(Element element) {
+		for (Iterator<?> iter = element.getContent().iterator(); iter.hasNext();) {
+			Object content = iter.next();
+			if (content instanceof Element) {
+				removeEmptyText((Element) content);
+			}
+			else if (content instanceof Text && !(content instanceof CDATA) && ((Text) content).getText().length() == 0) {
+				iter.remove();
 			}
-			xml = new XMLOutputter().outputString(document);
-		}
-		catch (Exception e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow("Could not convert old file format to new format.", e);
 		}
-		version.increment();
-		return xml;
 	}
-	
-	private static String upgradeModel9to10(String xml, ModelVersion version, IProject project) {
-		if (version.getVersion() != 9) {
-			return xml;
-		}
-		try {
-			//Converting "reloadsPage" OnOffTriState to hasDefaultTimeout boolean
-			Document document = new SAXBuilder().build(new StringReader(xml));
-			Element rootElement = document.getRootElement();
-			JDOMXPath xpath = new JDOMXPath("//reloadsPage");
-			for(Object node : xpath.selectNodes(rootElement)){
-				if(node instanceof Element){
-					Element element = ((Element) node);
-					element.setName("hasCustomTimeout");
-					String oldValue = element.getText();
-					String newValue = "false";
-					if ("OFF".equals(oldValue)) {
-						newValue = "true";
-					}
-					element.setText(newValue);
-					Attribute referenceAttr = element.getAttribute("reference");
-					if (referenceAttr != null) {
-						referenceAttr.setValue(StringUtils.replace(referenceAttr.getValue(), "reloadsPage", "hasCustomTimeout"));
-					}
-				}
-			}
-			xml = new XMLOutputter().outputString(document);
+
+	private static void collectDescendants(Element element, List<String> names, List<Element> result) {
+		if (names.contains(element.getName())) {
+			result.add(element);
 		}
-		catch (Exception e) {
-			ErrorHandler.logAndShowErrorDialogAndRethrow("Could not convert old file format to new format.", e);
+		for (Object child : element.getChildren()) {
+			collectDescendants((Element) child, names, result);
 		}
-		version.increment();
-		return xml;
 	}
 	
 	private static ModelVersion getModelVersion(String xml) {
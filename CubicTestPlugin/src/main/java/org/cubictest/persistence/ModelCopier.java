@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cubictest.model.SubTest;
+
+/**
+ * Deep copies model objects by walking the object graph directly, instead of writing and parsing XML.
+ * The result is the same as an XStream round trip with the CubicTestXStream mapping: objects are
+ * created without invoking constructors, transient and omitted fields are left unset, and an object
+ * that is referenced several times in the original is copied once, so shared references and cycles are kept.
+ * <p>
+ * Unlike the XML round trip, the project of sub tests is carried over to the copy. Property change
+ * listeners are not, as they observe the original objects.
+ *
+ * @see ModelGraph
+ * @author Christian Schwarz
+ */
+public class ModelCopier {
+
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>();
+	static {
+		IMMUTABLE_TYPES.add(String.class);
+		IMMUTABLE_TYPES.add(Boolean.class);
+		IMMUTABLE_TYPES.add(Character.class);
+		IMMUTABLE_TYPES.add(Byte.class);
+		IMMUTABLE_TYPES.add(Short.class);
+		IMMUTABLE_TYPES.add(Integer.class);
+		IMMUTABLE_TYPES.add(Long.class);
+		IMMUTABLE_TYPES.add(Float.class);
+		IMMUTABLE_TYPES.add(Double.class);
+		IMMUTABLE_TYPES.add(Class.class);
+	}
+
+	private final ModelGraph graph;
+
+	/** Copies of the objects reached so far, by identity of the original. */
+	private final Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+
+	/** Originals that have been copied, but whose contents have not been copied yet. */
+	private final LinkedList<Object> pending = new LinkedList<Object>();
+
+
+	private ModelCopier(ModelGraph graph) {
+		this.graph = graph;
+	}
+
+
+	/**
+	 * Returns a deep copy of the object.
+	 */
+	public static Object deepCopy(Object original) {
+		return new ModelCopier(new ModelGraph(CubicTestSerializer.getXStream())).copyGraph(original);
+	}
+
+
+	private Object copyGraph(Object original) {
+		Object copy = copyOf(original);
+		while (!pending.isEmpty()) {
+			copyContents(pending.removeFirst());
+		}
+		graph.fillHashedCollections();
+		return copy;
+	}
+
+
+	/**
+	 * Gets the copy of the object, creating it if the object has not been reached before.
+	 * The contents of new copies are copied later, so that deep models do not give deep recursion.
+	 */
+	private Object copyOf(Object original) {
+		if (original == null || original instanceof Enum || IMMUTABLE_TYPES.contains(original.getClass())) {
+			return original;
+		}
+		Object copy = copies.get(original);
+		if (copy != null) {
+			return copy;
+		}
+
+		Class<?> type = original.getClass();
+		int length = type.isArray() ? Array.getLength(original) : 0;
+		copy = graph.newInstance(type, length);
+		copies.put(original, copy);
+		if (type.isArray() && type.getComponentType().isPrimitive()) {
+			System.arraycopy(original, 0, copy, 0, length);
+		}
+		else {
+			pending.add(original);
+		}
+		return copy;
+	}
+
+
+	@SuppressWarnings("unchecked")
+	private void copyContents(Object original) {
+		final Object copy = copies.get(original);
+		Class<?> type = original.getClass();
+
+		if (type.isArray()) {
+			for (int i = 0; i < Array.getLength(original); i++) {
+				Array.set(copy, i, copyOf(Array.get(original, i)));
+			}
+		}
+		else if (graph.isWalkedByElements(type)) {
+			if (original instanceof Map) {
+				List<Object> contents = new ArrayList<Object>();
+				for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) original).entrySet()) {
+					contents.add(copyOf(entry.getKey()));
+					contents.add(copyOf(entry.getValue()));
+				}
+				graph.addHashedContents(copy, contents);
+			}
+			else if (ModelGraph.isHashed(original)) {
+				List<Object> contents = new ArrayList<Object>();
+				for (Object element : (Set<Object>) original) {
+					contents.add(copyOf(element));
+				}
+				graph.addHashedContents(copy, contents);
+			}
+			else {
+				Collection<Object> copiedCollection = (Collection<Object>) copy;
+				for (Object element : (Collection<Object>) original) {
+					copiedCollection.add(copyOf(element));
+				}
+			}
+		}
+		else {
+			graph.visitFields(original, new ModelGraph.FieldVisitor() {
+				public void visit(Class<?> definedIn, String name, Object value) {
+					graph.writeField(copy, definedIn, name, copyOf(value));
+				}
+			});
+			if (original instanceof SubTest) {
+				((SubTest) copy).setProject(((SubTest) original).getProject());
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import org.cubictest.common.exception.CubicException;
+
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+/**
+ * The walk of a model object graph shared by the {@link ModelCopier} and the {@link BinaryTestFormat}, following
+ * the CubicTestXStream mapping like an XStream round trip does: objects are created without invoking constructors,
+ * and transient and omitted fields are skipped.
+ * <p>
+ * Unsorted collections and maps with a public no-arg constructor are walked by their elements. Other objects are
+ * walked field by field. Sets and maps are filled last, so that their elements have their final hash codes.
+ *
+ * @author Christian Schwarz
+ */
+class ModelGraph {
+
+	/**
+	 * Visits the fields of an object that have a value and are part of the mapping.
+	 */
+	interface FieldVisitor {
+		void visit(Class<?> definedIn, String name, Object value);
+	}
+
+	private final ReflectionProvider reflectionProvider;
+	private final Mapper mapper;
+
+	/** Public no-arg constructors of collection and map types, or null for types that are walked field by field. */
+	private final Map<Class<?>, Constructor<?>> collectionConstructors = new HashMap<Class<?>, Constructor<?>>();
+
+	/** Sets and maps to fill, with their elements or alternating keys and values. */
+	private final List<Object> hashedCollections = new ArrayList<Object>();
+	private final List<List<Object>> hashedContents = new ArrayList<List<Object>>();
+
+
+	public ModelGraph(CubicTestXStream xStream) {
+		this.reflectionProvider = xStream.getReflectionProvider();
+		this.mapper = xStream.getMapper();
+	}
+
+
+	/**
+	 * Creates an empty object of the type.
+	 * @param arrayLength the length, if the type is an array type.
+	 */
+	public Object newInstance(Class<?> type, int arrayLength) {
+		if (type.isArray()) {
+			return Array.newInstance(type.getComponentType(), arrayLength);
+		}
+		Constructor<?> constructor = getCollectionConstructor(type);
+		if (constructor != null) {
+			try {
+				return constructor.newInstance();
+			} catch (Exception e) {
+				throw new CubicException("Could not create " + type.getName(), e);
+			}
+		}
+		return reflectionProvider.newInstance(type);
+	}
+
+
+	/**
+	 * Gets whether objects of the type are walked by their elements (or keys and values) instead of field by field.
+	 */
+	public boolean isWalkedByElements(Class<?> type) {
+		return getCollectionConstructor(type) != null;
+	}
+
+
+	/**
+	 * Gets whether the collection must be filled with {@link #addHashedContents(Object, List)}.
+	 */
+	public static boolean isHashed(Object collection) {
+		return collection instanceof Map || collection instanceof Set;
+	}
+
+
+	/**
+	 * Visits the fields of an object that is walked field by field.
+	 */
+	public void visitFields(Object object, final FieldVisitor visitor) {
+		reflectionProvider.visitSerializableFields(object, new ReflectionProvider.Visitor() {
+			//Visitor is not generic in XStream 1.4
+			@SuppressWarnings("rawtypes")
+			public void visit(String name, Class type, Class definedIn, Object value) {
+				if (value != null && mapper.shouldSerializeMember(definedIn, name)) {
+					visitor.visit(definedIn, name, value);
+				}
+			}
+		});
+	}
+
+
+	public void writeField(Object object, Class<?> definedIn, String name, Object value) {
+		reflectionProvider.writeField(object, name, value, definedIn);
+	}
+
+
+	/**
+	 * Adds the contents of a set or map to fill it with by {@link #fillHashedCollections()}.
+	 * @param contents the elements of a set, or alternating keys and values of a map.
+	 */
+	public void addHashedContents(Object collection, List<Object> contents) {
+		hashedCollections.add(collection);
+		hashedContents.add(contents);
+	}
+
+
+	/**
+	 * Fills the sets and maps, when all other objects of the graph have their contents.
+	 */
+	@SuppressWarnings("unchecked")
+	public void fillHashedCollections() {
+		//nested sets and maps are found after the ones containing them, so fill them first:
+		for (int i = hashedCollections.size() - 1; i >= 0; i--) {
+			Object collection = hashedCollections.get(i);
+			List<Object> contents = hashedContents.get(i);
+			if (collection instanceof Map) {
+				for (int j = 0; j < contents.size(); j += 2) {
+					((Map<Object, Object>) collection).put(contents.get(j), contents.get(j + 1));
+				}
+			}
+			else {
+				((Collection<Object>) collection).addAll(contents);
+			}
+		}
+		hashedCollections.clear();
+		hashedContents.clear();
+	}
+
+
+	/**
+	 * Gets the constructor to create an empty collection or map with, if it is walked by its elements.
+	 * Sorted collections and collections without a public no-arg constructor are walked field by field.
+	 */
+	private Constructor<?> getCollectionConstructor(Class<?> type) {
+		if (collectionConstructors.containsKey(type)) {
+			return collectionConstructors.get(type);
+		}
+		Constructor<?> constructor = null;
+		boolean isCollection = Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+		boolean isSorted = SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type);
+		if (isCollection && !isSorted && Modifier.isPublic(type.getModifiers())) {
+			try {
+				constructor = type.getConstructor();
+			} catch (NoSuchMethodException e) {
+				//walked field by field
+			}
+		}
+		collectionConstructors.put(type, constructor);
+		return constructor;
+	}
+}
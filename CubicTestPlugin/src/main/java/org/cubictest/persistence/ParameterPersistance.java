@@ -38,7 +38,7 @@ public class ParameterPersistance {
 	}
 	
 	public static void saveToFile(ParameterList paramList, File file) {
-		String xml = new CubicTestXStream().toXML(paramList);
+		String xml = CubicTestSerializer.toXML(paramList);
 		try {
 			String charset = TestPersistance.getCharset(file);
 			String charsetHeader = TestPersistance.getCharsetHeader(charset);
@@ -65,7 +65,7 @@ public class ParameterPersistance {
 			ErrorHandler.logAndRethrow(e);
 		}
 		try {
-			ParameterList list = (ParameterList) new CubicTestXStream().fromXML(xml);
+			ParameterList list = (ParameterList) CubicTestSerializer.fromXML(xml);
 			list.setFileName(fileName);
 			return list;
 		} catch (Exception e) {
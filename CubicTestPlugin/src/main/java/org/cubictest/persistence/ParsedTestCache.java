@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.cubictest.common.utils.CubicCloner;
+import org.cubictest.model.Test;
+
+/**
+ * Process-wide, bounded LRU cache of tests parsed from file.
+ * Entries are keyed by the canonical path of the file, and are only valid as long as the
+ * last modified time and size of the file are unchanged.
+ * <p>
+ * The cached tests are never handed out; callers get a deep copy, so that status and other
+ * state of a test run is not shared between users of the same test file.
+ *
+ * @author Christian Schwarz
+ */
+public class ParsedTestCache {
+
+	public static final int DEFAULT_MAX_SIZE = 100;
+
+	private static final ParsedTestCache instance = new ParsedTestCache(DEFAULT_MAX_SIZE);
+
+	private int maxSize;
+	private int hits;
+	private int misses;
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > maxSize;
+		}
+	};
+
+
+	public ParsedTestCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public static ParsedTestCache getInstance() {
+		return instance;
+	}
+
+
+	/**
+	 * Gets the file stamp (path, last modified time and size) to look up or store the test of the file with.
+	 * Should be taken before reading the file, so that changes made while it is read are detected on next lookup.
+	 */
+	public static FileStamp getFileStamp(File file) {
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch (IOException e) {
+			path = file.getAbsolutePath();
+		}
+		return new FileStamp(path, file.lastModified(), file.length());
+	}
+
+
+	/**
+	 * Gets a copy of the cached test for the file.
+	 * @return a deep copy of the test, or <code>null</code> if the file is not cached or has changed.
+	 */
+	public Test get(FileStamp stamp) {
+		Test cached;
+		synchronized (this) {
+			Entry entry = entries.get(stamp.path);
+			if (entry == null || !entry.stamp.equals(stamp)) {
+				if (entry != null) {
+					entries.remove(stamp.path);
+				}
+				misses++;
+				return null;
+			}
+			hits++;
+			cached = entry.test;
+		}
+		//cached tests are never modified, so they can be copied outside of the lock:
+		return (Test) CubicCloner.deepCopy(cached);
+	}
+
+
+	/**
+	 * Caches the test parsed from the file. The test must not be modified after it has been put in the cache.
+	 */
+	public synchronized void put(FileStamp stamp, Test test) {
+		if (maxSize > 0) {
+			entries.put(stamp.path, new Entry(stamp, test));
+		}
+	}
+
+
+	/**
+	 * Removes the test of the file from the cache, e.g. when the file has been changed.
+	 */
+	public void invalidate(File file) {
+		String path = getFileStamp(file).path;
+		synchronized (this) {
+			entries.remove(path);
+		}
+	}
+
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		while (entries.size() > maxSize) {
+			entries.remove(entries.keySet().iterator().next());
+		}
+	}
+
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the number of lookups that returned a cached test.
+	 */
+	public synchronized int getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of lookups where the test was not cached or the file had changed.
+	 */
+	public synchronized int getMissCount() {
+		return misses;
+	}
+
+	public synchronized void resetCounters() {
+		hits = 0;
+		misses = 0;
+	}
+
+
+	/**
+	 * Identifies a version of a test file.
+	 */
+	public static class FileStamp {
+		private final String path;
+		private final long lastModified;
+		private final long length;
+
+		private FileStamp(String path, long lastModified, long length) {
+			this.path = path;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		String getPath() {
+			return path;
+		}
+
+		long getLastModified() {
+			return lastModified;
+		}
+
+		long getLength() {
+			return length;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FileStamp)) {
+				return false;
+			}
+			FileStamp other = (FileStamp) obj;
+			return path.equals(other.path) && lastModified == other.lastModified && length == other.length;
+		}
+
+		@Override
+		public int hashCode() {
+			return path.hashCode() ^ (int) lastModified ^ (int) length;
+		}
+
+		@Override
+		public String toString() {
+			return path + " (modified " + lastModified + ", " + length + " bytes)";
+		}
+	}
+
+
+	private static class Entry {
+		private final FileStamp stamp;
+		private final Test test;
+
+		public Entry(FileStamp stamp, Test test) {
+			this.stamp = stamp;
+			this.test = test;
+		}
+	}
+}
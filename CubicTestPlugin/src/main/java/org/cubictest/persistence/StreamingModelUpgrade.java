@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedList;
+
+import org.apache.commons.lang.StringUtils;
+import org.cubictest.common.utils.Logger;
+import org.eclipse.core.resources.IProject;
+import org.xmlpull.mxp1.MXParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Upgrades test XML from model version 5 and up with a single pass of a pull parser (the same parser as {@link TestHeaderReader}).
+ * All upgrade steps that the test needs are applied to each element as it is read, and the XML is written as it is read,
+ * in the same format as the JDOM <code>XMLOutputter</code> that writes the tests upgraded from older versions.
+ * <p>
+ * Only the elements whose text is rewritten are held back until their end tag.
+ *
+ * @author Christian Schwarz
+ */
+class StreamingModelUpgrade {
+
+	/** The model version that the upgrade leads to. */
+	static final int TARGET_VERSION = 10;
+
+	private static final String LINE_SEPARATOR = "\r\n";
+	private static final String FILE_PATH = "filePath";
+	private static final String AUTO_POSITION = "autoPosition";
+	private static final String RELOADS_PAGE = "reloadsPage";
+	private static final String HAS_CUSTOM_TIMEOUT = "hasCustomTimeout";
+	private static final String SUB_TEST = "subTest";
+
+	private final int fromVersion;
+	private final IProject project;
+	private final XmlPullParser parser = new MXParser();
+	private final LinkedList<OpenElement> openElements = new LinkedList<OpenElement>();
+	private StringBuffer out = new StringBuffer();
+	/** Whether the start tag last written still lacks its closing bracket, as the element may turn out to be empty. */
+	private boolean startTagOpen;
+	/** Depth of the element being removed, or 0. */
+	private int removedDepth;
+	/** The element whose text is being rewritten, or <code>null</code>. */
+	private OpenElement rewritten;
+
+
+	private StreamingModelUpgrade(int fromVersion, IProject project) {
+		this.fromVersion = fromVersion;
+		this.project = project;
+	}
+
+
+	/**
+	 * Upgrades the XML of a test from the model version to {@link #TARGET_VERSION}.
+	 * Project may be null, then subtest paths of model version 5 are not upgraded.
+	 */
+	public static String upgrade(String xml, int fromVersion, IProject project) throws IOException {
+		if (fromVersion == 5 && project == null) {
+			Logger.error("Could not update subtest paths when converting test file to new format. " +
+					"Paths in the test file will have to be upgraded manually.");
+		}
+		try {
+			return new StreamingModelUpgrade(fromVersion, project).upgrade(xml);
+		}
+		catch (XmlPullParserException e) {
+			IOException ioException = new IOException("Could not upgrade test: " + e.getMessage());
+			ioException.initCause(e);
+			throw ioException;
+		}
+	}
+
+
+	private String upgrade(String xml) throws IOException, XmlPullParserException {
+		parser.setInput(new StringReader(xml));
+		out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>").append(LINE_SEPARATOR);
+		for (int event = parser.nextToken(); event != XmlPullParser.END_DOCUMENT; event = parser.nextToken()) {
+			if (removedDepth > 0) {
+				if (event == XmlPullParser.END_TAG && parser.getDepth() == removedDepth) {
+					removedDepth = 0;
+				}
+				continue;
+			}
+			switch (event) {
+			case XmlPullParser.START_TAG:
+				startTag();
+				break;
+			case XmlPullParser.END_TAG:
+				endTag();
+				break;
+			case XmlPullParser.TEXT:
+			case XmlPullParser.ENTITY_REF:
+			case XmlPullParser.IGNORABLE_WHITESPACE:
+				if (parser.getDepth() > 0) {
+					text(parser.getText(), false);
+				}
+				break;
+			case XmlPullParser.CDSECT:
+				text(parser.getText(), true);
+				break;
+			case XmlPullParser.COMMENT:
+				closeStartTag();
+				out.append("<!--").append(parser.getText()).append("-->");
+				break;
+			case XmlPullParser.PROCESSING_INSTRUCTION:
+				closeStartTag();
+				out.append("<?").append(parser.getText()).append("?>");
+				break;
+			default:
+				//the XML declaration and document type are not kept
+			}
+		}
+		out.append(LINE_SEPARATOR);
+		return out.toString();
+	}
+
+
+	private void startTag() {
+		String name = parser.getName();
+		if (fromVersion <= 6 && name.equals(AUTO_POSITION)) {
+			//version 7: automatic positioning is removed
+			removedDepth = parser.getDepth();
+			return;
+		}
+		closeStartTag();
+		OpenElement element = new OpenElement();
+		element.name = name;
+		if (fromVersion <= 9 && name.equals(RELOADS_PAGE)) {
+			//version 10: the "reloadsPage" OnOffTriState is converted to the "hasCustomTimeout" boolean
+			element.name = HAS_CUSTOM_TIMEOUT;
+		}
+		StringBuffer startTag = new StringBuffer();
+		startTag.append('<').append(element.name);
+		for (int i = 0; i < parser.getAttributeCount(); i++) {
+			String attributeName = parser.getAttributeName(i);
+			String value = parser.getAttributeValue(i);
+			if (attributeName.equals("class") && value.equals(SUB_TEST)) {
+				element.isSubTest = true;
+			}
+			if (attributeName.equals("reference") && !element.name.equals(name)) {
+				value = StringUtils.replace(value, RELOADS_PAGE, HAS_CUSTOM_TIMEOUT);
+			}
+			startTag.append(' ').append(attributeName).append("=\"");
+			appendEscaped(startTag, value, true);
+			startTag.append('"');
+		}
+		openElements.addLast(element);
+
+		if (rewritten == null && (!element.name.equals(name) || (name.equals(FILE_PATH) && fromVersion <= 7))) {
+			//hold back the element until its text is known:
+			element.startTag = startTag.toString();
+			element.text = new StringBuffer();
+			element.enclosingOut = out;
+			out = new StringBuffer();
+			rewritten = element;
+		}
+		else {
+			out.append(startTag);
+			startTagOpen = true;
+		}
+	}
+
+
+	private void endTag() {
+		OpenElement element = openElements.removeLast();
+		if (element.isSubTest && fromVersion <= 8) {
+			//version 9: subtests get a parameter index
+			closeStartTag();
+			out.append("<parameterIndex>-1</parameterIndex>");
+		}
+		if (element == rewritten) {
+			String content = getRewrittenContent(element);
+			out = element.enclosingOut;
+			rewritten = null;
+			out.append(element.startTag);
+			startTagOpen = true;
+			if (content.length() > 0) {
+				closeStartTag();
+				out.append(content);
+			}
+		}
+		if (startTagOpen) {
+			out.append(" />");
+			startTagOpen = false;
+		}
+		else {
+			out.append("</").append(element.name).append('>');
+		}
+	}
+
+
+	/**
+	 * Gets the content of a held back element, with its text upgraded.
+	 * If the text is not changed, the content is kept as it was written.
+	 */
+	private String getRewrittenContent(OpenElement element) {
+		String text = element.text.toString();
+		if (element.name.equals(HAS_CUSTOM_TIMEOUT)) {
+			text = "OFF".equals(text) ? "true" : "false";
+		}
+		else {
+			boolean changed = false;
+			if (fromVersion <= 5 && project != null) {
+				//version 6: the project name is removed from subtest paths
+				if (text.startsWith(project.getName())) {
+					text = text.substring(project.getName().length());
+				}
+				else if (text.startsWith("/" + project.getName())) {
+					text = text.substring(project.getName().length() + 1);
+				}
+				changed = true;
+			}
+			if (text.startsWith("/")) {
+				//version 8: the leading slash is removed from subtest paths
+				text = text.substring(1);
+				changed = true;
+			}
+			if (!changed) {
+				startTagOpen = false;
+				return out.toString();
+			}
+		}
+		StringBuffer content = new StringBuffer();
+		appendEscaped(content, text, false);
+		return content.toString();
+	}
+
+
+	private void text(String text, boolean isCdata) {
+		if (text.length() == 0) {
+			return;
+		}
+		if (rewritten != null && openElements.getLast() == rewritten) {
+			rewritten.text.append(text);
+		}
+		closeStartTag();
+		if (isCdata) {
+			out.append("<![CDATA[").append(text).append("]]>");
+		}
+		else {
+			appendEscaped(out, text, false);
+		}
+	}
+
+
+	private void closeStartTag() {
+		if (startTagOpen) {
+			out.append('>');
+			startTagOpen = false;
+		}
+	}
+
+
+	/**
+	 * Escapes the text the same way as the JDOM <code>XMLOutputter</code>.
+	 */
+	private static void appendEscaped(StringBuffer buffer, String text, boolean isAttribute) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '&':
+				buffer.append("&amp;");
+				break;
+			case '<':
+				buffer.append("&lt;");
+				break;
+			case '>':
+				buffer.append("&gt;");
+				break;
+			case '\r':
+				buffer.append("&#xD;");
+				break;
+			case '"':
+				buffer.append(isAttribute ? "&quot;" : "\"");
+				break;
+			case '\n':
+				buffer.append(isAttribute ? "&#xA;" : LINE_SEPARATOR);
+				break;
+			case '\t':
+				buffer.append(isAttribute ? "&#x9;" : "\t");
+				break;
+			default:
+				buffer.append(c);
+			}
+		}
+	}
+
+
+	private static class OpenElement {
+		private String name;
+		private boolean isSubTest;
+		/** For held back elements: the start tag, the text and the output to write the element to. */
+		private String startTag;
+		private StringBuffer text;
+		private StringBuffer enclosingOut;
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.cubictest.common.exception.CubicException;
+import org.cubictest.common.exception.TestNotFoundException;
+import org.cubictest.model.TestHeader;
+import org.eclipse.core.resources.IProject;
+
+/**
+ * Process-wide, bounded LRU index of the headers of test files, so that subtests can be shown without loading their pages.
+ * Like the {@link ParsedTestCache}, entries are keyed by the canonical path of the file, and are only valid as long as the
+ * last modified time and size of the file are unchanged.
+ * <p>
+ * Headers are read with the {@link TestHeaderReader}. Tests that need an upgrade are loaded in full instead.
+ *
+ * @author Christian Schwarz
+ */
+public class TestHeaderIndex {
+
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	private static final TestHeaderIndex instance = new TestHeaderIndex(DEFAULT_MAX_SIZE);
+
+	private final int maxSize;
+	private int reads;
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > maxSize;
+		}
+	};
+
+
+	public TestHeaderIndex(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public static TestHeaderIndex getInstance() {
+		return instance;
+	}
+
+
+	/**
+	 * Gets the header of the test in the file.
+	 * @param project the project of the test, used if the test must be upgraded. May be <code>null</code>.
+	 */
+	public TestHeader getHeader(File file, IProject project) {
+		ParsedTestCache.FileStamp stamp = ParsedTestCache.getFileStamp(file);
+		synchronized (this) {
+			Entry entry = entries.get(stamp.getPath());
+			if (entry != null && entry.stamp.equals(stamp)) {
+				return entry.header;
+			}
+		}
+
+		TestHeader header = readHeader(file);
+		if (header == null) {
+			//legacy test, must be upgraded:
+			header = TestHeader.fromTest(TestPersistance.loadFromFile(file, project));
+		}
+		synchronized (this) {
+			reads++;
+			entries.put(stamp.getPath(), new Entry(stamp, header));
+		}
+		return header;
+	}
+
+
+	private TestHeader readHeader(File file) {
+		InputStream in = null;
+		try {
+			in = new BufferedInputStream(new FileInputStream(file));
+			return TestHeaderReader.read(in);
+		}
+		catch (FileNotFoundException e) {
+			throw new TestNotFoundException(e.getMessage());
+		}
+		catch (IOException e) {
+			throw new CubicException("Could not read header of test \"" + file.getName() + "\"", e);
+		}
+		finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+
+	/**
+	 * Removes the header of the file from the index, e.g. when the file has been changed.
+	 */
+	public void invalidate(File file) {
+		String path = ParsedTestCache.getFileStamp(file).getPath();
+		synchronized (this) {
+			entries.remove(path);
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the number of headers that have been read from file (not found in the index).
+	 */
+	public synchronized int getReadCount() {
+		return reads;
+	}
+
+
+	private static class Entry {
+		private final ParsedTestCache.FileStamp stamp;
+		private final TestHeader header;
+
+		public Entry(ParsedTestCache.FileStamp stamp, TestHeader header) {
+			this.stamp = stamp;
+			this.header = header;
+		}
+	}
+}
@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.cubictest.model.ModelInfo;
+import org.cubictest.model.TestDependencies;
+import org.cubictest.model.TestDependencies.ExtensionPointUse;
+import org.cubictest.model.TestHeader;
+import org.cubictest.model.TestHeader.ExtensionPointHeader;
+import org.xmlpull.mxp1.MXParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Reads the {@link TestHeader} of a test file with a single pass of a pull parser, without creating any model objects.
+ * XStream references (relative XPaths) are resolved by tracking the path of each element, the same way as XStream does.
+ * <p>
+ * The parameter and i18n flags are computed from the parameters and languages as saved in the test file.
+ * The {@link TestDependencies} are collected from the subtests, custom test steps and extension transitions
+ * defined anywhere in the file, and from the parameter list and languages of the test.
+ * Tests with another model version than the current one are not read, as they need to be upgraded first.
+ *
+ * @author Christian Schwarz
+ */
+class TestHeaderReader {
+
+	private static final String EXTENSION_POINT = "extensionPoint";
+	private static final String SUB_TEST = "subTest";
+	private static final String EXTENSION_START_POINT = "extensionStartPoint";
+	private static final String EXTENSION_TRANSITION = "extensionTransition";
+	private static final String CUSTOM_TEST_STEP = "customTestStep";
+	private static final String REFERENCE = "reference";
+	private static final String CLASS = "class";
+	private static final String DEFINED_IN = "defined-in";
+
+	/** Child elements whose text is kept. */
+	private static final String[] TEXT_CHILDREN = {"id", "name", "description", "modelVersion", "filePath", "file",
+			"fileName", "sourceExtensionPointPageId"};
+
+	/** Elements by path, for the elements that references are resolved to. */
+	private final Map<String, Element> elementsByPath = new HashMap<String, Element>();
+	private final List<Element> extensionPointDefinitions = new ArrayList<Element>();
+	private final List<String> extensionPointListPaths = new ArrayList<String>();
+	private final List<String> languageListPaths = new ArrayList<String>();
+	private final List<String> subTestFiles = new ArrayList<String>();
+	private final List<String> customStepFiles = new ArrayList<String>();
+	private final List<ExtensionPointUse> extensionPointUses = new ArrayList<ExtensionPointUse>();
+	private final List<Element> extensionTransitions = new ArrayList<Element>();
+	private boolean firstParameterHasInputs;
+	private boolean parameterHasObservers;
+	private boolean parametersSeen;
+	private boolean i18nConfigured;
+
+
+	/**
+	 * Reads the header of a test.
+	 * @return the header, or <code>null</code> if the file is not a test of the current model version.
+	 */
+	public static TestHeader read(InputStream in) throws IOException {
+		try {
+			return new TestHeaderReader().parse(in);
+		}
+		catch (XmlPullParserException e) {
+			IOException ioException = new IOException("Could not read test header: " + e.getMessage());
+			ioException.initCause(e);
+			throw ioException;
+		}
+	}
+
+
+	private TestHeader parse(InputStream in) throws XmlPullParserException, IOException {
+		XmlPullParser parser = new MXParser();
+		parser.setInput(in, null);
+
+		LinkedList<Element> stack = new LinkedList<Element>();
+		Element root = null;
+		for (int event = parser.next(); event != XmlPullParser.END_DOCUMENT; event = parser.next()) {
+			if (event == XmlPullParser.START_TAG) {
+				Element parent = stack.isEmpty() ? null : stack.getLast();
+				Element element = new Element(parser.getName(), parent, parser.getAttributeValue(null, CLASS),
+						parser.getAttributeValue(null, DEFINED_IN) != null);
+				String reference = parser.getAttributeValue(null, REFERENCE);
+				if (reference != null) {
+					element.definitionPath = resolve(element.path, reference);
+				}
+				if (root == null) {
+					root = element;
+					if (!"test".equals(element.name)) {
+						return null;
+					}
+				}
+				stack.add(element);
+			}
+			else if (event == XmlPullParser.TEXT && !stack.isEmpty()) {
+				stack.getLast().text.append(parser.getText());
+			}
+			else if (event == XmlPullParser.END_TAG) {
+				endElement(stack.removeLast());
+			}
+		}
+		if (root == null || !ModelInfo.getCurrentModelVersion().equals(root.childTexts.get("modelVersion"))) {
+			return null;
+		}
+
+		List<ExtensionPointHeader> extensionPoints = new ArrayList<ExtensionPointHeader>();
+		for (String path : extensionPointListPaths) {
+			Element point = elementsByPath.get(path);
+			if (point != null && extensionPointDefinitions.contains(point)) {
+				extensionPoints.add(createExtensionPointHeader(point));
+			}
+		}
+		boolean paramsConfigured = parametersSeen && firstParameterHasInputs && parameterHasObservers;
+		return new TestHeader(root.childTexts.get("name"), root.childTexts.get("description"), extensionPoints,
+				paramsConfigured, i18nConfigured, createDependencies(root));
+	}
+
+
+	private TestDependencies createDependencies(Element root) {
+		for (Element transition : extensionTransitions) {
+			Element start = elementsByPath.get(transition.childPaths.get("start"));
+			if (start != null && (SUB_TEST.equals(start.type) || EXTENSION_START_POINT.equals(start.type))) {
+				extensionPointUses.add(new ExtensionPointUse(start.childTexts.get("filePath"), transition.childTexts.get("id")));
+			}
+		}
+		List<String> languageFiles = new ArrayList<String>();
+		for (String path : languageListPaths) {
+			Element language = elementsByPath.get(path);
+			if (language != null) {
+				languageFiles.add(language.childTexts.get("fileName"));
+			}
+		}
+		String paramsFile = null;
+		Element paramList = elementsByPath.get(root.childPaths.get("paramList"));
+		if (paramList != null) {
+			paramsFile = paramList.childTexts.get("fileName");
+		}
+		return new TestDependencies(subTestFiles, customStepFiles, paramsFile, languageFiles, extensionPointUses);
+	}
+
+
+	private void endElement(Element element) {
+		Element parent = element.parent;
+		if (parent != null) {
+			parent.childCounts.put(element.name, element.numChildren);
+			for (String textChild : TEXT_CHILDREN) {
+				if (textChild.equals(element.name) && !element.isShadowedField && !parent.childTexts.containsKey(element.name)) {
+					parent.childTexts.put(element.name, element.text.toString());
+				}
+			}
+			parent.childPaths.put(element.name, element.getDefinitionPath());
+		}
+		element.text = null;
+
+		if (element.definitionPath == null) {
+			elementsByPath.put(element.path, element);
+			if (EXTENSION_POINT.equals(element.type)) {
+				extensionPointDefinitions.add(element);
+			}
+			else if (SUB_TEST.equals(element.type) || EXTENSION_START_POINT.equals(element.type)) {
+				subTestFiles.add(element.childTexts.get("filePath"));
+				if (EXTENSION_START_POINT.equals(element.type)) {
+					extensionPointUses.add(new ExtensionPointUse(element.childTexts.get("filePath"),
+							element.childTexts.get("sourceExtensionPointPageId")));
+				}
+			}
+			else if (CUSTOM_TEST_STEP.equals(element.type)) {
+				customStepFiles.add(element.childTexts.get("file"));
+			}
+			else if (EXTENSION_TRANSITION.equals(element.type)) {
+				extensionTransitions.add(element);
+			}
+		}
+
+		Element grandParent = (parent == null) ? null : parent.parent;
+		if (grandParent != null && grandParent.parent == null) {
+			//element of a list that is a field of the test:
+			if ("extensionPoints".equals(parent.name)) {
+				extensionPointListPaths.add(element.getDefinitionPath());
+			}
+		}
+		if (grandParent != null && grandParent.parent != null && grandParent.parent.parent == null
+				&& "languages".equals(parent.name) && "allLanguages".equals(grandParent.name)) {
+			languageListPaths.add(element.getDefinitionPath());
+		}
+		if (parent != null && parent.parent == null && "allLanguages".equals(element.name)) {
+			i18nConfigured = count(element, "languages") > 0 && count(element, "observers") > 0
+					&& element.childCounts.containsKey("currentLanguage");
+		}
+		if ("parameter".equals(element.name) && grandParent != null && "parameters".equals(parent.name)
+				&& "paramList".equals(grandParent.name) && grandParent.parent != null && grandParent.parent.parent == null) {
+			if (!parametersSeen) {
+				firstParameterHasInputs = count(element, "inputs") > 0;
+				parametersSeen = true;
+			}
+			if (count(element, "observers") > 0) {
+				parameterHasObservers = true;
+			}
+		}
+		if (parent != null) {
+			parent.numChildren++;
+		}
+	}
+
+
+	private ExtensionPointHeader createExtensionPointHeader(Element point) {
+		Element page = null;
+		Element transition = elementsByPath.get(point.childPaths.get("inTransition"));
+		if (transition != null) {
+			page = elementsByPath.get(transition.childPaths.get("start"));
+		}
+		if (page == null) {
+			return new ExtensionPointHeader(point.childTexts.get("id"), "Extension Point", null);
+		}
+		String pageName = page.childTexts.get("name");
+		return new ExtensionPointHeader(point.childTexts.get("id"), (pageName == null ? "" : pageName) + " Extension Point",
+				page.childTexts.get("id"));
+	}
+
+
+	private static int count(Element element, String childName) {
+		Integer count = element.childCounts.get(childName);
+		return (count == null) ? 0 : count.intValue();
+	}
+
+
+	/**
+	 * Resolves an XStream reference, relative to the path of the element that has it.
+	 */
+	static String resolve(String path, String reference) {
+		LinkedList<String> segments = new LinkedList<String>();
+		if (!reference.startsWith("/")) {
+			for (String segment : path.split("/")) {
+				if (segment.length() > 0) {
+					segments.add(segment);
+				}
+			}
+		}
+		for (String segment : reference.split("/")) {
+			if (segment.length() == 0 || segment.equals(".")) {
+				continue;
+			}
+			else if (segment.equals("..")) {
+				if (!segments.isEmpty()) {
+					segments.removeLast();
+				}
+			}
+			else if (segment.endsWith("[1]")) {
+				segments.add(segment.substring(0, segment.length() - 3));
+			}
+			else {
+				segments.add(segment);
+			}
+		}
+		StringBuffer result = new StringBuffer();
+		for (String segment : segments) {
+			result.append('/').append(segment);
+		}
+		return result.toString();
+	}
+
+
+	/**
+	 * An element of the XML, with the little that is kept of its children.
+	 */
+	private static class Element {
+		private final String name;
+		private final Element parent;
+		private final String className;
+		/** The class alias of the element: the class attribute if any, else the element name. */
+		private final String type;
+		private final boolean isShadowedField;
+		private final String path;
+		private String definitionPath;
+		private StringBuffer text = new StringBuffer();
+		private int numChildren;
+		private final Map<String, Integer> siblingCounts = new HashMap<String, Integer>();
+		private final Map<String, Integer> childCounts = new HashMap<String, Integer>();
+		private final Map<String, String> childTexts = new HashMap<String, String>();
+		private final Map<String, String> childPaths = new HashMap<String, String>();
+
+		public Element(String name, Element parent, String className, boolean isShadowedField) {
+			this.name = name;
+			this.parent = parent;
+			this.className = className;
+			this.type = (className == null) ? name : className;
+			this.isShadowedField = isShadowedField;
+			if (parent == null) {
+				path = "/" + name;
+			}
+			else {
+				//same as XStream's path tracking: the n-th child with the same name gets the index [n], except the first
+				Integer count = parent.siblingCounts.get(name);
+				int index = (count == null) ? 1 : count.intValue() + 1;
+				parent.siblingCounts.put(name, index);
+				path = parent.path + "/" + name + (index > 1 ? "[" + index + "]" : "");
+			}
+		}
+
+		/**
+		 * Gets the path of the element that defines the object: the referenced element if this is a reference, else this element.
+		 */
+		public String getDefinitionPath() {
+			return (definitionPath == null) ? path : definitionPath;
+		}
+	}
+}
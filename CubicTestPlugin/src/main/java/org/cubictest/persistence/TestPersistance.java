@@ -18,9 +18,11 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.CharEncoding;
 import org.cubictest.common.exception.CubicException;
 import org.cubictest.common.exception.TestNotFoundException;
+import org.cubictest.common.utils.CubicCloner;
 import org.cubictest.common.utils.ErrorHandler;
 import org.cubictest.common.utils.Logger;
 import org.cubictest.model.Test;
+import org.cubictest.model.TestHeader;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -58,7 +60,7 @@ public class TestPersistance {
 	 * @param file The file to save to.
 	 */
 	public static void saveToFile(Test test, File file) {
-		String xml = new CubicTestXStream().toXML(test);
+		String xml = CubicTestSerializer.toXML(test);
 		try {
 			String charset = getCharset(file);
 			String charsetHeader = getCharsetHeader(charset);
@@ -67,6 +69,11 @@ public class TestPersistance {
 		} catch (IOException e) {
 			ErrorHandler.logAndRethrow(e);
 		}
+		finally {
+			ParsedTestCache.getInstance().invalidate(file);
+			BinaryTestCache.getInstance().invalidate(file);
+			TestHeaderIndex.getInstance().invalidate(file);
+		}
 	}
 
 	
@@ -77,11 +84,42 @@ public class TestPersistance {
 
 	/**
 	 * Reads a test from File, upgrading legacy tests if necessary.
+	 * Tests that have been read before and not changed since are copied from the {@link ParsedTestCache}.
+	 * If the {@link BinaryTestCache} is enabled, other tests are read from their binary cache file when the XML is unchanged.
 	 * 
 	 * @param file The file containing the test. 
 	 * @return The test.
 	 */
 	public static Test loadFromFile(File file, IProject project) {
+		ParsedTestCache cache = ParsedTestCache.getInstance();
+		ParsedTestCache.FileStamp stamp = ParsedTestCache.getFileStamp(file);
+		Test test = cache.get(stamp);
+		if (test == null) {
+			BinaryTestCache binaryCache = BinaryTestCache.getInstance();
+			test = binaryCache.load(file, stamp);
+			if (test == null) {
+				test = parseFile(file, project);
+				binaryCache.store(file, stamp, test);
+			}
+			test.removeSavedDummyPagesForScrolling();
+			cache.put(stamp, test);
+			test = (Test) CubicCloner.deepCopy(test);
+		}
+		
+		try {
+			test.getAllLanguages().updateAllLanguages();
+			if (test.getParamList() != null) {
+				test.setParamList(test.getParamList().getNewUpdatedVersion());
+			}
+		} catch (Exception e) {
+			handleLoadException(file, e);
+		}
+		
+		return test;
+	}
+
+
+	private static Test parseFile(File file, IProject project) {
 		String xml = "";
 		try {
 			String charset = getCharset(file);
@@ -94,23 +132,22 @@ public class TestPersistance {
 			ErrorHandler.logAndRethrow(e);
 		}
 		
-		Test test = null;
 		try {
-			test = (Test) new CubicTestXStream().fromXML(xml);
-			test.getAllLanguages().updateAllLanguages();
-			if (test.getParamList() != null) {
-				test.setParamList(test.getParamList().getNewUpdatedVersion());
-			}
+			return (Test) CubicTestSerializer.fromXML(xml);
 		} catch (Exception e) {
-			if (ErrorHandler.getCause(e) instanceof ConversionException) {
-				ErrorHandler.logAndShowErrorDialogAndRethrow("Could not load test (error creating Test from XML file \"" + file.getName() + "\"). If the test was created with a newer version of CubicTest, then please upgrade to that version.\n", e);
-			}
-			else {
-				ErrorHandler.logAndShowErrorDialogAndRethrow("Exception occured. Could not load test \"" + file.getName() + "\"", e);
-			}
+			handleLoadException(file, e);
+		}
+		return null;
+	}
+
+
+	private static void handleLoadException(File file, Exception e) {
+		if (ErrorHandler.getCause(e) instanceof ConversionException) {
+			ErrorHandler.logAndShowErrorDialogAndRethrow("Could not load test (error creating Test from XML file \"" + file.getName() + "\"). If the test was created with a newer version of CubicTest, then please upgrade to that version.\n", e);
+		}
+		else {
+			ErrorHandler.logAndShowErrorDialogAndRethrow("Exception occured. Could not load test \"" + file.getName() + "\"", e);
 		}
-		
-		return test;
 	}
 
 	
@@ -186,5 +223,43 @@ public class TestPersistance {
 		throw new CubicException("Could not load test with file name = " + fileName);
 	}
 	
+	
+	/**
+	 * Reads the header of a test (name, extension points etc.) without loading its pages.
+	 * Headers of files that have been read before and not changed since are taken from the {@link TestHeaderIndex}.
+	 * 
+	 * @param file The file containing the test.
+	 * @param project The project of the test, used if the test must be upgraded. May be <code>null</code>.
+	 * @return The header.
+	 */
+	public static TestHeader loadHeaderFromFile(File file, IProject project) {
+		return TestHeaderIndex.getInstance().getHeader(file, project);
+	}
+	
+	
+	/**
+	 * Reads the header of the test with the given file name without loading its pages.
+	 * The file name is resolved the same way as by {@link #loadFromFile(IProject, String)}.
+	 */
+	public static TestHeader loadHeaderFromFile(IProject project, String fileName) {
+		if (project == null) {
+			return loadHeaderFromFile(new File(fileName), null);
+		}
+		try {
+			IPath path = project.getFile(new Path(fileName)).getLocation();
+			if (path == null) {
+				throw new CubicException("Could not get absolute path of test with file name = " + fileName);
+			}
+			return loadHeaderFromFile(path.toFile(), project);
+		}
+		catch (IllegalStateException e) {
+			if (e.getMessage().indexOf("Workspace is closed") >= 0) {
+				//Probably junit testing
+				return loadHeaderFromFile(new File(fileName), null);
+			}
+		}
+		throw new CubicException("Could not load test header with file name = " + fileName);
+	}
+	
 
 }
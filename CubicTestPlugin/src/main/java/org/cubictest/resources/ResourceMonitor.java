@@ -12,17 +12,27 @@ package org.cubictest.resources;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.cubictest.common.utils.Logger;
+import org.cubictest.common.utils.ModelUtil;
+import org.cubictest.persistence.ParsedTestCache;
 import org.cubictest.resources.interfaces.IResourceListener;
 import org.cubictest.resources.interfaces.IResourceMonitor;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 
 
 public class ResourceMonitor implements IResourceMonitor, IResourceChangeListener {
@@ -54,14 +64,59 @@ public class ResourceMonitor implements IResourceMonitor, IResourceChangeListene
 	}
 
 	public void resourceChanged(IResourceChangeEvent event) {
-		for(IResource resource : listeners.keySet()) {
-			if(event.getDelta().findMember(resource.getFullPath()) != null) {
-				for(IResourceListener listener : listeners.get(resource)) {
-					listener.notifyResourceChange(resource);
+		Set<IResource> changed = getChangedResources(event.getDelta());
+		if (listeners.isEmpty()) {
+			return;
+		}
+		//notify the listeners of the changed resources, and of the tests that use them (as subtests, custom steps etc.),
+		//with the changed resource. Until the index has been built, only the listeners of the changed resources are notified:
+		TestDependencyIndex index = TestDependencyIndex.getWorkspaceIndex();
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		for (IResource resource : changed) {
+			Set<IResource> listenedTo = new LinkedHashSet<IResource>();
+			listenedTo.add(resource);
+			if (index != null) {
+				for (IPath test : index.getAffectedTests(resource.getFullPath())) {
+					listenedTo.add(root.getFile(test));
 				}
 			}
+			Set<IResourceListener> notified = new LinkedHashSet<IResourceListener>();
+			for (IResource listenedResource : listenedTo) {
+				List<IResourceListener> resourceListeners = listeners.get(listenedResource);
+				if (resourceListeners != null) {
+					notified.addAll(resourceListeners);
+				}
+			}
+			for (IResourceListener listener : notified) {
+				listener.notifyResourceChange(resource);
+			}
+		}
+	}
+
+	/**
+	 * Gets the resources of the delta. Removes changed test files from the parsed test cache, 
+	 * so that subtests are reloaded from the new version.
+	 */
+	private Set<IResource> getChangedResources(IResourceDelta delta) {
+		final Set<IResource> changed = new LinkedHashSet<IResource>();
+		if (delta == null) {
+			return changed;
+		}
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta child) throws CoreException {
+					IResource resource = child.getResource();
+					if (resource.getType() == IResource.FILE && ModelUtil.isTestFile(resource.getName()) && resource.getLocation() != null) {
+						ParsedTestCache.getInstance().invalidate(resource.getLocation().toFile());
+					}
+					changed.add(resource);
+					return true;
+				}
+			});
+		} catch (CoreException e) {
+			Logger.warn("Could not invalidate changed tests in cache", e);
 		}
-		
+		return changed;
 	}
 
 	public void dispose() {
@@ -0,0 +1,524 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.resources;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cubictest.CubicTestPlugin;
+import org.cubictest.common.utils.Logger;
+import org.cubictest.common.utils.ModelUtil;
+import org.cubictest.model.TestDependencies;
+import org.cubictest.model.TestDependencies.ExtensionPointUse;
+import org.cubictest.persistence.TestPersistance;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Index of which tests depend on which files (subtests, custom test steps, parameter files and language files),
+ * and of which tests continue from which extension points. Both directions are kept, so that the tests affected
+ * by a changed file and the tests using an extension point are found by lookup, without scanning the workspace.
+ * <p>
+ * All files are identified by their full path in the workspace. Extension points are identified by the test they are in
+ * and the ID of the page they extend from.
+ * <p>
+ * The workspace index is saved in the state location of the plug-in when the plug-in stops. At startup, it is loaded in a background job,
+ * and only the test files whose modification stamp has changed since it was saved are read again (see <code>TestPersistance.loadHeaderFromFile</code>). 
+ * It is then kept up to date from resource change events, re-reading only the test files that have changed.
+ *
+ * @author Christian Schwarz
+ */
+public class TestDependencyIndex implements IResourceChangeListener {
+
+	private static final String INDEX_FILE_NAME = "testDependencyIndex";
+	private static final int INDEX_FILE_VERSION = 1;
+
+	private static volatile TestDependencyIndex workspaceIndex;
+	private static Job indexJob;
+
+	/** The dependencies of each test. */
+	private final Map<IPath, Set<IPath>> dependencies = new HashMap<IPath, Set<IPath>>();
+	/** The tests that depend on each file. */
+	private final Map<IPath, Set<IPath>> dependentTests = new HashMap<IPath, Set<IPath>>();
+	/** The extension points used by each test, keyed by the test containing the extension point. */
+	private final Map<IPath, Map<IPath, Set<String>>> extensionPointUses = new HashMap<IPath, Map<IPath, Set<String>>>();
+	/** The tests using each extension point, keyed by the test containing the extension point and then by page ID. */
+	private final Map<IPath, Map<String, Set<IPath>>> extensionPointUsers = new HashMap<IPath, Map<String, Set<IPath>>>();
+	/** The modification stamp of each test when its dependencies were read. */
+	private final Map<IPath, Long> modificationStamps = new HashMap<IPath, Long>();
+
+
+	/**
+	 * Starts loading the saved index of all tests in the workspace in a background job, updating it with the tests
+	 * that have changed since it was saved. The index listens to resource changes until {@link #disposeWorkspaceIndex()} is called.
+	 */
+	public static synchronized void startWorkspaceIndex() {
+		if (workspaceIndex != null || indexJob != null) {
+			return;
+		}
+		indexJob = new Job("Indexing CubicTest tests") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				TestDependencyIndex index = loadSavedIndex();
+				//listen before reading, so that tests changed while reading are not missed:
+				ResourcesPlugin.getWorkspace().addResourceChangeListener(index, IResourceChangeEvent.POST_CHANGE);
+				index.updateTests(ResourcesPlugin.getWorkspace().getRoot());
+				synchronized (TestDependencyIndex.class) {
+					if (indexJob == this) {
+						workspaceIndex = index;
+						indexJob = null;
+						return Status.OK_STATUS;
+					}
+				}
+				//disposed while building
+				ResourcesPlugin.getWorkspace().removeResourceChangeListener(index);
+				return Status.CANCEL_STATUS;
+			}
+		};
+		indexJob.setSystem(true);
+		indexJob.setPriority(Job.DECORATE);
+		indexJob.schedule();
+	}
+
+	/**
+	 * Gets the index of all tests in the workspace, or <code>null</code> if it has not been built yet
+	 * (see {@link #startWorkspaceIndex()}).
+	 */
+	public static TestDependencyIndex getWorkspaceIndex() {
+		return workspaceIndex;
+	}
+
+	/**
+	 * Stops updating the workspace index, saves it and discards it.
+	 */
+	public static synchronized void disposeWorkspaceIndex() {
+		if (indexJob != null) {
+			indexJob.cancel();
+			indexJob = null;
+		}
+		if (workspaceIndex != null) {
+			ResourcesPlugin.getWorkspace().removeResourceChangeListener(workspaceIndex);
+			try {
+				workspaceIndex.save(getIndexFile());
+			}
+			catch (IOException e) {
+				Logger.warn("Could not save test dependency index", e);
+			}
+			workspaceIndex = null;
+		}
+	}
+
+
+	private static File getIndexFile() {
+		return CubicTestPlugin.getDefault().getStateLocation().append(INDEX_FILE_NAME).toFile();
+	}
+
+
+	private static TestDependencyIndex loadSavedIndex() {
+		File file = getIndexFile();
+		if (file.exists()) {
+			try {
+				return load(file);
+			}
+			catch (IOException e) {
+				Logger.warn("Could not load saved test dependency index, rebuilding it", e);
+			}
+		}
+		return new TestDependencyIndex();
+	}
+
+
+	/**
+	 * Reads the dependencies of the test files in the container that are not in the index, or have changed
+	 * since they were read. Tests in the container that no longer exist are removed from the index.
+	 */
+	public void updateTests(final IResource container) {
+		final Set<IPath> tests = new HashSet<IPath>();
+		try {
+			container.accept(new IResourceProxyVisitor() {
+				public boolean visit(IResourceProxy proxy) throws CoreException {
+					if (proxy.getType() == IResource.FILE && ModelUtil.isTestFile(proxy.getName())) {
+						IPath test = proxy.requestFullPath();
+						tests.add(test);
+						if (!isUpToDate(test, proxy.getModificationStamp())) {
+							readTest((IFile) proxy.requestResource());
+						}
+					}
+					return true;
+				}
+			}, IResource.NONE);
+		}
+		catch (CoreException e) {
+			Logger.warn("Could not build test dependency index", e);
+			return;
+		}
+		for (IPath test : getTests()) {
+			if (container.getFullPath().isPrefixOf(test) && !tests.contains(test)) {
+				removeTest(test);
+			}
+		}
+	}
+
+
+	private void readTest(IFile file) {
+		if (file.getLocation() == null) {
+			return;
+		}
+		try {
+			//get the stamp before reading, so that a change while reading is read again:
+			long modificationStamp = file.getModificationStamp();
+			TestDependencies testDependencies = TestPersistance.loadHeaderFromFile(file.getLocation().toFile(),
+					file.getProject()).getDependencies();
+			synchronized (this) {
+				putTest(file.getFullPath(), testDependencies);
+				modificationStamps.put(file.getFullPath(), modificationStamp);
+			}
+		}
+		catch (Exception e) {
+			//the test can not be read, so it can not depend on anything:
+			Logger.warn("Could not read dependencies of test " + file.getFullPath(), e);
+			removeTest(file.getFullPath());
+		}
+	}
+
+
+	/**
+	 * Updates the index from the changed test files of a resource delta.
+	 */
+	public void resourceChanged(IResourceChangeEvent event) {
+		if (event.getDelta() == null) {
+			return;
+		}
+		try {
+			event.getDelta().accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta delta) throws CoreException {
+					IResource resource = delta.getResource();
+					if (resource.getType() == IResource.FILE && ModelUtil.isTestFile(resource.getName())) {
+						if (delta.getKind() == IResourceDelta.REMOVED) {
+							removeTest(resource.getFullPath());
+						}
+						else if (delta.getKind() == IResourceDelta.ADDED || (delta.getFlags() & IResourceDelta.CONTENT) != 0) {
+							readTest((IFile) resource);
+						}
+					}
+					return true;
+				}
+			});
+		}
+		catch (CoreException e) {
+			Logger.warn("Could not update test dependency index", e);
+		}
+	}
+
+
+	/**
+	 * Sets the dependencies of a test, replacing any previous dependencies.
+	 * Subtests and custom test steps are resolved relative to the project of the test,
+	 * parameter and language files relative to the workspace root.
+	 *
+	 * @param test the full path of the test in the workspace.
+	 */
+	public synchronized void putTest(IPath test, TestDependencies testDependencies) {
+		IPath project = test.uptoSegment(1);
+		Set<IPath> files = new LinkedHashSet<IPath>();
+		for (String subTest : testDependencies.getSubTestFiles()) {
+			files.add(project.append(subTest));
+		}
+		for (String customStep : testDependencies.getCustomStepFiles()) {
+			files.add(project.append(customStep));
+		}
+		if (testDependencies.getParamsFile() != null) {
+			files.add(getWorkspacePath(testDependencies.getParamsFile()));
+		}
+		for (String language : testDependencies.getLanguageFiles()) {
+			files.add(getWorkspacePath(language));
+		}
+
+		Map<IPath, Set<String>> uses = new HashMap<IPath, Set<String>>();
+		for (ExtensionPointUse use : testDependencies.getExtensionPointUses()) {
+			getOrCreate(uses, project.append(use.getTestFile())).add(use.getPageId());
+		}
+		putTest(test, files, uses);
+	}
+
+
+	/**
+	 * Sets the resolved dependencies of a test, replacing any previous dependencies.
+	 */
+	private void putTest(IPath test, Set<IPath> files, Map<IPath, Set<String>> uses) {
+		removeTest(test);
+		dependencies.put(test, files);
+		for (IPath file : files) {
+			getOrCreate(dependentTests, file).add(test);
+		}
+		for (Map.Entry<IPath, Set<String>> entry : uses.entrySet()) {
+			for (String pageId : entry.getValue()) {
+				getOrCreate(getOrCreateMap(extensionPointUsers, entry.getKey()), pageId).add(test);
+			}
+		}
+		extensionPointUses.put(test, uses);
+	}
+
+
+	/**
+	 * Removes a test and its dependencies from the index.
+	 */
+	public synchronized void removeTest(IPath test) {
+		modificationStamps.remove(test);
+		Set<IPath> files = dependencies.remove(test);
+		if (files != null) {
+			for (IPath file : files) {
+				removeFromSet(dependentTests, file, test);
+			}
+		}
+		Map<IPath, Set<String>> uses = extensionPointUses.remove(test);
+		if (uses != null) {
+			for (Map.Entry<IPath, Set<String>> entry : uses.entrySet()) {
+				Map<String, Set<IPath>> usersByPageId = extensionPointUsers.get(entry.getKey());
+				for (String pageId : entry.getValue()) {
+					removeFromSet(usersByPageId, pageId, test);
+				}
+				if (usersByPageId.isEmpty()) {
+					extensionPointUsers.remove(entry.getKey());
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Gets the files the test depends on directly.
+	 */
+	public synchronized Set<IPath> getDependencies(IPath test) {
+		return copy(dependencies.get(test));
+	}
+
+	/**
+	 * Gets the tests that depend directly on the file.
+	 */
+	public synchronized Set<IPath> getDependentTests(IPath file) {
+		return copy(dependentTests.get(file));
+	}
+
+	/**
+	 * Gets the tests that are affected by a change of the file: the tests depending on it,
+	 * and the tests depending on those, etc. Includes the file itself if it is a test in the index.
+	 */
+	public synchronized Set<IPath> getAffectedTests(IPath file) {
+		Set<IPath> affected = new LinkedHashSet<IPath>();
+		if (dependencies.containsKey(file)) {
+			affected.add(file);
+		}
+		LinkedList<IPath> queue = new LinkedList<IPath>();
+		queue.add(file);
+		while (!queue.isEmpty()) {
+			Set<IPath> tests = dependentTests.get(queue.removeFirst());
+			if (tests != null) {
+				for (IPath test : tests) {
+					if (affected.add(test)) {
+						queue.add(test);
+					}
+				}
+			}
+		}
+		return affected;
+	}
+
+	/**
+	 * Gets the tests that continue from an extension point.
+	 * @param test the full path of the test containing the extension point.
+	 * @param pageId the ID of the page the extension point extends from.
+	 */
+	public synchronized Set<IPath> getTestsUsingExtensionPoint(IPath test, String pageId) {
+		Map<String, Set<IPath>> usersByPageId = extensionPointUsers.get(test);
+		return copy(usersByPageId == null ? null : usersByPageId.get(pageId));
+	}
+
+	/**
+	 * Gets the tests that continue from any extension point of the test.
+	 */
+	public synchronized Set<IPath> getTestsUsingExtensionPoints(IPath test) {
+		Set<IPath> users = new LinkedHashSet<IPath>();
+		Map<String, Set<IPath>> usersByPageId = extensionPointUsers.get(test);
+		if (usersByPageId != null) {
+			for (Set<IPath> tests : usersByPageId.values()) {
+				users.addAll(tests);
+			}
+		}
+		return users;
+	}
+
+	public synchronized boolean containsTest(IPath test) {
+		return dependencies.containsKey(test);
+	}
+
+	/**
+	 * Gets whether the dependencies of the test were read from the version of the test with the modification stamp.
+	 */
+	public synchronized boolean isUpToDate(IPath test, long modificationStamp) {
+		Long stamp = modificationStamps.get(test);
+		return stamp != null && stamp.longValue() == modificationStamp && modificationStamp != IResource.NULL_STAMP;
+	}
+
+	private synchronized List<IPath> getTests() {
+		return new ArrayList<IPath>(dependencies.keySet());
+	}
+
+	public synchronized int size() {
+		return dependencies.size();
+	}
+
+
+	/**
+	 * Saves the index to a file, see {@link #load(File)}.
+	 */
+	public synchronized void save(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(INDEX_FILE_VERSION);
+			out.writeInt(dependencies.size());
+			for (Map.Entry<IPath, Set<IPath>> entry : dependencies.entrySet()) {
+				IPath test = entry.getKey();
+				Long stamp = modificationStamps.get(test);
+				out.writeUTF(test.toString());
+				out.writeLong(stamp == null ? IResource.NULL_STAMP : stamp.longValue());
+				out.writeInt(entry.getValue().size());
+				for (IPath dependency : entry.getValue()) {
+					out.writeUTF(dependency.toString());
+				}
+				Map<IPath, Set<String>> uses = extensionPointUses.get(test);
+				out.writeInt(uses.size());
+				for (Map.Entry<IPath, Set<String>> use : uses.entrySet()) {
+					out.writeUTF(use.getKey().toString());
+					out.writeInt(use.getValue().size());
+					for (String pageId : use.getValue()) {
+						out.writeUTF(pageId);
+					}
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads an index saved by {@link #save(File)}. 
+	 * @throws IOException if the file can not be read, or was saved by another version of the index.
+	 */
+	public static TestDependencyIndex load(File file) throws IOException {
+		TestDependencyIndex index = new TestDependencyIndex();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != INDEX_FILE_VERSION) {
+				throw new IOException("Unknown version of test dependency index: " + file);
+			}
+			int testCount = in.readInt();
+			for (int i = 0; i < testCount; i++) {
+				IPath test = new Path(in.readUTF());
+				long stamp = in.readLong();
+				Set<IPath> files = new LinkedHashSet<IPath>();
+				int fileCount = in.readInt();
+				for (int j = 0; j < fileCount; j++) {
+					files.add(new Path(in.readUTF()));
+				}
+				Map<IPath, Set<String>> uses = new HashMap<IPath, Set<String>>();
+				int useCount = in.readInt();
+				for (int j = 0; j < useCount; j++) {
+					Set<String> pageIds = getOrCreate(uses, new Path(in.readUTF()));
+					int pageIdCount = in.readInt();
+					for (int k = 0; k < pageIdCount; k++) {
+						pageIds.add(in.readUTF());
+					}
+				}
+				index.putTest(test, files, uses);
+				index.modificationStamps.put(test, stamp);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return index;
+	}
+
+
+	/**
+	 * Gets the path of a file saved relative to the workspace root. Language files are saved with the separators of the OS.
+	 */
+	private static IPath getWorkspacePath(String fileName) {
+		return new Path(fileName.replace('\\', '/')).makeAbsolute();
+	}
+
+	private static <K, V> Set<V> getOrCreate(Map<K, Set<V>> map, K key) {
+		Set<V> set = map.get(key);
+		if (set == null) {
+			set = new LinkedHashSet<V>();
+			map.put(key, set);
+		}
+		return set;
+	}
+
+	private static <K, V> Map<V, Set<IPath>> getOrCreateMap(Map<K, Map<V, Set<IPath>>> map, K key) {
+		Map<V, Set<IPath>> value = map.get(key);
+		if (value == null) {
+			value = new HashMap<V, Set<IPath>>();
+			map.put(key, value);
+		}
+		return value;
+	}
+
+	private static <K> void removeFromSet(Map<K, Set<IPath>> map, K key, IPath value) {
+		Set<IPath> set = map.get(key);
+		if (set != null) {
+			set.remove(value);
+			if (set.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+
+	private static Set<IPath> copy(Set<IPath> set) {
+		if (set == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(new LinkedHashSet<IPath>(set));
+	}
+}
@@ -13,5 +13,9 @@ package org.cubictest.resources.interfaces;
 import org.eclipse.core.resources.IResource;
 
 public interface IResourceListener {
+	/**
+	 * Called when the resource listened to, or a file it uses (e.g. a subtest of a test), has changed.
+	 * @param resource the resource that changed.
+	 */
 	public void notifyResourceChange(IResource resource);
 }
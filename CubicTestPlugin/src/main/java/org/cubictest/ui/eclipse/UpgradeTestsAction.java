@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.ui.eclipse;
+
+import org.cubictest.common.utils.ErrorHandler;
+import org.cubictest.common.utils.UserInfo;
+import org.cubictest.persistence.LegacyUpgrade;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.IActionDelegate;
+
+/**
+ * Action for saving all tests of the selected resource's project in the current model version.
+ * Will be in context menu in the Navigator or Package Explorer.
+ * 
+ * @author Christian Schwarz
+ */
+public class UpgradeTestsAction implements IActionDelegate {
+	ISelection selection;
+
+	/* 
+	 * @see IActionDelegate#run(IAction)
+	 */
+	public void run(IAction action) {
+		if (!(selection instanceof IStructuredSelection)) {
+			return;
+		}
+		Object selected = ((IStructuredSelection) selection).getFirstElement();
+		if (!(selected instanceof IResource)) {
+			return;
+		}
+		IResource resource = (IResource) selected;
+		try {
+			int upgraded = LegacyUpgrade.upgradeProjectInPlace(resource.getProject());
+			UserInfo.showInfoDialog("Upgraded " + upgraded + " test(s) in project " + resource.getProject().getName() + " to the current file format.");
+		}
+		catch (Exception e) {
+			ErrorHandler.logAndShowErrorDialogAndRethrow("Error when upgrading tests to the current file format.", e);
+		}
+	}
+
+	/**
+	 * @see IActionDelegate#selectionChanged(IAction, ISelection)
+	 */
+	public void selectionChanged(IAction action, ISelection selection) {
+		this.selection = selection;
+	}
+
+}
@@ -13,7 +13,6 @@ package org.cubictest.ui.gef.controller;
 import java.beans.PropertyChangeEvent;
 
 import org.cubictest.CubicTestPlugin;
-import org.cubictest.common.exception.TestNotFoundException;
 import org.cubictest.common.utils.ErrorHandler;
 import org.cubictest.common.utils.UserInfo;
 import org.cubictest.common.utils.ViewUtil;
@@ -22,6 +21,7 @@ import org.cubictest.model.ExtensionStartPoint;
 import org.cubictest.model.ExtensionTransition;
 import org.cubictest.model.SubTest;
 import org.cubictest.model.Test;
+import org.cubictest.model.TestHeader.ExtensionPointHeader;
 import org.cubictest.model.TransitionNode;
 import org.cubictest.ui.gef.command.NoOperationCommand;
 import org.cubictest.ui.gef.view.CubicTestLabel;
@@ -68,15 +68,8 @@ public class ExtensionTransitionEditPart extends TransitionEditPart {
 		}
 		conn.setToolTip(tooltip);
 		
-		try {
-			getModel().getExtensionPoint();
-		}
-		catch (TestNotFoundException e) {
-			SubTest subtest = (SubTest) startNode;
-			ErrorHandler.logAndShowErrorDialogAndThrow("SubTest not found: " + subtest.getFilePath() + ". Unable to open test.");
-		}
-		
-		if (getModel().getExtensionPoint() == null) {
+		//the extension point is found from the header of the subtest, so that its pages are not loaded until needed:
+		if (getModel().getExtensionPointHeader() == null) {
 			//Model is inconsistent. We must fix it.
 			
 			if (startNode instanceof ExtensionStartPoint) {
@@ -140,12 +133,7 @@ public class ExtensionTransitionEditPart extends TransitionEditPart {
 			getViewer().getEditDomain().getCommandStack().execute(new NoOperationCommand());
 		}
 		
-		if (getModel().getExtensionPoint() != null) {
-			label = new CubicTestLabel(getModel().getExtensionPoint().getName());
-		}
-		else {
-			label = new CubicTestLabel("");
-		}
+		label = new CubicTestLabel(getExtensionPointName());
 		label.setTooltipText(tooltip.getText());
 		
 		ConnectionEndpointLocator locator = new ConnectionEndpointLocator(conn, true);
@@ -163,7 +151,12 @@ public class ExtensionTransitionEditPart extends TransitionEditPart {
 	 * @see java.beans.PropertyChangeListener#propertyChange(java.beans.PropertyChangeEvent)
 	 */
 	public void propertyChange(PropertyChangeEvent arg0) {
-		label.setText(getModel().getExtensionPoint().getName());
+		label.setText(getExtensionPointName());
+	}
+	
+	private String getExtensionPointName() {
+		ExtensionPointHeader header = getModel().getExtensionPointHeader();
+		return header == null ? "" : header.getName();
 	}
 	
 	public UpdateStartPointWizard launchNewTestWizard(Test startSubTest) {
@@ -56,6 +56,8 @@ public class SubTestEditPart extends AbstractNodeEditPart{
 
 	private CubicTestDirectEditManager manager;
 	private boolean initRefreshed = false;
+	/** The loaded test of the subtest, listened to for name changes */
+	private Test listenedTest;
 
 	/**
 	 * Constructor for the <code>PageEditPart</code> controller.
@@ -75,20 +77,35 @@ public class SubTestEditPart extends AbstractNodeEditPart{
 		}
 		super.activate();
 		ViewUtil.getSurroundingTest(this).addPropertyChangeListener(this);
-		getModel().getTest(false).addPropertyChangeListener(this);
+		//the label is taken from the test header, so only listen to the test if something else has loaded it:
+		listenToTest(getModel().isTestLoaded() ? getModel().getTest(false) : null);
 	}
 	
 	@Override
 	public void deactivate() {
 		super.deactivate();
 		ViewUtil.getSurroundingTest(this).removePropertyChangeListener(this);
-		getModel().getTest(false).removePropertyChangeListener(this);
+		listenToTest(null);
+	}
+	
+	private void listenToTest(Test test) {
+		if (listenedTest != null) {
+			listenedTest.removePropertyChangeListener(this);
+		}
+		listenedTest = test;
+		if (test != null) {
+			test.addPropertyChangeListener(this);
+		}
 	}
 	
 	@Override
 	public void propertyChange(PropertyChangeEvent evt){
 		String property = evt.getPropertyName();
-		if (evt.getSource() instanceof Test && evt.getPropertyName().equals(PropertyAwareObject.NAME)) {
+		if (PropertyAwareObject.SUBTEST.equals(property)) {
+			//the test was loaded, e.g. by a test run (not necessarily in the UI thread)
+			listenToTest((Test) evt.getNewValue());
+		}
+		else if (evt.getSource() instanceof Test && evt.getPropertyName().equals(PropertyAwareObject.NAME)) {
 			//refresh name
 			refresh();
 		}
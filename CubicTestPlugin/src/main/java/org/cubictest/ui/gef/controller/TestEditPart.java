@@ -142,6 +142,7 @@ public class TestEditPart extends PropertyChangePart{
 		if (cp != null)
 			children.add(cp);
 		children.addAll(((Test)getModel()).getPages());
+		children.add(((Test)getModel()).getDummyPageForScrolling());
 		children.addAll(((Test)getModel()).getExtensionPoints());
 		children.addAll(((Test)getModel()).getSubTests());
 		children.addAll(((Test)getModel()).getCustomTestSteps());
@@ -13,14 +13,21 @@ package org.cubictest.ui.gef.editors;
 
 import java.util.ArrayList;
 import java.util.EventObject;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.cubictest.CubicTestPlugin;
 import org.cubictest.common.utils.ErrorHandler;
+import org.cubictest.model.CustomTestStepHolder;
+import org.cubictest.model.ExtensionStartPoint;
 import org.cubictest.model.PageElement;
+import org.cubictest.model.SubTest;
 import org.cubictest.model.Test;
 import org.cubictest.persistence.TestPersistance;
 import org.cubictest.resources.ResourceMonitor;
+import org.cubictest.resources.TestDependencyIndex;
+import org.cubictest.resources.interfaces.IResourceListener;
 import org.cubictest.resources.interfaces.IResourceMonitor;
 import org.cubictest.ui.gef.actions.AddExtensionPointAction;
 import org.cubictest.ui.gef.actions.AddPageElementAction;
@@ -44,9 +51,12 @@ import org.cubictest.ui.gef.interfaces.IDisposeSubject;
 import org.cubictest.ui.gef.interfaces.exported.IDisposeListener;
 import org.cubictest.ui.gef.interfaces.exported.ITestEditor;
 import org.cubictest.ui.gef.view.AddElementContextMenuList;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.draw2d.PositionConstants;
 import org.eclipse.gef.ContextMenuProvider;
@@ -93,6 +103,7 @@ import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorPart;
@@ -146,6 +157,16 @@ public class GraphicalTestEditor extends EditorPart implements IAdaptable,
 			updateActions(editPartActionIDs);
 		}
 	};
+	/** Notified when the test or a file it uses (subtest, custom step, extended test) changes. */
+	private IResourceListener subFileListener = new IResourceListener(){
+		public void notifyResourceChange(final IResource resource) {
+			Display.getDefault().asyncExec(new Runnable() {
+				public void run() {
+					reloadSubFiles(resource);
+				}
+			});
+		}
+	};
 	
 	private PaletteRoot paletteRoot;
 	
@@ -302,12 +323,56 @@ public class GraphicalTestEditor extends EditorPart implements IAdaptable,
 	}
 	
 	private Test getContent() {
-		Test test = TestPersistance.loadFromFile(((IFileEditorInput)getEditorInput()).getFile());
-		test.setResourceMonitor(resourceMonitor);
+		IFile file = ((IFileEditorInput)getEditorInput()).getFile();
+		Test test = TestPersistance.loadFromFile(file);
+		test.setResourceMonitor(getResourceMonitor());
 		test.resetStatus();
+		getResourceMonitor().registerResourceListener(file, subFileListener);
 		return test;
 	}
 	
+	/**
+	 * Reloads the subtests, custom test steps and extended test of the test in the editor that are affected by 
+	 * a changed file, and refreshes the parts showing them.
+	 */
+	private void reloadSubFiles(IResource changedFile) {
+		if (graphicalViewer == null || graphicalViewer.getControl() == null || graphicalViewer.getControl().isDisposed()) {
+			return;
+		}
+		if (changedFile.equals(((IFileEditorInput) getEditorInput()).getFile())) {
+			//the test in the editor, e.g. saved
+			return;
+		}
+		//the changed file, and the tests using it, possibly through other tests:
+		Set<IPath> changed = new HashSet<IPath>();
+		changed.add(changedFile.getFullPath());
+		TestDependencyIndex index = TestDependencyIndex.getWorkspaceIndex();
+		if (index != null) {
+			changed.addAll(index.getAffectedTests(changedFile.getFullPath()));
+		}
+		
+		Test test = (Test) graphicalViewer.getContents().getModel();
+		IPath projectPath = getProject().getFullPath();
+		for (CustomTestStepHolder holder : test.getCustomTestSteps()) {
+			if (changed.contains(projectPath.append(holder.getFilePath()))) {
+				holder.reloadCustomTestStep();
+			}
+		}
+		List<SubTest> subTests = new ArrayList<SubTest>(test.getSubTests());
+		if (test.getStartPoint() instanceof ExtensionStartPoint) {
+			subTests.add((ExtensionStartPoint) test.getStartPoint());
+		}
+		for (SubTest subTest : subTests) {
+			if (changed.contains(projectPath.append(subTest.getFilePath()))) {
+				subTest.reloadChangedTest();
+				EditPart part = (EditPart) graphicalViewer.getEditPartRegistry().get(subTest);
+				if (part != null) {
+					part.refresh();
+				}
+			}
+		}
+	}
+	
 	public IResourceMonitor getResourceMonitor() {
 		if(resourceMonitor == null) {
 			resourceMonitor = new ResourceMonitor(getProject());
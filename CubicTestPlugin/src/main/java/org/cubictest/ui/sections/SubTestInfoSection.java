@@ -34,7 +34,6 @@ import org.eclipse.ui.views.properties.tabbed.TabbedPropertySheetPage;
 
 public class SubTestInfoSection extends AbstractPropertySection implements PropertyChangeListener {
 
-	private Test test;
 	private SubTest subtest;
 	private Label testLabel;
 	private Button openTestButton;
@@ -61,6 +60,7 @@ public class SubTestInfoSection extends AbstractPropertySection implements Prope
 		openTestButton.addSelectionListener(new SelectionAdapter() {
 			@Override
 			public void widgetSelected(SelectionEvent se) {
+				Test test = subtest.getTest(false);
 				ViewUtil.openFileForViewing(test.getFile().getFullPath().toPortableString());
 			}
 		});
@@ -75,8 +75,7 @@ public class SubTestInfoSection extends AbstractPropertySection implements Prope
 		Assert.isTrue(input instanceof SubTestEditPart);
 		
 		subtest = (SubTest) ((SubTestEditPart) input).getModel();
-		test = subtest.getTest(false);
-		testLabel.setText("Test in subtest: " + test.getName());
+		testLabel.setText("Test in subtest: " + subtest.getHeader().getName());
 	}
 
 	public void propertyChange(PropertyChangeEvent evt) {
@@ -20,7 +20,7 @@ import org.cubictest.common.utils.ErrorHandler;
 import org.cubictest.common.utils.ModelUtil;
 import org.cubictest.model.ExtensionPoint;
 import org.cubictest.model.Test;
-import org.cubictest.persistence.CubicTestXStream;
+import org.cubictest.persistence.CubicTestSerializer;
 import org.cubictest.resources.interfaces.IResourceMonitor;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -129,7 +129,7 @@ public abstract class AbstractNewSimpleStartPointTestWizard extends NewTestWizar
 		
 		try {
 			Test emptyTest = createEmptyTest(name, description);
-			String xml = new CubicTestXStream().toXML(emptyTest);
+			String xml = CubicTestSerializer.toXML(emptyTest);
 			FileUtils.writeStringToFile(file.getLocation().toFile(), xml, "ISO-8859-1");
 			file.getParent().refreshLocal(IResource.DEPTH_INFINITE, null);
 
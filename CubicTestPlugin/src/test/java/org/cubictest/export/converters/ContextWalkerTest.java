@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.converters;
+
+import java.util.List;
+
+import org.cubictest.model.Page;
+import org.cubictest.model.PageElement;
+import org.cubictest.model.Text;
+import org.cubictest.model.context.SimpleContext;
+import org.cubictest.testutils.AssertionList;
+import org.cubictest.testutils.DummyConverter;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the ContextWalker hands the page elements of each context to batch converters in one call.
+ * 
+ * @author chr_schwarz
+ */
+public class ContextWalkerTest {
+
+	private AssertionList<String> assertionList;
+	private Page page;
+
+	@Before
+	public void setUp() {
+		assertionList = new AssertionList<String>();
+		page = new Page();
+		page.addElement(createText("First"));
+		SimpleContext context = new SimpleContext();
+		context.addElement(createText("Inner"));
+		context.addElement(createText("Inner2"));
+		page.addElement(context);
+		page.addElement(createText("Last"));
+	}
+
+	@Test
+	public void testHandlesElementsOneByOne() {
+		new PageWalker<AssertionList<String>>(DummyConverter.class, DummyConverter.class).handlePage(assertionList, page);
+		assertionList.assertContainsInOrder("First");
+		assertionList.assertContainsInOrder("Inner");
+		assertionList.assertContainsInOrder("Inner2");
+		assertionList.assertContainsInOrder("Last");
+		assertionList.verifySize();
+	}
+
+	@Test
+	public void testHandlesElementsOfEachContextInOneBatch() {
+		new PageWalker<AssertionList<String>>(DummyBatchConverter.class, DummyConverter.class).handlePage(assertionList, page);
+		assertionList.assertContainsInOrder("[First, Last]");
+		assertionList.assertContainsInOrder("[Inner, Inner2]");
+		assertionList.verifySize();
+	}
+
+	private PageElement createText(String text) {
+		Text pe = new Text();
+		pe.setText(text);
+		return pe;
+	}
+	
+	public static class DummyBatchConverter extends DummyConverter implements IPageElementBatchConverter<AssertionList<String>> {
+		public void handlePageElements(AssertionList<String> assertionList, List<PageElement> pageElements) {
+			StringBuilder names = new StringBuilder();
+			for (PageElement pe : pageElements) {
+				names.append(names.length() == 0 ? "[" : ", ").append(pe.getText());
+			}
+			assertionList.add(names.append("]").toString());
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.converters;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.cubictest.model.Page;
+import org.cubictest.model.PageElement;
+import org.cubictest.model.Text;
+import org.cubictest.model.context.SimpleContext;
+import org.cubictest.testutils.AssertionList;
+import org.cubictest.testutils.DummyConverter;
+
+/**
+ * Time and allocated bytes of walking a page with each converter lifecycle.
+ * The converter holds a buffer, like the converters of the exporters do.
+ * Allocated bytes are only reported on JVMs that count them per thread.
+ * <p>
+ * Not a unit test. Run as a Java application: 
+ * <code>ConverterFactoryBenchmark [contexts] [elements per context] [iterations]</code>
+ * 
+ * @author Christian Schwarz
+ */
+public class ConverterFactoryBenchmark {
+
+	public static void main(String[] args) {
+		int numContexts = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int numElementsPerContext = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		
+		Page page = new Page();
+		for (int i = 0; i < numContexts; i++) {
+			SimpleContext context = new SimpleContext();
+			for (int j = 0; j < numElementsPerContext; j++) {
+				context.addElement(new Text());
+			}
+			page.addElement(context);
+		}
+		int nodes = numContexts * (numElementsPerContext + 1) + 1;
+		
+		for (int round = 1; round <= 3; round++) {
+			System.out.println("Round " + round + " (" + iterations + " walks of " + nodes + " nodes):");
+			for (ConverterLifecycle lifecycle : ConverterLifecycle.values()) {
+				walk(lifecycle, page, iterations, nodes);
+			}
+		}
+	}
+	
+	private static void walk(ConverterLifecycle lifecycle, Page page, int iterations, int nodes) {
+		PageWalker<AssertionList<String>> walker = new PageWalker<AssertionList<String>>(
+				BufferingConverter.class, BufferingConverter.class, lifecycle);
+		AssertionList<String> resultHolder = new AssertionList<String>();
+		BufferingConverter.created = 0;
+		long bytesBefore = getAllocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			walker.startNewRun();
+			walker.handlePage(resultHolder, page);
+		}
+		long nanos = System.nanoTime() - start;
+		long bytes = getAllocatedBytes() - bytesBefore;
+		
+		long operations = (long) iterations * nodes;
+		String result = "  " + lifecycle + ": " + (nanos / operations) + " ns/node, " + 
+				BufferingConverter.created + " converters created";
+		if (bytesBefore >= 0) {
+			result += ", " + (bytes / operations) + " bytes/node";
+		}
+		System.out.println(result);
+	}
+	
+	private static long getAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+	
+	
+	public static class BufferingConverter extends DummyConverter {
+		private static int created;
+		private final StringBuilder buffer = new StringBuilder(256);
+		
+		public BufferingConverter() {
+			created++;
+		}
+		
+		@Override
+		public void handlePageElement(AssertionList<String> assertionList, PageElement e) {
+			buffer.setLength(0);
+			buffer.append(e.getType());
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.converters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.cubictest.model.Page;
+import org.cubictest.model.Text;
+import org.cubictest.model.context.SimpleContext;
+import org.cubictest.testutils.AssertionList;
+import org.cubictest.testutils.DummyConverter;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the lifecycles of converters created by the ConverterFactory.
+ * 
+ * @author chr_schwarz
+ */
+public class ConverterFactoryTest {
+
+	@Before
+	public void setUp() {
+		CountingConverter.created = 0;
+	}
+	
+	@Test
+	public void testNewConverterPerUse() {
+		ConverterFactory<DummyConverter> factory = new ConverterFactory<DummyConverter>(DummyConverter.class, ConverterLifecycle.PER_USE);
+		assertNotSame(factory.getConverter(), factory.getConverter());
+	}
+	
+	@Test
+	public void testSameConverterWithinRun() {
+		ConverterFactory<DummyConverter> factory = new ConverterFactory<DummyConverter>(DummyConverter.class, ConverterLifecycle.PER_RUN);
+		DummyConverter converter = factory.getConverter();
+		assertSame(converter, factory.getConverter());
+		factory.startNewRun();
+		assertNotSame(converter, factory.getConverter());
+	}
+	
+	@Test
+	public void testConverterPerThread() throws Exception {
+		final ConverterFactory<DummyConverter> factory = new ConverterFactory<DummyConverter>(DummyConverter.class, ConverterLifecycle.PER_THREAD);
+		DummyConverter converter = factory.getConverter();
+		assertSame(converter, factory.getConverter());
+		final DummyConverter[] otherThreadConverter = new DummyConverter[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				otherThreadConverter[0] = factory.getConverter();
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNotSame(converter, otherThreadConverter[0]);
+	}
+	
+	@Test
+	public void testSingletonSharedBetweenFactories() {
+		DummyConverter converter = new ConverterFactory<DummyConverter>(DummyConverter.class, ConverterLifecycle.SINGLETON).getConverter();
+		assertSame(converter, new ConverterFactory<DummyConverter>(DummyConverter.class, ConverterLifecycle.SINGLETON).getConverter());
+	}
+	
+	@Test
+	public void testPageWalkerReusesConvertersInRun() {
+		Page page = new Page();
+		for (int i = 0; i < 10; i++) {
+			SimpleContext context = new SimpleContext();
+			context.addElement(new Text());
+			context.addElement(new Text());
+			page.addElement(context);
+		}
+		
+		new PageWalker<AssertionList<String>>(CountingConverter.class, CountingConverter.class, ConverterLifecycle.PER_USE)
+				.handlePage(new AssertionList<String>(), page);
+		assertEquals(31, CountingConverter.created);
+		
+		CountingConverter.created = 0;
+		new PageWalker<AssertionList<String>>(CountingConverter.class, CountingConverter.class)
+				.handlePage(new AssertionList<String>(), page);
+		assertEquals(2, CountingConverter.created);
+	}
+	
+	
+	public static class CountingConverter extends DummyConverter {
+		private static int created;
+		
+		public CountingConverter() {
+			created++;
+		}
+	}
+}
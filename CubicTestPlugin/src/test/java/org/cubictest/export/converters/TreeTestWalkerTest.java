@@ -20,6 +20,8 @@ import org.cubictest.model.Page;
 import org.cubictest.model.SimpleTransition;
 import org.cubictest.model.Test;
 import org.cubictest.model.Transition;
+import org.cubictest.model.UrlStartPoint;
+import org.cubictest.model.UserInteractionsTransition;
 import org.cubictest.persistence.TestPersistance;
 import org.cubictest.testutils.AssertionList;
 import org.cubictest.testutils.DummyConverter;
@@ -411,6 +413,35 @@ public class TreeTestWalkerTest {
 	}
 	
 	
+	/**
+	 * Test that all paths are converted in a tree with many leaves (previously capped at 42 paths).
+	 */
+	@org.junit.Test
+	public void testTraversesAllPathsInWideTree() {
+		Test test = new Test();
+		UrlStartPoint startPoint = new UrlStartPoint();
+		startPoint.setBeginAt("www.test.org");
+		test.setStartPoint(startPoint);
+		Page root = new Page();
+		root.setName("Root");
+		new SimpleTransition(startPoint, root).connect();
+		int numLeaves = 100;
+		for (int i = 0; i < numLeaves; i++) {
+			Page leaf = new Page();
+			leaf.setName("Leaf" + i);
+			new UserInteractionsTransition(root, leaf).connect();
+		}
+		
+		testWalker.convertTest(test, assertionList);
+		
+		for (int i = 0; i < numLeaves; i++) {
+			assertionList.assertContainsInOrder("www.test.org");
+			assertionList.assertContainsInOrder("Root --> Leaf" + i);
+		}
+		assertionList.verifySize();
+	}
+	
+	
 	/**
 	 * Util method that sets up transition from a page with the specified ID to a target extension point.
 	 * @param pageId
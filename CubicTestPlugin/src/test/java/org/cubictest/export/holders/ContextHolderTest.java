@@ -11,12 +11,16 @@
 package org.cubictest.export.holders;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.beans.PropertyChangeListener;
 
 import org.cubictest.model.Identifier;
 import org.cubictest.model.IdentifierType;
 import org.cubictest.model.Image;
 import org.cubictest.model.Link;
 import org.cubictest.model.PropertyAwareObject;
+import org.cubictest.model.TestPartStatus;
 import org.cubictest.model.context.SimpleContext;
 import org.cubictest.model.formElement.TextArea;
 import org.eclipse.core.runtime.CoreException;
@@ -91,6 +95,29 @@ public class ContextHolderTest {
 		image.addIdentifier(id);
 	}
 		
+	@Test
+	public void testClearXPathCacheRemovesListeners() {
+		final int[] listeners = new int[1];
+		Link countingLink = new Link() {
+			@Override
+			public void addPropertyChangeListener(PropertyChangeListener pcl) {
+				listeners[0]++;
+				super.addPropertyChangeListener(pcl);
+			}
+			@Override
+			public void removePropertyChangeListener(PropertyChangeListener pcl) {
+				listeners[0]--;
+				super.removePropertyChangeListener(pcl);
+			}
+		};
+		countingLink.addIdentifier(link.getIdentifiers().get(0));
+		
+		holder.getFullContextWithAllElements(countingLink);
+		assertEquals(1, listeners[0]);
+		holder.clearXPathCache();
+		assertEquals(0, listeners[0]);
+	}
+	
 	@Test
 	public void testSingleElement() {
 		String exp = "//a[@href=\'linkHref\']";
@@ -200,4 +227,45 @@ public class ContextHolderTest {
 		assertEquals(exp, holder.getFullContextWithAllElements(outerContext));
 	}
 
+	@Test
+	public void testXPathIsCachedWhenStatusChanges() {
+		outerContext.addElement(link);
+		holder.pushContext(outerContext);
+		String xpath = holder.getFullContextWithAllElements(link);
+		link.setStatus(TestPartStatus.PASS);
+		link.getIdentifier(IdentifierType.HREF).setActual("otherHref");
+		assertSame(xpath, holder.getFullContextWithAllElements(link));
+	}
+
+	@Test
+	public void testXPathIsUpdatedWhenIdentifierChanges() {
+		outerContext.addElement(link);
+		holder.pushContext(outerContext);
+		holder.getFullContextWithAllElements(link);
+		
+		link.getIdentifier(IdentifierType.HREF).setValue("newHref");
+		String exp = "/descendant-or-self::*[@id=\'outerId\']/descendant-or-self::a[@href=\'newHref\']";
+		assertEquals(exp, holder.getFullContextWithAllElements(link));
+
+		outerContext.getIdentifier(IdentifierType.ID).setValue("newOuterId");
+		exp = "/descendant-or-self::*[@id=\'newOuterId\']/descendant-or-self::a[@href=\'newHref\']";
+		assertEquals(exp, holder.getFullContextWithAllElements(link));
+	}
+
+	@Test
+	public void testXPathIsUpdatedWhenContextChanges() {
+		outerContext.addElement(link);
+		assertEquals("//*[@id=\'outerId\'][descendant-or-self::a[@href=\'linkHref\']]", holder.getFullContextWithAllElements(outerContext));
+		assertEquals("//a[@href=\'linkHref\']", holder.getFullContextWithAllElements(link));
+
+		innerContext1.addElement(link);
+		holder.pushContext(innerContext1);
+		String exp = "/descendant-or-self::*[@id=\'inner1Id\']/descendant-or-self::a[@href=\'linkHref\']";
+		assertEquals(exp, holder.getFullContextWithAllElements(link));
+		
+		outerContext.addElement(textArea);
+		exp = "//*[@id=\'outerId\'][descendant-or-self::a[@href=\'linkHref\']][descendant-or-self::textarea[@name=\'textAreaName\']]";
+		assertEquals(exp, holder.getFullContextWithAllElements(outerContext));
+	}
+
 }
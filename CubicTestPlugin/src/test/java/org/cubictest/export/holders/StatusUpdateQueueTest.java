@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.holders;
+
+import static org.junit.Assert.assertEquals;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cubictest.model.PropertyAwareObject;
+import org.cubictest.model.TestPartStatus;
+import org.cubictest.model.Text;
+import org.junit.Test;
+
+/**
+ * Tests that status updates are collapsed and applied in order by the StatusUpdateQueue.
+ * 
+ * @author chr_schwarz
+ */
+public class StatusUpdateQueueTest {
+
+	private List<Object> changed = new ArrayList<Object>();
+	
+	@Test
+	public void testUpdatesAreAppliedOnFlush() {
+		StatusUpdateQueue queue = new StatusUpdateQueue(null);
+		Text text = createText("text");
+		queue.setStatus(text, TestPartStatus.PASS);
+		assertEquals(0, changed.size());
+		assertEquals(1, queue.getPendingCount());
+
+		queue.flush();
+		assertEquals(TestPartStatus.PASS, text.getStatus());
+		assertEquals(0, queue.getPendingCount());
+	}
+
+	@Test
+	public void testOnlyLastUpdateOfElementIsApplied() {
+		StatusUpdateQueue queue = new StatusUpdateQueue(null);
+		Text text = createText("text");
+		queue.setStatus(text, TestPartStatus.PASS);
+		queue.resetStatus(text);
+		queue.setStatus(text, TestPartStatus.FAIL);
+		queue.flush();
+		
+		assertEquals(TestPartStatus.FAIL, text.getStatus());
+		assertEquals(1, changed.size());
+	}
+
+	@Test
+	public void testElementsAreUpdatedInOrderOfLastUpdate() {
+		StatusUpdateQueue queue = new StatusUpdateQueue(null);
+		Text first = createText("first");
+		Text second = createText("second");
+		queue.setStatus(first, TestPartStatus.PASS);
+		queue.setStatus(second, TestPartStatus.PASS);
+		queue.setStatus(first, TestPartStatus.FAIL);
+		queue.flush();
+
+		assertEquals(2, changed.size());
+		assertEquals(second, changed.get(0));
+		assertEquals(first, changed.get(1));
+		assertEquals(TestPartStatus.FAIL, first.getStatus());
+	}
+
+	@Test
+	public void testNullElementIsIgnored() {
+		StatusUpdateQueue queue = new StatusUpdateQueue(null);
+		queue.setStatus(null, TestPartStatus.PASS);
+		assertEquals(0, queue.getPendingCount());
+		queue.flush();
+	}
+	
+	private Text createText(String description) {
+		final Text text = new Text();
+		text.setDescription(description);
+		text.addPropertyChangeListener(new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent evt) {
+				if (PropertyAwareObject.STATUS.equals(evt.getPropertyName())) {
+					changed.add(text);
+				}
+			}
+		});
+		return text;
+	}
+}
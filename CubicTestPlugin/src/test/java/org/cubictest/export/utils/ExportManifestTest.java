@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.export.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the export manifest detects changed input files, and the file helpers it uses.
+ * 
+ * @author chr_schwarz
+ */
+public class ExportManifestTest {
+
+	private File folder;
+	private File manifestFile;
+	private File testFile;
+	private File subTestFile;
+	private File outFile;
+	
+	@Before
+	public void setUp() throws IOException {
+		folder = File.createTempFile("manifest", "");
+		folder.delete();
+		folder.mkdir();
+		manifestFile = new File(folder, ".export-manifest.html");
+		testFile = new File(folder, "test.aat");
+		subTestFile = new File(folder, "sub.aat");
+		outFile = new File(folder, "test.html");
+		FileExportUtils.writeFile(testFile, "<test/>");
+		FileExportUtils.writeFile(subTestFile, "<subtest/>");
+		FileExportUtils.writeFile(outFile, "result");
+	}
+	
+	@After
+	public void tearDown() {
+		for (File file : folder.listFiles()) {
+			file.delete();
+		}
+		folder.delete();
+	}
+	
+	@Test
+	public void testUnchangedInputsAreUpToDate() throws IOException {
+		record("exporter");
+		ExportManifest manifest = new ExportManifest(manifestFile, "exporter");
+		manifest.load();
+		assertTrue(manifest.isUpToDate("test.aat", outFile));
+		assertFalse(manifest.isUpToDate("other.aat", outFile));
+	}
+
+	@Test
+	public void testChangedSubTestIsNotUpToDate() throws IOException {
+		record("exporter");
+		FileExportUtils.writeFile(subTestFile, "<subtest changed='true'/>");
+		ExportManifest manifest = new ExportManifest(manifestFile, "exporter");
+		manifest.load();
+		assertFalse(manifest.isUpToDate("test.aat", outFile));
+	}
+
+	@Test
+	public void testMissingOutputIsNotUpToDate() throws IOException {
+		record("exporter");
+		outFile.delete();
+		ExportManifest manifest = new ExportManifest(manifestFile, "exporter");
+		manifest.load();
+		assertFalse(manifest.isUpToDate("test.aat", outFile));
+	}
+
+	@Test
+	public void testChangedInputFiles() throws IOException {
+		record("exporter");
+		FileExportUtils.writeFile(subTestFile, "<subtest changed='true'/>");
+		ExportManifest manifest = new ExportManifest(manifestFile, "exporter");
+		manifest.load();
+		assertEquals(Arrays.asList(subTestFile.getAbsoluteFile()), manifest.getChangedInputFiles("test.aat"));
+		assertNull(manifest.getChangedInputFiles("other.aat"));
+	}
+
+	@Test
+	public void testStatusIsSaved() throws IOException {
+		ExportManifest manifest = new ExportManifest(manifestFile, "exporter");
+		manifest.setStatus("test.aat", "failed");
+		manifest.save();
+		manifest = new ExportManifest(manifestFile, "exporter");
+		manifest.load();
+		assertEquals("failed", manifest.getStatus("test.aat"));
+		manifest.remove("test.aat");
+		assertNull(manifest.getStatus("test.aat"));
+	}
+
+	@Test
+	public void testManifestOfOtherExporterIsNotUsed() throws IOException {
+		record("exporter");
+		ExportManifest manifest = new ExportManifest(manifestFile, "otherExporter");
+		manifest.load();
+		assertFalse(manifest.isUpToDate("test.aat", outFile));
+	}
+
+	@Test
+	public void testRemovedEntryIsNotUpToDate() throws IOException {
+		record("exporter");
+		ExportManifest manifest = new ExportManifest(manifestFile, "exporter");
+		manifest.load();
+		manifest.remove("test.aat");
+		assertFalse(manifest.isUpToDate("test.aat", outFile));
+	}
+	
+	@Test
+	public void testContentHash() throws IOException {
+		assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", hashOf(""));
+		assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", hashOf("abc"));
+		assertNull(FileExportUtils.getContentHash(new File(folder, "missing")));
+	}
+
+	@Test
+	public void testWriteFileLargerThanBuffer() throws IOException {
+		StringBuffer content = new StringBuffer();
+		for (int i = 0; i < 20000; i++) {
+			content.append("line ").append(i).append('\n');
+		}
+		FileExportUtils.writeFile(outFile, content.toString());
+		assertEquals(content.toString(), read(outFile));
+	}
+	
+	
+	private void record(String exporterId) throws IOException {
+		ExportManifest manifest = new ExportManifest(manifestFile, exporterId);
+		manifest.load();
+		manifest.setInputFiles("test.aat", Arrays.asList(testFile, subTestFile));
+		manifest.save();
+	}
+	
+	private String hashOf(String content) throws IOException {
+		File file = new File(folder, "hashed");
+		FileExportUtils.writeFile(file, content);
+		return FileExportUtils.getContentHash(file);
+	}
+
+	private String read(File file) throws IOException {
+		byte[] bytes = new byte[(int) file.length()];
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int read = 0;
+			while (read < bytes.length) {
+				read += in.read(bytes, read, bytes.length - read);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return new String(bytes);
+	}
+}
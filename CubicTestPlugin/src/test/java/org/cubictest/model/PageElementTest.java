@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cubictest.common.utils.CubicCloner;
+import org.cubictest.model.context.SimpleContext;
+import org.cubictest.model.formElement.Option;
+import org.cubictest.model.formElement.Select;
+import org.cubictest.model.formElement.TextField;
+import org.junit.Test;
+
+/**
+ * Tests the identifier lookups of page elements.
+ * 
+ * @author chr_schwarz
+ */
+public class PageElementTest {
+
+	@Test
+	public void testGetIdentifierByType() {
+		TextField field = new TextField();
+		for (Identifier id : field.getIdentifiers()) {
+			assertSame(id, field.getIdentifier(id.getType()));
+		}
+		assertNull(field.getIdentifier(IdentifierType.SRC));
+	}
+
+	@Test
+	public void testNonIndifferentIdentifiersFollowProbability() {
+		TextField field = new TextField();
+		field.setIdentifier(IdentifierType.ID, "myId", Identifier.MAX_PROBABILITY, false);
+		List<Identifier> before = field.getNonIndifferentIdentifierts();
+		assertTrue(before.contains(field.getIdentifier(IdentifierType.ID)));
+		assertSame(before, field.getNonIndifferentIdentifierts());
+		
+		field.getIdentifier(IdentifierType.ID).setProbability(Identifier.INDIFFERENT_PROBABILITY);
+		List<Identifier> after = field.getNonIndifferentIdentifierts();
+		assertEquals(before.size() - 1, after.size());
+		assertTrue(!after.contains(field.getIdentifier(IdentifierType.ID)));
+	}
+
+	@Test
+	public void testIdentifierIndexIsRebuiltWhenListChanges() {
+		TextField field = new TextField();
+		Identifier oldId = field.getIdentifier(IdentifierType.ID);
+		List<Identifier> identifiers = new ArrayList<Identifier>();
+		for (Identifier id : field.getIdentifiers()) {
+			Identifier copy = new Identifier();
+			copy.setType(id.getType());
+			copy.setProbability(id.getProbability());
+			identifiers.add(copy);
+		}
+		field.setIdentifiers(identifiers);
+		
+		Identifier newId = field.getIdentifier(IdentifierType.ID);
+		assertTrue(oldId != newId);
+		assertSame(identifiers.get(identifiers.indexOf(newId)), newId);
+		
+		//changes to identifiers no longer in the element must not affect it:
+		List<Identifier> nonIndifferent = field.getNonIndifferentIdentifierts();
+		oldId.setProbability(-Identifier.MAX_PROBABILITY);
+		assertSame(nonIndifferent, field.getNonIndifferentIdentifierts());
+	}
+
+	@Test
+	public void testIdentifierListenerIsRemovedFromAllIdentifiersOfType() {
+		TextField field = new TextField();
+		List<Identifier> identifiers = new ArrayList<Identifier>(field.getIdentifiers());
+		Identifier duplicate = new Identifier();
+		duplicate.setType(IdentifierType.ID);
+		duplicate.setProbability(Identifier.MAX_PROBABILITY);
+		identifiers.add(duplicate);
+		field.setIdentifiers(identifiers);
+		assertTrue(field.getIdentifier(IdentifierType.ID) != duplicate);
+		
+		field.setIdentifiers(new ArrayList<Identifier>(identifiers.subList(0, identifiers.size() - 1)));
+		
+		//changes to the second identifier of the type, which is no longer in the element, must not affect it:
+		List<Identifier> nonIndifferent = field.getNonIndifferentIdentifierts();
+		duplicate.setProbability(-Identifier.MAX_PROBABILITY);
+		assertSame(nonIndifferent, field.getNonIndifferentIdentifierts());
+	}
+
+	@Test
+	public void testCopyHasOwnIdentifierIndex() {
+		TextField field = new TextField();
+		field.setIdentifier(IdentifierType.ID, "myId", Identifier.MAX_PROBABILITY, false);
+		assertTrue(field.toString().contains("myId"));
+		
+		TextField copy = (TextField) CubicCloner.deepCopy(field);
+		Identifier copyId = copy.getIdentifier(IdentifierType.ID);
+		assertTrue(copyId != field.getIdentifier(IdentifierType.ID));
+		copyId.setProbability(Identifier.INDIFFERENT_PROBABILITY);
+		assertTrue(!copy.getNonIndifferentIdentifierts().contains(copyId));
+		assertTrue(field.getNonIndifferentIdentifierts().contains(field.getIdentifier(IdentifierType.ID)));
+	}
+
+	@Test
+	public void testEqualsModelIgnoresStatusAndActualValues() {
+		Link link1 = createLink("Home");
+		Link link2 = createLink("Home");
+		link1.setStatus(TestPartStatus.FAIL);
+		link1.getIdentifier(IdentifierType.LABEL).setActual("Home page");
+		assertTrue(link1.equalsModel(link2));
+		assertEquals(link1.modelHash(), link2.modelHash());
+		
+		link1.resetStatus();
+		link2.resetStatus();
+		assertTrue(link1.isEqualTo(link2));
+	}
+
+	@Test
+	public void testEqualsModelComparesModelData() {
+		Link link = createLink("Home");
+		assertFalse(link.equalsModel(createLink("About")));
+		assertFalse(link.equalsModel(null));
+		
+		Text text = new Text();
+		text.setIdentifier(IdentifierType.LABEL, "Home", Identifier.MAX_PROBABILITY, true);
+		assertFalse(link.equalsModel(text));
+		
+		Link notLink = createLink("Home");
+		notLink.setNot(true);
+		assertFalse(link.equalsModel(notLink));
+		
+		Link described = createLink("Home");
+		described.setDescription("The home link");
+		assertFalse(link.equalsModel(described));
+	}
+
+	@Test
+	public void testEqualsModelComparesChildElements() {
+		SimpleContext context1 = new SimpleContext();
+		context1.addElement(createLink("Home"));
+		SimpleContext context2 = new SimpleContext();
+		context2.addElement(createLink("Home"));
+		assertTrue(context1.equalsModel(context2));
+		assertEquals(context1.modelHash(), context2.modelHash());
+		
+		context2.addElement(createLink("About"));
+		assertFalse(context1.equalsModel(context2));
+	}
+
+	@Test
+	public void testEqualsModelOfOptionsComparesParentSelect() {
+		Select select1 = new Select();
+		select1.setIdentifier(IdentifierType.LABEL, "Country", Identifier.MAX_PROBABILITY, true);
+		Select select2 = new Select();
+		select2.setIdentifier(IdentifierType.LABEL, "Language", Identifier.MAX_PROBABILITY, true);
+		Option option1 = new Option();
+		option1.setIdentifier(IdentifierType.LABEL, "Norway", Identifier.MAX_PROBABILITY, true);
+		select1.addElement(option1);
+		Option option2 = (Option) CubicCloner.deepCopy(option1);
+		select2.addElement(option2);
+		assertFalse(option1.equalsModel(option2));
+		
+		select2.setIdentifier(IdentifierType.LABEL, "Country", Identifier.MAX_PROBABILITY, true);
+		assertTrue(option1.equalsModel(option2));
+		assertTrue(select1.equalsModel(select2));
+	}
+	
+	private Link createLink(String label) {
+		Link link = new Link();
+		link.setIdentifier(IdentifierType.LABEL, label, Identifier.MAX_PROBABILITY, true);
+		return link;
+	}
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cubictest.persistence.TestPersistance;
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.draw2d.geometry.Point;
+
+/**
+ * Tests the pages of a test and the dummy page used for scrolling in the editor.
+ * 
+ * @author chr_schwarz
+ */
+public class TestPagesTest {
+
+	@org.junit.Test
+	public void testPagesDoNotIncludeDummyPage() {
+		Test test = new Test();
+		Page page = createPage(test, 100);
+		AbstractPage dummy = test.getDummyPageForScrolling();
+		
+		assertEquals(1, test.getPages().size());
+		assertSame(page, test.getPages().get(0));
+		assertFalse(test.getPages().contains(dummy));
+		assertSame(test.getPages(), test.getPages());
+		assertSame(dummy, test.getDummyPageForScrolling());
+	}
+
+	@org.junit.Test
+	public void testDummyPageFollowsLowestNode() {
+		Test test = new Test();
+		Page page1 = createPage(test, 100);
+		Page page2 = createPage(test, 200);
+		AbstractPage dummy = test.getDummyPageForScrolling();
+		assertEquals(500, dummy.getPosition().y);
+		
+		page1.setPosition(new Point(0, 400));
+		assertEquals(700, dummy.getPosition().y);
+		
+		page1.setPosition(new Point(0, 50));
+		assertEquals(500, dummy.getPosition().y);
+		
+		Page page3 = createPage(test, 600);
+		assertEquals(900, dummy.getPosition().y);
+		
+		test.removePage(page3);
+		assertEquals(500, dummy.getPosition().y);
+		
+		test.removePage(page2);
+		page2.setPosition(new Point(0, 1000));
+		assertEquals(350, dummy.getPosition().y);
+	}
+
+	@org.junit.Test
+	public void testDummyPageDoesNotFollowReplacedPages() {
+		Test test = new Test();
+		Page oldPage = createPage(test, 100);
+		AbstractPage dummy = test.getDummyPageForScrolling();
+		
+		Page newPage = new Page();
+		newPage.setPosition(new Point(0, 200));
+		test.setPages(new ArrayList<AbstractPage>(Arrays.asList(newPage)));
+		assertEquals(500, dummy.getPosition().y);
+		
+		oldPage.setPosition(new Point(0, 1000));
+		assertEquals(500, dummy.getPosition().y);
+		newPage.setPosition(new Point(0, 300));
+		assertEquals(600, dummy.getPosition().y);
+	}
+
+	@org.junit.Test
+	public void testSavedDummyPageIsDroppedOnLoad() throws Exception {
+		Test test = new Test();
+		createPage(test, 100);
+		Page emptyPage = createPage(test, 200);
+		//saved by older versions of CubicTest:
+		Page savedDummy = createPage(test, 500);
+		savedDummy.setDimension(new Dimension(0, 0));
+		
+		File file = File.createTempFile("TestPagesTest", ".aat");
+		try {
+			TestPersistance.saveToFile(test, file);
+			List<AbstractPage> pages = TestPersistance.loadFromFile(file, null).getPages();
+			assertEquals(2, pages.size());
+			assertEquals(emptyPage.getPosition(), pages.get(1).getPosition());
+		}
+		finally {
+			file.delete();
+		}
+	}
+	
+	private Page createPage(Test test, int y) {
+		Page page = new Page();
+		page.setPosition(new Point(0, y));
+		test.addPage(page);
+		return page;
+	}
+}
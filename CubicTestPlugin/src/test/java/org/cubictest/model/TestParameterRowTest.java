@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import org.cubictest.model.formElement.TextField;
+import org.cubictest.model.parameterization.Parameter;
+import org.cubictest.model.parameterization.ParameterList;
+
+/**
+ * Tests binding parameter rows to copies of a test.
+ * 
+ * @author chr_schwarz
+ */
+public class TestParameterRowTest {
+
+	@org.junit.Test
+	public void testRowCopyIsBoundToRow() {
+		Test test = createParameterizedTest("first", "second", "third");
+		
+		Test copy = test.getParameterRowCopy(2);
+		assertNotSame(test, copy);
+		assertEquals(2, copy.getParamList().getParameterIndex());
+		assertEquals("third", getIdentifier(copy).getValue());
+	}
+
+	@org.junit.Test
+	public void testRowCopiesDoNotChangeOriginalOrEachOther() {
+		Test test = createParameterizedTest("first", "second", "third");
+		
+		Test copy1 = test.getParameterRowCopy(1);
+		Test copy2 = test.getParameterRowCopy(2);
+		
+		assertEquals(0, test.getParamList().getParameterIndex());
+		assertEquals("first", getIdentifier(test).getValue());
+		assertEquals("second", getIdentifier(copy1).getValue());
+		assertEquals("third", getIdentifier(copy2).getValue());
+		
+		copy1.getParamList().setParameterIndex(0);
+		assertEquals("first", getIdentifier(copy1).getValue());
+		assertEquals("third", getIdentifier(copy2).getValue());
+	}
+
+	@org.junit.Test(expected = IllegalArgumentException.class)
+	public void testRowOutOfRangeIsRejected() {
+		Test test = createParameterizedTest("first");
+		test.getParameterRowCopy(1);
+	}
+
+	@org.junit.Test(expected = IllegalArgumentException.class)
+	public void testTestWithoutParametersIsRejected() {
+		new Test().getParameterRowCopy(0);
+	}
+	
+	private Test createParameterizedTest(String... values) {
+		Test test = new Test();
+		Page page = new Page();
+		TextField field = new TextField();
+		page.addElement(field);
+		test.addPage(page);
+		
+		Identifier identifier = field.getIdentifier(IdentifierType.ID);
+		identifier.setUseParam(true);
+		identifier.setParamKey("username");
+		
+		Parameter param = new Parameter();
+		param.setHeader("username");
+		for (String value : values) {
+			param.addParameterInput(value);
+		}
+		param.addObserver(identifier);
+		ParameterList paramList = new ParameterList();
+		paramList.addParameter(param);
+		test.setParamList(paramList);
+		paramList.setParameterIndex(0);
+		return test;
+	}
+
+	private Identifier getIdentifier(Test test) {
+		Page page = (Page) test.getPages().get(0);
+		return page.getRootElements().get(0).getIdentifier(IdentifierType.ID);
+	}
+}
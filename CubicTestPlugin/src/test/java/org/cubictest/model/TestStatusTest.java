@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.cubictest.common.utils.ModelUtil;
+import org.cubictest.model.context.SimpleContext;
+import org.junit.Before;
+
+/**
+ * Tests the status aggregation of tests, with the status counters of pages and the reachability index.
+ * 
+ * @author chr_schwarz
+ */
+public class TestStatusTest {
+
+	private Test test;
+	private Page page1;
+	private Page page2;
+	private Page page3;
+	private Text text1;
+	private Text text2;
+	private Text text3;
+	
+	@Before
+	public void setUp() {
+		test = new Test();
+		UrlStartPoint startPoint = new UrlStartPoint();
+		test.setStartPoint(startPoint);
+		page1 = createPage("Page 1");
+		page2 = createPage("Page 2");
+		page3 = createPage("Page 3");
+		test.addTransition(new SimpleTransition(startPoint, page1));
+		test.addTransition(new UserInteractionsTransition(page1, page2));
+		test.addTransition(new UserInteractionsTransition(page1, page3));
+		
+		text1 = new Text();
+		page1.addElement(text1);
+		SimpleContext context = new SimpleContext();
+		page2.addElement(context);
+		text2 = new Text();
+		context.addElement(text2);
+		text3 = new Text();
+		page3.addElement(text3);
+		test.resetStatus();
+	}
+
+	@org.junit.Test
+	public void testPageCounterFollowsElementStatus() {
+		StatusCounter counter = page2.getElementStatusCounter();
+		assertEquals(2, counter.getTotal());
+		assertEquals(2, counter.getCount(TestPartStatus.UNKNOWN));
+		
+		text2.setStatus(TestPartStatus.FAIL);
+		assertSame(counter, page2.getElementStatusCounter());
+		assertEquals(1, counter.getCount(TestPartStatus.UNKNOWN));
+		assertEquals(1, counter.getCount(TestPartStatus.FAIL));
+	}
+
+	@org.junit.Test
+	public void testPageCounterIsRebuiltWhenElementsChange() {
+		StatusCounter counter = page2.getElementStatusCounter();
+		SimpleContext context = (SimpleContext) page2.getRootElements().get(0);
+		Text text = new Text();
+		text.setStatus(TestPartStatus.PASS);
+		context.addElement(text);
+		assertFalse(counter.isValid());
+		
+		counter = page2.getElementStatusCounter();
+		assertEquals(3, counter.getTotal());
+		assertEquals(1, counter.getCount(TestPartStatus.PASS));
+	}
+
+	@org.junit.Test
+	public void testAggregatedStatus() {
+		assertEquals(TestPartStatus.UNKNOWN, test.updateAndGetStatus(null));
+		text1.setStatus(TestPartStatus.PASS);
+		assertEquals(TestPartStatus.WARN, test.updateAndGetStatus(null));
+		text2.setStatus(TestPartStatus.EXCEPTION);
+		assertEquals(TestPartStatus.EXCEPTION, test.updateAndGetStatus(null));
+		
+		for (PageElement pe : page2.getFlattenedElements()) {
+			pe.setStatus(TestPartStatus.PASS);
+		}
+		text3.setStatus(TestPartStatus.PASS);
+		assertEquals(TestPartStatus.PASS, test.updateAndGetStatus(null));
+	}
+
+	@org.junit.Test
+	public void testAggregatedStatusOnPathToTarget() {
+		text1.setStatus(TestPartStatus.PASS);
+		for (PageElement pe : page2.getFlattenedElements()) {
+			pe.setStatus(TestPartStatus.PASS);
+		}
+		text3.setStatus(TestPartStatus.FAIL);
+		ExtensionPoint target = new ExtensionPoint();
+		test.addExtensionPoint(target);
+		test.addTransition(new SimpleTransition(page2, target));
+		assertEquals(TestPartStatus.PASS, test.updateAndGetStatus(target));
+		assertEquals(TestPartStatus.WARN, test.updateAndGetStatus(null));
+	}
+
+	@org.junit.Test
+	public void testReachabilityIndexGivesSameResultAsModelUtil() {
+		TransitionNode[] nodes = {test.getStartPoint(), page1, page2, page3};
+		ReachabilityIndex index = test.getReachabilityIndex();
+		for (TransitionNode node : nodes) {
+			for (TransitionNode target : nodes) {
+				assertEquals(ModelUtil.isOnPathToNode(node, target), index.isOnPathToNode(node, target));
+			}
+		}
+		assertTrue(index.isOnPathToNode(page1, page3));
+		assertFalse(index.isOnPathToNode(page2, page3));
+	}
+
+	@org.junit.Test
+	public void testReachabilityIndexIsRebuiltWhenTransitionsChange() {
+		ReachabilityIndex index = test.getReachabilityIndex();
+		assertSame(index, test.getReachabilityIndex());
+		
+		Page page4 = createPage("Page 4");
+		test.addTransition(new UserInteractionsTransition(page3, page4));
+		assertFalse(index.isUpToDate());
+		index = test.getReachabilityIndex();
+		assertTrue(index.isUpToDate());
+		assertTrue(index.isOnPathToNode(page1, page4));
+		assertFalse(index.isOnPathToNode(page2, page4));
+	}
+	
+	private Page createPage(String name) {
+		Page page = new Page();
+		page.setName(name);
+		test.addPage(page);
+		return page;
+	}
+}
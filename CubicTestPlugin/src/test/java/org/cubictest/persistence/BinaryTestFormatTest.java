@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.cubictest.model.Test;
+import org.cubictest.model.Transition;
+import org.cubictest.testutils.TestFixtures;
+import org.junit.After;
+import org.junit.Before;
+
+public class BinaryTestFormatTest {
+
+	private File dir;
+	private File file;
+	private BinaryTestCache binaryCache = BinaryTestCache.getInstance();
+	private boolean wasEnabled;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = File.createTempFile("BinaryTestFormatTest", "");
+		dir.delete();
+		dir.mkdirs();
+		file = new File(dir, "test.aat");
+		wasEnabled = binaryCache.isEnabled();
+		binaryCache.setEnabled(true);
+		ParsedTestCache.getInstance().clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		binaryCache.setEnabled(wasEnabled);
+		ParsedTestCache.getInstance().clear();
+		FileUtils.deleteDirectory(dir);
+	}
+
+	@org.junit.Test
+	public void testTestFilesGiveSameXmlAfterRoundTrip() throws IOException {
+		//do not leave cache files next to the test resources:
+		binaryCache.setEnabled(false);
+		File fixtures = new File("src/test/resources/org/cubictest/common/converters");
+		int numFiles = 0;
+		for (File fixture : fixtures.listFiles()) {
+			if (fixture.getName().endsWith(".aat")) {
+				Test test = TestPersistance.loadFromFile(fixture, null);
+				String xml = CubicTestSerializer.toXML(test);
+				assertEquals(fixture.getName(), xml, CubicTestSerializer.toXML(roundTrip(test, 1L, 2L)));
+				numFiles++;
+			}
+		}
+		assertTrue(numFiles > 0);
+	}
+
+	@org.junit.Test
+	public void testSharedReferencesAreKept() throws IOException {
+		Test test = TestFixtures.createTest("Binary test", 1, 1);
+		Test copy = roundTrip(test, 1L, 2L);
+
+		Transition firstTransition = copy.getStartPoint().getOutTransitions().get(0);
+		assertSame(copy.getStartPoint(), firstTransition.getStart());
+		assertSame(firstTransition, firstTransition.getEnd().getInTransition());
+		assertSame(copy.getPages().get(1), copy.getPages().get(0).getOutTransitions().get(0).getEnd());
+		assertEquals(test.getPages().get(1).getPosition(), copy.getPages().get(1).getPosition());
+	}
+
+	@org.junit.Test
+	public void testDataFromOtherVersionOfFileIsNotRead() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryTestFormat.write(TestFixtures.createTest("Binary test", 1, 1), 1L, 2L, out);
+
+		assertNull(BinaryTestFormat.read(new ByteArrayInputStream(out.toByteArray()), 3L, 2L));
+		assertNull(BinaryTestFormat.read(new ByteArrayInputStream(out.toByteArray()), 1L, 3L));
+	}
+
+	@org.junit.Test
+	public void testUnchangedFileIsReadFromCacheFile() throws IOException {
+		saveTest("CachedTest");
+		TestPersistance.loadFromFile(file, null);
+		assertTrue(BinaryTestCache.getCacheFile(file).isFile());
+
+		//replace the XML with garbage of the same size and time stamp, which can only be loaded from the cache file:
+		long lastModified = file.lastModified();
+		char[] garbage = new char[(int) file.length()];
+		Arrays.fill(garbage, 'x');
+		FileUtils.writeStringToFile(file, new String(garbage), "ISO-8859-1");
+		file.setLastModified(lastModified);
+		ParsedTestCache.getInstance().clear();
+
+		assertEquals("CachedTest", TestPersistance.loadFromFile(file, null).getName());
+	}
+
+	@org.junit.Test
+	public void testChangedFileIsParsed() throws IOException {
+		saveTest("CachedTest");
+		TestPersistance.loadFromFile(file, null);
+
+		String xml = FileUtils.readFileToString(file).replace("CachedTest", "ChangedOnDisk");
+		FileUtils.writeStringToFile(file, xml);
+		ParsedTestCache.getInstance().clear();
+
+		assertEquals("ChangedOnDisk", TestPersistance.loadFromFile(file, null).getName());
+	}
+
+	@org.junit.Test
+	public void testSavingRemovesCacheFile() {
+		saveTest("CachedTest");
+		TestPersistance.loadFromFile(file, null);
+
+		saveTest("SavedTest");
+		assertFalse(BinaryTestCache.getCacheFile(file).exists());
+	}
+
+	@org.junit.Test
+	public void testCorruptCacheFileIsIgnored() throws IOException {
+		saveTest("CachedTest");
+		TestPersistance.loadFromFile(file, null);
+		FileUtils.writeStringToFile(BinaryTestCache.getCacheFile(file), "corrupt");
+		ParsedTestCache.getInstance().clear();
+
+		assertEquals("CachedTest", TestPersistance.loadFromFile(file, null).getName());
+	}
+
+	private Test roundTrip(Test test, long lastModified, long length) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryTestFormat.write(test, lastModified, length, out);
+		return (Test) BinaryTestFormat.read(new ByteArrayInputStream(out.toByteArray()), lastModified, length);
+	}
+
+	private void saveTest(String name) {
+		Test test = new Test();
+		test.setName(name);
+		TestPersistance.saveToFile(test, file);
+	}
+}
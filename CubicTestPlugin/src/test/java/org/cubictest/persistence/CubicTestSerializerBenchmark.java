@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Load and save throughput of the test XML on the sample tests of CubicShopTest. 
+ * Compares a new CubicTestXStream per operation (as persistence used to do) with the shared CubicTestSerializer.
+ * <p>
+ * Not a unit test. Run as a Java application from the CubicTestPlugin directory: 
+ * <code>CubicTestSerializerBenchmark [test directory] [iterations]</code>
+ * 
+ * @author Christian Schwarz
+ */
+public class CubicTestSerializerBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		File dir = new File(args.length > 0 ? args[0] : "../CubicShopTest/tests");
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		
+		List<String> xmls = new ArrayList<String>();
+		Collection<?> files = FileUtils.listFiles(dir, new String[] {"aat"}, true);
+		for (Object file : files) {
+			String xml = FileUtils.readFileToString((File) file, TestPersistance.getCharset((File) file));
+			xmls.add(LegacyUpgrade.upgradeIfNecessary(xml, null));
+		}
+		List<Object> tests = new ArrayList<Object>();
+		for (String xml : xmls) {
+			tests.add(CubicTestSerializer.fromXML(xml));
+		}
+		
+		for (int round = 1; round <= 3; round++) {
+			System.out.println("Round " + round + " (" + iterations + " x " + xmls.size() + " tests):");
+			report("load, new XStream per test", iterations * xmls.size(), loadWithNewXStream(xmls, iterations));
+			report("load, shared serializer", iterations * xmls.size(), loadShared(xmls, iterations));
+			report("save, new XStream per test", iterations * tests.size(), saveWithNewXStream(tests, iterations));
+			report("save, shared serializer", iterations * tests.size(), saveShared(tests, iterations));
+		}
+	}
+	
+	private static void report(String name, int operations, long nanos) {
+		System.out.println("  " + name + ": " + (nanos / 1000 / operations) + " us/test, " + 
+				(operations * 1000000000L / nanos) + " tests/s");
+	}
+	
+	
+	private static long loadWithNewXStream(List<String> xmls, int iterations) {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			for (String xml : xmls) {
+				new CubicTestXStream().fromXML(xml);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+	
+	private static long loadShared(List<String> xmls, int iterations) {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			for (String xml : xmls) {
+				CubicTestSerializer.fromXML(xml);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+	
+	private static long saveWithNewXStream(List<Object> tests, int iterations) {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			for (Object test : tests) {
+				new CubicTestXStream().toXML(test);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+	
+	private static long saveShared(List<Object> tests, int iterations) {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			for (Object test : tests) {
+				CubicTestSerializer.toXML(test);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+}
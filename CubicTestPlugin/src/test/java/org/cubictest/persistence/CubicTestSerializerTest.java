@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cubictest.model.Test;
+import org.cubictest.testutils.TestFixtures;
+
+public class CubicTestSerializerTest {
+
+	@org.junit.Test
+	public void testSharedSerializerGivesSameXmlAsNewXStream() {
+		Test test = TestFixtures.createTest("Serializer test", 10, 1);
+		assertEquals(new CubicTestXStream().toXML(test), CubicTestSerializer.toXML(test));
+	}
+
+	@org.junit.Test
+	public void testConcurrentRoundTripsGiveSameXml() throws Exception {
+		final Test test = TestFixtures.createTest("Serializer test", 50, 1);
+		final String expected = CubicTestSerializer.toXML(test);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 32; i++) {
+				results.add(executor.submit(new Callable<String>() {
+					public String call() throws Exception {
+						return CubicTestSerializer.toXML(CubicTestSerializer.fromXML(expected));
+					}
+				}));
+			}
+			for (Future<String> result : results) {
+				assertEquals(expected, result.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -11,14 +11,38 @@
 package org.cubictest.persistence;
 
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+import org.cubictest.model.ModelInfo;
+import org.eclipse.core.resources.IProject;
+import org.junit.After;
 import org.junit.Before;
 
 public class LegacyUpgradeTest {
 
+	private File dir;
+
 	@Before
 	public void setUp() throws Exception {
+		dir = File.createTempFile("LegacyUpgradeTest", "");
+		dir.delete();
+		dir.mkdirs();
+		ParsedTestCache.getInstance().clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ParsedTestCache.getInstance().clear();
+		FileUtils.deleteDirectory(dir);
 	}
 
 	@org.junit.Test
@@ -35,4 +59,55 @@ public class LegacyUpgradeTest {
 			}
 		}
 	}
+
+	@org.junit.Test
+	public void testUpgradeFilesInPlaceRewritesOldTestOnce() throws Exception {
+		File file = new File(dir, "NotConvertedInto5.aat");
+		FileUtils.copyFile(new File("src/test/resources/org/cubictest/persistence/NotConvertedInto5.aat"), file);
+		List<File> files = Arrays.asList(file);
+
+		IProject project = createProject("CubicShopTest");
+
+		assertEquals(1, LegacyUpgrade.upgradeFilesInPlace(files, project));
+		String upgraded = FileUtils.readFileToString(file, TestPersistance.getCharset(file));
+		assertTrue(upgraded.contains("<modelVersion>" + ModelInfo.getCurrentModelVersion() + "</modelVersion>"));
+
+		//the test is now current, so a second run leaves it as it is:
+		long lastModified = file.lastModified();
+		assertEquals(0, LegacyUpgrade.upgradeFilesInPlace(files, project));
+		assertEquals(upgraded, FileUtils.readFileToString(file, TestPersistance.getCharset(file)));
+		assertEquals(lastModified, file.lastModified());
+	}
+
+	@org.junit.Test
+	public void testUpgradeFilesInPlaceSkipsTestOlderThan6WithoutProject() throws Exception {
+		File file = new File(dir, "NotConvertedInto5.aat");
+		FileUtils.copyFile(new File("src/test/resources/org/cubictest/persistence/NotConvertedInto5.aat"), file);
+		String original = FileUtils.readFileToString(file, TestPersistance.getCharset(file));
+
+		assertEquals(0, LegacyUpgrade.upgradeFilesInPlace(Arrays.asList(file), null));
+		assertEquals(original, FileUtils.readFileToString(file, TestPersistance.getCharset(file)));
+	}
+
+	@org.junit.Test
+	public void testUpgradeFilesInPlaceContinuesAfterBrokenTest() throws Exception {
+		File broken = new File(dir, "Broken.aat");
+		FileUtils.writeStringToFile(broken, "<test><modelVersion>9</modelVersion><startPoint", "UTF-8");
+		File file = new File(dir, "NotConvertedInto5.aat");
+		FileUtils.copyFile(new File("src/test/resources/org/cubictest/persistence/NotConvertedInto5.aat"), file);
+
+		assertEquals(1, LegacyUpgrade.upgradeFilesInPlace(Arrays.asList(broken, file), createProject("CubicShopTest")));
+	}
+
+	private IProject createProject(final String name) {
+		return (IProject) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {IProject.class},
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getName")) {
+							return name;
+						}
+						return null;
+					}
+				});
+	}
 }
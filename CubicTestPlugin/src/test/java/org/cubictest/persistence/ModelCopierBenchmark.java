@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import org.cubictest.model.Test;
+import org.cubictest.testutils.TestFixtures;
+
+/**
+ * Copy throughput of tests and pages with many elements.
+ * Compares the XStream round trip (as CubicCloner used to do) with the ModelCopier.
+ * <p>
+ * Not a unit test. Run as a Java application from the CubicTestPlugin directory: 
+ * <code>ModelCopierBenchmark [pages] [elements per page] [iterations]</code>
+ * 
+ * @author Christian Schwarz
+ */
+public class ModelCopierBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int numPages = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int numElementsPerPage = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		
+		Test test = TestFixtures.createTest("Copier benchmark", numPages, numElementsPerPage);
+		Object page = test.getPages().get(1);
+		
+		for (int round = 1; round <= 3; round++) {
+			System.out.println("Round " + round + " (" + iterations + " copies of " + numPages + " pages with " + 
+					numElementsPerPage + " texts and links):");
+			report("test, XStream round trip", iterations, xStreamRoundTrip(test, iterations));
+			report("test, model copier", iterations, modelCopier(test, iterations));
+			report("page, XStream round trip", iterations, xStreamRoundTrip(page, iterations));
+			report("page, model copier", iterations, modelCopier(page, iterations));
+		}
+	}
+	
+	private static void report(String name, int operations, long nanos) {
+		System.out.println("  " + name + ": " + (nanos / 1000 / operations) + " us/copy");
+	}
+	
+	private static long xStreamRoundTrip(Object obj, int iterations) {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			CubicTestSerializer.fromXML(CubicTestSerializer.toXML(obj));
+		}
+		return System.nanoTime() - start;
+	}
+	
+	private static long modelCopier(Object obj, int iterations) {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			ModelCopier.deepCopy(obj);
+		}
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.cubictest.common.utils.CubicCloner;
+import org.cubictest.model.AbstractPage;
+import org.cubictest.model.SimpleTransition;
+import org.cubictest.model.SubTest;
+import org.cubictest.model.Test;
+import org.cubictest.model.Transition;
+import org.cubictest.testutils.TestFixtures;
+import org.eclipse.core.resources.IProject;
+
+public class ModelCopierTest {
+
+	@org.junit.Test
+	public void testCopyGivesSameXmlAsXStreamRoundTrip() {
+		Test test = TestFixtures.createTest("Copier test", 20, 10);
+		assertEquals(xStreamRoundTrip(test), CubicTestSerializer.toXML(CubicCloner.deepCopy(test)));
+	}
+
+	@org.junit.Test
+	public void testCopyOfPageWithThousandsOfElementsGivesSameXml() {
+		Test test = TestFixtures.createTest("Copier test", 3, 5000);
+		assertEquals(xStreamRoundTrip(test), CubicTestSerializer.toXML(CubicCloner.deepCopy(test)));
+	}
+
+	@org.junit.Test
+	public void testCopiesOfTestFilesGiveSameXml() {
+		File dir = new File("src/test/resources/org/cubictest/common/converters");
+		int numFiles = 0;
+		for (File file : dir.listFiles()) {
+			if (file.getName().endsWith(".aat")) {
+				Test test = TestPersistance.loadFromFile(file, null);
+				assertEquals(file.getName(), xStreamRoundTrip(test), CubicTestSerializer.toXML(CubicCloner.deepCopy(test)));
+				numFiles++;
+			}
+		}
+		assertTrue(numFiles > 0);
+	}
+
+	@org.junit.Test
+	public void testSharedReferencesAreKept() {
+		Test test = TestFixtures.createTest("Copier test", 5, 3);
+		Test copy = (Test) CubicCloner.deepCopy(test);
+		
+		assertNotSame(test, copy);
+		assertNotSame(test.getStartPoint(), copy.getStartPoint());
+		Transition firstTransition = copy.getStartPoint().getOutTransitions().get(0);
+		assertSame(copy.getStartPoint(), firstTransition.getStart());
+		assertSame(firstTransition, firstTransition.getEnd().getInTransition());
+		assertTrue(copy.getTransitions().contains(firstTransition));
+		for (AbstractPage page : copy.getPages()) {
+			assertTrue(test.getPages().indexOf(page) < 0);
+			if (page.hasInTransition()) {
+				assertSame(page, page.getInTransition().getEnd());
+			}
+		}
+	}
+
+	@org.junit.Test
+	public void testProjectOfSubTestsIsKept() {
+		IProject project = (IProject) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {IProject.class},
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						return null;
+					}
+				});
+		Test test = TestFixtures.createTest("Copier test", 1, 1);
+		SubTest subTest = new SubTest("/project/tests/sub.aat", project);
+		test.addTransition(new SimpleTransition(test.getStartPoint().getFirstSuccessor(), subTest));
+		test.addSubTest(subTest);
+
+		SubTest copy = ((Test) CubicCloner.deepCopy(test)).getSubTests().get(0);
+		assertNotSame(subTest, copy);
+		assertSame(project, copy.getProject());
+		assertSame(project, ((SubTest) CubicCloner.deepCopy(subTest)).getProject());
+	}
+
+	private String xStreamRoundTrip(Object obj) {
+		return CubicTestSerializer.toXML(CubicTestSerializer.fromXML(CubicTestSerializer.toXML(obj)));
+	}
+}
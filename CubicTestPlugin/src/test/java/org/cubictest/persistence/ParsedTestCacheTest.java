@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParsedTestCacheTest {
+
+	private File file;
+	private ParsedTestCache cache = ParsedTestCache.getInstance();
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("CachedTest", ".aat");
+		cache.clear();
+		cache.resetCounters();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+	}
+
+	@Test
+	public void testSecondLoadIsCopiedFromCache() {
+		saveTest("CachedTest");
+
+		org.cubictest.model.Test first = TestPersistance.loadFromFile(file, null);
+		org.cubictest.model.Test second = TestPersistance.loadFromFile(file, null);
+
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+		assertEquals("CachedTest", second.getName());
+		assertNotSame(first, second);
+	}
+
+	@Test
+	public void testChangesToLoadedTestAreNotCached() {
+		saveTest("CachedTest");
+
+		TestPersistance.loadFromFile(file, null).setName("Changed");
+		
+		assertEquals("CachedTest", TestPersistance.loadFromFile(file, null).getName());
+	}
+
+	@Test
+	public void testSavedTestIsReloaded() {
+		saveTest("CachedTest");
+		TestPersistance.loadFromFile(file, null);
+
+		saveTest("SavedTest");
+
+		assertEquals("SavedTest", TestPersistance.loadFromFile(file, null).getName());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testFileChangedOutsideCubicTestIsReloaded() throws IOException {
+		saveTest("CachedTest");
+		TestPersistance.loadFromFile(file, null);
+
+		String xml = FileUtils.readFileToString(file).replace("CachedTest", "ChangedOnDisk");
+		FileUtils.writeStringToFile(file, xml);
+		
+		assertEquals("ChangedOnDisk", TestPersistance.loadFromFile(file, null).getName());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws IOException {
+		ParsedTestCache smallCache = new ParsedTestCache(2);
+		File other = File.createTempFile("OtherTest", ".aat");
+		File third = File.createTempFile("ThirdTest", ".aat");
+		try {
+			smallCache.put(ParsedTestCache.getFileStamp(file), new org.cubictest.model.Test());
+			smallCache.put(ParsedTestCache.getFileStamp(other), new org.cubictest.model.Test());
+			assertNotNull(smallCache.get(ParsedTestCache.getFileStamp(file)));
+
+			smallCache.put(ParsedTestCache.getFileStamp(third), new org.cubictest.model.Test());
+
+			assertEquals(2, smallCache.size());
+			assertNull(smallCache.get(ParsedTestCache.getFileStamp(other)));
+			assertNotNull(smallCache.get(ParsedTestCache.getFileStamp(file)));
+		}
+		finally {
+			other.delete();
+			third.delete();
+		}
+	}
+
+	private void saveTest(String name) {
+		org.cubictest.model.Test test = new org.cubictest.model.Test();
+		test.setName(name);
+		TestPersistance.saveToFile(test, file);
+	}
+}
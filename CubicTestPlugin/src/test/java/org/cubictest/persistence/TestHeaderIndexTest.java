@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.cubictest.model.CustomTestStepHolder;
+import org.cubictest.model.ExtensionPoint;
+import org.cubictest.model.ExtensionTransition;
+import org.cubictest.model.Identifier;
+import org.cubictest.model.IdentifierType;
+import org.cubictest.model.Page;
+import org.cubictest.model.PropertyAwareObject;
+import org.cubictest.model.SimpleTransition;
+import org.cubictest.model.SubTest;
+import org.cubictest.model.Test;
+import org.cubictest.model.TestDependencies;
+import org.cubictest.model.TestDependencies.ExtensionPointUse;
+import org.cubictest.model.TestHeader;
+import org.cubictest.model.TestHeader.ExtensionPointHeader;
+import org.cubictest.model.UrlStartPoint;
+import org.cubictest.model.formElement.TextField;
+import org.cubictest.model.parameterization.Parameter;
+import org.cubictest.model.parameterization.ParameterList;
+import org.cubictest.testutils.TestFixtures;
+import org.junit.After;
+import org.junit.Before;
+
+public class TestHeaderIndexTest {
+
+	private File file;
+	private TestHeaderIndex index = TestHeaderIndex.getInstance();
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("HeaderTest", ".aat");
+		index.clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+	}
+
+	@org.junit.Test
+	public void testHeadersOfTestFilesMatchLoadedTests() {
+		File dir = new File("src/test/resources/org/cubictest/common/converters");
+		int numExtensionPoints = 0;
+		for (File fixture : dir.listFiles()) {
+			if (fixture.getName().endsWith(".aat")) {
+				Test test = TestPersistance.loadFromFile(fixture, null);
+				if (!(test.getStartPoint() instanceof UrlStartPoint)) {
+					//extension start points refer to tests in a workspace
+					continue;
+				}
+				//save in the current model version, as older tests are loaded in full to be upgraded:
+				TestPersistance.saveToFile(test, file);
+
+				TestHeader expected = TestHeader.fromTest(TestPersistance.loadFromFile(file, null));
+				TestHeader header = TestPersistance.loadHeaderFromFile(file, null);
+				assertHeadersEqual(fixture.getName(), expected, header);
+				numExtensionPoints += header.getExtensionPoints().size();
+			}
+		}
+		assertTrue(numExtensionPoints > 0);
+	}
+
+	@org.junit.Test
+	public void testHeaderOfLegacyTestIsTakenFromUpgradedTest() {
+		File legacy = new File("src/test/resources/org/cubictest/common/converters/SimpleTreeExtensionPoint.aat");
+		TestHeader expected = TestHeader.fromTest(TestPersistance.loadFromFile(legacy, null));
+		assertHeadersEqual(legacy.getName(), expected, TestPersistance.loadHeaderFromFile(legacy, null));
+	}
+
+	@org.junit.Test
+	public void testParamsConfigured() {
+		Test test = createTest("Params test");
+		TextField field = (TextField) ((Page) test.getPages().get(0)).getRootElements().get(0);
+		Identifier identifier = field.getIdentifier(IdentifierType.ID);
+		identifier.setUseParam(true);
+		identifier.setParamKey("user");
+		Parameter param = new Parameter();
+		param.setHeader("user");
+		param.addParameterInput("first");
+		param.addObserver(identifier);
+		ParameterList paramList = new ParameterList();
+		paramList.addParameter(param);
+		test.setParamList(paramList);
+		TestPersistance.saveToFile(test, file);
+
+		TestHeader header = TestPersistance.loadHeaderFromFile(file, null);
+		assertTrue(header.hasParamsConfigured());
+		assertFalse(header.hasI18nConfigured());
+
+		param.removeObserver(identifier);
+		TestPersistance.saveToFile(test, file);
+		assertFalse(TestPersistance.loadHeaderFromFile(file, null).hasParamsConfigured());
+	}
+
+	@org.junit.Test
+	public void testDependencies() {
+		Test test = createTest("Dependencies test");
+		Page page = (Page) test.getPages().get(0);
+
+		Test extendedTest = createTest("Extended test");
+		ExtensionPoint extensionPoint = extendedTest.getExtensionPoints().get(0);
+		SubTest subTest = new SubTest("tests/sub.aat", null);
+		test.addSubTest(subTest);
+		Page afterSubTest = new Page();
+		test.addPage(afterSubTest);
+		test.addTransition(new ExtensionTransition(subTest, afterSubTest, extensionPoint));
+		test.addSubTest(new SubTest("tests/other.aat", null));
+		test.addCustomTestStep(new CustomTestStepHolder("steps/login.custom", null));
+		test.addTransition(new SimpleTransition(page, test.getCustomTestSteps().get(0)));
+		ParameterList paramList = new ParameterList();
+		paramList.setFileName("/project/params/users.params");
+		test.setParamList(paramList);
+		TestPersistance.saveToFile(test, file);
+
+		TestDependencies dependencies = TestPersistance.loadHeaderFromFile(file, null).getDependencies();
+		assertEquals(Arrays.asList("tests/sub.aat", "tests/other.aat"), dependencies.getSubTestFiles());
+		assertEquals(Arrays.asList("steps/login.custom"), dependencies.getCustomStepFiles());
+		assertEquals("/project/params/users.params", dependencies.getParamsFile());
+		assertEquals(Arrays.asList(new ExtensionPointUse("tests/sub.aat", extensionPoint.getPageId())),
+				dependencies.getExtensionPointUses());
+		assertEquals(TestDependencies.fromTest(test).toString(), dependencies.toString());
+	}
+
+	@org.junit.Test
+	public void testHeaderIsReadAgainWhenFileChanges() throws IOException {
+		TestPersistance.saveToFile(createTest("Header test"), file);
+		int readCount = index.getReadCount();
+		assertEquals("Header test", TestPersistance.loadHeaderFromFile(file, null).getName());
+		assertEquals("Header test", TestPersistance.loadHeaderFromFile(file, null).getName());
+		assertEquals(readCount + 1, index.getReadCount());
+
+		String xml = FileUtils.readFileToString(file).replace("Header test", "Changed on disk");
+		FileUtils.writeStringToFile(file, xml);
+		assertEquals("Changed on disk", TestPersistance.loadHeaderFromFile(file, null).getName());
+	}
+
+	@org.junit.Test
+	public void testSubTestNameDoesNotLoadTest() {
+		TestPersistance.saveToFile(createTest("Sub"), file);
+		SubTest subTest = new SubTest(file.getAbsolutePath(), null);
+
+		assertEquals("Sub (" + file.getName() + ")", subTest.getName());
+		assertFalse(subTest.isDangling());
+		assertFalse(subTest.isTestLoaded());
+		assertEquals(1, subTest.getHeader().getExtensionPoints().size());
+
+		subTest.getTest(false);
+		assertTrue(subTest.isTestLoaded());
+		assertEquals("Sub (" + file.getName() + ")", subTest.getName());
+	}
+
+	@org.junit.Test
+	public void testExtensionPointOfTransitionIsTakenFromHeader() {
+		Test sub = createTest("Sub");
+		ExtensionPoint extensionPoint = sub.getExtensionPoints().get(0);
+		TestPersistance.saveToFile(sub, file);
+		SubTest subTest = new SubTest(file.getAbsolutePath(), null);
+		ExtensionTransition transition = new ExtensionTransition(subTest, new Page(), extensionPoint);
+
+		assertEquals("First Extension Point", transition.getExtensionPointHeader().getName());
+		assertFalse(subTest.isTestLoaded());
+
+		final List<Test> loadedTests = new ArrayList<Test>();
+		subTest.addPropertyChangeListener(new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent evt) {
+				if (PropertyAwareObject.SUBTEST.equals(evt.getPropertyName())) {
+					loadedTests.add((Test) evt.getNewValue());
+				}
+			}
+		});
+		assertEquals("First Extension Point", transition.getExtensionPoint().getName());
+		assertTrue(subTest.isTestLoaded());
+		assertEquals(Arrays.asList(subTest.getTest(false)), loadedTests);
+	}
+
+	@org.junit.Test
+	public void testMissingSubTestIsDangling() {
+		SubTest subTest = new SubTest(file.getAbsolutePath() + ".missing", null);
+		assertTrue(subTest.isDangling());
+	}
+
+	@org.junit.Test
+	public void testResolveReference() {
+		assertEquals("/test/startPoint/outTransitions/simpleTransition/end",
+				TestHeaderReader.resolve("/test/extensionPoints/extensionPoint", "../../startPoint/outTransitions/simpleTransition/end"));
+		assertEquals("/test/pages/page[2]", TestHeaderReader.resolve("/test/pages/page[2]/inTransition/start", "../.."));
+		assertEquals("/test/pages/page", TestHeaderReader.resolve("/test/transitions/x", "/test/pages/page[1]"));
+	}
+
+	private void assertHeadersEqual(String message, TestHeader expected, TestHeader actual) {
+		assertEquals(message, expected.getName(), actual.getName());
+		assertEquals(message, expected.getDescription(), actual.getDescription());
+		assertEquals(message, expected.hasParamsConfigured(), actual.hasParamsConfigured());
+		assertEquals(message, expected.hasI18nConfigured(), actual.hasI18nConfigured());
+		assertEquals(message, expected.getDependencies().toString(), actual.getDependencies().toString());
+		assertEquals(message, expected.getExtensionPoints().size(), actual.getExtensionPoints().size());
+		for (int i = 0; i < expected.getExtensionPoints().size(); i++) {
+			ExtensionPointHeader expectedPoint = expected.getExtensionPoints().get(i);
+			ExtensionPointHeader point = actual.getExtensionPoints().get(i);
+			assertEquals(message, expectedPoint.getId(), point.getId());
+			assertEquals(message, expectedPoint.getName(), point.getName());
+			assertEquals(message, expectedPoint.getPageId(), point.getPageId());
+		}
+	}
+
+	private Test createTest(String name) {
+		Test test = TestFixtures.createTest(name, 0, 0);
+		Page page = (Page) test.getPages().get(0);
+		ExtensionPoint extensionPoint = new ExtensionPoint();
+		test.addExtensionPoint(extensionPoint);
+		test.addTransition(new SimpleTransition(page, extensionPoint));
+		return test;
+	}
+}
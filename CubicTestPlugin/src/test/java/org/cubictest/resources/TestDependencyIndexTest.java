@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.cubictest.model.TestDependencies;
+import org.cubictest.model.TestDependencies.ExtensionPointUse;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDependencyIndexTest {
+
+	private static final IPath LOGIN = new Path("/shop/tests/login.aat");
+	private static final IPath SEARCH = new Path("/shop/tests/search.aat");
+	private static final IPath BUY = new Path("/shop/tests/buy.aat");
+	private static final IPath CUSTOM_STEP = new Path("/shop/steps/clear.custom");
+	private static final IPath PARAMS = new Path("/shop/params/users.params");
+	private static final IPath LANGUAGE = new Path("/shop/i18n/en.properties");
+
+	private TestDependencyIndex index;
+
+	@Before
+	public void setUp() {
+		index = new TestDependencyIndex();
+		//login uses a custom step and a parameter file, search continues from login, buy continues from search:
+		index.putTest(LOGIN, new TestDependencies(list(), list("steps/clear.custom"), "shop/params/users.params",
+				list("\\shop\\i18n\\en.properties"), new ArrayList<ExtensionPointUse>()));
+		index.putTest(SEARCH, new TestDependencies(list("tests/login.aat"), list(), null, list(),
+				Arrays.asList(new ExtensionPointUse("tests/login.aat", "page1"))));
+		index.putTest(BUY, new TestDependencies(list("tests/search.aat", "tests/login.aat"), list(), null, list(),
+				Arrays.asList(new ExtensionPointUse("tests/search.aat", "page7"))));
+	}
+
+	@Test
+	public void testDependenciesAreResolvedInWorkspace() {
+		assertEquals(set(CUSTOM_STEP, PARAMS, LANGUAGE), index.getDependencies(LOGIN));
+		assertEquals(set(SEARCH, LOGIN), index.getDependencies(BUY));
+		assertEquals(3, index.size());
+	}
+
+	@Test
+	public void testDependentTests() {
+		assertEquals(set(SEARCH, BUY), index.getDependentTests(LOGIN));
+		assertEquals(set(LOGIN), index.getDependentTests(PARAMS));
+		assertEquals(set(), index.getDependentTests(BUY));
+	}
+
+	@Test
+	public void testAffectedTestsAreFoundTransitively() {
+		assertEquals(set(LOGIN, SEARCH, BUY), index.getAffectedTests(CUSTOM_STEP));
+		assertEquals(set(LOGIN, SEARCH, BUY), index.getAffectedTests(LANGUAGE));
+		assertEquals(set(SEARCH, BUY), index.getAffectedTests(SEARCH));
+		assertEquals(set(), index.getAffectedTests(new Path("/shop/other.txt")));
+	}
+
+	@Test
+	public void testTestsUsingExtensionPoint() {
+		assertEquals(set(SEARCH), index.getTestsUsingExtensionPoint(LOGIN, "page1"));
+		assertEquals(set(), index.getTestsUsingExtensionPoint(LOGIN, "page2"));
+		assertEquals(set(BUY), index.getTestsUsingExtensionPoints(SEARCH));
+	}
+
+	@Test
+	public void testChangedTestReplacesDependencies() {
+		index.putTest(SEARCH, new TestDependencies(list(), list(), null, list(), new ArrayList<ExtensionPointUse>()));
+
+		assertEquals(set(BUY), index.getDependentTests(LOGIN));
+		assertEquals(set(), index.getTestsUsingExtensionPoint(LOGIN, "page1"));
+		assertEquals(set(LOGIN, BUY), index.getAffectedTests(CUSTOM_STEP));
+	}
+
+	@Test
+	public void testRemovedTestIsRemovedFromIndex() {
+		index.removeTest(BUY);
+
+		assertFalse(index.containsTest(BUY));
+		assertTrue(index.containsTest(SEARCH));
+		assertEquals(set(SEARCH), index.getDependentTests(LOGIN));
+		assertEquals(set(), index.getTestsUsingExtensionPoints(SEARCH));
+	}
+
+	@Test
+	public void testSavedIndexIsLoaded() throws Exception {
+		File file = File.createTempFile("TestDependencyIndexTest", "");
+		try {
+			index.save(file);
+			TestDependencyIndex loaded = TestDependencyIndex.load(file);
+
+			assertEquals(3, loaded.size());
+			assertEquals(set(CUSTOM_STEP, PARAMS, LANGUAGE), loaded.getDependencies(LOGIN));
+			assertEquals(set(LOGIN, SEARCH, BUY), loaded.getAffectedTests(CUSTOM_STEP));
+			assertEquals(set(SEARCH), loaded.getTestsUsingExtensionPoint(LOGIN, "page1"));
+			assertEquals(set(BUY), loaded.getTestsUsingExtensionPoints(SEARCH));
+			//the tests were not read from files, so they must be read again:
+			assertFalse(loaded.isUpToDate(LOGIN, 0));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	private static List<String> list(String... elements) {
+		return Arrays.asList(elements);
+	}
+
+	private static HashSet<IPath> set(IPath... paths) {
+		return new HashSet<IPath>(Arrays.asList(paths));
+	}
+}
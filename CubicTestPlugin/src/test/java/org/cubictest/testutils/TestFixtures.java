@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.testutils;
+
+import org.cubictest.model.Common;
+import org.cubictest.model.CommonTransition;
+import org.cubictest.model.Link;
+import org.cubictest.model.Page;
+import org.cubictest.model.SimpleTransition;
+import org.cubictest.model.Test;
+import org.cubictest.model.Text;
+import org.cubictest.model.UrlStartPoint;
+import org.cubictest.model.UserInteractionsTransition;
+import org.cubictest.model.context.SimpleContext;
+import org.cubictest.model.formElement.TextField;
+import org.eclipse.draw2d.geometry.Point;
+
+/**
+ * Builds tests in memory for the persistence tests and benchmarks.
+ * 
+ * @author Christian Schwarz
+ */
+public class TestFixtures {
+
+	/**
+	 * Creates a test starting at "www.test.org" with a page named "First" holding a text field,
+	 * followed by a chain of <code>numPages</code> pages. Each page of the chain has a context with
+	 * <code>numElementsPerPage</code> links, <code>numElementsPerPage</code> texts and a text field,
+	 * and is the end of a common transition. The common is the last page of the test.
+	 */
+	public static Test createTest(String name, int numPages, int numElementsPerPage) {
+		Test test = new Test();
+		test.setName(name);
+		UrlStartPoint startPoint = new UrlStartPoint();
+		startPoint.setBeginAt("www.test.org");
+		test.setStartPoint(startPoint);
+
+		Page page = new Page();
+		page.setName("First");
+		page.setPosition(new Point(170, 100));
+		page.addElement(new TextField());
+		test.addPage(page);
+		test.addTransition(new SimpleTransition(startPoint, page));
+
+		Common common = new Common();
+		common.setPosition(new Point(400, 100));
+		common.addElement(new Text());
+		for (int i = 0; i < numPages; i++) {
+			Page next = new Page();
+			next.setName("Page" + i);
+			next.setPosition(new Point(170, 250 + 150 * i));
+			SimpleContext context = new SimpleContext();
+			context.setDescription("Context" + i);
+			next.addElement(context);
+			for (int j = 0; j < numElementsPerPage; j++) {
+				Text text = new Text();
+				text.setDescription("Text" + j);
+				next.addElement(text);
+				Link link = new Link();
+				link.setDescription("Link" + j);
+				context.addElement(link);
+			}
+			next.addElement(new TextField());
+			test.addPage(next);
+			test.addTransition(new UserInteractionsTransition(page, next));
+			test.addTransition(new CommonTransition(common, next));
+			page = next;
+		}
+		test.addPage(common);
+		return test;
+	}
+}
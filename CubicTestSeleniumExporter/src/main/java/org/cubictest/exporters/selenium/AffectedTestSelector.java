@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.selenium;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+import org.cubictest.common.settings.CubicTestProjectSettings;
+import org.cubictest.export.utils.ExportManifest;
+import org.cubictest.model.TestDependencies;
+import org.cubictest.model.customstep.CustomTestStep;
+import org.cubictest.model.customstep.data.CustomTestStepData;
+import org.cubictest.persistence.CustomTestStepPersistance;
+import org.cubictest.persistence.TestPersistance;
+
+/**
+ * Selects the tests that are affected by changes since the previous test run, for the "run affected tests" mode 
+ * of the {@link SeleniumRunner}.
+ * <p>
+ * The input files of a test are the test itself, its subtests and extension start point tests (transitively),
+ * its custom test step files and their Selenium step classes, its parameter and language files, and the project settings.
+ * Their content hashes and the result of the test are recorded in an {@link ExportManifest}. A test is run if any
+ * of its input files has changed, if it did not pass in the previous run, or if it has not been run before.
+ * <p>
+ * Files are resolved the same way as when tests are run outside Eclipse: subtests and custom test steps relative
+ * to the project folder, parameter and language files relative to its parent folder (the workspace).
+ * 
+ * @author Christian Schwarz
+ */
+class AffectedTestSelector {
+
+	static final String PASSED = "passed";
+	static final String FAILED = "failed";
+
+	/** The key of the Selenium exporter's data in custom test steps. */
+	private static final String CUSTOM_STEP_DATA_KEY = "org.cubictest.seleniumexporter";
+
+	private final ExportManifest manifest;
+	private final File projectDir;
+	private final Map<File, String> selectedTests = new LinkedHashMap<File, String>();
+	private final Map<File, String> skippedTests = new LinkedHashMap<File, String>();
+	private final Map<File, Set<File>> inputFiles = new LinkedHashMap<File, Set<File>>();
+
+
+	/**
+	 * @param manifest the manifest of the previous run, loaded.
+	 * @param projectDir the root folder of the test project.
+	 */
+	public AffectedTestSelector(ExportManifest manifest, File projectDir) {
+		this.manifest = manifest;
+		this.projectDir = normalize(projectDir);
+	}
+
+
+	/**
+	 * Selects the tests to run, and records why each test is run or skipped.
+	 * @return the tests to run, in the same order as given.
+	 */
+	public List<File> select(Collection<File> testFiles) throws IOException {
+		List<File> selected = new ArrayList<File>();
+		for (File testFile : testFiles) {
+			String key = getKey(testFile);
+			inputFiles.put(testFile, getInputFiles(testFile));
+			List<File> changedFiles = manifest.getChangedInputFiles(key);
+			String status = manifest.getStatus(key);
+
+			String reasonToRun = null;
+			if (changedFiles == null || status == null) {
+				reasonToRun = "not run before";
+			}
+			else if (!changedFiles.isEmpty()) {
+				List<String> changed = new ArrayList<String>();
+				for (File file : changedFiles) {
+					changed.add(getKey(file));
+				}
+				reasonToRun = "changed: " + StringUtils.join(changed, ", ");
+			}
+			else if (!PASSED.equals(status)) {
+				reasonToRun = "did not pass in previous run";
+			}
+
+			if (reasonToRun == null) {
+				skippedTests.put(testFile, "passed in previous run, and no changes to the test or the files it uses");
+			}
+			else {
+				selectedTests.put(testFile, reasonToRun);
+				selected.add(testFile);
+			}
+		}
+		return selected;
+	}
+
+
+	/**
+	 * Records the result of a selected test, so that it is skipped next time if it passed and its inputs are unchanged.
+	 */
+	public void recordResult(File testFile, boolean passed) throws IOException {
+		String key = getKey(testFile);
+		manifest.setInputFiles(key, inputFiles.get(testFile));
+		manifest.setStatus(key, passed ? PASSED : FAILED);
+	}
+
+	/**
+	 * Removes a selected test that was not run from the manifest, so that it is run next time.
+	 */
+	public void forget(File testFile) {
+		manifest.remove(getKey(testFile));
+	}
+
+	/**
+	 * Saves the recorded results to the manifest file.
+	 */
+	public void save() throws IOException {
+		manifest.save();
+	}
+
+	/**
+	 * Gets the selected tests, with the reason each test is run.
+	 */
+	public Map<File, String> getSelectedTests() {
+		return Collections.unmodifiableMap(selectedTests);
+	}
+
+	/**
+	 * Gets the skipped tests, with the reason each test is skipped.
+	 */
+	public Map<File, String> getSkippedTests() {
+		return Collections.unmodifiableMap(skippedTests);
+	}
+
+
+	/**
+	 * Gets the input files of a test, following subtests transitively.
+	 */
+	Set<File> getInputFiles(File testFile) {
+		Set<File> files = new LinkedHashSet<File>();
+		files.add(new File(projectDir, CubicTestProjectSettings.FILE_NAME));
+		addTestInputFiles(files, normalize(testFile));
+		return files;
+	}
+
+	private void addTestInputFiles(Set<File> files, File testFile) {
+		if (!files.add(testFile) || !testFile.isFile()) {
+			//already added (e.g. a subtest used twice), or missing (which changes its hash when the file is created)
+			return;
+		}
+		TestDependencies dependencies;
+		try {
+			dependencies = TestPersistance.loadHeaderFromFile(testFile, null).getDependencies();
+		}
+		catch (Exception e) {
+			//the test can not be read, and will fail when it is run
+			return;
+		}
+		for (String subTest : dependencies.getSubTestFiles()) {
+			addTestInputFiles(files, getProjectFile(subTest));
+		}
+		for (String customStep : dependencies.getCustomStepFiles()) {
+			File customStepFile = getProjectFile(customStep);
+			files.add(customStepFile);
+			addCustomStepClassFiles(files, customStepFile);
+		}
+		if (dependencies.getParamsFile() != null) {
+			files.add(getWorkspaceFile(dependencies.getParamsFile()));
+		}
+		for (String language : dependencies.getLanguageFiles()) {
+			files.add(getWorkspaceFile(language));
+		}
+	}
+
+	/**
+	 * Adds the source file and the compiled class of the Selenium step class of a custom test step.
+	 */
+	private void addCustomStepClassFiles(Set<File> files, File customStepFile) {
+		if (!customStepFile.isFile()) {
+			return;
+		}
+		CustomTestStepData data;
+		try {
+			CustomTestStep customStep = CustomTestStepPersistance.loadFromFile(customStepFile);
+			data = customStep.getData(CUSTOM_STEP_DATA_KEY);
+		}
+		catch (Exception e) {
+			return;
+		}
+		if (StringUtils.isNotBlank(data.getPath())) {
+			files.add(getWorkspaceFile(data.getPath()));
+		}
+		if (StringUtils.isNotBlank(data.getDisplayText())) {
+			URL classUrl = getClass().getClassLoader().getResource(data.getDisplayText().replace('.', '/') + ".class");
+			File classFile = FileUtils.toFile(classUrl);
+			if (classFile != null) {
+				files.add(classFile);
+			}
+		}
+	}
+
+	private File getProjectFile(String path) {
+		return normalize(new File(projectDir, path));
+	}
+
+	/**
+	 * Gets a file whose path is relative to the workspace root, i.e. starts with the project name.
+	 */
+	private File getWorkspaceFile(String path) {
+		return normalize(new File(projectDir.getParentFile(), path.replace('\\', '/')));
+	}
+
+	private static File normalize(File file) {
+		String path = FilenameUtils.normalizeNoEndSeparator(file.getAbsolutePath());
+		return (path == null) ? file.getAbsoluteFile() : new File(path);
+	}
+
+
+	/**
+	 * Gets the key of a file in the manifest: its path relative to the project folder, or its absolute path if outside it.
+	 */
+	String getKey(File file) {
+		String path = normalize(file).getPath().replace('\\', '/');
+		String projectPath = projectDir.getAbsolutePath().replace('\\', '/') + "/";
+		if (path.startsWith(projectPath)) {
+			return path.substring(projectPath.length());
+		}
+		return path;
+	}
+}
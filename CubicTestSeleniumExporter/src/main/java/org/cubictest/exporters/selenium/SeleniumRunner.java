@@ -12,20 +12,33 @@ package org.cubictest.exporters.selenium;
 
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.cubictest.common.settings.CubicTestProjectSettings;
 import org.cubictest.export.exceptions.EmptyTestSuiteException;
 import org.cubictest.export.exceptions.ExporterException;
+import org.cubictest.export.utils.ExportManifest;
 import org.cubictest.exporters.selenium.common.BrowserType;
 import org.cubictest.exporters.selenium.common.SeleniumExporterProjectSettings;
 import org.cubictest.exporters.selenium.runner.JUnitTestRunner;
 import org.cubictest.exporters.selenium.runner.SeleniumRunnerConfiguration;
-import org.cubictest.exporters.selenium.runner.converters.SameVMCustomTestStepConverter;
+import org.cubictest.exporters.selenium.runner.util.SeleniumSessionPool;
 import org.cubictest.model.Test;
 import org.cubictest.persistence.TestPersistance;
 import org.cubictest.selenium.custom.IElementContext;
@@ -47,12 +60,22 @@ public class SeleniumRunner
 
 	private static final boolean REUSE_BROWSER_DEFAULT = true;
 	private static final boolean HALT_ON_TEST_FAILURE_DEFAULT = true;
+	private static final int PARALLEL_SESSIONS_DEFAULT = 1;
+	private static final String RUN_MANIFEST_FILE_NAME = ".selenium-run-manifest";
 	
 	private boolean reuseBrowser = REUSE_BROWSER_DEFAULT;
 	private boolean haltOnTestFailure = HALT_ON_TEST_FAILURE_DEFAULT;
-	private JUnitTestRunner testRunner;
+	private int parallelSessions = PARALLEL_SESSIONS_DEFAULT;
+	private int sessionPoolSize = 0;
+	private SeleniumSessionPool sessionPool;
+	private boolean runAllParameterRows = false;
+	private boolean runAffectedTestsOnly = false;
+	private File runManifestFile = new File(RUN_MANIFEST_FILE_NAME);
+	private TestSession session;
 	private SeleniumRunnerConfiguration config;
 	private CubicTestProjectSettings settings;
+	private IElementContext elementContext = new ElementContext();
+	private boolean customElementContext;
 
 	/**
 	 * Create a new instance of the runner.
@@ -61,13 +84,16 @@ public class SeleniumRunner
 	 * * Reuse browser instance between test files.
 	 * * No capture of HTML or screenshots of failed tests.
 	 * * No support for XHTML namespaces.
+	 * * Tests are run one after another in a single browser session.
+	 * * Tests with parameters are run with the parameter row that is selected in the test.
+	 * * All tests are run, not only those affected by changes since the previous run.
+	 * * No pool of browser sessions that are reset between tests.
 	 */
 	public SeleniumRunner() {
 		this.config = new SeleniumRunnerConfiguration();
 		config.setMultiWindow(false);
 		settings = new CubicTestProjectSettings(new File("."));
 		config.setBrowser(SeleniumExporterProjectSettings.getPreferredBrowser(settings));
-		SameVMCustomTestStepConverter.resetElementContext();
 	}
 
 	/**
@@ -140,131 +166,490 @@ public class SeleniumRunner
 
 	public void runTests(Collection<File> files) throws AssertionError {
         
-        List<String> passedTests = new ArrayList<String>();
-        List<String> failedTests = new ArrayList<String>();
-        List<String> exceptionTests = new ArrayList<String>();
-        List<String> notRunTests = new ArrayList<String>();
+        AffectedTestSelector selector = null;
+        if (runAffectedTestsOnly) {
+        	selector = createAffectedTestSelector();
+        	try {
+        		files = selector.select(files);
+        	}
+        	catch (IOException e) {
+        		throw new ExporterException(e);
+        	}
+        	logAffectedTestSelection(selector);
+        	if (files.isEmpty()) {
+            	logSeperator();
+            	System.out.println(LOG_PREFIX + "No tests are affected by changes since the previous run.");
+            	logSeperator();
+        		return;
+        	}
+        }
         
-        for (File file : files) {
-			notRunTests.add(file.getName());
-		}
+        List<TestRun> runs = createTestRuns(files);
+        TestRunResults results = new TestRunResults(runs);
+        Queue<TestRun> queue = new ConcurrentLinkedQueue<TestRun>(runs);
 
-        boolean buildOk = true;
-        
         System.out.println(LOG_PREFIX + "Keep browser open between test suite files: " + reuseBrowser);
+        if (sessionPoolSize > 0 && sessionPool == null) {
+        	System.out.println(LOG_PREFIX + "Running tests in a pool of " + sessionPoolSize + " browser sessions, reset between tests.");
+        	sessionPool = new SeleniumSessionPool(config, settings, sessionPoolSize);
+        }
+        
+        if (parallelSessions > 1 && runs.size() > 1) {
+        	runTestsInParallel(queue, results);
+        }
+        else {
+        	if (session == null) {
+        		session = new TestSession(config, elementContext, LOG_PREFIX);
+        	}
+        	session.runTests(queue, results);
+        }
+        if (selector != null) {
+        	recordResults(selector, runs, results);
+        }
+        if (sessionPool != null && sessionPool.getNumberOfReplacedSessions() > 0) {
+        	System.out.println(LOG_PREFIX + "Browser sessions replaced in the pool: " + sessionPool.getNumberOfReplacedSessions());
+        }
         
-        for (File file : files) {
-        	System.out.println(LOG_PREFIX + "Running test: " + file);
-        	notRunTests.remove(file.getName());
+        if (results.fatalError != null) {
+        	throw results.fatalError;
+        }
+    	logSeperator();
+        System.out.println("Tests passed: " + results.passedTests.toString());
+        System.out.println("Tests failed: " + results.failedTests.toString());
+        System.out.println("Threw exception: " + results.exceptionTests.toString());
+        System.out.println("Tests not run: " + results.notRunTests.toString());
+        if (runAllParameterRows) {
+        	logParameterRowSummary(runs, results);
+        }
+
+        if (!results.buildOk) {
+        	logSeperator();
+        	System.out.println(LOG_PREFIX + "Test run failure!");
+        	logSeperator();
+        	throw new AssertionError(LOG_PREFIX + "There were test failures:\n" + results.failedTests.toString() + "\nSee console/log output for full failure details.");
+        }
+        else {
+        	logSeperator();
+        	System.out.println(LOG_PREFIX + "Test run successful!");
+        	logSeperator();
+        }
+	}
+
+	
+	/**
+	 * Creates the test runs for the files. In data-driven mode, tests with parameters get one run per parameter row.
+	 */
+	private List<TestRun> createTestRuns(Collection<File> files) {
+		List<TestRun> runs = new ArrayList<TestRun>();
+		for (File file : files) {
+			Test parameterizedTest = null;
+			if (runAllParameterRows) {
+				try {
+					Test test = TestPersistance.loadFromFile(file, null);
+					if (test.hasParamsConfigured()) {
+						parameterizedTest = test;
+					}
+				}
+				catch (Exception e) {
+					//run the test as a whole, so that the error is reported when it is run
+					System.out.println(LOG_PREFIX + "Could not read parameters of " + file.getName() + ", running it as a whole test: " + e);
+				}
+			}
+			if (parameterizedTest == null) {
+				runs.add(new TestRun(file, null, -1));
+			}
+			else {
+				int rows = parameterizedTest.getParamList().inputParameterSize();
+				System.out.println(LOG_PREFIX + "Running " + rows + " parameter rows of test: " + file);
+				for (int row = 0; row < rows; row++) {
+					runs.add(new TestRun(file, parameterizedTest, row));
+				}
+			}
+		}
+		return runs;
+	}
+
+
+	private AffectedTestSelector createAffectedTestSelector() {
+		System.out.println(LOG_PREFIX + "Running tests affected by changes since the previous run. Manifest: " + runManifestFile.getAbsolutePath());
+		ExportManifest manifest = new ExportManifest(runManifestFile, SeleniumRunner.class.getName());
+		manifest.load();
+		return new AffectedTestSelector(manifest, new File("."));
+	}
+
+
+	private static void logAffectedTestSelection(AffectedTestSelector selector) {
+		Map<File, String> selected = selector.getSelectedTests();
+		Map<File, String> skipped = selector.getSkippedTests();
+		logSeperator();
+		System.out.println(LOG_PREFIX + "Running " + selected.size() + " of " + (selected.size() + skipped.size()) + " tests:");
+		for (Map.Entry<File, String> entry : selected.entrySet()) {
+			System.out.println("  " + selector.getKey(entry.getKey()) + ": " + entry.getValue());
+		}
+		System.out.println(LOG_PREFIX + "Skipped " + skipped.size() + " tests:");
+		for (Map.Entry<File, String> entry : skipped.entrySet()) {
+			System.out.println("  " + selector.getKey(entry.getKey()) + ": " + entry.getValue());
+		}
+	}
+
+
+	/**
+	 * Records the result of each test file in the run manifest. A test file passed if all its runs passed. 
+	 * Test files with runs that were not run (e.g. after a halt) are removed from the manifest, so that they are run next time.
+	 */
+	private void recordResults(AffectedTestSelector selector, List<TestRun> runs, TestRunResults results) {
+		Set<File> files = new LinkedHashSet<File>();
+		Set<File> failedFiles = new HashSet<File>();
+		Set<File> notRunFiles = new HashSet<File>();
+		for (TestRun run : runs) {
+			files.add(run.file);
+			if (results.unsuccessfulRuns.contains(run)) {
+				failedFiles.add(run.file);
+			}
+			else if (!results.passedRuns.contains(run)) {
+				notRunFiles.add(run.file);
+			}
+		}
+		try {
+			for (File file : files) {
+				if (failedFiles.contains(file)) {
+					selector.recordResult(file, false);
+				}
+				else if (notRunFiles.contains(file)) {
+					selector.forget(file);
+				}
+				else {
+					selector.recordResult(file, true);
+				}
+			}
+			selector.save();
+		}
+		catch (IOException e) {
+			System.out.println(LOG_PREFIX + "Could not save run manifest " + runManifestFile.getAbsolutePath() + ": " + e);
+		}
+	}
+
+
+	private static void logParameterRowSummary(List<TestRun> runs, TestRunResults results) {
+		Map<String, int[]> passedAndTotal = new LinkedHashMap<String, int[]>();
+		for (TestRun run : runs) {
+			if (run.parameterRow < 0) {
+				continue;
+			}
+			int[] counts = passedAndTotal.get(run.file.getName());
+			if (counts == null) {
+				counts = new int[2];
+				passedAndTotal.put(run.file.getName(), counts);
+			}
+			if (results.passedTests.contains(run.getName())) {
+				counts[0]++;
+			}
+			counts[1]++;
+		}
+		for (Map.Entry<String, int[]> entry : passedAndTotal.entrySet()) {
+			System.out.println("Parameter rows passed: " + entry.getKey() + ": " + entry.getValue()[0] + " of " + entry.getValue()[1]);
+		}
+	}
+
+	
+	/**
+	 * Runs the tests in a pool of independent Selenium sessions, each with its own browser, Selenium server and results.
+	 * Each session takes the next test from the shared queue when it is done with its current one, 
+	 * so that sessions with short tests do not sit idle while others are busy.
+	 */
+	private void runTestsInParallel(final Queue<TestRun> queue, final TestRunResults results) {
+		int numberOfSessions = Math.min(parallelSessions, queue.size());
+		System.out.println(LOG_PREFIX + "Running tests in " + numberOfSessions + " parallel browser sessions.");
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfSessions);
+		List<Future<?>> sessionResults = new ArrayList<Future<?>>();
+		Set<Integer> usedPorts = new HashSet<Integer>();
+		usedPorts.add(config.getSeleniumServerPort());
+		try {
+			for (int i = 1; i <= numberOfSessions; i++) {
+				SeleniumRunnerConfiguration sessionConfig = config.createSessionConfiguration();
+				while (config.shouldStartCubicSeleniumServer() && !usedPorts.add(sessionConfig.getSeleniumServerPort())) {
+					sessionConfig = config.createSessionConfiguration();
+				}
+				IElementContext sessionElementContext = customElementContext ? elementContext : new ElementContext();
+				final TestSession parallelSession = new TestSession(sessionConfig, sessionElementContext, LOG_PREFIX + "[Session " + i + "] ");
+				sessionResults.add(executor.submit(new Runnable() {
+					public void run() {
+						try {
+							parallelSession.runTests(queue, results);
+						}
+						finally {
+							parallelSession.stop();
+						}
+					}
+				}));
+			}
+			for (Future<?> sessionResult : sessionResults) {
+				sessionResult.get();
+			}
+		}
+		catch (InterruptedException e) {
+			results.halt();
+			throw new ExporterException(e);
+		}
+		catch (ExecutionException e) {
+			results.halt();
+			throw new ExporterException(e.getCause());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+	
+	private static void logSeperator() {
+		System.out.println(SEPERATOR);
+	}
+
+	private static void smallLogSeperator() {
+		System.out.println(SMALL_SEPERATOR);
+	}
+
+	
+	private static void stopSelenium(JUnitTestRunner testRunner, String logPrefix) {
+		if (testRunner != null) {
+			try {
+    			System.out.println(logPrefix + "Stopping Selenium.");
+				((JUnitTestRunner) testRunner).stopSeleniumWithTimeoutGuard(20);
+			}
+			catch (Exception e) {
+				System.out.println(logPrefix + "Error stopping selenium.");
+				e.printStackTrace();
+			}
+		}
+	}
+
+	
+	/**
+	 * A Selenium session (browser, server and test runner) that runs tests from a queue.
+	 */
+	private class TestSession {
+		
+		private final SeleniumRunnerConfiguration sessionConfig;
+		private IElementContext sessionElementContext;
+		private final String logPrefix;
+		private JUnitTestRunner testRunner;
+
+		public TestSession(SeleniumRunnerConfiguration sessionConfig, IElementContext sessionElementContext, String logPrefix) {
+			this.sessionConfig = sessionConfig;
+			this.sessionElementContext = sessionElementContext;
+			this.logPrefix = logPrefix;
+		}
+		
+		/**
+		 * Runs tests from the queue until it is empty or the test run is halted.
+		 */
+		public void runTests(Queue<TestRun> queue, TestRunResults results) {
+			TestRun run;
+			while (!results.isHalted() && (run = queue.poll()) != null) {
+				runTest(run, results);
+			}
+			if (!reuseBrowser) {
+				if (testRunner != null) {
+					stopSelenium(testRunner, logPrefix);
+				}
+		    	logSeperator();
+	        	String resultMessage = "";
+	        	if (testRunner != null) {
+	        		resultMessage = testRunner.getResultMessage();
+	        	}
+				System.out.println(logPrefix + "Test run finished. " + resultMessage);
+				testRunner = null;
+			}        
+		}
+		
+		private void runTest(TestRun run, TestRunResults results) {
+        	System.out.println(logPrefix + "Running test: " + run);
+        	results.started(run);
 
     		try {
-    			Test test = TestPersistance.loadFromFile(file, null);
-    			System.out.println(LOG_PREFIX + "Test loaded: " + test.getName());
+    			Test test = run.loadTest();
+    			System.out.println(logPrefix + "Test loaded: " + test.getName());
 
-    			if (reuseBrowser) {
+    			if (reuseBrowser || sessionPool != null) {
     		        if (testRunner == null) {
-    					testRunner = new JUnitTestRunner(config, settings);
+    					testRunner = createTestRunner();
     					testRunner.setReuseSelenium(true);
     		        }
         			testRunner.run(test);
     			}
     			else {
-    				testRunner = new JUnitTestRunner(config, settings);
+    				testRunner = createTestRunner();
         			testRunner.run(test);
                 	smallLogSeperator();
-        			stopSelenium(testRunner);
+        			stopSelenium(testRunner, logPrefix);
         			Thread.sleep(800); //do not reopen firefox immediately
     			}
-    			passedTests.add(file.getName());
+    			results.passed(run);
             	smallLogSeperator();
-            	System.out.println(LOG_PREFIX + "Test run finished: " + file.getName() + ": " + testRunner.getResultMessage());
+            	System.out.println(logPrefix + "Test run finished: " + run.getName() + ": " + testRunner.getResultMessage());
     		}
     		catch (EmptyTestSuiteException e) {
     			System.out.println(SEPERATOR);
     			System.out.println("Warning: Test suites should contain at least one test. " + 
 						"To add a test, drag it from the package explorer into the test suite editor.");
-    			throw new AssertionError("Test suite was empty: " + file.getName());
+    			results.halt(new AssertionError("Test suite was empty: " + run.getName()));
     		}
     		catch (ExporterException e) {
-    			System.out.println(LOG_PREFIX + "Test failure detected.");
-    			stopSelenium(testRunner);
+    			System.out.println(logPrefix + "Test failure detected.");
+    			stopSelenium(testRunner, logPrefix);
             	logSeperator();
-    			System.out.println(LOG_PREFIX + "Failure in test " + file.getName() + ": " + e.getMessage());
+    			System.out.println(logPrefix + "Failure in test " + run.getName() + ": " + e.getMessage());
             	logSeperator();
-            	System.out.println(LOG_PREFIX + "Failure path: " + file.getName() + " --> " + testRunner.getCurrentBreadcrumbs());
+            	System.out.println(logPrefix + "Failure path: " + run.getName() + " --> " + testRunner.getCurrentBreadcrumbs());
             	if (!reuseBrowser) {
             		logSeperator();
-	            	System.out.println(file.getName() + ": " + testRunner.getResultMessage());
+	            	System.out.println(run.getName() + ": " + testRunner.getResultMessage());
             	}
-    			failedTests.add(file.getName());
-    			buildOk = false;
+    			results.failed(run);
     			testRunner = null;
     			if (haltOnTestFailure) {
-    				break;
+    				results.halt();
     			}
     		}
     		catch (Throwable e) {
-    			System.out.println(LOG_PREFIX + "Error detected during test run.");
-    			stopSelenium(testRunner);
+    			System.out.println(logPrefix + "Error detected during test run.");
+    			stopSelenium(testRunner, logPrefix);
     			testRunner = null;
     			System.out.println(e.toString());
-    			exceptionTests.add(file.getName());
-    			buildOk = false;
+    			results.threwException(run);
     			if (haltOnTestFailure) {
-    				break;
+    				results.halt();
     			}
 			}
-        }
-		if (!reuseBrowser) {
-			if (!files.isEmpty() && testRunner != null) {
-    			stopSelenium(testRunner);
+		}
+		
+		private JUnitTestRunner createTestRunner() {
+			JUnitTestRunner runner = new JUnitTestRunner(sessionConfig, settings);
+			runner.setCustomStepElementContext(sessionElementContext);
+			runner.setSessionPool(sessionPool);
+			return runner;
+		}
+		
+		public void setElementContext(IElementContext elementContext) {
+			this.sessionElementContext = elementContext;
+			if (testRunner != null) {
+				testRunner.setCustomStepElementContext(elementContext);
 			}
-	    	logSeperator();
-        	String resultMessage = "";
-        	if (testRunner != null) {
-        		resultMessage = testRunner.getResultMessage();
-        	}
-			System.out.println(LOG_PREFIX + "Test run finished. " + resultMessage);
+		}
+		
+		public void stop() {
+			stopSelenium(testRunner, logPrefix);
 			testRunner = null;
-		}        
-    	logSeperator();
-        System.out.println("Tests passed: " + passedTests.toString());
-        System.out.println("Tests failed: " + failedTests.toString());
-        System.out.println("Threw exception: " + exceptionTests.toString());
-        System.out.println("Tests not run: " + notRunTests.toString());
-
-        if (!buildOk) {
-        	logSeperator();
-        	System.out.println(LOG_PREFIX + "Test run failure!");
-        	logSeperator();
-        	throw new AssertionError(LOG_PREFIX + "There were test failures:\n" + failedTests.toString() + "\nSee console/log output for full failure details.");
-        }
-        else {
-        	logSeperator();
-        	System.out.println(LOG_PREFIX + "Test run successful!");
-        	logSeperator();
-        }
-	}
-    
-	private static void logSeperator() {
-		System.out.println(SEPERATOR);
+		}
 	}
 
-	private static void smallLogSeperator() {
-		System.out.println(SMALL_SEPERATOR);
+	
+	/**
+	 * A test file to run, or in data-driven mode one parameter row of a test file.
+	 */
+	private static class TestRun {
+		
+		private final File file;
+		private final Test parameterizedTest;
+		private final int parameterRow;
+		
+		/**
+		 * @param parameterizedTest the loaded test to copy for the row, which must not be modified. <code>null</code> to load the file.
+		 * @param parameterRow the parameter row to run, or -1 to run the test as it is loaded.
+		 */
+		public TestRun(File file, Test parameterizedTest, int parameterRow) {
+			this.file = file;
+			this.parameterizedTest = parameterizedTest;
+			this.parameterRow = parameterRow;
+		}
+		
+		/**
+		 * Gets the test to run. Each parameter row gets its own copy of the test, 
+		 * so that rows can be run in parallel sessions without changing each other's values. 
+		 */
+		public Test loadTest() {
+			if (parameterizedTest == null) {
+				return TestPersistance.loadFromFile(file, null);
+			}
+			return parameterizedTest.getParameterRowCopy(parameterRow);
+		}
+		
+		public String getName() {
+			if (parameterRow < 0) {
+				return file.getName();
+			}
+			return file.getName() + " [parameter row " + parameterRow + "]";
+		}
+		
+		@Override
+		public String toString() {
+			if (parameterRow < 0) {
+				return file.toString();
+			}
+			return file + " [parameter row " + parameterRow + "]";
+		}
 	}
 
 	
-	private static void stopSelenium(JUnitTestRunner testRunner) {
-		if (testRunner != null) {
-			try {
-    			System.out.println(LOG_PREFIX + "Stopping Selenium.");
-				((JUnitTestRunner) testRunner).stopSeleniumWithTimeoutGuard(20);
+	/**
+	 * The merged results of all sessions of a test run.
+	 */
+	private static class TestRunResults {
+		
+		private final List<String> passedTests = new ArrayList<String>();
+		private final List<String> failedTests = new ArrayList<String>();
+		private final List<String> exceptionTests = new ArrayList<String>();
+		private final List<String> notRunTests = new ArrayList<String>();
+		private final Set<TestRun> passedRuns = new HashSet<TestRun>();
+		private final Set<TestRun> unsuccessfulRuns = new HashSet<TestRun>();
+		private boolean buildOk = true;
+		private volatile boolean halted;
+		private AssertionError fatalError;
+		
+		public TestRunResults(Collection<TestRun> runs) {
+	        for (TestRun run : runs) {
+				notRunTests.add(run.getName());
 			}
-			catch (Exception e) {
-				System.out.println(LOG_PREFIX + "Error stopping selenium.");
-				e.printStackTrace();
+		}
+
+		public synchronized void started(TestRun run) {
+			notRunTests.remove(run.getName());
+		}
+
+		public synchronized void passed(TestRun run) {
+			passedTests.add(run.getName());
+			passedRuns.add(run);
+		}
+
+		public synchronized void failed(TestRun run) {
+			failedTests.add(run.getName());
+			unsuccessfulRuns.add(run);
+			buildOk = false;
+		}
+
+		public synchronized void threwException(TestRun run) {
+			exceptionTests.add(run.getName());
+			unsuccessfulRuns.add(run);
+			buildOk = false;
+		}
+		
+		public void halt() {
+			halted = true;
+		}
+
+		/**
+		 * Halts the test run, and fails it with the specified error instead of reporting the results.
+		 */
+		public synchronized void halt(AssertionError error) {
+			if (fatalError == null) {
+				fatalError = error;
 			}
+			halt();
+		}
+
+		public boolean isHalted() {
+			return halted;
 		}
 	}
 
@@ -314,12 +699,21 @@ public class SeleniumRunner
 		config.setMultiWindow(seleniumMultiWindow);
 	}
 	
+	/**
+	 * Set the context that custom test steps share variables in.
+	 * When running parallel sessions, the context is shared by all sessions and must be thread safe.
+	 * If no context is set, each parallel session gets its own.
+	 */
 	public void setCustomStepElementContext(IElementContext elementContext) {
-		SameVMCustomTestStepConverter.setThreadElementContext(elementContext);
+		this.elementContext = elementContext;
+		this.customElementContext = true;
+		if (session != null) {
+			session.setElementContext(elementContext);
+		}
 	}
 
 	public IElementContext getCustomStepElementContext() {
-		return SameVMCustomTestStepConverter.getThreadElementContext();
+		return elementContext;
 	}
 
 	/**
@@ -330,4 +724,73 @@ public class SeleniumRunner
 		this.haltOnTestFailure = haltOnTestFailure;
 	}
 
+	/**
+	 * Set the number of independent browser sessions to run tests in parallel in. Default is 1 (no parallel execution).
+	 * Each session has its own browser and (unless an existing Selenium Server is used) its own Selenium Server at a random port.
+	 * With parallel sessions, "halt on test failure" stops the sessions from starting new tests, but lets running tests finish.
+	 */
+	public void setParallelSessions(int parallelSessions) {
+		if (parallelSessions < 1) {
+			throw new ExporterException("Number of parallel sessions must be at least 1");
+		}
+		this.parallelSessions = parallelSessions;
+	}
+
+	/**
+	 * Set whether to run tests with parameters once for each parameter row (data-driven mode). Default is false,
+	 * which runs the parameter row that is selected in the test.
+	 * Each row is run on its own copy of the test, and the rows are spread over the parallel sessions like separate tests.
+	 * Results are reported per row and summed up per test at the end of the run.
+	 */
+	public void setRunAllParameterRows(boolean runAllParameterRows) {
+		this.runAllParameterRows = runAllParameterRows;
+	}
+
+	/**
+	 * Set the number of warm browser sessions to keep in a pool and run the tests in. Default is 0 (no pool).
+	 * Each test gets a session from the pool, which is reset when the test is done: windows opened by the test are closed, 
+	 * the top frame is selected and the cookies of the current page are deleted. Sessions that cannot be reset or stop 
+	 * responding are replaced in the background. The pool is kept between runs until {@link #shutdownSessionPool()} is called.
+	 * With parallel sessions, the size should be at least the number of parallel sessions.
+	 */
+	public void setSessionPoolSize(int sessionPoolSize) {
+		if (sessionPoolSize < 0) {
+			throw new ExporterException("Size of session pool cannot be negative");
+		}
+		if (sessionPool != null && sessionPool.getSize() != sessionPoolSize) {
+			shutdownSessionPool();
+		}
+		this.sessionPoolSize = sessionPoolSize;
+	}
+
+	/**
+	 * Stops the browsers of the session pool.
+	 */
+	public void shutdownSessionPool() {
+		if (sessionPool != null) {
+			System.out.println(LOG_PREFIX + "Stopping the browser sessions of the pool.");
+			sessionPool.shutdown();
+			sessionPool = null;
+		}
+	}
+
+	/**
+	 * Set whether to run only the tests affected by changes since the previous run. Default is false (run all tests).
+	 * A test is run if the test, one of its subtests (transitively), custom steps (including their Selenium step classes),
+	 * parameter or language files, or the project settings have changed, or if it did not pass in the previous run.
+	 * The content hashes of these files and the result of each test are recorded in the run manifest.
+	 * A report of which tests are run and skipped, and why, is printed before the tests are run.
+	 */
+	public void setRunAffectedTestsOnly(boolean runAffectedTestsOnly) {
+		this.runAffectedTestsOnly = runAffectedTestsOnly;
+	}
+
+	/**
+	 * Set the file to record the results of each test run in, for running only affected tests.
+	 * Default is ".selenium-run-manifest" in the project root.
+	 */
+	public void setRunManifestFile(File runManifestFile) {
+		this.runManifestFile = runManifestFile;
+	}
+
 }
\ No newline at end of file
@@ -34,6 +34,8 @@ import org.cubictest.exporters.selenium.runner.converters.UrlStartPointConverter
 import org.cubictest.exporters.selenium.runner.holders.SeleniumHolder;
 import org.cubictest.exporters.selenium.runner.util.SeleniumController;
 import org.cubictest.exporters.selenium.runner.util.SeleniumController.Operation;
+import org.cubictest.exporters.selenium.runner.util.SeleniumSessionPool;
+import org.cubictest.exporters.selenium.runner.util.SeleniumSessionPool.PooledSession;
 import org.cubictest.model.Test;
 import org.cubictest.model.TransitionNode;
 import org.eclipse.core.resources.IResource;
@@ -44,13 +46,15 @@ import com.thoughtworks.selenium.Selenium;
 
 public class LaunchTestRunner implements ICubicTestRunnable {
 
-	private static final ExecutorService THREADPOOL = Executors.newCachedThreadPool();
+	private final ExecutorService threadPool = Executors.newCachedThreadPool();
 	private SeleniumHolder seleniumHolder;
 	private SeleniumController seleniumController;
 	private Selenium selenium;
 	private TransitionNode targetPage;
 	private IProgressMonitor monitor;
 	private boolean reuseSelenium = false;
+	private SeleniumSessionPool sessionPool;
+	private PooledSession pooledSession;
 	private boolean failOnAssertionFailure;
 	private CubicTestRemoteRunnerClient cubicTestRemoteRunnerClient;
 	private SeleniumClientProxyServer seleniumClientProxyServer;
@@ -73,7 +77,12 @@ public class LaunchTestRunner implements ICubicTestRunnable {
 		});
 
 		try {
-			if (seleniumHolder == null || !reuseSelenium) {
+			if (sessionPool != null) {
+				if (pooledSession == null) {
+					acquirePooledSession(monitor);
+				}
+			}
+			else if (seleniumHolder == null || !reuseSelenium) {
 				startSeleniumAndOpenInitialUrlWithTimeoutGuard(monitor, 40);
 			}
 			seleniumHolder.setWorkingDir(config.getHtmlCaptureAndScreenshotsTargetDir());
@@ -99,6 +108,7 @@ public class LaunchTestRunner implements ICubicTestRunnable {
 			
 			//run the test!
 			testWalker.convertTest(runnerParameters.test, seleniumHolder, targetPage);
+			seleniumHolder.logWaitStatistics();
 
 		} catch (Exception e) {
 			if (monitor != null && monitor.isCanceled()) {
@@ -186,11 +196,29 @@ public class LaunchTestRunner implements ICubicTestRunnable {
 
 	
 	
+	/**
+	 * Acquires a session from the pool, and creates a new holder for the test with it.
+	 */
+	private void acquirePooledSession(IProgressMonitor monitor) throws InterruptedException {
+		pooledSession = sessionPool.acquire(ExportUtils.getInitialUrlStartPoint(runnerParameters.test));
+		seleniumHolder = new SeleniumHolder(pooledSession.getSelenium(), runnerParameters.display, 
+				new CubicTestProjectSettings(runnerParameters.test.getProject()));
+		seleniumHolder.setMonitor(monitor);
+		seleniumHolder.setFailOnAssertionFailure(failOnAssertionFailure);
+		seleniumHolder.setSeleniumStarted(true);
+	}
+	
+	
 	/**
 	 * Stop selenium, guarded by a timeout.
+	 * If the runner uses a session pool, the session is returned to the pool instead.
 	 */
 	public void stopSeleniumWithTimeoutGuard(int timeoutSeconds) {
 		try {
+			if (pooledSession != null) {
+				sessionPool.release(pooledSession);
+				pooledSession = null;
+			}
 			if (seleniumController != null) {
 				seleniumController.setOperation(Operation.STOP);
 				call(seleniumController, timeoutSeconds, TimeUnit.SECONDS);
@@ -240,10 +268,18 @@ public class LaunchTestRunner implements ICubicTestRunnable {
 		this.reuseSelenium = reuseSelenium;
 	}
 
-	protected static <T> T call(Callable<T> c, long timeout, TimeUnit timeUnit)
+	/**
+	 * Set a pool to run the test in a warm session from. The session is returned to the pool when the runner is cleaned up.
+	 * The pool must be shut down by its owner.
+	 */
+	public void setSessionPool(SeleniumSessionPool sessionPool) {
+		this.sessionPool = sessionPool;
+	}
+
+	protected <T> T call(Callable<T> c, long timeout, TimeUnit timeUnit)
 			throws InterruptedException, ExecutionException, TimeoutException {
 		FutureTask<T> t = new FutureTask<T>(c);
-		THREADPOOL.execute(t);
+		threadPool.execute(t);
 		return t.get(timeout, timeUnit);
 	}
 
@@ -273,7 +309,9 @@ public class LaunchTestRunner implements ICubicTestRunnable {
 		catch (Exception e) {
 			Logger.warn("Error when stopping the Selenium Server", e);
 		}
-		
+		finally {
+			threadPool.shutdown();
+		}
 	}
 	
 	public Test getTest() {
@@ -10,25 +10,24 @@
  *******************************************************************************/
 package org.cubictest.exporters.selenium.launch;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.net.ServerSocket;
-import java.net.Socket;
 
 import javax.net.ServerSocketFactory;
 
 import org.cubictest.common.utils.Logger;
 import org.cubictest.exporters.selenium.runner.holders.CubicTestLocalRunner;
 import org.cubictest.exporters.selenium.runner.holders.SeleniumHolder;
+import org.cubictest.runner.selenium.server.internal.CubicSelenium;
+import org.cubictest.runner.selenium.server.internal.FramedConnection;
 
 public class SeleniumClientProxyServer extends Thread {
 	
 	private final SeleniumHolder seleniumHolder;
 	private final int port;
-	private boolean finished = false;
-	private Socket socket;
+	private volatile boolean finished = false;
+	private ServerSocket serverSocket;
+	private FramedConnection connection;
 
 	public SeleniumClientProxyServer(SeleniumHolder seleniumHolder, int port) {
 		this.seleniumHolder = seleniumHolder;
@@ -39,42 +38,31 @@ public class SeleniumClientProxyServer extends Thread {
 	public void run() {
 		try{
 			System.out.println("SeleniumClientProxyServer will run at port " + port);
-			ServerSocket serverSocket = 
-				ServerSocketFactory.getDefault().createServerSocket(port);
-			socket = serverSocket.accept();
-			while (!finished ){
-				InputStreamReader isr = new InputStreamReader(socket.getInputStream());
-				BufferedReader br = new BufferedReader(isr);
-				String commando = br.readLine();
-	
-				int numParams = Integer.parseInt(br.readLine());
-				
-				String[] params = new String[numParams];
-				
-				for(int i = 0; i < numParams; i++){
-					String value = br.readLine();
-					params[i] = value;
-				}
-				
-				OutputStreamWriter writer = new OutputStreamWriter(socket.getOutputStream());
-				
-				String[] results;
+			serverSocket = ServerSocketFactory.getDefault().createServerSocket(port);
+			connection = FramedConnection.accept(serverSocket);
+			serverSocket.close();
+			String[] message;
+			while (!finished && (message = connection.receive()) != null){
+				String[] response;
 				try {
-					results = execute(commando, params);
+					String[] results = execute(message[0], FramedConnection.getArguments(message));
+					response = FramedConnection.toMessage(CubicSelenium.STATUS_OK, results);
 				} catch (Throwable e) {
 					Logger.error("Exception executing Selenium command.", e);
-					results = new String[] { "Error: " + e.toString()};
+					response = new String[] {CubicSelenium.STATUS_ERROR, e.toString()};
 				}
-				
-				writer.write( results.length + "\n");
-				for(String result : results){
-					writer.write(result + "\n");
+				connection.send(response);
+				if (!connection.hasBufferedInput()) {
+					//no pipelined commands waiting, so send the responses
+					connection.flush();
 				}
-				writer.flush();
 			}
-			socket.close();
+			connection.flush();
+			connection.close();
 		} catch (IOException e) {
-			Logger.warn("Unexcepted server shutdown", e);
+			if (!finished) {
+				Logger.warn("Unexcepted server shutdown", e);
+			}
 		}
 	}
 	
@@ -85,9 +73,12 @@ public class SeleniumClientProxyServer extends Thread {
 
 	public void shutdown() {
 		finished = true;
-		if(socket != null){
+		if(connection != null){
+			connection.close();
+		}
+		else if(serverSocket != null){
 			try {
-				socket.close();
+				serverSocket.close();
 			} catch (IOException e) {
 			}
 		}
@@ -10,58 +10,36 @@
  *******************************************************************************/
 package org.cubictest.exporters.selenium.runner;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.net.Socket;
 import java.net.UnknownHostException;
 
-import javax.net.SocketFactory;
-
 import org.cubictest.common.utils.Logger;
+import org.cubictest.runner.selenium.server.internal.FramedConnection;
 
 public class CubicTestRemoteRunnerClient {
 
-	private Socket socket;
+	private FramedConnection connection;
 	private int port;
 
 	public CubicTestRemoteRunnerClient(int port) 
 			throws UnknownHostException, IOException {
 		this.port = port;
-		createSocket();
+		connection = FramedConnection.connect(port);
 	}
 
-	private void createSocket() throws IOException,
-			UnknownHostException {
-		socket = SocketFactory.getDefault().createSocket("localhost",port);
-	}
-	
-	public String executeOnServer(String command, String... values){
+	public synchronized String executeOnServer(String command, String... values){
 		String result = null;
 		try{
-			if(socket == null){
-				createSocket();
+			if(connection == null){
+				connection = FramedConnection.connect(port);
 			}
-			OutputStream os = socket.getOutputStream();
-			BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(os));
-			bw.write(command);
-			bw.newLine();
-			bw.write(values.length + "");
-			bw.newLine();
-			for (int i = 0; i < values.length; i++) {
-				String value = values[i];
-				bw.write(value);
-				bw.newLine();
-			}
-			bw.flush();
-			InputStreamReader isr = new InputStreamReader(socket.getInputStream());
-			BufferedReader br = new BufferedReader(isr);
-			result = br.readLine();
+			result = connection.call(FramedConnection.toMessage(command, values))[0];
 		}catch (IOException e) {
 			Logger.error("Error invoking selenium server", e);
+			if(connection != null){
+				connection.close();
+				connection = null;
+			}
 		}
 		return result;
 	}
@@ -21,7 +21,9 @@ import java.util.concurrent.TimeoutException;
 import org.cubictest.common.settings.CubicTestProjectSettings;
 import org.cubictest.common.utils.ErrorHandler;
 import org.cubictest.export.converters.TreeTestWalker;
+import org.cubictest.export.exceptions.ExporterException;
 import org.cubictest.export.utils.exported.ExportUtils;
+import org.cubictest.exporters.selenium.ElementContext;
 import org.cubictest.exporters.selenium.runner.converters.ContextConverter;
 import org.cubictest.exporters.selenium.runner.converters.PageElementConverter;
 import org.cubictest.exporters.selenium.runner.converters.SameVMCustomTestStepConverter;
@@ -30,24 +32,31 @@ import org.cubictest.exporters.selenium.runner.converters.UrlStartPointConverter
 import org.cubictest.exporters.selenium.runner.holders.SeleniumHolder;
 import org.cubictest.exporters.selenium.runner.util.SeleniumController;
 import org.cubictest.exporters.selenium.runner.util.SeleniumController.Operation;
+import org.cubictest.exporters.selenium.runner.util.SeleniumSessionPool;
+import org.cubictest.exporters.selenium.runner.util.SeleniumSessionPool.PooledSession;
 import org.cubictest.model.Test;
+import org.cubictest.selenium.custom.IElementContext;
 
 import com.thoughtworks.selenium.Selenium;
 
 /**
  * Runner that can use an existing Selenium instance to run the tests.
+ * Each runner has its own Selenium session and state, so several runners can be used in parallel.
  * 
  * @author Christian Schwarz
  */
 public class JUnitTestRunner {
 
-	protected static final ExecutorService THREADPOOL = Executors.newCachedThreadPool();
+	private ExecutorService threadPool;
 	protected CubicTestProjectSettings settings;
 	SeleniumHolder seleniumHolder;
 	SeleniumController seleniumController;
 	Selenium selenium;
 	boolean reuseSelenium = false;
+	private SeleniumSessionPool sessionPool;
+	private PooledSession pooledSession;
 	private final SeleniumRunnerConfiguration config;
+	private IElementContext elementContext = new ElementContext();
 
 	
 	public JUnitTestRunner(SeleniumRunnerConfiguration config, CubicTestProjectSettings settings) {
@@ -59,7 +68,10 @@ public class JUnitTestRunner {
 		test.refreshAndVerifySubFiles();
 		
 		try {
-			if (seleniumHolder == null || !reuseSelenium) {
+			if (sessionPool != null) {
+				acquirePooledSession(test);
+			}
+			else if (seleniumHolder == null || !reuseSelenium) {
 				startSeleniumAndOpenInitialUrlWithTimeoutGuard(test, 40);
 			}
 			
@@ -67,6 +79,7 @@ public class JUnitTestRunner {
 			seleniumHolder.setUseNamespace(config.isSupportXHtmlNamespaces());
 			seleniumHolder.setTakeScreenshots(config.isTakeScreenshots());
 			seleniumHolder.setCaptureHtml(config.isCaptureHtml());
+			seleniumHolder.setCustomStepElementContext(elementContext);
 
 			TreeTestWalker<SeleniumHolder> testWalker = new TreeTestWalker<SeleniumHolder>(UrlStartPointConverter.class, 
 					PageElementConverter.class, ContextConverter.class, 
@@ -74,11 +87,42 @@ public class JUnitTestRunner {
 			
 			//walk the test!
 			testWalker.convertTest(test, seleniumHolder, null);
+			seleniumHolder.logWaitStatistics();
 			
 		}
 		catch (Exception e) {
 			ErrorHandler.rethrow(e);
 		}
+		finally {
+			releasePooledSession();
+		}
+	}
+
+
+	/**
+	 * Acquires a session from the pool, and creates a new holder for the test with it.
+	 */
+	private void acquirePooledSession(Test test) throws InterruptedException {
+		try {
+			pooledSession = sessionPool.acquire(ExportUtils.getInitialUrlStartPoint(test));
+		}
+		catch (ExporterException e) {
+			ErrorHandler.rethrow("Unable to start " + config.getBrowser().getDisplayName() + 
+					" for the session pool.\n\nError message: " + e.toString(), e);
+		}
+		seleniumHolder = new SeleniumHolder(pooledSession.getSelenium(), null, settings);
+		seleniumHolder.setFailOnAssertionFailure(true);
+		seleniumHolder.setSeleniumStarted(true);
+	}
+	
+	/**
+	 * Returns the session to the pool, where it is reset for the next test (or replaced if the reset fails).
+	 */
+	private void releasePooledSession() {
+		if (pooledSession != null) {
+			sessionPool.release(pooledSession);
+			pooledSession = null;
+		}
 	}
 
 
@@ -142,21 +186,48 @@ public class JUnitTestRunner {
 		this.reuseSelenium = reuseSelenium;
 	}
 
+	/**
+	 * Set a pool to run each test in a warm session from. The session is returned to the pool when the test is done.
+	 * When a pool is set, the runner does not start or stop Selenium itself, and the pool must be shut down by its owner.
+	 */
+	public void setSessionPool(SeleniumSessionPool sessionPool) {
+		this.sessionPool = sessionPool;
+	}
+
+	/**
+	 * Set the context that custom test steps run by this runner share variables in.
+	 */
+	public void setCustomStepElementContext(IElementContext elementContext) {
+		this.elementContext = elementContext;
+	}
+
+	public IElementContext getCustomStepElementContext() {
+		return elementContext;
+	}
+
 	/**
 	 * Call a callable object, guarded by timeout.
 	 */
-	protected static <T> T call(Callable<T> c, long timeout, TimeUnit timeUnit)
+	protected <T> T call(Callable<T> c, long timeout, TimeUnit timeUnit)
 	    throws InterruptedException, ExecutionException, TimeoutException {
 	    FutureTask<T> t = new FutureTask<T>(c);
-	    THREADPOOL.execute(t);
+	    getThreadPool().execute(t);
 	    return t.get(timeout, timeUnit);
 	}
+
+	private synchronized ExecutorService getThreadPool() {
+		if (threadPool == null) {
+			threadPool = Executors.newCachedThreadPool();
+		}
+		return threadPool;
+	}
 	
 	/**
 	 * Stop selenium, guarded by a timeout.
 	 */
 	public void stopSeleniumWithTimeoutGuard(int timeoutSeconds) {
 		try {
+			releasePooledSession();
 			if (seleniumController != null) {
 				seleniumController.setOperation(Operation.STOP);
 				call(seleniumController, timeoutSeconds, TimeUnit.SECONDS);
@@ -169,6 +240,12 @@ public class JUnitTestRunner {
 			if (seleniumHolder != null) {
 				seleniumHolder.setSeleniumStarted(false);
 			}
+			synchronized (this) {
+				if (threadPool != null) {
+					threadPool.shutdown();
+					threadPool = null;
+				}
+			}
 		}
 	}
 	
@@ -48,6 +48,26 @@ public class SeleniumRunnerConfiguration  {
 		setBrowser(BrowserType.FIREFOX);
 	}
 
+	/**
+	 * Creates a configuration for an additional, independent Selenium session with the same client settings as this one.
+	 * If CubicTest starts its own Selenium server, the new configuration gets its own random port, so that each session
+	 * gets its own server. If an existing Selenium server is used, the sessions share that server.
+	 * Of the Selenium RC server settings, only the window mode is copied.
+	 */
+	public SeleniumRunnerConfiguration createSessionConfiguration() {
+		SeleniumRunnerConfiguration sessionConfig = new SeleniumRunnerConfiguration();
+		sessionConfig.setBrowser(browserType);
+		sessionConfig.setMultiWindow(!rcConfiguration.isSingleWindow());
+		sessionConfig.supportXHtmlNamespaces = supportXHtmlNamespaces;
+		sessionConfig.htmlCaptureAndScreenshotsTargetDir = htmlCaptureAndScreenshotsTargetDir;
+		sessionConfig.takeScreenshots = takeScreenshots;
+		sessionConfig.captureHtml = captureHtml;
+		if (!shouldStartCubicSeleniumServer) {
+			sessionConfig.setUseExistingSeleniumServer(seleniumServerHostname, getSeleniumServerPort());
+		}
+		return sessionConfig;
+	}
+
 	private void initDefaultPort() {
 		int seleniumServerPort = ExportUtils.findAvailablePort();
 		rcConfiguration.setPort(seleniumServerPort);
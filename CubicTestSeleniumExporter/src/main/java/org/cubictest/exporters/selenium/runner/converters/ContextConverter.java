@@ -40,7 +40,7 @@ public class ContextConverter implements IContextConverter<SeleniumHolder> {
 			Frame frame = (Frame) ctx;
 			String locator = "xpath=" + seleniumHolder.getFullContextWithAllElements(frame);
 			try{
-				waitForElement(seleniumHolder, locator, frame.isNot());
+				waitForElement(seleniumHolder, frame, locator);
 				seleniumHolder.getSelenium().selectFrame(locator);
 				seleniumHolder.addResultByIsNot(frame, TestPartStatus.PASS, frame.isNot());
 			}catch (Exception e) {
@@ -54,7 +54,7 @@ public class ContextConverter implements IContextConverter<SeleniumHolder> {
 			
 			try {
 				String locator = "xpath=" + seleniumHolder.getFullContextWithAllElements(pe);
-				waitForElement(seleniumHolder, locator, pe.isNot());
+				waitForElement(seleniumHolder, pe, locator);
 				seleniumHolder.addResult(pe, TestPartStatus.PASS);
 			}
 			catch (WaitTimedOutException e) {
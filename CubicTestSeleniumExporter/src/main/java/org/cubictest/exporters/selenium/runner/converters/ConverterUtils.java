@@ -10,14 +10,66 @@
  *******************************************************************************/
 package org.cubictest.exporters.selenium.runner.converters;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringEscapeUtils;
 import org.cubictest.exporters.selenium.runner.holders.SeleniumHolder;
 import org.cubictest.exporters.selenium.utils.CubicWait;
+import org.cubictest.exporters.selenium.utils.WaitStrategy;
+import org.cubictest.model.PageElement;
+
+import com.thoughtworks.selenium.SeleniumException;
+import com.thoughtworks.selenium.Wait.WaitTimedOutException;
 
 public class ConverterUtils {
 	
+	private static final AtomicInteger browserWaitCount = new AtomicInteger();
+	
+	
+	/**
+	 * Waits for the condition with the wait strategy of the holder, and records the time waited in its wait statistics.
+	 * @param category the kind of wait, e.g. the page element type.
+	 * @throws WaitTimedOutException if the condition is not met before the page element timeout.
+	 */
+	public static void waitFor(SeleniumHolder seleniumHolder, String category, String message, CubicWait condition) {
+		waitFor(seleniumHolder, category, message, condition, CubicWait.DEFAULT_INTERVAL);
+	}
+	
+	
+	/**
+	 * Waits for the condition with the wait strategy of the holder, and records the time waited in its wait statistics.
+	 * @param fixedIntervalMillis the interval between checks if the holder uses the fixed interval strategy.
+	 * @see #waitFor(SeleniumHolder, String, String, CubicWait)
+	 */
+	public static void waitFor(SeleniumHolder seleniumHolder, String category, String message, CubicWait condition, long fixedIntervalMillis) {
+		long start = System.currentTimeMillis();
+		long waited;
+		try {
+			waited = condition.wait(message, seleniumHolder.getNextPageElementTimeout() * 1000, seleniumHolder.getWaitStrategy(), fixedIntervalMillis);
+		}
+		catch (WaitTimedOutException e) {
+			seleniumHolder.getWaitStatistics().record(category, System.currentTimeMillis() - start, true);
+			throw e;
+		}
+		seleniumHolder.getWaitStatistics().record(category, waited, false);
+	}
 	
-	public static void waitForElement(final SeleniumHolder seleniumHolder, final String locator, final boolean isNot) {
-		new CubicWait() {
+	
+	public static void waitForElement(final SeleniumHolder seleniumHolder, PageElement pe, final String locator) {
+		String message = "Page element not found: " + locator;
+		if (seleniumHolder.getWaitStrategy() == WaitStrategy.BROWSER) {
+			boolean[] asExpected = waitForElementsInBrowser(seleniumHolder, 
+					Collections.singletonList(pe), Collections.singletonList(locator));
+			if (!asExpected[0]) {
+				throw CubicWait.createTimedOutException(message);
+			}
+			return;
+		}
+		final boolean isNot = pe.isNot();
+		waitFor(seleniumHolder, getCategory(pe), message, new CubicWait() {
 			public boolean until() {
 				if (isNot) {
 					return !seleniumHolder.getSelenium().isElementPresent(locator);
@@ -26,6 +78,178 @@ public class ConverterUtils {
 					return seleniumHolder.getSelenium().isElementPresent(locator);
 				}
 			}
-		}.wait("Page element not found: " + locator, seleniumHolder.getNextPageElementTimeout() * 1000);
+		});
+	}
+	
+	
+	/**
+	 * Waits until the elements are present (or not present, if isNot is set for the element).
+	 * Each check evaluates all elements that are not yet as expected in one JavaScript call in the browser,
+	 * so the number of requests to Selenium does not depend on the number of elements.
+	 * @return for each locator, whether the element was as expected before the timeout.
+	 */
+	public static boolean[] waitForElements(final SeleniumHolder seleniumHolder, final List<PageElement> elements, final List<String> locators) {
+		if (seleniumHolder.getWaitStrategy() == WaitStrategy.BROWSER) {
+			return waitForElementsInBrowser(seleniumHolder, elements, locators);
+		}
+		final boolean[] asExpected = new boolean[locators.size()];
+		final long[] waited = new long[locators.size()];
+		final long start = System.currentTimeMillis();
+		try {
+			new CubicWait() {
+				public boolean until() {
+					List<Integer> remaining = getRemaining(asExpected);
+					boolean[] result = evaluateElements(seleniumHolder, elements, locators, remaining);
+					long now = System.currentTimeMillis();
+					boolean done = true;
+					for (int j = 0; j < remaining.size(); j++) {
+						int i = remaining.get(j);
+						if (result[j]) {
+							asExpected[i] = true;
+							waited[i] = now - start;
+						}
+						else {
+							done = false;
+						}
+					}
+					return done;
+				}
+			}.wait("Page elements not found", seleniumHolder.getNextPageElementTimeout() * 1000, seleniumHolder.getWaitStrategy());
+		}
+		catch (WaitTimedOutException e) {
+			//the elements not as expected are failed
+		}
+		long end = System.currentTimeMillis();
+		for (int i = 0; i < asExpected.length; i++) {
+			seleniumHolder.getWaitStatistics().record(getCategory(elements.get(i)), asExpected[i] ? waited[i] : end - start, !asExpected[i]);
+		}
+		return asExpected;
+	}
+	
+	
+	/**
+	 * Waits in the browser until all elements are as expected, with a single Selenium request.
+	 * A MutationObserver in the page makes the locators only be checked again when the DOM has changed.
+	 * If the wait times out, the elements are checked once more to find which ones are as expected.
+	 */
+	private static boolean[] waitForElementsInBrowser(SeleniumHolder seleniumHolder, List<PageElement> elements, List<String> locators) {
+		boolean[] asExpected = new boolean[locators.size()];
+		List<Integer> all = getRemaining(asExpected);
+		long start = System.currentTimeMillis();
+		boolean timedOut = false;
+		try {
+			seleniumHolder.getSelenium().waitForCondition(getElementWaiterScript(elements, locators), 
+					(seleniumHolder.getNextPageElementTimeout() * 1000) + "");
+		}
+		catch (SeleniumException e) {
+			timedOut = true;
+		}
+		long waited = System.currentTimeMillis() - start;
+		if (timedOut) {
+			asExpected = evaluateElements(seleniumHolder, elements, locators, all);
+		}
+		else {
+			for (int i = 0; i < asExpected.length; i++) {
+				asExpected[i] = true;
+			}
+		}
+		for (int i = 0; i < asExpected.length; i++) {
+			seleniumHolder.getWaitStatistics().record(getCategory(elements.get(i)), waited, !asExpected[i]);
+		}
+		return asExpected;
+	}
+	
+	
+	/**
+	 * Gets the kind of page element, for the wait statistics.
+	 */
+	public static String getCategory(PageElement pe) {
+		return pe.getClass().getSimpleName();
+	}
+	
+	
+	private static List<Integer> getRemaining(boolean[] asExpected) {
+		List<Integer> remaining = new ArrayList<Integer>();
+		for (int i = 0; i < asExpected.length; i++) {
+			if (!asExpected[i]) {
+				remaining.add(i);
+			}
+		}
+		return remaining;
+	}
+	
+	
+	/**
+	 * Checks the elements at the indexes with one JavaScript call.
+	 * @return for each index, whether the element is as expected.
+	 */
+	private static boolean[] evaluateElements(SeleniumHolder seleniumHolder, List<PageElement> elements, List<String> locators, List<Integer> indexes) {
+		String presence = seleniumHolder.getSelenium().getEval(getElementPresenceScript(locators, indexes));
+		boolean[] result = new boolean[indexes.size()];
+		for (int j = 0; j < indexes.size(); j++) {
+			boolean isNot = elements.get(indexes.get(j)).isNot();
+			char present = j < presence.length() ? presence.charAt(j) : 'E';
+			result[j] = (present == '1' && !isNot) || (present == '0' && isNot);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Gets script that returns a string with '1' for each present element, '0' for each missing element
+	 * and 'E' if the element could not be looked up.
+	 */
+	private static String getElementPresenceScript(List<String> locators, List<Integer> indexes) {
+		StringBuilder script = new StringBuilder("var locators = [");
+		for (int j = 0; j < indexes.size(); j++) {
+			if (j > 0) {
+				script.append(", ");
+			}
+			script.append("'").append(StringEscapeUtils.escapeJavaScript(locators.get(indexes.get(j)))).append("'");
+		}
+		script.append("]; var result = ''; ");
+		script.append("for (var i = 0; i < locators.length; i++) { ");
+		script.append("try { result += this.isElementPresent(locators[i]) ? '1' : '0'; } catch (e) { result += 'E'; } ");
+		script.append("} result;");
+		return script.toString();
+	}
+	
+	
+	/**
+	 * Gets condition for Selenium's waitForCondition that is true when all elements are as expected.
+	 * The condition installs a MutationObserver in the current window (if supported by the browser), 
+	 * and only checks the locators again when the DOM has changed since the last check of this wait.
+	 */
+	private static String getElementWaiterScript(List<PageElement> elements, List<String> locators) {
+		int waitId = browserWaitCount.incrementAndGet();
+		StringBuilder script = new StringBuilder("(function() { ");
+		script.append("var w = selenium.browserbot.getCurrentWindow(); ");
+		script.append("if (w.MutationObserver && !w.cubicTestObserver) { ");
+		script.append("w.cubicTestObserver = new w.MutationObserver(function() { w.cubicTestDirty = true; }); ");
+		script.append("w.cubicTestObserver.observe(w.document, {childList: true, subtree: true, attributes: true, characterData: true}); ");
+		script.append("w.cubicTestDirty = true; } ");
+		script.append("if (w.cubicTestWaitId != ").append(waitId).append(") { w.cubicTestWaitId = ").append(waitId).append("; w.cubicTestDirty = true; } ");
+		script.append("if (w.cubicTestObserver && !w.cubicTestDirty) { return false; } ");
+		script.append("w.cubicTestDirty = false; ");
+		script.append("var locators = [");
+		for (int i = 0; i < locators.size(); i++) {
+			if (i > 0) {
+				script.append(", ");
+			}
+			script.append("'").append(StringEscapeUtils.escapeJavaScript(locators.get(i))).append("'");
+		}
+		script.append("]; var isNot = [");
+		for (int i = 0; i < elements.size(); i++) {
+			if (i > 0) {
+				script.append(", ");
+			}
+			script.append(elements.get(i).isNot());
+		}
+		script.append("]; ");
+		script.append("for (var i = 0; i < locators.length; i++) { ");
+		script.append("var present; try { present = selenium.isElementPresent(locators[i]); } catch (e) { w.cubicTestDirty = true; return false; } ");
+		script.append("if (present == isNot[i]) { return false; } ");
+		script.append("} return true; })()");
+		return script.toString();
 	}
 }
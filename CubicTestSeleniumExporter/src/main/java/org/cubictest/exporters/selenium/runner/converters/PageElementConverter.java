@@ -10,10 +10,16 @@
  *******************************************************************************/
 package org.cubictest.exporters.selenium.runner.converters;
 
+import static org.cubictest.exporters.selenium.runner.converters.ConverterUtils.getCategory;
+import static org.cubictest.exporters.selenium.runner.converters.ConverterUtils.waitFor;
 import static org.cubictest.exporters.selenium.runner.converters.ConverterUtils.waitForElement;
+import static org.cubictest.exporters.selenium.runner.converters.ConverterUtils.waitForElements;
 import static org.cubictest.model.IdentifierType.LABEL;
 
-import org.cubictest.export.converters.IPageElementConverter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cubictest.export.converters.IPageElementBatchConverter;
 import org.cubictest.export.utils.exported.RunnerUtils;
 import org.cubictest.exporters.selenium.runner.holders.SeleniumHolder;
 import org.cubictest.exporters.selenium.utils.CubicWait;
@@ -30,7 +36,7 @@ import com.thoughtworks.selenium.Wait.WaitTimedOutException;
  * 
  * @author chr_schwarz
  */
-public class PageElementConverter implements IPageElementConverter<SeleniumHolder> {	
+public class PageElementConverter implements IPageElementBatchConverter<SeleniumHolder> {	
 
 	
 	/**
@@ -53,7 +59,7 @@ public class PageElementConverter implements IPageElementConverter<SeleniumHolde
 		else if (seleniumHolder.isInRootContext() && pe instanceof Text) {
 			//texts in root context have bug in firefox xpath, use selenium's own function:
 			try {
-				waitForText(seleniumHolder, pe.getText(), pe.isNot());
+				waitForText(seleniumHolder, pe);
 				seleniumHolder.addResult(pe, TestPartStatus.PASS);
 			}
 			catch (WaitTimedOutException e) {
@@ -64,7 +70,7 @@ public class PageElementConverter implements IPageElementConverter<SeleniumHolde
 			//all other elements
 			try {
 				String locator = "xpath=" + seleniumHolder.getFullContextWithAllElements(pe);
-				waitForElement(seleniumHolder, locator, pe.isNot());
+				waitForElement(seleniumHolder, pe, locator);
 				seleniumHolder.addResult(pe, TestPartStatus.PASS);
 			}
 			catch (WaitTimedOutException e) {
@@ -73,8 +79,43 @@ public class PageElementConverter implements IPageElementConverter<SeleniumHolde
 		}
 	}
 	
-	private void waitForText(final SeleniumHolder seleniumHolder, final String text, final boolean isNot) {
-		new CubicWait() {
+	/**
+	 * Asserts that the page elements of a page or context are present, checking all elements with XPath locators together. 
+	 * @param pageElements The page elements to check.
+	 */
+	public void handlePageElements(SeleniumHolder seleniumHolder, List<PageElement> pageElements) {
+		if (!seleniumHolder.isBatchElementAssertions()) {
+			for (PageElement pe : pageElements) {
+				handlePageElement(seleniumHolder, pe);
+			}
+			return;
+		}
+		
+		List<PageElement> xpathElements = new ArrayList<PageElement>();
+		List<String> locators = new ArrayList<String>();
+		for (PageElement pe : pageElements) {
+			if (pe instanceof Title || (seleniumHolder.isInRootContext() && pe instanceof Text)) {
+				handlePageElement(seleniumHolder, pe);
+			}
+			else {
+				xpathElements.add(pe);
+				locators.add("xpath=" + seleniumHolder.getFullContextWithAllElements(pe));
+			}
+		}
+		if (xpathElements.isEmpty()) {
+			return;
+		}
+		
+		boolean[] asExpected = waitForElements(seleniumHolder, xpathElements, locators);
+		for (int i = 0; i < asExpected.length; i++) {
+			seleniumHolder.addResult(xpathElements.get(i), asExpected[i] ? TestPartStatus.PASS : TestPartStatus.FAIL);
+		}
+	}
+	
+	private void waitForText(final SeleniumHolder seleniumHolder, PageElement pe) {
+		final String text = pe.getText();
+		final boolean isNot = pe.isNot();
+		waitFor(seleniumHolder, getCategory(pe), "Text not found: " + text, new CubicWait() {
 			public boolean until() {
 				if (isNot) {
 					return !seleniumHolder.getSelenium().isTextPresent(text);
@@ -83,6 +124,6 @@ public class PageElementConverter implements IPageElementConverter<SeleniumHolde
 					return seleniumHolder.getSelenium().isTextPresent(text);
 				}
 			}
-		}.wait("Text not found: " + text, seleniumHolder.getNextPageElementTimeout() * 1000);
+		});
 	}
 }
@@ -15,7 +15,6 @@ import java.util.Map;
 
 import org.cubictest.common.utils.Logger;
 import org.cubictest.export.exceptions.ExporterException;
-import org.cubictest.exporters.selenium.ElementContext;
 import org.cubictest.exporters.selenium.common.converters.CustomTestStepConverter;
 import org.cubictest.exporters.selenium.runner.holders.SeleniumHolder;
 import org.cubictest.exporters.selenium.utils.SeleniumUtils;
@@ -28,9 +27,6 @@ import org.cubictest.selenium.custom.IElementContext;
 
 public class SameVMCustomTestStepConverter extends CustomTestStepConverter {
 
-	private static final ThreadLocal<IElementContext> threadElementContext = new ThreadLocal<IElementContext>();
-
-	
 	public void handleCustomStep(SeleniumHolder t, CustomTestStepHolder cts,
 			CustomTestStepData data) {
 
@@ -39,8 +35,9 @@ public class SameVMCustomTestStepConverter extends CustomTestStepConverter {
 			t.getSelenium().waitForPageToLoad((t.getNextPageElementTimeout() * 1000) + "");
 		}
 		
-		if (threadElementContext.get() == null) {
-			throw new ExporterException("Custom step converter thread ElementContext was null. Please set an ElementContext on the SeleniumRunner or this converter.");
+		IElementContext elementContext = t.getCustomStepElementContext();
+		if (elementContext == null) {
+			throw new ExporterException("Custom step converter ElementContext was null. Please set an ElementContext on the SeleniumRunner.");
 		}
 		
 		Map<String, String> arguments = new HashMap<String, String>();
@@ -56,7 +53,7 @@ public class SameVMCustomTestStepConverter extends CustomTestStepConverter {
 
 		try{
 			ICustomTestStep testStep = (ICustomTestStep) Class.forName(data.getDisplayText()).newInstance();
-			testStep.execute(arguments, threadElementContext.get(), t.getSelenium().getSelenium());
+			testStep.execute(arguments, elementContext, t.getSelenium().getSelenium());
 			t.addResult(cts,TestPartStatus.PASS);
 		}catch (Exception e) {
 			Logger.error("Error handling custom step " + ctsName, e);
@@ -68,18 +65,5 @@ public class SameVMCustomTestStepConverter extends CustomTestStepConverter {
 		}
 	}
 
-	/** Retrieves the ElementContext of this thread. */
-	public static IElementContext getThreadElementContext() {
-		return threadElementContext.get();
-	}
-
-	/** Stores the ElementContext of this thread. */
-	public static void setThreadElementContext(IElementContext elementContext) {
-		threadElementContext.set(elementContext);
-	}
-	
-	public static void resetElementContext() {
-		setThreadElementContext(new ElementContext());
-	}
 	
 }
@@ -20,6 +20,7 @@ import org.cubictest.export.exceptions.ExporterException;
 import org.cubictest.export.exceptions.UserInteractionException;
 import org.cubictest.exporters.selenium.runner.holders.CubicTestLocalRunner;
 import org.cubictest.exporters.selenium.runner.holders.SeleniumHolder;
+import org.cubictest.exporters.selenium.utils.CubicWait;
 import org.cubictest.exporters.selenium.utils.SeleniumUtils;
 import org.cubictest.model.ActionType;
 import org.cubictest.model.IActionElement;
@@ -32,6 +33,8 @@ import org.cubictest.model.context.Frame;
 import org.cubictest.model.formElement.Option;
 import org.cubictest.model.formElement.Select;
 
+import com.thoughtworks.selenium.Wait.WaitTimedOutException;
+
 /**
  * Class to convert transitions to selenium commands.
  * 
@@ -39,15 +42,18 @@ import org.cubictest.model.formElement.Select;
  */
 public class TransitionConverter implements ITransitionConverter<SeleniumHolder> {
 	
+	/** Interval between retries of a failed user interaction, with the fixed interval wait strategy. */
+	private static final long RETRY_INTERVAL_MILLIS = 100;
+	
 	
 	/**
 	 * Converts a user interactions transition to a list of Selenium commands.
 	 * 
 	 * @param transition The transition to convert.
 	 */
-	public void handleUserInteractions(SeleniumHolder seleniumHolder, UserInteractionsTransition transition) {
+	public void handleUserInteractions(final SeleniumHolder seleniumHolder, UserInteractionsTransition transition) {
 		
-		for (UserInteraction userInteraction : transition.getUserInteractions()) {
+		for (final UserInteraction userInteraction : transition.getUserInteractions()) {
 			IActionElement actionElement = userInteraction.getElement();
 			
 			if (actionElement == null) {
@@ -55,26 +61,28 @@ public class TransitionConverter implements ITransitionConverter<SeleniumHolder>
 				continue;
 			}
 			
-			int waitMillis = seleniumHolder.getNextPageElementTimeout() * 1000;
-			int waitIntervalMillis = 100;
-			int i = 0;
-			while(true) {
-				try {
-					handleUserInteraction(seleniumHolder, userInteraction);
-					break;
-				}
-				catch (UserInteractionException e) {
-					if (i > waitMillis) {
-						handleUserInteractionFailure(seleniumHolder, userInteraction, e);
+			//retry the user interaction until it succeeds or the page element timeout runs out:
+			final UserInteractionException[] lastError = new UserInteractionException[1];
+			try {
+				ConverterUtils.waitFor(seleniumHolder, actionElement.getClass().getSimpleName() + " (user interaction)", 
+						"User interaction failed: " + userInteraction, new CubicWait() {
+					public boolean until() {
+						if (lastError[0] != null) {
+							Logger.warn("Retrying user interaction: " + userInteraction.toString() + " after error: " + ErrorHandler.getCause(lastError[0]).toString());
+						}
+						try {
+							handleUserInteraction(seleniumHolder, userInteraction);
+							return true;
+						}
+						catch (UserInteractionException e) {
+							lastError[0] = e;
+							return false;
+						}
 					}
-					try {
-						Thread.sleep(waitIntervalMillis);
-						i += waitIntervalMillis;
-						Logger.warn("Retrying user interaction: " + userInteraction.toString() + " after error: " + ErrorHandler.getCause(e).toString());
-					} catch (InterruptedException e2) {
-						throw new ExporterException(e2.toString() + " came after " + e.toString(), e);
-					}
-				}
+				}, RETRY_INTERVAL_MILLIS);
+			}
+			catch (WaitTimedOutException e) {
+				handleUserInteractionFailure(seleniumHolder, userInteraction, lastError[0]);
 			}
 			
 			//increment the number of steps in test:
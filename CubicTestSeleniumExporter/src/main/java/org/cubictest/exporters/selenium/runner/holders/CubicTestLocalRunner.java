@@ -86,10 +86,18 @@ public class CubicTestLocalRunner {
 		return selenium.isElementPresent(locator);
 	}
 
+	public String getEval(String script) {
+		return selenium.getEval(script);
+	}
+
 	public void waitForPageToLoad(String string) {
 		selenium.waitForPageToLoad(string);
 	}
 
+	public void waitForCondition(String script, String timeout) {
+		selenium.waitForCondition(script, timeout);
+	}
+
 	public void open(String beginAt) {
 		selenium.open(beginAt);
 	}
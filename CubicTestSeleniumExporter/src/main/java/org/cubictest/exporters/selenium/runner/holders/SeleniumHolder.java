@@ -22,8 +22,11 @@ import org.cubictest.export.exceptions.ExporterException;
 import org.cubictest.export.holders.RunnerResultHolder;
 import org.cubictest.exporters.selenium.runner.CubicTestRemoteRunnerClient;
 import org.cubictest.exporters.selenium.utils.SeleniumUtils;
+import org.cubictest.exporters.selenium.utils.WaitStatistics;
+import org.cubictest.exporters.selenium.utils.WaitStrategy;
 import org.cubictest.model.PropertyAwareObject;
 import org.cubictest.model.UrlStartPoint;
+import org.cubictest.selenium.custom.IElementContext;
 import org.eclipse.swt.widgets.Display;
 
 import com.thoughtworks.selenium.Selenium;
@@ -41,10 +44,14 @@ public class SeleniumHolder extends RunnerResultHolder {
 	private boolean seleniumStarted;
 	private UrlStartPoint handledUrlStartPoint;
 	private CubicTestRemoteRunnerClient customStepRunner;
+	private IElementContext customStepElementContext;
 	private String workingDirName;
 	private String timestampFolder = new SimpleDateFormat("yyyy-MM-dd HHmm").format(new Date());
 	private boolean takeScreenshots;
 	private boolean captureHtml;
+	private boolean batchElementAssertions;
+	private WaitStrategy waitStrategy;
+	private WaitStatistics waitStatistics = new WaitStatistics();
 	
 	
 	/**
@@ -56,6 +63,8 @@ public class SeleniumHolder extends RunnerResultHolder {
 	public SeleniumHolder(Selenium selenium, Display display, CubicTestProjectSettings settings) {
 		super(display, settings, SeleniumUtils.getTimeout(settings));
 		this.selenium = new CubicTestLocalRunner(selenium);
+		this.batchElementAssertions = SeleniumUtils.isBatchElementAssertions(settings);
+		this.waitStrategy = SeleniumUtils.getWaitStrategy(settings);
 	}
 	
 	public SeleniumHolder(String seleniumServerHostname, int seleniumServerPort, String browser, String initialUrl, Display display, CubicTestProjectSettings settings) {
@@ -67,6 +76,8 @@ public class SeleniumHolder extends RunnerResultHolder {
 			seleniumServerHostname = "localhost";
 		}
 		this.selenium = new CubicTestLocalRunner(seleniumServerHostname, seleniumServerPort, browser, initialUrl);
+		this.batchElementAssertions = SeleniumUtils.isBatchElementAssertions(settings);
+		this.waitStrategy = SeleniumUtils.getWaitStrategy(settings);
 	}
 	
 	@Override
@@ -134,6 +145,14 @@ public class SeleniumHolder extends RunnerResultHolder {
 		return customStepRunner;
 	}
 
+	public void setCustomStepElementContext(IElementContext customStepElementContext) {
+		this.customStepElementContext = customStepElementContext;
+	}
+
+	public IElementContext getCustomStepElementContext() {
+		return customStepElementContext;
+	}
+
 	public void setWorkingDir(String workingDirName) {
 		this.workingDirName = workingDirName;
 	}
@@ -146,6 +165,45 @@ public class SeleniumHolder extends RunnerResultHolder {
 		this.captureHtml = captureHtml;
 	}
 
+	/**
+	 * Set whether the page elements of a page or context should be checked together, with one request to the browser.
+	 */
+	public void setBatchElementAssertions(boolean batchElementAssertions) {
+		this.batchElementAssertions = batchElementAssertions;
+	}
+
+	public boolean isBatchElementAssertions() {
+		return batchElementAssertions;
+	}
+
+	/**
+	 * Set how to wait for page elements and user interactions.
+	 */
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		this.waitStrategy = waitStrategy;
+	}
+
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	/**
+	 * Get the times spent waiting for page elements and user interactions in this test run.
+	 */
+	public WaitStatistics getWaitStatistics() {
+		return waitStatistics;
+	}
+
+	/**
+	 * Logs the wait time histograms of the test run, and starts new ones for the next run.
+	 */
+	public void logWaitStatistics() {
+		if (!waitStatistics.isEmpty()) {
+			Logger.info("Wait times (" + waitStrategy.getSettingValue() + " wait strategy):\n" + waitStatistics);
+			waitStatistics.clear();
+		}
+	}
+
 	public void setTestName(String testName) {
 		//not in use
 	}
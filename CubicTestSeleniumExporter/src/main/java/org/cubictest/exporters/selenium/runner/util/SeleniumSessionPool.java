@@ -0,0 +1,525 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.selenium.runner.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.cubictest.common.settings.CubicTestProjectSettings;
+import org.cubictest.common.utils.Logger;
+import org.cubictest.export.exceptions.ExporterException;
+import org.cubictest.exporters.selenium.runner.SeleniumRunnerConfiguration;
+import org.cubictest.exporters.selenium.runner.holders.SeleniumHolder;
+import org.cubictest.model.UrlStartPoint;
+
+import com.thoughtworks.selenium.Selenium;
+
+/**
+ * Pool of warm Selenium sessions (browsers) that are reused across tests, to avoid the cost of starting a browser for each test.
+ * <p>
+ * The pool keeps up to <code>size</code> sessions. The first session is started when it is acquired, and the rest are then 
+ * started in the background. When a session is released, it is reset for the next test: frames and windows opened by the test 
+ * are closed and cookies are deleted. The reset is verified, and sessions that could not be reset are stopped and replaced in 
+ * the background. Idle sessions are checked for liveness at a fixed interval, and dead sessions are replaced the same way.
+ * <p>
+ * Thread safe. The pool must be shut down when it is no longer used, to stop the browsers. 
+ * Its threads are daemon threads, so they do not keep the JVM alive.
+ * 
+ * @author Christian Schwarz
+ */
+public class SeleniumSessionPool {
+
+	public static final int DEFAULT_LIVENESS_CHECK_INTERVAL_SECONDS = 30;
+	private static final int START_TIMEOUT_SECONDS = 40;
+	private static final int COMMAND_TIMEOUT_SECONDS = 20;
+	private static final String MAIN_WINDOW = "null";
+	private static final String TOP_FRAME = "relative=top";
+
+	private final SessionFactory factory;
+	private final int size;
+	private final LinkedList<PooledSession> idleSessions = new LinkedList<PooledSession>();
+	private final Set<PooledSession> busySessions = new HashSet<PooledSession>();
+	/** Number of sessions that are being started, checked or reset, and are neither idle nor in use. */
+	private int pendingSessions;
+	private UrlStartPoint initialUrlStartPoint;
+	private boolean shutDown;
+	private int replacedSessions;
+	private final ExecutorService threadPool = Executors.newCachedThreadPool(new DaemonThreadFactory("Selenium session pool"));
+	private ScheduledExecutorService livenessChecker;
+
+	
+	/**
+	 * Creates a pool of sessions started with the configuration. 
+	 * If CubicTest starts its own Selenium server, each session gets its own server (see 
+	 * {@link SeleniumRunnerConfiguration#createSessionConfiguration()}).
+	 */
+	public SeleniumSessionPool(SeleniumRunnerConfiguration config, CubicTestProjectSettings settings, int size) {
+		this(new ControllerSessionFactory(config, settings), size, DEFAULT_LIVENESS_CHECK_INTERVAL_SECONDS);
+	}
+
+	SeleniumSessionPool(SessionFactory factory, int size, int livenessCheckIntervalSeconds) {
+		if (size < 1) {
+			throw new ExporterException("Size of session pool must be at least 1");
+		}
+		this.factory = factory;
+		this.size = size;
+		if (livenessCheckIntervalSeconds > 0) {
+			livenessChecker = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Selenium session liveness check"));
+			livenessChecker.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					checkIdleSessions();
+				}
+			}, livenessCheckIntervalSeconds, livenessCheckIntervalSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	
+	/**
+	 * Acquires a reset session from the pool, waiting for one to become idle if all sessions are in use.
+	 * @param initialUrlStartPoint URL that new sessions are started at. The session is not guaranteed to be at this URL.
+	 */
+	public PooledSession acquire(UrlStartPoint initialUrlStartPoint) throws InterruptedException {
+		synchronized (this) {
+			assertNotShutDown();
+			if (initialUrlStartPoint != null) {
+				this.initialUrlStartPoint = initialUrlStartPoint;
+			}
+			while (idleSessions.isEmpty()) {
+				if (getNumberOfSessions() < size) {
+					pendingSessions++;
+					break;
+				}
+				wait();
+				assertNotShutDown();
+			}
+			if (!idleSessions.isEmpty()) {
+				PooledSession session = idleSessions.removeFirst();
+				busySessions.add(session);
+				return session;
+			}
+		}
+		
+		PooledSession session = null;
+		try {
+			session = startSession();
+		}
+		finally {
+			synchronized (this) {
+				pendingSessions--;
+				if (session != null) {
+					busySessions.add(session);
+				}
+				notifyAll();
+			}
+		}
+		warmUp();
+		return session;
+	}
+
+	
+	/**
+	 * Returns a session to the pool. The session is reset and verified before it can be acquired again.
+	 * If the reset fails, the session is stopped and replaced in the background.
+	 */
+	public void release(PooledSession session) {
+		synchronized (this) {
+			if (!busySessions.remove(session)) {
+				return;
+			}
+			pendingSessions++;
+		}
+		boolean reset = callWithTimeout(new ResetSession(session));
+		synchronized (this) {
+			pendingSessions--;
+			notifyAll();
+			if (reset && !shutDown) {
+				session.testsRun++;
+				idleSessions.addFirst(session);
+				return;
+			}
+		}
+		if (!reset) {
+			Logger.info("Replacing Selenium session that could not be reset.");
+		}
+		replace(session);
+	}
+	
+	
+	/**
+	 * Checks that idle sessions are alive, and replaces those that are not.
+	 */
+	void checkIdleSessions() {
+		List<PooledSession> sessions;
+		synchronized (this) {
+			sessions = new ArrayList<PooledSession>(idleSessions);
+			idleSessions.clear();
+			pendingSessions += sessions.size();
+		}
+		for (final PooledSession session : sessions) {
+			boolean alive = callWithTimeout(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					session.getSelenium().getTitle();
+					return true;
+				}
+			});
+			synchronized (this) {
+				pendingSessions--;
+				notifyAll();
+				if (alive && !shutDown) {
+					idleSessions.addLast(session);
+					continue;
+				}
+			}
+			if (!alive) {
+				Logger.info("Replacing Selenium session that is not responding.");
+			}
+			replace(session);
+		}
+	}
+	
+	
+	/**
+	 * Stops all sessions, including those that are in use.
+	 */
+	public void shutdown() {
+		List<PooledSession> sessions;
+		synchronized (this) {
+			shutDown = true;
+			sessions = new ArrayList<PooledSession>(idleSessions);
+			sessions.addAll(busySessions);
+			idleSessions.clear();
+			busySessions.clear();
+			notifyAll();
+		}
+		if (livenessChecker != null) {
+			livenessChecker.shutdownNow();
+		}
+		for (PooledSession session : sessions) {
+			stopSession(session);
+		}
+		threadPool.shutdown();
+	}
+
+	
+	/**
+	 * Gets the number of sessions that are idle, in use, or being started, checked or reset.
+	 */
+	public synchronized int getNumberOfSessions() {
+		return idleSessions.size() + busySessions.size() + pendingSessions;
+	}
+
+	public synchronized int getNumberOfIdleSessions() {
+		return idleSessions.size();
+	}
+	
+	/**
+	 * Gets the number of sessions that have been replaced, because they could not be reset or were not responding.
+	 */
+	public synchronized int getNumberOfReplacedSessions() {
+		return replacedSessions;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	
+	/**
+	 * Starts sessions in the background until the pool is full.
+	 */
+	private void warmUp() {
+		while (true) {
+			synchronized (this) {
+				if (shutDown || initialUrlStartPoint == null || getNumberOfSessions() >= size) {
+					return;
+				}
+				pendingSessions++;
+			}
+			threadPool.execute(new Runnable() {
+				public void run() {
+					PooledSession session = null;
+					try {
+						session = startSession();
+					}
+					catch (Exception e) {
+						Logger.warn("Could not start Selenium session in the background.", e);
+					}
+					boolean stop = false;
+					synchronized (SeleniumSessionPool.this) {
+						pendingSessions--;
+						if (session != null) {
+							if (shutDown) {
+								stop = true;
+							}
+							else {
+								idleSessions.addLast(session);
+							}
+						}
+						SeleniumSessionPool.this.notifyAll();
+					}
+					if (stop) {
+						stopSession(session);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stops the session in the background, and starts a new one unless the pool has been shut down.
+	 */
+	private void replace(final PooledSession session) {
+		boolean startNewSession;
+		synchronized (this) {
+			startNewSession = !shutDown;
+			if (startNewSession) {
+				replacedSessions++;
+			}
+		}
+		if (!startNewSession) {
+			stopSession(session);
+			return;
+		}
+		try {
+			threadPool.execute(new Runnable() {
+				public void run() {
+					stopSession(session);
+				}
+			});
+		}
+		catch (Exception e) {
+			//pool has been shut down
+			stopSession(session);
+		}
+		warmUp();
+	}
+
+	private PooledSession startSession() {
+		final UrlStartPoint startPoint;
+		synchronized (this) {
+			startPoint = initialUrlStartPoint;
+		}
+		if (startPoint == null) {
+			throw new ExporterException("Initial URL of Selenium session is missing");
+		}
+		Future<Selenium> future = threadPool.submit(new Callable<Selenium>() {
+			public Selenium call() throws Exception {
+				return factory.start(startPoint);
+			}
+		});
+		Selenium selenium;
+		try {
+			selenium = future.get(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+		catch (Exception e) {
+			future.cancel(true);
+			throw new ExporterException("Unable to start Selenium session: " + e.toString(), e);
+		}
+		try {
+			return new PooledSession(selenium, getWindowNames(selenium));
+		}
+		catch (RuntimeException e) {
+			stopSession(new PooledSession(selenium, new HashSet<String>()));
+			throw e;
+		}
+	}
+	
+	private void stopSession(PooledSession session) {
+		try {
+			factory.stop(session.getSelenium());
+		}
+		catch (Exception e) {
+			Logger.warn("Error when stopping Selenium session.", e);
+		}
+	}
+
+	private boolean callWithTimeout(Callable<Boolean> callable) {
+		try {
+			Future<Boolean> future = threadPool.submit(callable);
+			try {
+				return future.get(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			}
+			finally {
+				future.cancel(true);
+			}
+		}
+		catch (Exception e) {
+			Logger.warn("Selenium session did not respond correctly: " + e.toString());
+			return false;
+		}
+	}
+
+	private synchronized void assertNotShutDown() {
+		if (shutDown) {
+			throw new ExporterException("Selenium session pool has been shut down");
+		}
+	}
+	
+	private static Set<String> getWindowNames(Selenium selenium) {
+		return new HashSet<String>(Arrays.asList(selenium.getAllWindowNames()));
+	}
+
+
+	/**
+	 * Resets a session for the next test, and verifies the reset.
+	 * Windows that were not open when the session was started are closed, the top frame of the main window is selected, 
+	 * and the cookies visible to the current page are deleted.
+	 */
+	static boolean reset(PooledSession session) {
+		Selenium selenium = session.getSelenium();
+		for (String window : getWindowNames(selenium)) {
+			if (!session.initialWindows.contains(window)) {
+				selenium.selectWindow(window);
+				selenium.close();
+			}
+		}
+		selenium.selectWindow(MAIN_WINDOW);
+		selenium.selectFrame(TOP_FRAME);
+		selenium.deleteAllVisibleCookies();
+		
+		boolean windowsClosed = getWindowNames(selenium).equals(session.initialWindows);
+		boolean cookiesDeleted = StringUtils.isBlank(selenium.getCookie());
+		if (!windowsClosed || !cookiesDeleted) {
+			Logger.warn("Reset of Selenium session failed. Windows closed: " + windowsClosed + ", cookies deleted: " + cookiesDeleted);
+			return false;
+		}
+		return true;
+	}
+
+	
+	/**
+	 * Creates daemon threads, so that a pool that is not shut down does not keep the JVM alive.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger count = new AtomicInteger();
+		
+		public DaemonThreadFactory(String name) {
+			this.name = name;
+		}
+		
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name + " " + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+	
+	
+	private static class ResetSession implements Callable<Boolean> {
+		private final PooledSession session;
+		
+		public ResetSession(PooledSession session) {
+			this.session = session;
+		}
+		
+		public Boolean call() throws Exception {
+			return reset(session);
+		}
+	}
+	
+	
+	/**
+	 * A started Selenium session in the pool.
+	 */
+	public static class PooledSession {
+		private final Selenium selenium;
+		private final Set<String> initialWindows;
+		private int testsRun;
+		
+		PooledSession(Selenium selenium, Set<String> initialWindows) {
+			this.selenium = selenium;
+			this.initialWindows = initialWindows;
+		}
+		
+		public Selenium getSelenium() {
+			return selenium;
+		}
+		
+		/**
+		 * Gets the number of tests that the session has been used for and reset after.
+		 */
+		public int getTestsRun() {
+			return testsRun;
+		}
+	}
+
+	
+	/**
+	 * Starts and stops the Selenium sessions of the pool.
+	 */
+	interface SessionFactory {
+		Selenium start(UrlStartPoint initialUrlStartPoint) throws Exception;
+		void stop(Selenium selenium) throws Exception;
+	}
+	
+	
+	/**
+	 * Starts each session with its own {@link SeleniumController}.
+	 */
+	private static class ControllerSessionFactory implements SessionFactory {
+		private final SeleniumRunnerConfiguration config;
+		private final CubicTestProjectSettings settings;
+		private final Map<Selenium, SeleniumController> controllers = new IdentityHashMap<Selenium, SeleniumController>();
+		private final Set<Integer> usedPorts = new HashSet<Integer>();
+		
+		public ControllerSessionFactory(SeleniumRunnerConfiguration config, CubicTestProjectSettings settings) {
+			this.config = config;
+			this.settings = settings;
+			usedPorts.add(config.getSeleniumServerPort());
+		}
+		
+		public Selenium start(UrlStartPoint initialUrlStartPoint) {
+			SeleniumRunnerConfiguration sessionConfig;
+			synchronized (this) {
+				sessionConfig = config.createSessionConfiguration();
+				while (config.shouldStartCubicSeleniumServer() && !usedPorts.add(sessionConfig.getSeleniumServerPort())) {
+					sessionConfig = config.createSessionConfiguration();
+				}
+			}
+			SeleniumController controller = new SeleniumController(sessionConfig);
+			controller.setInitialUrlStartPoint(initialUrlStartPoint);
+			controller.setStartNewSeleniumServer(sessionConfig.shouldStartCubicSeleniumServer());
+			controller.setSettings(settings);
+			SeleniumHolder holder = controller.doStart();
+			Selenium selenium = holder.getSelenium().getSelenium();
+			synchronized (this) {
+				controllers.put(selenium, controller);
+			}
+			return selenium;
+		}
+
+		public void stop(Selenium selenium) {
+			SeleniumController controller;
+			synchronized (this) {
+				controller = controllers.remove(selenium);
+			}
+			if (controller != null) {
+				controller.doStop();
+			}
+		}
+	}
+}
@@ -10,29 +10,32 @@
  *******************************************************************************/
 package org.cubictest.exporters.selenium.selenese.holders;
 
-import org.apache.commons.lang.StringUtils;
-import org.jdom.Element;
-import org.jdom.EntityRef;
+import org.jdom.IllegalDataException;
+import org.jdom.Verifier;
 
 
 /**
  * Selenium command (selenese table row) representing a test step.
+ * The command is written by the {@link SeleneseDocument} when the next command is added,
+ * so the description must be set right after the command is added.
  * 
  * @author chr_schwarz
  */
-public class Command extends Element {
-
-	private static final long serialVersionUID = 1L;
+public class Command {
 
+	private final String commandName;
+	private final String target;
+	private final String value;
+	private String description;
+	
 	
 	/**
 	 * Create a new command (selenese table row).
 	 */
 	public Command(String commandName, String target, String value) {
-		super("tr");
-		addCell(commandName);
-		addCell(target);
-		addCell(value);
+		this.commandName = checkText(commandName);
+		this.target = checkText(target);
+		this.value = checkText(value);
 	}
 
 	/**
@@ -48,21 +51,40 @@ public class Command extends Element {
 	 * @return
 	 */
 	public Command setDescription(String description) {
-		int pos = ((Element) getParent()).indexOf(this);
-		Element comment = new Element("td").setText(description + ":");
-		comment.setAttribute("class", "comment");
-		comment.setAttribute("colspan", "3");
-		((Element) getParent()).addContent(pos, new Element("tr").addContent(comment));
+		this.description = checkText(description + ":");
 		return this;
 	}
 	
+	public String getCommandName() {
+		return commandName;
+	}
 	
-	private void addCell(String text) {
-		if (StringUtils.isBlank(text)) {
-			addContent(new Element("td").addContent(new EntityRef("nbsp")));
-		}
-		else {
-			addContent(new Element("td").setText(text));
+	public String getTarget() {
+		return target;
+	}
+	
+	public String getValue() {
+		return value;
+	}
+	
+	/**
+	 * Get the comment row text, or <code>null</code> if the command has no description.
+	 */
+	public String getDescription() {
+		return description;
+	}
+	
+	
+	/**
+	 * Checks that the text only has characters that are legal in XML.
+	 */
+	static String checkText(String text) {
+		if (text != null) {
+			String reason = Verifier.checkCharacterData(text);
+			if (reason != null) {
+				throw new IllegalDataException("The data \"" + text + "\" is not legal for a JDOM character content: " + reason + ".");
+			}
 		}
+		return text;
 	}
 }
@@ -10,28 +10,51 @@
  *******************************************************************************/
 package org.cubictest.exporters.selenium.selenese.holders;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.apache.commons.lang.StringUtils;
 import org.cubictest.common.settings.CubicTestProjectSettings;
+import org.cubictest.export.exceptions.ExporterException;
 import org.cubictest.export.holders.ContextHolder;
+import org.cubictest.export.holders.IStreamingResultHolder;
 import org.cubictest.exporters.selenium.utils.SeleniumUtils;
-import org.cubictest.exporters.selenium.utils.XmlUtils;
 import org.cubictest.model.PropertyAwareObject;
-import org.jdom.Document;
-import org.jdom.Element;
 
 /**
  * Selenium (Selenese) step list. HTML document with test steps (commands / rows).
+ * <p>
+ * The document is written as commands are added, to the output writer if one is set, or else to a
+ * string for {@link #toResultString()}. Only the last added command is held back, so that its
+ * description can be written before it. The output is the same as the JDOM pretty format in
+ * ISO-8859-1 that the document was previously serialized with.
  * 
  * @author chr_schwarz
  */
-public class SeleneseDocument extends ContextHolder {
+public class SeleneseDocument extends ContextHolder implements IStreamingResultHolder {
 
-	/** The root element of the document */
-	private Element rootElement;
+	private static final String LINE_SEPARATOR = "\r\n";
+	
+	private static final String STYLE = 
+			"td {padding-right: 25px}\n" + 
+			".comment {color: blue; padding-top: 10px;}\n";
 	
-	/** The table to add commands (rows) to */
-	private Element table;
+	/** The writer that the document is written to */
+	private Writer output = new StringWriter();
+	
+	private boolean isExternalOutput;
 
-	private Element htmlPageTitle;
+	private String testName;
+	
+	/** The last added command, not yet written, as its description may still be set */
+	private Command pendingCommand;
+	
+	private boolean isHeaderWritten;
+	
+	private boolean hasRows;
+	
+	private boolean isFinished;
 	
 	
 	/**
@@ -39,13 +62,12 @@ public class SeleneseDocument extends ContextHolder {
 	 */
 	public SeleneseDocument() {
 		super();
-		setUpHtmlPage();
 	}
 
 	@Override
 	public void setSettings(CubicTestProjectSettings settings) {
 		super.setSettings(settings);
-		table.addContent(new Command("setTimeout", (SeleniumUtils.getTimeout(settings) * 1000) + ""));
+		addCommand("setTimeout", (SeleniumUtils.getTimeout(settings) * 1000) + "");
 	}
 
 	
@@ -53,8 +75,17 @@ public class SeleneseDocument extends ContextHolder {
 	 * Add command (with value).
 	 */
 	public Command addCommand(String commandName, String target, String value) {
+		if (isFinished) {
+			throw new IllegalStateException("Can not add commands after the document has been finished");
+		}
 		Command command = new Command(commandName, target, value);
-		table.addContent(command);
+		try {
+			writePendingCommand();
+		}
+		catch (IOException e) {
+			throw new ExporterException("Could not write Selenese document", e);
+		}
+		pendingCommand = command;
 		return command;
 	}
 
@@ -69,43 +100,173 @@ public class SeleneseDocument extends ContextHolder {
 	
 	/**
 	 * Get string representation of the document (for e.g. file write).
+	 * Not available if the document has been written to an output writer.
 	 */
 	@Override
 	public String toResultString() {
-		Document document = new Document(rootElement);
-		return XmlUtils.getNewXmlOutputter().outputString(document);
+		if (isExternalOutput) {
+			throw new IllegalStateException("The document has been written to the output writer");
+		}
+		try {
+			finishOutput();
+		}
+		catch (IOException e) {
+			throw new ExporterException("Could not write Selenese document", e);
+		}
+		return output.toString();
 	}
 	
+	
+	public void setOutput(Writer output) {
+		if (isHeaderWritten) {
+			throw new IllegalStateException("The output must be set before the document is written");
+		}
+		this.output = output;
+		this.isExternalOutput = true;
+	}
 
 	
+	public void finishOutput() throws IOException {
+		if (isFinished) {
+			return;
+		}
+		writePendingCommand();
+		writeHeader();
+		if (hasRows) {
+			output.write("    </table>" + LINE_SEPARATOR);
+		}
+		else {
+			output.write("    <table border=\"1\" cellspacing=\"0\" />" + LINE_SEPARATOR);
+		}
+		output.write("  </body>" + LINE_SEPARATOR);
+		output.write("</html>" + LINE_SEPARATOR);
+		output.write(LINE_SEPARATOR);
+		output.flush();
+		isFinished = true;
+	}
+	
 	
 	/**
-	 * Sets up a HTML page for the tests, including a table for the commands.
+	 * Writes the HTML page header, up to the table for the commands, if not already written.
 	 */
-	private void setUpHtmlPage() {
-		rootElement = new Element("html");
-		
-		Element header = new Element("head");
-		htmlPageTitle = new Element("title");
-		header.addContent(htmlPageTitle);
-		
-		Element style = new Element("style");
-		style.setAttribute("type", "text/css");
-		style.setText(
-				"td {padding-right: 25px}\n" + 
-				".comment {color: blue; padding-top: 10px;}\n");
-		header.addContent(style);
-		
-		rootElement.addContent(header);
-		
-		Element body = new Element("body");
-		rootElement.addContent(body);
-		table = new Element("table");
-		table.setAttribute("border", "1");
-		table.setAttribute("cellspacing", "0");
-		body.addContent(table);
+	private void writeHeader() throws IOException {
+		if (isHeaderWritten) {
+			return;
+		}
+		isHeaderWritten = true;
+		output.write("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" + LINE_SEPARATOR);
+		output.write("<html>" + LINE_SEPARATOR);
+		output.write("  <head>" + LINE_SEPARATOR);
+		writeTextElement("    ", "title", "", testName);
+		writeTextElement("    ", "style", " type=\"text/css\"", STYLE);
+		output.write("  </head>" + LINE_SEPARATOR);
+		output.write("  <body>" + LINE_SEPARATOR);
 	}
-
+	
+	
+	private void writePendingCommand() throws IOException {
+		if (pendingCommand == null) {
+			return;
+		}
+		Command command = pendingCommand;
+		pendingCommand = null;
+		writeHeader();
+		if (!hasRows) {
+			output.write("    <table border=\"1\" cellspacing=\"0\">" + LINE_SEPARATOR);
+			hasRows = true;
+		}
+		if (command.getDescription() != null) {
+			output.write("      <tr>" + LINE_SEPARATOR);
+			writeTextElement("        ", "td", " class=\"comment\" colspan=\"3\"", command.getDescription());
+			output.write("      </tr>" + LINE_SEPARATOR);
+		}
+		output.write("      <tr>" + LINE_SEPARATOR);
+		writeCell(command.getCommandName());
+		writeCell(command.getTarget());
+		writeCell(command.getValue());
+		output.write("      </tr>" + LINE_SEPARATOR);
+	}
+	
+	
+	private void writeCell(String text) throws IOException {
+		if (StringUtils.isBlank(text)) {
+			output.write("        <td>&nbsp;</td>" + LINE_SEPARATOR);
+		}
+		else {
+			writeTextElement("        ", "td", "", text);
+		}
+	}
+	
+	
+	/**
+	 * Writes an element with text content on its own line. As in the JDOM pretty format, 
+	 * the text is trimmed, and an element without text is written as an empty element.
+	 */
+	private void writeTextElement(String indent, String name, String attributes, String text) throws IOException {
+		output.write(indent);
+		output.write('<');
+		output.write(name);
+		output.write(attributes);
+		int start = 0;
+		int end = text == null ? 0 : text.length();
+		while (start < end && isXmlWhitespace(text.charAt(start))) {
+			start++;
+		}
+		while (end > start && isXmlWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		if (start == end) {
+			output.write(" />" + LINE_SEPARATOR);
+			return;
+		}
+		output.write('>');
+		for (int i = start; i < end; ) {
+			int codePoint = Character.codePointAt(text, i);
+			writeEscaped(codePoint);
+			i += Character.charCount(codePoint);
+		}
+		output.write("</");
+		output.write(name);
+		output.write(">" + LINE_SEPARATOR);
+	}
+	
+	
+	/**
+	 * Escapes the character as JDOM does for element text in ISO-8859-1.
+	 * A surrogate pair is written as one reference to its code point.
+	 */
+	private void writeEscaped(int c) throws IOException {
+		switch (c) {
+		case '<':
+			output.write("&lt;");
+			break;
+		case '>':
+			output.write("&gt;");
+			break;
+		case '&':
+			output.write("&amp;");
+			break;
+		case '\r':
+			output.write("&#xD;");
+			break;
+		case '\n':
+			output.write(LINE_SEPARATOR);
+			break;
+		default:
+			if (c > 0xFF) {
+				output.write("&#x" + Integer.toHexString(c) + ";");
+			}
+			else {
+				output.write(c);
+			}
+		}
+	}
+	
+	
+	private boolean isXmlWhitespace(char c) {
+		return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+	}
+	
 
 
 	public void resetStatus(PropertyAwareObject object) {
@@ -114,6 +275,9 @@ public class SeleneseDocument extends ContextHolder {
 
 
 	public void setTestName(String testName) {
-		htmlPageTitle.setText(testName);
+		if (isHeaderWritten) {
+			throw new IllegalStateException("The test name must be set before the document is written");
+		}
+		this.testName = Command.checkText(testName);
 	}
-}
\ No newline at end of file
+}
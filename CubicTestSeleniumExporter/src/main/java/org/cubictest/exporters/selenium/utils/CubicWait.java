@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.cubictest.exporters.selenium.utils;
 
+import org.cubictest.common.utils.Logger;
+
 import com.thoughtworks.selenium.SeleniumException;
 import com.thoughtworks.selenium.Wait;
 
@@ -40,7 +42,7 @@ public abstract class CubicWait extends Wait {
             try {
 				if (until()) return;
 			} catch (SeleniumException se) {
-				System.out.println("Ignoring Selenium Exception. Retrying.. " + se.toString());
+				Logger.warn("Ignoring Selenium Exception. Retrying.. " + se.toString());
 			}
             try {
                 Thread.sleep(intervalInMilliseconds);
@@ -51,4 +53,61 @@ public abstract class CubicWait extends Wait {
         throw new WaitTimedOutException(message);
     }
     
+    
+    /** Wait until the "until" condition returns true or time runs out, 
+     * sleeping between the checks as given by the wait strategy.
+     * The condition is always checked at least once, and once more when the time runs out.
+     * 
+     * @param message the failure message
+     * @param timeoutInMilliseconds the amount of time to wait before giving up
+     * @param strategy the strategy giving the intervals to pause between checking "until"
+     * @return the number of milliseconds waited
+     * @throws WaitTimedOutException if "until" doesn't return true until the timeout
+     * @see #until()
+     */
+    public long wait(String message, long timeoutInMilliseconds, WaitStrategy strategy) {
+        return wait(message, timeoutInMilliseconds, strategy, DEFAULT_INTERVAL);
+    }
+    
+    
+    /** Wait until the "until" condition returns true or time runs out, 
+     * sleeping between the checks as given by the wait strategy.
+     * 
+     * @param fixedIntervalInMilliseconds the interval to pause between checking "until" with the fixed interval strategy
+     * @see #wait(String, long, WaitStrategy)
+     */
+    public long wait(String message, long timeoutInMilliseconds, WaitStrategy strategy, long fixedIntervalInMilliseconds) {
+        long start = System.currentTimeMillis();
+        long end = start + timeoutInMilliseconds;
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            try {
+                if (until()) return System.currentTimeMillis() - start;
+            } catch (SeleniumException se) {
+                Logger.warn("Ignoring Selenium Exception. Retrying.. " + se.toString());
+            }
+            long remaining = end - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new WaitTimedOutException(message);
+            }
+            try {
+                Thread.sleep(Math.min(remaining, strategy.getInterval(attempt, fixedIntervalInMilliseconds)));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+    
+    
+    /** Creates the exception for a timed out wait, for waits that are not done by this class (e.g. in the browser). */
+    public static WaitTimedOutException createTimedOutException(String message) {
+        CubicWait wait = new CubicWait() {
+            public boolean until() {
+                return false;
+            }
+        };
+        return wait.new WaitTimedOutException(message);
+    }
+    
 }
@@ -251,6 +251,39 @@ public class SeleniumUtils {
 				"timeout", 20);
 	}
 
+	/**
+	 * Get whether the page elements of a page or context should be checked together, 
+	 * with one request to the browser per check.
+	 * 
+	 * @param settings
+	 * @return
+	 */
+	public static boolean isBatchElementAssertions(CubicTestProjectSettings settings) {
+		if (settings == null)
+			return true;
+		return settings.getBoolean(SeleniumUtils.getPluginPropertyPrefix(),
+				"batchElementAssertions", true);
+	}
+
+	/**
+	 * Get how the Selenium runner should wait for page elements and user interactions.
+	 * 
+	 * @param settings
+	 * @return
+	 */
+	public static WaitStrategy getWaitStrategy(CubicTestProjectSettings settings) {
+		if (settings == null)
+			return WaitStrategy.BACKOFF;
+		String value = settings.getString(SeleniumUtils.getPluginPropertyPrefix(),
+				"waitStrategy", WaitStrategy.BACKOFF.getSettingValue());
+		WaitStrategy strategy = WaitStrategy.fromSettingValue(value);
+		if (strategy == null) {
+			Logger.warn("Unknown wait strategy \"" + value + "\". Using " + WaitStrategy.BACKOFF.getSettingValue());
+			return WaitStrategy.BACKOFF;
+		}
+		return strategy;
+	}
+
 	public static String getPluginPropertyPrefix() {
 		return "SeleniumExporterPlugin";
 	}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.selenium.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Histograms of the time spent waiting in a test run, per kind of wait (e.g. the page element type).
+ * 
+ * @author Christian Schwarz
+ */
+public class WaitStatistics {
+
+	/** Upper bounds (inclusive) of the histogram buckets, in milliseconds. The last bucket has no upper bound. */
+	public static final long[] BUCKET_LIMITS = new long[] {10, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+	
+	private final Map<String, Histogram> histograms = new TreeMap<String, Histogram>();
+	
+	
+	/**
+	 * Records a wait.
+	 * @param category the kind of wait, e.g. the page element type.
+	 * @param millis the time waited.
+	 * @param timedOut whether the wait timed out.
+	 */
+	public synchronized void record(String category, long millis, boolean timedOut) {
+		Histogram histogram = histograms.get(category);
+		if (histogram == null) {
+			histogram = new Histogram();
+			histograms.put(category, histogram);
+		}
+		histogram.record(millis, timedOut);
+	}
+	
+	
+	public synchronized boolean isEmpty() {
+		return histograms.isEmpty();
+	}
+	
+	public synchronized int getCount(String category) {
+		Histogram histogram = histograms.get(category);
+		return histogram == null ? 0 : histogram.count;
+	}
+	
+	public synchronized int getTimedOutCount(String category) {
+		Histogram histogram = histograms.get(category);
+		return histogram == null ? 0 : histogram.timedOut;
+	}
+	
+	/**
+	 * Gets the number of waits in each bucket of {@link #BUCKET_LIMITS}, with an extra last bucket for longer waits.
+	 */
+	public synchronized int[] getBucketCounts(String category) {
+		Histogram histogram = histograms.get(category);
+		return histogram == null ? new int[BUCKET_LIMITS.length + 1] : histogram.buckets.clone();
+	}
+	
+	public synchronized void clear() {
+		histograms.clear();
+	}
+	
+	
+	/**
+	 * Gets a report with one line per category, e.g.
+	 * <code>Link: 12 waits, 1 timed out, avg 230 ms, max 20001 ms [<=10ms: 5, <=50ms: 3, >10000ms: 1]</code>
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder buff = new StringBuilder();
+		for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+			Histogram histogram = entry.getValue();
+			buff.append(entry.getKey()).append(": ").append(histogram.count).append(" waits, ");
+			buff.append(histogram.timedOut).append(" timed out, ");
+			buff.append("avg ").append(histogram.totalMillis / histogram.count).append(" ms, ");
+			buff.append("max ").append(histogram.maxMillis).append(" ms [");
+			boolean first = true;
+			for (int i = 0; i < histogram.buckets.length; i++) {
+				if (histogram.buckets[i] == 0) {
+					continue;
+				}
+				if (!first) {
+					buff.append(", ");
+				}
+				if (i < BUCKET_LIMITS.length) {
+					buff.append("<=").append(BUCKET_LIMITS[i]);
+				}
+				else {
+					buff.append(">").append(BUCKET_LIMITS[BUCKET_LIMITS.length - 1]);
+				}
+				buff.append("ms: ").append(histogram.buckets[i]);
+				first = false;
+			}
+			buff.append("]\n");
+		}
+		return buff.toString();
+	}
+	
+	
+	private static class Histogram {
+		private final int[] buckets = new int[BUCKET_LIMITS.length + 1];
+		private int count;
+		private int timedOut;
+		private long totalMillis;
+		private long maxMillis;
+		
+		private void record(long millis, boolean wasTimedOut) {
+			int bucket = 0;
+			while (bucket < BUCKET_LIMITS.length && millis > BUCKET_LIMITS[bucket]) {
+				bucket++;
+			}
+			buckets[bucket]++;
+			count++;
+			if (wasTimedOut) {
+				timedOut++;
+			}
+			totalMillis += millis;
+			maxMillis = Math.max(maxMillis, millis);
+		}
+	}
+}
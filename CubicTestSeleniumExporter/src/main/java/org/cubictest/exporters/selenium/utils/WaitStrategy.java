@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.selenium.utils;
+
+import java.util.Random;
+
+import com.thoughtworks.selenium.Wait;
+
+/**
+ * How the Selenium runner waits for page elements and user interactions.
+ * Configured with the <code>SeleniumExporterPlugin.waitStrategy</code> project setting.
+ * 
+ * @author Christian Schwarz
+ */
+public enum WaitStrategy {
+	
+	/** Check at a fixed interval, as the Selenium Wait class. */
+	FIXED_INTERVAL("fixed"),
+	
+	/** Check often at first, then back off exponentially, with random jitter. */
+	BACKOFF("backoff"),
+	
+	/** 
+	 * Wait for page elements in the browser, where the locators are only checked again when the DOM changes.
+	 * Waits that can not be done in the browser (e.g. for user interactions) use backoff.
+	 */
+	BROWSER("browser");
+	
+	
+	public static final long INITIAL_INTERVAL_MILLIS = 25;
+	public static final long MAX_INTERVAL_MILLIS = 1000;
+
+	private static final Random random = new Random();
+	
+	private final String settingValue;
+
+	
+	private WaitStrategy(String settingValue) {
+		this.settingValue = settingValue;
+	}
+	
+	
+	/**
+	 * Gets the time to sleep before the next check, with the interval of the Selenium Wait class as the fixed interval.
+	 * @param attempt the number of checks done so far (starting at 1).
+	 */
+	public long getInterval(int attempt) {
+		return getInterval(attempt, Wait.DEFAULT_INTERVAL);
+	}
+	
+	
+	/**
+	 * Gets the time to sleep before the next check.
+	 * @param attempt the number of checks done so far (starting at 1).
+	 * @param fixedInterval the interval of the fixed interval strategy.
+	 */
+	public long getInterval(int attempt, long fixedInterval) {
+		if (this == FIXED_INTERVAL) {
+			return fixedInterval;
+		}
+		long interval = MAX_INTERVAL_MILLIS;
+		if (attempt <= 16) {
+			interval = Math.min(MAX_INTERVAL_MILLIS, INITIAL_INTERVAL_MILLIS << (attempt - 1));
+		}
+		//jitter, so that the checks are not in lock step with e.g. polling in the page:
+		return interval / 2 + (long) (random.nextDouble() * (interval / 2));
+	}
+	
+	
+	public String getSettingValue() {
+		return settingValue;
+	}
+	
+	
+	/**
+	 * Gets the wait strategy of a setting value.
+	 * @return the strategy, or <code>null</code> if the value is not a known strategy.
+	 */
+	public static WaitStrategy fromSettingValue(String value) {
+		if (value != null) {
+			for (WaitStrategy strategy : values()) {
+				if (strategy.settingValue.equalsIgnoreCase(value.trim())) {
+					return strategy;
+				}
+			}
+		}
+		return null;
+	}
+}
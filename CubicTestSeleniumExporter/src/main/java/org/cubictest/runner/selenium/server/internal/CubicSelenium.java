@@ -10,16 +10,11 @@
  *******************************************************************************/
 package org.cubictest.runner.selenium.server.internal;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.net.Socket;
-import java.net.UnknownHostException;
-
-import javax.net.SocketFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.cubictest.export.exceptions.ExporterException;
 import org.openqa.selenium.server.browserlaunchers.BrowserOptions;
@@ -33,47 +28,63 @@ import com.thoughtworks.selenium.Selenium;
  */
 public class CubicSelenium implements Selenium {
 
+	/** Status of a response to a command that succeeded. The results follow the status. */
+	public static final String STATUS_OK = "OK";
+	
+	/** Status of a response to a command that failed. The error message follows the status. */
+	public static final String STATUS_ERROR = "Error";
+	
 	private final int port;
-	private Socket socket;
+	private FramedConnection connection;
 
 	public CubicSelenium(int port) {
 		this.port = port;
 	}
 	
-	private void createSocket() throws IOException, UnknownHostException {
-		socket = SocketFactory.getDefault().createSocket("localhost",port);
-	}
-	
 	private String[] execute(String command, String... args) {
-		String[] results = null;
-		try{
-			if(socket == null){
-				createSocket();
+		return executeAll(Collections.singletonList(FramedConnection.toMessage(command, args))).get(0);
+	}
+	
+	
+	/**
+	 * Executes several Selenium commands in one round trip to CubicTest.
+	 * All commands are sent before any response is read, and are executed in order.
+	 * Can be used by custom test steps that run many independent commands, e.g. a series of assertions.
+	 * @param commands each command as the command name followed by its arguments.
+	 * @return the results of each command, in the same order as the commands.
+	 * @throws ExporterException with the message of the first failing command, after all commands have been executed.
+	 */
+	public synchronized List<String[]> executeAll(List<String[]> commands) {
+		List<String[]> results = new ArrayList<String[]>(commands.size());
+		String error = null;
+		try {
+			if (connection == null) {
+				connection = FramedConnection.connect(port);
 			}
-			OutputStream os = socket.getOutputStream();
-			BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(os));
-			bw.write(command);
-			bw.newLine();
-			bw.write(args.length + "");
-			bw.newLine();
-			for (int i = 0; i < args.length; i++) {
-				String value = args[i];
-				bw.write(value);
-				bw.newLine();
+			for (String[] command : commands) {
+				connection.send(command);
 			}
-			bw.flush();
-			InputStreamReader isr = new InputStreamReader(socket.getInputStream());
-			BufferedReader br = new BufferedReader(isr);
-			int numberOfResults = Integer.parseInt(br.readLine());
-			results = new String[numberOfResults];
-			for(int i = 0; i < numberOfResults; i++) {
-				results[i] = br.readLine();
-				if (results[i].startsWith("Error: ")) {
-					throw new ExporterException(results[i].replaceFirst("Error: ", ""));
+			connection.flush();
+			for (int i = 0; i < commands.size(); i++) {
+				String[] response = connection.receive();
+				if (response == null) {
+					throw new IOException("Connection closed by CubicTest");
+				}
+				if (STATUS_ERROR.equals(response[0]) && error == null) {
+					error = response.length > 1 ? response[1] : "Unknown error";
 				}
+				results.add(FramedConnection.getArguments(response));
 			}
-		}catch (IOException e) {
-			throw new RuntimeException("Could not execute Selenium command: " + command + " " + args, e);
+		} catch (IOException e) {
+			if (connection != null) {
+				connection.close();
+				connection = null;
+			}
+			String first = commands.isEmpty() ? "" : Arrays.toString(commands.get(0));
+			throw new RuntimeException("Could not execute Selenium command: " + first, e);
+		}
+		if (error != null) {
+			throw new ExporterException(error);
 		}
 		return results;
 	}
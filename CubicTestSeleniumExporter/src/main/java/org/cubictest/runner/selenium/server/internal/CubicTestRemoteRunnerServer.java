@@ -10,12 +10,8 @@
  *******************************************************************************/
 package org.cubictest.runner.selenium.server.internal;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.net.ServerSocket;
-import java.net.Socket;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -80,27 +76,19 @@ public class CubicTestRemoteRunnerServer implements Runnable{
 		try {
 			ServerSocket serverSocket = 
 				ServerSocketFactory.getDefault().createServerSocket(port);
-			Socket socket = serverSocket.accept();
-			while (!finished ){
-				InputStreamReader isr = new InputStreamReader(socket.getInputStream());
-				BufferedReader br = new BufferedReader(isr);
-				String commando = br.readLine();
-
-				int numParams = Integer.parseInt(br.readLine());
-				
-				String[] params = new String[numParams];
-				for(int i = 0; i < numParams; i++){
-					String value = br.readLine();
-					params[i] = value;
+			FramedConnection connection = FramedConnection.accept(serverSocket);
+			serverSocket.close();
+			String[] message;
+			while (!finished && (message = connection.receive()) != null){
+				String result = execute(message[0], FramedConnection.getArguments(message));
+				connection.send(result);
+				if (!connection.hasBufferedInput()) {
+					//no pipelined commands waiting, so send the responses
+					connection.flush();
 				}
-				
-				String result = execute(commando, params);
-				OutputStreamWriter writer = 
-					new OutputStreamWriter(socket.getOutputStream());
-				writer.write(result + "\n");
-				writer.flush();
 			}
-			socket.close();
+			connection.flush();
+			connection.close();
 		} catch (IOException e) {
 			System.err.println("Error communicating with CubicTest");
 			e.printStackTrace();
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.runner.selenium.server.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import javax.net.SocketFactory;
+
+/**
+ * A long-lived connection between CubicTest and the remote runner, sending messages as length-prefixed UTF-8 frames.
+ * <p>
+ * A message is an array of strings, typically a command followed by its arguments, or a status followed by results.
+ * On the wire, a message is the number of parts followed by each part as its byte length and UTF-8 bytes,
+ * so parts can contain any character, including line breaks. A length of -1 denotes a <code>null</code> part.
+ * <p>
+ * Messages are buffered until {@link #flush()} is called, so that several commands can be sent in one
+ * round trip and their responses read afterwards, in the same order.
+ * Both sides start by exchanging a magic number and the protocol version, so that an old runner on the
+ * other end gives a clear error instead of garbled commands.
+ * <p>
+ * Only depends on the JDK, as it is used on both sides of the connection.
+ * 
+ * @author Christian Schwarz
+ */
+public class FramedConnection {
+
+	public static final int PROTOCOL_VERSION = 1;
+	
+	/** "CUBC" */
+	private static final int MAGIC = 0x43554243;
+
+	/** Guard against allocating huge buffers if the stream is corrupt. */
+	private static final int MAX_PART_LENGTH = 64 * 1024 * 1024;
+
+	/** Guard against allocating a huge array of parts if the stream is corrupt. Results such as getAllLinks are well below. */
+	static final int MAX_PARTS = 64 * 1024;
+	
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+	
+	private static final String ENCODING = "UTF-8";
+
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	
+	
+	/**
+	 * Opens a connection to a server on localhost, and performs the handshake.
+	 * Retries for a while if the server is not listening yet, as it is typically started in another thread or process.
+	 */
+	public static FramedConnection connect(int port) throws IOException {
+		long giveUpAt = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+		while (true) {
+			try {
+				return new FramedConnection(SocketFactory.getDefault().createSocket("localhost", port));
+			}
+			catch (ConnectException e) {
+				if (System.currentTimeMillis() > giveUpAt) {
+					throw e;
+				}
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException ie) {
+					throw e;
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Waits for a client to connect to the server socket, and performs the handshake.
+	 */
+	public static FramedConnection accept(ServerSocket serverSocket) throws IOException {
+		return new FramedConnection(serverSocket.accept());
+	}
+
+	
+	public FramedConnection(Socket socket) throws IOException {
+		this.socket = socket;
+		try {
+			socket.setTcpNoDelay(true);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			handshake();
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	
+	private void handshake() throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(PROTOCOL_VERSION);
+		out.flush();
+		int magic = in.readInt();
+		if (magic != MAGIC) {
+			throw new IOException("Not a CubicTest runner connection (got 0x" + Integer.toHexString(magic) + ")");
+		}
+		int version = in.readInt();
+		if (version != PROTOCOL_VERSION) {
+			throw new IOException("CubicTest runner protocol version mismatch: expected " + PROTOCOL_VERSION 
+					+ ", but other side uses version " + version + ". Make sure the runner is up to date.");
+		}
+	}
+	
+	
+	/**
+	 * Writes a message to the buffer. It is not sent until {@link #flush()} is called.
+	 */
+	public void send(String... parts) throws IOException {
+		out.writeInt(parts.length);
+		for (String part : parts) {
+			if (part == null) {
+				out.writeInt(-1);
+			}
+			else {
+				byte[] bytes = part.getBytes(ENCODING);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+	
+	
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	
+	/**
+	 * Reads the next message.
+	 * @return the parts of the message, or <code>null</code> if the other side has closed the connection.
+	 */
+	public String[] receive() throws IOException {
+		int numParts;
+		try {
+			numParts = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		if (numParts < 0 || numParts > MAX_PARTS) {
+			throw new IOException("Corrupt message: " + numParts + " parts");
+		}
+		String[] parts = new String[numParts];
+		for (int i = 0; i < numParts; i++) {
+			int length = in.readInt();
+			if (length == -1) {
+				continue;
+			}
+			if (length < 0 || length > MAX_PART_LENGTH) {
+				throw new IOException("Corrupt message: part of " + length + " bytes");
+			}
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			parts[i] = new String(bytes, ENCODING);
+		}
+		return parts;
+	}
+	
+	
+	/**
+	 * Sends the message and waits for the response.
+	 */
+	public String[] call(String... parts) throws IOException {
+		send(parts);
+		flush();
+		String[] response = receive();
+		if (response == null) {
+			throw new EOFException("Connection closed by the other side");
+		}
+		return response;
+	}
+	
+	
+	/**
+	 * Checks whether more input can be read without blocking.
+	 * Servers use this to only flush their responses when the client has no more pipelined commands waiting.
+	 */
+	public boolean hasBufferedInput() throws IOException {
+		return in.available() > 0;
+	}
+	
+	
+	public void close() {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			//ignore
+		}
+	}
+	
+	public boolean isClosed() {
+		return socket.isClosed();
+	}
+	
+	
+	/**
+	 * Creates a message of a command and its arguments.
+	 */
+	public static String[] toMessage(String command, String... args) {
+		String[] message = new String[args.length + 1];
+		message[0] = command;
+		System.arraycopy(args, 0, message, 1, args.length);
+		return message;
+	}
+	
+	
+	/**
+	 * Gets the arguments of a message created with {@link #toMessage(String, String...)}.
+	 */
+	public static String[] getArguments(String[] message) {
+		String[] args = new String[message.length - 1];
+		System.arraycopy(message, 1, args, 0, args.length);
+		return args;
+	}
+}
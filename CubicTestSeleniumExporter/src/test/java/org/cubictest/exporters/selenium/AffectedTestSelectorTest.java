@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.selenium;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.cubictest.export.utils.ExportManifest;
+import org.cubictest.model.CustomTestStepHolder;
+import org.cubictest.model.SubTest;
+import org.cubictest.model.Test;
+import org.cubictest.model.parameterization.ParameterList;
+import org.cubictest.persistence.TestPersistance;
+import org.junit.After;
+import org.junit.Before;
+
+/**
+ * Tests that the tests affected by changes since the previous run are selected, following subtests transitively.
+ * 
+ * @author chr_schwarz
+ */
+public class AffectedTestSelectorTest {
+
+	private File workspace;
+	private File project;
+	private File manifestFile;
+	private File mainTest;
+	private File subTest;
+	private File otherTest;
+	
+	@Before
+	public void setUp() throws IOException {
+		workspace = File.createTempFile("affected", "");
+		workspace.delete();
+		project = new File(workspace, "project");
+		new File(project, "tests/subtests").mkdirs();
+		manifestFile = new File(project, ".selenium-run-manifest");
+
+		subTest = new File(project, "tests/subtests/login.aat");
+		TestPersistance.saveToFile(createTest("Login"), subTest);
+		Test main = createTest("Main");
+		main.addSubTest(new SubTest("tests/subtests/login.aat", null));
+		mainTest = new File(project, "tests/main.aat");
+		TestPersistance.saveToFile(main, mainTest);
+		otherTest = new File(project, "tests/other.aat");
+		TestPersistance.saveToFile(createTest("Other"), otherTest);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(workspace);
+	}
+
+	@org.junit.Test
+	public void testAllTestsAreRunFirstTime() throws IOException {
+		AffectedTestSelector selector = createSelector();
+		assertEquals(Arrays.asList(mainTest, otherTest), selector.select(Arrays.asList(mainTest, otherTest)));
+		assertEquals("not run before", selector.getSelectedTests().get(mainTest));
+	}
+
+	@org.junit.Test
+	public void testUnchangedPassedTestsAreSkipped() throws IOException {
+		recordPreviousRun(true);
+		AffectedTestSelector selector = createSelector();
+		assertEquals(0, selector.select(Arrays.asList(mainTest, otherTest)).size());
+		assertEquals(2, selector.getSkippedTests().size());
+	}
+
+	@org.junit.Test
+	public void testChangedSubTestSelectsTestsUsingIt() throws IOException {
+		recordPreviousRun(true);
+		TestPersistance.saveToFile(createTest("Login changed"), subTest);
+
+		AffectedTestSelector selector = createSelector();
+		assertEquals(Arrays.asList(mainTest), selector.select(Arrays.asList(mainTest, otherTest)));
+		assertEquals("changed: tests/subtests/login.aat", selector.getSelectedTests().get(mainTest));
+		assertTrue(selector.getSkippedTests().containsKey(otherTest));
+	}
+
+	@org.junit.Test
+	public void testFailedTestsAreRunAgain() throws IOException {
+		recordPreviousRun(false);
+		AffectedTestSelector selector = createSelector();
+		assertEquals(Arrays.asList(otherTest), selector.select(Arrays.asList(mainTest, otherTest)));
+		assertEquals("did not pass in previous run", selector.getSelectedTests().get(otherTest));
+	}
+
+	@org.junit.Test
+	public void testForgottenTestIsRunAgain() throws IOException {
+		recordPreviousRun(true);
+		AffectedTestSelector selector = createSelector();
+		selector.forget(otherTest);
+		assertEquals(Arrays.asList(otherTest), selector.select(Arrays.asList(mainTest, otherTest)));
+	}
+
+	@org.junit.Test
+	public void testInputFiles() throws IOException {
+		Test test = createTest("Test with files");
+		test.addSubTest(new SubTest("tests/main.aat", null));
+		test.addCustomTestStep(new CustomTestStepHolder("steps/reset.custom", null));
+		ParameterList paramList = new ParameterList();
+		paramList.setFileName("/project/params/users.params");
+		test.setParamList(paramList);
+		File testFile = new File(project, "tests/files.aat");
+		TestPersistance.saveToFile(test, testFile);
+
+		AffectedTestSelector selector = createSelector();
+		Set<File> inputFiles = selector.getInputFiles(testFile);
+		List<String> keys = Arrays.asList("test-project.properties", "tests/files.aat", "tests/main.aat", 
+				"tests/subtests/login.aat", "steps/reset.custom", "params/users.params");
+		assertEquals(keys.size(), inputFiles.size());
+		for (File file : inputFiles) {
+			assertTrue(selector.getKey(file), keys.contains(selector.getKey(file)));
+		}
+	}
+
+	
+	private void recordPreviousRun(boolean passed) throws IOException {
+		AffectedTestSelector selector = createSelector();
+		selector.select(Arrays.asList(mainTest, otherTest));
+		selector.recordResult(mainTest, true);
+		selector.recordResult(otherTest, passed);
+		selector.save();
+	}
+
+	private AffectedTestSelector createSelector() {
+		ExportManifest manifest = new ExportManifest(manifestFile, SeleniumRunner.class.getName());
+		manifest.load();
+		return new AffectedTestSelector(manifest, project);
+	}
+	
+	private Test createTest(String name) {
+		Test test = new Test();
+		test.setName(name);
+		return test;
+	}
+}
@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.selenium.runner.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.cubictest.exporters.selenium.runner.util.SeleniumSessionPool.PooledSession;
+import org.cubictest.exporters.selenium.runner.util.SeleniumSessionPool.SessionFactory;
+import org.cubictest.model.UrlStartPoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.selenium.Selenium;
+import com.thoughtworks.selenium.SeleniumException;
+
+public class SeleniumSessionPoolTest {
+
+	private FakeSessionFactory factory;
+	private SeleniumSessionPool pool;
+	private UrlStartPoint startPoint;
+
+	@Before
+	public void setUp() {
+		factory = new FakeSessionFactory();
+		startPoint = new UrlStartPoint();
+		startPoint.setBeginAt("http://localhost/");
+	}
+
+	@After
+	public void tearDown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testReleasedSessionIsResetAndReused() throws Exception {
+		pool = new SeleniumSessionPool(factory, 1, 0);
+		PooledSession session = pool.acquire(startPoint);
+		FakeBrowser browser = factory.browsers.get(0);
+		browser.windows.add("popup");
+		browser.cookies = "session=123";
+		browser.selectedFrame = "content";
+
+		pool.release(session);
+		assertEquals(1, pool.getNumberOfIdleSessions());
+		assertEquals(1, browser.windows.size());
+		assertEquals("", browser.cookies);
+		assertEquals("relative=top", browser.selectedFrame);
+
+		assertSame(session, pool.acquire(startPoint));
+		assertEquals(1, session.getTestsRun());
+		assertEquals(1, factory.browsers.size());
+	}
+
+	@Test
+	public void testSessionThatCannotBeResetIsReplaced() throws Exception {
+		pool = new SeleniumSessionPool(factory, 1, 0);
+		PooledSession session = pool.acquire(startPoint);
+		FakeBrowser browser = factory.browsers.get(0);
+		browser.cookies = "session=123";
+		browser.keepCookies = true;
+
+		pool.release(session);
+		PooledSession newSession = pool.acquire(startPoint);
+		assertNotSame(session, newSession);
+		assertEquals(1, pool.getNumberOfReplacedSessions());
+		waitUntilStopped(browser);
+	}
+
+	@Test
+	public void testDeadIdleSessionIsReplaced() throws Exception {
+		pool = new SeleniumSessionPool(factory, 1, 0);
+		PooledSession session = pool.acquire(startPoint);
+		pool.release(session);
+		FakeBrowser browser = factory.browsers.get(0);
+		browser.alive = false;
+
+		pool.checkIdleSessions();
+		assertNotSame(session, pool.acquire(startPoint));
+		assertEquals(1, pool.getNumberOfReplacedSessions());
+		waitUntilStopped(browser);
+	}
+
+	@Test
+	public void testPoolIsWarmedUpAfterFirstSession() throws Exception {
+		pool = new SeleniumSessionPool(factory, 3, 0);
+		pool.acquire(startPoint);
+		for (int i = 0; i < 100 && pool.getNumberOfIdleSessions() < 2; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(2, pool.getNumberOfIdleSessions());
+		assertEquals(3, pool.getNumberOfSessions());
+	}
+
+	@Test
+	public void testShutdownStopsAllSessions() throws Exception {
+		pool = new SeleniumSessionPool(factory, 2, 0);
+		PooledSession first = pool.acquire(startPoint);
+		pool.acquire(startPoint);
+		pool.release(first);
+		pool.shutdown();
+
+		assertEquals(0, pool.getNumberOfSessions());
+		for (FakeBrowser browser : factory.browsers) {
+			assertTrue(browser.stopped);
+		}
+	}
+
+	@Test
+	public void testSessionsAreStartedInDaemonThreads() throws Exception {
+		pool = new SeleniumSessionPool(factory, 2, 0);
+		pool.acquire(startPoint);
+		for (int i = 0; i < 100 && pool.getNumberOfIdleSessions() < 1; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(2, factory.startThreads.size());
+		for (Thread thread : factory.startThreads) {
+			assertTrue(thread.isDaemon());
+		}
+	}
+
+	@Test
+	public void testResetClosesOnlyWindowsOpenedAfterStart() {
+		FakeBrowser browser = new FakeBrowser();
+		browser.windows.add("other");
+		PooledSession session = new PooledSession(browser.createSelenium(), new HashSet<String>(browser.windows));
+		browser.windows.add("popup");
+
+		assertTrue(SeleniumSessionPool.reset(session));
+		assertEquals(2, browser.windows.size());
+		assertFalse(browser.windows.contains("popup"));
+	}
+
+	private void waitUntilStopped(FakeBrowser browser) throws InterruptedException {
+		for (int i = 0; i < 100 && !browser.stopped; i++) {
+			Thread.sleep(20);
+		}
+		assertTrue(browser.stopped);
+	}
+
+
+	private static class FakeSessionFactory implements SessionFactory {
+		private final List<FakeBrowser> browsers = new ArrayList<FakeBrowser>();
+		private final List<Thread> startThreads = new ArrayList<Thread>();
+
+		public synchronized Selenium start(UrlStartPoint initialUrlStartPoint) {
+			startThreads.add(Thread.currentThread());
+			FakeBrowser browser = new FakeBrowser();
+			browsers.add(browser);
+			return browser.createSelenium();
+		}
+
+		public synchronized void stop(Selenium selenium) {
+			for (FakeBrowser browser : browsers) {
+				if (browser.selenium == selenium) {
+					browser.stopped = true;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Browser state behind a Selenium proxy, supporting the commands used by the pool.
+	 */
+	private static class FakeBrowser implements InvocationHandler {
+		private final List<String> windows = new ArrayList<String>();
+		private String selectedWindow;
+		private String selectedFrame;
+		private String cookies = "";
+		private boolean keepCookies;
+		private boolean alive = true;
+		private boolean stopped;
+		private Selenium selenium;
+
+		public FakeBrowser() {
+			windows.add("main");
+		}
+
+		public Selenium createSelenium() {
+			selenium = (Selenium) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Selenium.class}, this);
+			return selenium;
+		}
+
+		public synchronized Object invoke(Object proxy, Method method, Object[] args) {
+			if (!alive) {
+				throw new SeleniumException("Browser is not responding");
+			}
+			String name = method.getName();
+			if (name.equals("getAllWindowNames")) {
+				return windows.toArray(new String[windows.size()]);
+			}
+			else if (name.equals("selectWindow")) {
+				selectedWindow = "null".equals(args[0]) ? "main" : (String) args[0];
+			}
+			else if (name.equals("close")) {
+				windows.remove(selectedWindow);
+			}
+			else if (name.equals("selectFrame")) {
+				selectedFrame = (String) args[0];
+			}
+			else if (name.equals("deleteAllVisibleCookies")) {
+				if (!keepCookies) {
+					cookies = "";
+				}
+			}
+			else if (name.equals("getCookie")) {
+				return cookies;
+			}
+			else if (name.equals("getTitle")) {
+				return "Title";
+			}
+			else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			else if (name.equals("equals")) {
+				return proxy == args[0];
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.selenium.selenese.holders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+
+import org.apache.commons.lang.StringUtils;
+import org.cubictest.exporters.selenium.utils.XmlUtils;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.EntityRef;
+import org.jdom.IllegalDataException;
+import org.junit.Test;
+
+/**
+ * Tests that the streamed Selenese document is the same as the JDOM document it replaced.
+ * 
+ * @author chr_schwarz
+ */
+public class SeleneseDocumentTest {
+
+	private static final String[][] COMMANDS = {
+		{"open", "http://localhost:8080/shop?item=1&amp;page=2", "", "Opening <start point>"},
+		{"type", "//input[@id='name']", "  Bl\u00e5b\u00e6r \"syltet\u00f8y\"  ", "User interaction: enter text"},
+		{"click", "link=Next \u2192 page", " ", null},
+		{"waitForTextPresent", "line one\nline two\r\nline three\ttab", null, "Check present: \u4e2d\u6587 \u263a"},
+		{"verifyTitle", "\u00a0non-breaking\u00a0", "\u2003em space\u2003", "  "},
+	};
+	
+	@Test
+	public void testSameAsJdomDocument() {
+		SeleneseDocument doc = new SeleneseDocument();
+		doc.setTestName("Shop <test> & \u00f8l \u20ac");
+		addCommands(doc);
+		assertEquals(getJdomDocument("Shop <test> & \u00f8l \u20ac"), doc.toResultString());
+	}
+
+	@Test
+	public void testEmptyDocumentSameAsJdomDocument() {
+		assertEquals(getJdomDocument(null), new SeleneseDocument().toResultString());
+		
+		SeleneseDocument doc = new SeleneseDocument();
+		doc.setTestName("   ");
+		assertEquals(getJdomDocument("   "), doc.toResultString());
+	}
+
+	@Test
+	public void testStreamedOutputSameAsResultString() throws Exception {
+		SeleneseDocument doc = new SeleneseDocument();
+		StringWriter output = new StringWriter();
+		doc.setOutput(output);
+		doc.setTestName("Streamed");
+		addCommands(doc);
+		
+		//only the last command is held back:
+		assertEquals(-1, output.toString().indexOf("verifyTitle"));
+		
+		doc.finishOutput();
+		assertEquals(getJdomDocument("Streamed"), output.toString());
+	}
+	
+	/**
+	 * The JDOM outputter wrote a reference per char of a surrogate pair, which is not well-formed XML.
+	 */
+	@Test
+	public void testSurrogatePairWrittenAsOneReference() {
+		SeleneseDocument doc = new SeleneseDocument();
+		doc.addCommand("type", "id=name", "smile \ud83d\ude00 \ud834\udd1e");
+		String result = doc.toResultString();
+		assertTrue(result, result.contains("<td>smile &#x1f600; &#x1d11e;</td>"));
+	}
+	
+	@Test(expected = IllegalDataException.class)
+	public void testIllegalCharacterRejected() {
+		new SeleneseDocument().addCommand("type", "id=name", "bell \u0007");
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testTestNameAfterWriteRejected() {
+		SeleneseDocument doc = new SeleneseDocument();
+		doc.addCommand("open", "/");
+		doc.addCommand("click", "link=Next");
+		doc.setTestName("Too late");
+	}
+	
+	
+	private void addCommands(SeleneseDocument doc) {
+		for (String[] command : COMMANDS) {
+			Command added = doc.addCommand(command[0], command[1], command[2]);
+			if (command[3] != null) {
+				added.setDescription(command[3]);
+			}
+		}
+	}
+	
+	/**
+	 * Builds the document with JDOM, as the Selenese exporter did before the document was streamed.
+	 */
+	private String getJdomDocument(String testName) {
+		Element root = new Element("html");
+		Element header = new Element("head");
+		Element title = new Element("title");
+		if (testName != null) {
+			title.setText(testName);
+		}
+		header.addContent(title);
+		Element style = new Element("style");
+		style.setAttribute("type", "text/css");
+		style.setText(
+				"td {padding-right: 25px}\n" + 
+				".comment {color: blue; padding-top: 10px;}\n");
+		header.addContent(style);
+		root.addContent(header);
+		Element body = new Element("body");
+		root.addContent(body);
+		Element table = new Element("table");
+		table.setAttribute("border", "1");
+		table.setAttribute("cellspacing", "0");
+		body.addContent(table);
+		
+		if (testName != null && testName.startsWith("Shop") || "Streamed".equals(testName)) {
+			for (String[] command : COMMANDS) {
+				if (command[3] != null) {
+					Element comment = new Element("td").setText(command[3] + ":");
+					comment.setAttribute("class", "comment");
+					comment.setAttribute("colspan", "3");
+					table.addContent(new Element("tr").addContent(comment));
+				}
+				Element row = new Element("tr");
+				for (int i = 0; i < 3; i++) {
+					if (StringUtils.isBlank(command[i])) {
+						row.addContent(new Element("td").addContent(new EntityRef("nbsp")));
+					}
+					else {
+						row.addContent(new Element("td").setText(command[i]));
+					}
+				}
+				table.addContent(row);
+			}
+		}
+		return XmlUtils.getNewXmlOutputter().outputString(new Document(root));
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.selenium.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.thoughtworks.selenium.Wait;
+import com.thoughtworks.selenium.Wait.WaitTimedOutException;
+
+public class CubicWaitTest {
+
+	@Test
+	public void testBackoffIntervalsGrowWithJitterUpToMax() {
+		for (int attempt = 1; attempt < 30; attempt++) {
+			long base = Math.min(WaitStrategy.MAX_INTERVAL_MILLIS, WaitStrategy.INITIAL_INTERVAL_MILLIS << Math.min(attempt - 1, 20));
+			long interval = WaitStrategy.BACKOFF.getInterval(attempt);
+			assertTrue(attempt + ": " + interval, interval >= base / 2 && interval <= base);
+		}
+		assertEquals(Wait.DEFAULT_INTERVAL, WaitStrategy.FIXED_INTERVAL.getInterval(5));
+		assertEquals(100, WaitStrategy.FIXED_INTERVAL.getInterval(5, 100));
+	}
+	
+	@Test
+	public void testConditionIsCheckedOnceWithoutTimeout() {
+		final int[] checks = new int[1];
+		new CubicWait() {
+			public boolean until() {
+				checks[0]++;
+				return true;
+			}
+		}.wait("not found", 0, WaitStrategy.BACKOFF);
+		assertEquals(1, checks[0]);
+	}
+	
+	@Test
+	public void testReturnsSoonAfterConditionIsMet() {
+		final long metAt = System.currentTimeMillis() + 100;
+		long waited = new CubicWait() {
+			public boolean until() {
+				return System.currentTimeMillis() >= metAt;
+			}
+		}.wait("not found", 5000, WaitStrategy.BACKOFF);
+		assertTrue("" + waited, waited >= 100 && waited < 1000);
+	}
+	
+	@Test
+	public void testTimesOutWhenConditionIsNotMet() {
+		final int[] checks = new int[1];
+		long start = System.currentTimeMillis();
+		try {
+			new CubicWait() {
+				public boolean until() {
+					checks[0]++;
+					return false;
+				}
+			}.wait("not found", 300, WaitStrategy.BACKOFF);
+			fail("Should time out");
+		}
+		catch (WaitTimedOutException e) {
+			assertEquals("not found", e.getMessage());
+		}
+		assertTrue(System.currentTimeMillis() - start >= 300);
+		assertTrue("" + checks[0], checks[0] > 3);
+	}
+	
+	@Test
+	public void testStrategyFromSettingValue() {
+		assertEquals(WaitStrategy.BROWSER, WaitStrategy.fromSettingValue(" Browser"));
+		assertEquals(WaitStrategy.FIXED_INTERVAL, WaitStrategy.fromSettingValue("fixed"));
+		assertNull(WaitStrategy.fromSettingValue("sometimes"));
+	}
+	
+	@Test
+	public void testStatisticsCountWaitsPerBucket() {
+		WaitStatistics statistics = new WaitStatistics();
+		statistics.record("Link", 5, false);
+		statistics.record("Link", 10, false);
+		statistics.record("Link", 20001, true);
+		statistics.record("Text", 300, false);
+		
+		assertEquals(3, statistics.getCount("Link"));
+		assertEquals(1, statistics.getTimedOutCount("Link"));
+		int[] buckets = statistics.getBucketCounts("Link");
+		assertEquals(2, buckets[0]);
+		assertEquals(1, buckets[buckets.length - 1]);
+		assertEquals(1, statistics.getBucketCounts("Text")[4]);
+		assertEquals(0, statistics.getCount("Button"));
+		assertTrue(statistics.toString(), statistics.toString().startsWith("Link: 3 waits, 1 timed out, avg 6672 ms, max 20001 ms [<=10ms: 2, >10000ms: 1]\n"));
+	}
+}
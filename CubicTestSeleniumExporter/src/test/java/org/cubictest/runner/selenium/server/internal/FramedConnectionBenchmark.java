@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.runner.selenium.server.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Loopback throughput benchmark of the remote runner protocol, with commands the size of an isElementPresent call.
+ * Compares the old newline-delimited protocol (new reader and writer per command) with the framed protocol,
+ * one command per round trip and pipelined.
+ * <p>
+ * Not a unit test. Run as a Java application: <code>FramedConnectionBenchmark [commands] [pipeline size]</code>
+ * 
+ * @author Christian Schwarz
+ */
+public class FramedConnectionBenchmark {
+
+	private static final String LOCATOR = "xpath=//*[@id='outerId']/descendant-or-self::a[@href='linkHref']";
+
+	public static void main(String[] args) throws Exception {
+		int commands = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int pipelineSize = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		
+		for (int round = 1; round <= 3; round++) {
+			System.out.println("Round " + round + " (" + commands + " commands):");
+			report("line protocol", commands, runLineProtocol(commands));
+			report("framed, one per trip", commands, runFramed(commands, 1));
+			report("framed, pipelined x" + pipelineSize, commands, runFramed(commands, pipelineSize));
+		}
+	}
+	
+	private static void report(String name, int commands, long nanos) {
+		System.out.println("  " + name + ": " + (nanos / 1000 / commands) + " us/command");
+	}
+	
+	
+	private static long runFramed(int commands, int pipelineSize) throws Exception {
+		final ServerSocket serverSocket = new ServerSocket(0);
+		Thread server = new Thread() {
+			@Override
+			public void run() {
+				try {
+					FramedConnection connection = FramedConnection.accept(serverSocket);
+					String[] message;
+					while ((message = connection.receive()) != null) {
+						connection.send(CubicSelenium.STATUS_OK, String.valueOf(message.length > 1));
+						if (!connection.hasBufferedInput()) {
+							connection.flush();
+						}
+					}
+					connection.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		server.start();
+		FramedConnection client = FramedConnection.connect(serverSocket.getLocalPort());
+		try {
+			long start = System.nanoTime();
+			for (int sent = 0; sent < commands; sent += pipelineSize) {
+				int batch = Math.min(pipelineSize, commands - sent);
+				for (int i = 0; i < batch; i++) {
+					client.send("isElementPresent", LOCATOR);
+				}
+				client.flush();
+				for (int i = 0; i < batch; i++) {
+					client.receive();
+				}
+			}
+			return System.nanoTime() - start;
+		}
+		finally {
+			client.close();
+			server.join();
+			serverSocket.close();
+		}
+	}
+	
+	
+	private static long runLineProtocol(int commands) throws Exception {
+		final ServerSocket serverSocket = new ServerSocket(0);
+		Thread server = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Socket socket = serverSocket.accept();
+					while (true) {
+						BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+						String command = in.readLine();
+						if (command == null) {
+							break;
+						}
+						in.readLine();
+						BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+						out.write("true");
+						out.newLine();
+						out.flush();
+					}
+					socket.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		server.start();
+		Socket socket = new Socket("localhost", serverSocket.getLocalPort());
+		socket.setTcpNoDelay(true);
+		try {
+			long start = System.nanoTime();
+			for (int i = 0; i < commands; i++) {
+				BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+				out.write("isElementPresent");
+				out.newLine();
+				out.write(LOCATOR);
+				out.newLine();
+				out.flush();
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+				in.readLine();
+			}
+			return System.nanoTime() - start;
+		}
+		finally {
+			socket.close();
+			server.join();
+			serverSocket.close();
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.runner.selenium.server.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FramedConnectionTest {
+
+	private ServerSocket serverSocket;
+	private FramedConnection client;
+	private FramedConnection server;
+	/** Error in a thread that accepts connections, rethrown in the test thread. */
+	private volatile Exception acceptError;
+
+	@Before
+	public void setUp() throws Exception {
+		serverSocket = new ServerSocket(0);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		if (client != null) {
+			client.close();
+		}
+		if (server != null) {
+			server.close();
+		}
+		serverSocket.close();
+	}
+	
+	private void connect() throws Exception {
+		Thread acceptor = startAcceptor();
+		client = FramedConnection.connect(serverSocket.getLocalPort());
+		joinAcceptor(acceptor);
+	}
+	
+	private Thread startAcceptor() {
+		Thread acceptor = new Thread() {
+			@Override
+			public void run() {
+				try {
+					server = FramedConnection.accept(serverSocket);
+				} catch (IOException e) {
+					acceptError = e;
+				}
+			}
+		};
+		acceptor.start();
+		return acceptor;
+	}
+	
+	private void joinAcceptor(Thread acceptor) throws Exception {
+		acceptor.join();
+		if (acceptError != null) {
+			throw acceptError;
+		}
+	}
+	
+	@Test
+	public void testLineBreaksAndNullsInMessagesAreKept() throws Exception {
+		connect();
+		String[] message = new String[] {"getHtmlSource", "<html>\n<body>\r\n\u00e6\u00f8\u00e5</body>\n</html>\n", "", null};
+		client.send(message);
+		client.flush();
+		assertArrayEquals(message, server.receive());
+	}
+
+	@Test
+	public void testPipelinedMessagesAreReadInOrder() throws Exception {
+		connect();
+		for (int i = 0; i < 10; i++) {
+			client.send("isElementPresent", "id=" + i);
+		}
+		client.flush();
+		for (int i = 0; i < 10; i++) {
+			assertArrayEquals(new String[] {"isElementPresent", "id=" + i}, server.receive());
+		}
+	}
+	
+	@Test
+	public void testNullIsReturnedWhenOtherSideCloses() throws Exception {
+		connect();
+		client.close();
+		assertNull(server.receive());
+	}
+	
+	@Test
+	public void testHugeNumberOfPartsIsRejected() throws Exception {
+		Thread acceptor = startAcceptor();
+		Socket socket = new Socket("localhost", serverSocket.getLocalPort());
+		try {
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			out.writeInt(0x43554243);
+			out.writeInt(FramedConnection.PROTOCOL_VERSION);
+			out.flush();
+			in.readInt();
+			in.readInt();
+			joinAcceptor(acceptor);
+			
+			out.writeInt(FramedConnection.MAX_PARTS + 1);
+			out.flush();
+			try {
+				server.receive();
+				fail("Should not accept a corrupt number of parts");
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("parts"));
+			}
+		}
+		finally {
+			socket.close();
+		}
+	}
+	
+	@Test
+	public void testOtherProtocolVersionIsRejected() throws Exception {
+		Thread oldRunner = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Socket socket = serverSocket.accept();
+					DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+					DataInputStream in = new DataInputStream(socket.getInputStream());
+					in.readInt();
+					in.readInt();
+					out.writeInt(0x43554243);
+					out.writeInt(FramedConnection.PROTOCOL_VERSION + 1);
+					out.flush();
+					socket.close();
+				} catch (IOException e) {
+					acceptError = e;
+				}
+			}
+		};
+		oldRunner.start();
+		try {
+			client = FramedConnection.connect(serverSocket.getLocalPort());
+			fail("Should not accept other protocol version");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("version"));
+		}
+		joinAcceptor(oldRunner);
+	}
+}
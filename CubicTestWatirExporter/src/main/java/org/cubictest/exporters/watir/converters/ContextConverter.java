@@ -40,7 +40,7 @@ public class ContextConverter implements IContextConverter<WatirHolder> {
 		
 		PageElement pe = (PageElement) ctx;
 		watirHolder.registerPageElement(pe);
-		watirHolder.addSeparator();
+		watirHolder.beginStep();
 		IContext context = (IContext) ctx;
 		watirHolder.pushContext(context);
 
@@ -30,7 +30,7 @@ public class PageElementConverter implements IPageElementConverter<WatirHolder>
 	 */
 	public void handlePageElement(WatirHolder watirHolder, PageElement pe) {
 		watirHolder.registerPageElement(pe);
-		watirHolder.addSeparator();
+		watirHolder.beginStep();
 		
 		String not = pe.isNot() ? " not" : ""; 
 		watirHolder.add("# asserting" + not + " present: " + pe.toString(), 2);
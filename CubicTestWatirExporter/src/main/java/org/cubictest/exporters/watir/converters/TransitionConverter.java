@@ -42,7 +42,7 @@ public class TransitionConverter implements ITransitionConverter<WatirHolder> {
 				Logger.warn("Action element was null. Skipping user interaction: " + transition);
 				continue;
 			}
-			watirHolder.addSeparator();
+			watirHolder.beginStep();
 			
 			if (actionElement instanceof PageElement) {
 				handlePageElementAction(watirHolder, action);
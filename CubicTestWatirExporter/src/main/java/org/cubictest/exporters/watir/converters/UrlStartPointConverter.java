@@ -29,7 +29,7 @@ public class UrlStartPointConverter implements IUrlStartPointConverter<WatirHold
 			watirHolder.setBrowserStarted(true);
 		}
 
-		watirHolder.addSeparator();
+		watirHolder.beginStep();
 		watirHolder.add("# URL start point");
 		watirHolder.add("ie.goto(\"" + sp.getBeginAt() + "\")");
 	}
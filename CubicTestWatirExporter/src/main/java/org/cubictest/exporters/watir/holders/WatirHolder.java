@@ -10,8 +10,13 @@
  *******************************************************************************/
 package org.cubictest.exporters.watir.holders;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
@@ -34,6 +39,10 @@ import org.eclipse.swt.widgets.Display;
 /**
  * Stores the watir test as a series of test steps.
  * Provides methods for adding steps to list and getting the final list. 
+ * If a step output is set, each step is written to it as soon as it is complete, to be run by
+ * the driver script of {@link #getStepDriverScript()}.
+ * <p>
+ * Page elements are identified in the output of the script by integer IDs, given in the order the elements are registered.
  * 
  * @author chr_schwarz
  */
@@ -47,8 +56,8 @@ public class WatirHolder extends RunnerResultHolder {
 	public static final String TEST_STEP_FAILED = "TestStepFailed";
 	public static final String TEST_CASE_NAME = "CubicTestExport_";
 	public static final String INTERACTION_FAILURE = "InteractionFailure";
-	public Map<String, PageElement> pageElementIdMap;
-	public Map<PageElement, String> idMap;
+	private List<PageElement> pageElementsById;
+	private Map<PageElement, Integer> idMap;
 	public Map<PageElement, String> elementVariableMap;
 	public Map<String, Integer> elementTypeCountMap;
 	public static String PASS = "[-PASS-]>";
@@ -60,6 +69,9 @@ public class WatirHolder extends RunnerResultHolder {
 	
 	public Map<PageElement, Boolean> pageElementInContextMap;
 	
+	/** Where complete steps are written, or null if the steps are kept for toResultString() */
+	private OutputStream stepOutput;
+	
 	public WatirHolder() {
 		this(null, null);
 	}
@@ -72,12 +84,12 @@ public class WatirHolder extends RunnerResultHolder {
 		super(display, settings, WatirUtils.getTimeout(settings));
 		this.containers.push("ie");
 		this.rubyBuffer = new RubyBuffer();
-		pageElementIdMap = new HashMap<String, PageElement>();
+		pageElementsById = new ArrayList<PageElement>();
 		elementVariableMap = new LinkedHashMap<PageElement, String>();
 		elementTypeCountMap = new HashMap<String, Integer>();
-		idMap = new HashMap<PageElement, String>();
+		idMap = new IdentityHashMap<PageElement, Integer>();
 		pageElementInContextMap = new HashMap<PageElement, Boolean>();
-		setUpWatirTest();
+		addScriptStart(rubyBuffer);
 	}
 
 	
@@ -103,18 +115,46 @@ public class WatirHolder extends RunnerResultHolder {
 	}
 
 
-	private void setUpWatirTest() {
-		rubyBuffer.add("require 'rubygems'", 0);
-		rubyBuffer.add("require 'watir'", 0);
-		rubyBuffer.add("class " + TEST_STEP_FAILED + " < RuntimeError", 0);
-		rubyBuffer.add("end", 0);
-		rubyBuffer.add("class " + INTERACTION_FAILURE + " < RuntimeError", 0);
-		rubyBuffer.add("end", 0);
-		rubyBuffer.add("class " + TEST_CASE_NAME + System.currentTimeMillis(), 0);
-		rubyBuffer.add("begin", 1);
-		rubyBuffer.add("failedSteps = 0", 2);
-		rubyBuffer.add("passedSteps = 0", 2);
-		rubyBuffer.add("puts \"Starting test..\"", 2);
+	private void addScriptStart(RubyBuffer buffer) {
+		buffer.add("require 'rubygems'", 0);
+		buffer.add("require 'watir'", 0);
+		buffer.add("class " + TEST_STEP_FAILED + " < RuntimeError", 0);
+		buffer.add("end", 0);
+		buffer.add("class " + INTERACTION_FAILURE + " < RuntimeError", 0);
+		buffer.add("end", 0);
+		buffer.add("class " + TEST_CASE_NAME + System.currentTimeMillis(), 0);
+		buffer.add("begin", 1);
+		buffer.add("failedSteps = 0", 2);
+		buffer.add("passedSteps = 0", 2);
+		buffer.add("puts \"Starting test..\"", 2);
+	}
+	
+	
+	private void addScriptEnd(RubyBuffer buffer) {
+		buffer.add("", 0);
+		buffer.add("", 0);
+		buffer.add("puts \"\"", 2);
+		
+		buffer.add("if (failedSteps == 0)", 2);
+		buffer.add("puts (passedSteps.to_s + \" steps passed, no steps failed.\")", 3);
+		buffer.add("else", 2);
+		buffer.add("puts(passedSteps.to_s + \" steps passed, \" + failedSteps.to_s + \" steps failed!\")", 3);
+		buffer.add("end", 2);
+		
+		buffer.add("puts \"" + TEST_DONE + "\"", 2);
+		buffer.add("puts \"Press enter to exit\"", 2);
+		buffer.add("STDOUT.flush", 2);
+		buffer.add("gets", 2);
+		buffer.add("puts \"Closing browser..\"", 2);
+		buffer.add("STDOUT.flush", 2);
+		buffer.add("ie.close", 2);
+		buffer.add("rescue " + INTERACTION_FAILURE, 1);
+		buffer.add("puts \"There were failures during user interactions. Test was stopped.\"", 2);
+		buffer.add("rescue", 1);
+		buffer.add("puts \"" + UNEXPECTED_ERROR_FROM_WATIR_RUNNER + ": \" + $!", 2);
+		buffer.add("end", 1);
+		buffer.add("end", 0);
+		buffer.add("", 0);
 	}
 	
 	
@@ -123,33 +163,79 @@ public class WatirHolder extends RunnerResultHolder {
 	 * This can be stored to file and excecuted.
 	 */
 	public String toResultString() {
-		rubyBuffer.add("", 0);
-		rubyBuffer.add("", 0);
-		rubyBuffer.add("puts \"\"", 2);
-		
-		rubyBuffer.add("if (failedSteps == 0)", 2);
-		rubyBuffer.add("puts (passedSteps.to_s + \" steps passed, no steps failed.\")", 3);
-		rubyBuffer.add("else", 2);
-		rubyBuffer.add("puts(passedSteps.to_s + \" steps passed, \" + failedSteps.to_s + \" steps failed!\")", 3);
-		rubyBuffer.add("end", 2);
-		
-		rubyBuffer.add("puts \"" + TEST_DONE + "\"", 2);
-		rubyBuffer.add("puts \"Press enter to exit\"", 2);
-		rubyBuffer.add("STDOUT.flush", 2);
-		rubyBuffer.add("gets", 2);
-		rubyBuffer.add("puts \"Closing browser..\"", 2);
-		rubyBuffer.add("STDOUT.flush", 2);
-		rubyBuffer.add("ie.close", 2);
-		rubyBuffer.add("rescue " + INTERACTION_FAILURE, 1);
-		rubyBuffer.add("puts \"There were failures during user interactions. Test was stopped.\"", 2);
-		rubyBuffer.add("rescue", 1);
-		rubyBuffer.add("puts \"" + UNEXPECTED_ERROR_FROM_WATIR_RUNNER + ": \" + $!", 2);
-		rubyBuffer.add("end", 1);
-		rubyBuffer.add("end", 0);
-		rubyBuffer.add("", 0);
+		addScriptEnd(rubyBuffer);
 		String res = rubyBuffer.toString();
 		return res;
 	}
+	
+	
+	/**
+	 * Gets a script that runs the test steps it reads from standard input. 
+	 * Each step is a line with its length in bytes followed by its code, and a length of 0 ends the steps.
+	 * The rest of standard input is left to the "press enter" prompt at the end of the test.
+	 * <p>
+	 * The steps are evaluated in the scope of the test, so that they can use its variables and its error handling. 
+	 */
+	public String getStepDriverScript() {
+		RubyBuffer driver = new RubyBuffer();
+		addScriptStart(driver);
+		driver.add("ie = nil", 2);
+		driver.add("STDIN.binmode", 2);
+		driver.add("steps = binding", 2);
+		driver.add("while ((stepLength = STDIN.gets.to_i) > 0)", 2);
+		driver.add("eval(STDIN.read(stepLength), steps, __FILE__)", 3);
+		driver.add("end", 2);
+		addScriptEnd(driver);
+		return driver.toString();
+	}
+	
+	
+	/**
+	 * Sets the output to write complete steps to, in the format read by the step driver script.
+	 * The start of the script is not written, as the driver script contains it. 
+	 */
+	public void setStepOutput(OutputStream stepOutput) {
+		this.stepOutput = stepOutput;
+		this.rubyBuffer = new RubyBuffer();
+	}
+	
+	
+	/**
+	 * Starts a new test step. The code added before it is complete, and is written to the step output if it is set.
+	 */
+	public void beginStep() {
+		if (stepOutput != null && rubyBuffer.length() > 0) {
+			try {
+				writeStep(rubyBuffer.toString());
+			}
+			catch (IOException e) {
+				throw new ExporterException("Could not send the test step to Watir: " + e);
+			}
+			rubyBuffer = new RubyBuffer();
+		}
+		addSeparator();
+	}
+	
+	
+	/**
+	 * Writes the last step and the end of the steps to the step output.
+	 */
+	public void finishSteps() throws IOException {
+		if (rubyBuffer.length() > 0) {
+			writeStep(rubyBuffer.toString());
+			rubyBuffer = new RubyBuffer();
+		}
+		stepOutput.write("0\n".getBytes());
+		stepOutput.flush();
+	}
+	
+	
+	private void writeStep(String code) throws IOException {
+		byte[] bytes = code.getBytes();
+		stepOutput.write((bytes.length + "\n").getBytes());
+		stepOutput.write(bytes);
+		stepOutput.flush();
+	}
 
 
 	public boolean isBrowserStarted() {
@@ -176,12 +262,13 @@ public class WatirHolder extends RunnerResultHolder {
 				pageElementInContextMap.put(p, true);
 			}
 		}
-		String id = pe.toString();
-		if (pageElementIdMap.get(id) != null) {
-			id = id + "--" + pe.hashCode();
+		synchronized (pageElementsById) {
+			//results can be read by the monitor while the test is being converted
+			if (!idMap.containsKey(pe)) {
+				idMap.put(pe, pageElementsById.size());
+				pageElementsById.add(pe);
+			}
 		}
-		pageElementIdMap.put(id, pe);
-		idMap.put(pe, id);
 		
 		String type = pe.getType().toLowerCase();
 		int count = elementTypeCountMap.get(type) == null ? 0 : elementTypeCountMap.get(type);
@@ -250,12 +337,25 @@ public class WatirHolder extends RunnerResultHolder {
 		return num == 0;
 	}
 	
-	public PageElement getPageElement(String id) {
-		return pageElementIdMap.get(id);
+	/**
+	 * Gets the registered page element with the ID.
+	 * @return the page element, or <code>null</code> if no element has the ID. 
+	 */
+	public PageElement getPageElement(int id) {
+		synchronized (pageElementsById) {
+			if (id < 0 || id >= pageElementsById.size()) {
+				return null;
+			}
+			return pageElementsById.get(id);
+		}
 	}
 
+	/**
+	 * Gets the ID of the page element, to use in the output of the Watir script.
+	 */
 	public String getId(PageElement pe) {
-		return idMap.get(pe);
+		Integer id = idMap.get(pe);
+		return id == null ? null : id.toString();
 	}
 
 	/** Set active Watir::Container object, e.g. a Watir::Frame */
@@ -26,6 +26,9 @@ import org.eclipse.core.runtime.IProgressMonitor;
 /**
  * Monitors a Watir process and updates the GUI.
  * Sets testDone property when test is done.
+ * <p>
+ * Step results are lines starting with a status marker followed by the integer ID of the page element,
+ * e.g. <code>[-PASS-]>12</code>. Exceptions have the message after the ID, separated by " -- ".
  * 
  * @author Christian Schwarz
  */
@@ -49,7 +52,7 @@ public class WatirMonitor extends Thread {
 	public void run() {
 		try {
 			// monitor process output:
-			BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()), 1);
+			BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()));
 			String line;
 			while (runner.processAlive && (line = output.readLine()) != null) {
 				System.out.println(line);
@@ -81,23 +84,19 @@ public class WatirMonitor extends Thread {
 		}
 		
 		if(line.startsWith(WatirHolder.PASS)) {
-			PageElement pe = watirHolder.getPageElement(line.substring(line.indexOf(WatirHolder.PASS) + WatirHolder.PASS.length()));
-			watirHolder.addResult(pe, TestPartStatus.PASS);
+			watirHolder.addResult(getPageElement(line, WatirHolder.PASS), TestPartStatus.PASS);
 		}
 		else if(line.startsWith(WatirHolder.FAIL)) {
-			PageElement pe = watirHolder.getPageElement(line.substring(line.indexOf(WatirHolder.FAIL) + WatirHolder.FAIL.length()));
-			watirHolder.addResult(pe, TestPartStatus.FAIL);
+			watirHolder.addResult(getPageElement(line, WatirHolder.FAIL), TestPartStatus.FAIL);
 		}
 		else if(line.startsWith(WatirHolder.EXCEPTION)) {
-			String pattern = "] -- ";
-			int messagePos = line.lastIndexOf(pattern);
-			messagePos = (messagePos < 0) ? line.length() : messagePos + 1;
-			PageElement pe = watirHolder.getPageElement(line.substring(line.indexOf(WatirHolder.EXCEPTION) + WatirHolder.EXCEPTION.length(), messagePos));
-			watirHolder.addResult(pe, TestPartStatus.EXCEPTION);
+			watirHolder.addResult(getPageElement(line, WatirHolder.EXCEPTION), TestPartStatus.EXCEPTION);
 		}
 		else if (line.startsWith(WatirHolder.SUBTEST_DONE)) {
 			runner.display.asyncExec(new Runnable() {
 				public void run() {
+					//results of the subtest must be shown before the test status is aggregated:
+					watirHolder.flushStatusUpdates();
 					runner.getTest().updateAndGetStatus(null);
 				}
 			});
@@ -118,6 +117,27 @@ public class WatirMonitor extends Thread {
 		}
 	}
 	
+	/**
+	 * Gets the page element whose ID follows the status marker at the start of the line.
+	 * @return the page element, or <code>null</code> if the line has no known ID.
+	 */
+	PageElement getPageElement(String line, String marker) {
+		int start = marker.length();
+		int end = start;
+		while (end < line.length() && Character.isDigit(line.charAt(end))) {
+			end++;
+		}
+		if (end == start) {
+			return null;
+		}
+		try {
+			return watirHolder.getPageElement(Integer.parseInt(line.substring(start, end)));
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
 	public void verify() {
 		if (error != null) {
 			throw error;
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.cubictest.exporters.watir.runner;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 
@@ -31,6 +32,10 @@ import org.eclipse.swt.widgets.Display;
 /**
  * The runner that starts the Watir servers and test system and starts traversal
  * of the test model.
+ * <p>
+ * Ruby is started on a driver script before the test is converted, and each test step is sent to 
+ * its standard input as soon as it is converted. The browser is thus started and runs the first steps 
+ * while the rest of the test is converted.
  * 
  * @author Christian Schwarz
  */
@@ -71,14 +76,12 @@ public class WatirTestRunner implements ICubicTestRunnable {
 						IProgressMonitor.UNKNOWN);
 			}
 
-			testWalker.convertTest(test, watirHolder, targetPage);
-
-			//write exported watir script to temp file:
+			//write the driver script that runs the test steps to temp file:
 			File generatedFolder = new File(settings.getProjectFolder().getAbsolutePath() + File.separator + "generated");
 			generatedFolder.mkdir();
 			File tempFile = new File(generatedFolder.getAbsolutePath() + File.separator + RUNNER_TEMP_FILENAME);
 			FileWriter out = new FileWriter(tempFile);
-			out.write(watirHolder.toResultString());
+			out.write(watirHolder.getStepDriverScript());
 			out.close();
 
 			//start Watir!
@@ -99,6 +102,23 @@ public class WatirTestRunner implements ICubicTestRunnable {
 			CancelHandler cancelHandler = new CancelHandler(process, monitor, this);
 			cancelHandler.start();
 
+			//convert the test, sending each step to Watir:
+			watirHolder.setStepOutput(new BufferedOutputStream(process.getOutputStream()));
+			try {
+				testWalker.convertTest(test, watirHolder, targetPage);
+				watirHolder.finishSteps();
+			}
+			catch (Exception e) {
+				process.destroy();
+				processAlive = false;
+				testRunning = false;
+				if (watirMonitor.getWatirException() != null) {
+					//e.g. Watir could not be loaded, so Ruby stopped reading the steps
+					throw watirMonitor.getWatirException();
+				}
+				throw e;
+			}
+
 			while (testRunning) {
 				if (watirMonitor.getWatirException() != null) {
 					throw watirMonitor.getWatirException();
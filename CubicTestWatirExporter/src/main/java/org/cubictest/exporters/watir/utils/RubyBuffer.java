@@ -52,6 +52,14 @@ public class RubyBuffer {
 	}
 	
 	
+	/**
+	 * Gets the number of characters in the buffer.
+	 */
+	public int length() {
+		return buffer.length();
+	}
+	
+	
 	public String toString() {
 		return buffer.toString();
 	}
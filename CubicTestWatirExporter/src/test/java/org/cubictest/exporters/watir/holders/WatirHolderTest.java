@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.watir.holders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import org.cubictest.model.Link;
+import org.cubictest.model.Title;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WatirHolderTest {
+
+	private WatirHolder watirHolder;
+	private Link link;
+	private Title title;
+
+	@Before
+	public void setUp() {
+		watirHolder = new WatirHolder();
+		link = new Link();
+		title = new Title();
+	}
+
+	@Test
+	public void testIdsAreGivenInRegistrationOrder() {
+		watirHolder.registerPageElement(link);
+		watirHolder.registerPageElement(title);
+		assertEquals("0", watirHolder.getId(link));
+		assertEquals("1", watirHolder.getId(title));
+		assertSame(link, watirHolder.getPageElement(0));
+		assertSame(title, watirHolder.getPageElement(1));
+	}
+
+	@Test
+	public void testRegisteringAgainKeepsId() {
+		watirHolder.registerPageElement(link);
+		watirHolder.registerPageElement(title);
+		watirHolder.registerPageElement(link);
+		assertEquals("0", watirHolder.getId(link));
+		assertNull(watirHolder.getPageElement(2));
+	}
+
+	@Test
+	public void testElementsWithSameDescriptionGetSeparateIds() {
+		Link otherLink = new Link();
+		watirHolder.registerPageElement(link);
+		watirHolder.registerPageElement(otherLink);
+		assertEquals("0", watirHolder.getId(link));
+		assertEquals("1", watirHolder.getId(otherLink));
+		assertSame(otherLink, watirHolder.getPageElement(1));
+	}
+
+	@Test
+	public void testUnknownIdAndElement() {
+		watirHolder.registerPageElement(link);
+		assertNull(watirHolder.getPageElement(-1));
+		assertNull(watirHolder.getPageElement(1));
+		assertNull(watirHolder.getId(title));
+	}
+
+	@Test
+	public void testStepsAreWrittenWhenComplete() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		watirHolder.setStepOutput(out);
+		watirHolder.beginStep();
+		watirHolder.add("ie.goto(\"www.test.org\")");
+		assertEquals("", out.toString());
+
+		watirHolder.beginStep();
+		assertEquals("27\n\n\t\tie.goto(\"www.test.org\")\n", out.toString());
+
+		watirHolder.add("passedSteps += 1");
+		watirHolder.finishSteps();
+		assertEquals("27\n\n\t\tie.goto(\"www.test.org\")\n" + "20\n\n\t\tpassedSteps += 1\n" + "0\n", out.toString());
+	}
+
+	@Test
+	public void testDriverScriptReadsStepsFromStandardInput() {
+		watirHolder.add("ie.goto(\"www.test.org\")");
+		String driver = watirHolder.getStepDriverScript();
+		assertTrue(driver.startsWith("require 'rubygems'\n"));
+		assertTrue(driver.contains("\t\twhile ((stepLength = STDIN.gets.to_i) > 0)\n"));
+		assertTrue(driver.contains("\t\tputs \"" + WatirHolder.TEST_DONE + "\"\n"));
+		assertFalse(driver.contains("www.test.org"));
+	}
+
+	@Test
+	public void testResultStringHasStepsWithoutStepOutput() {
+		watirHolder.beginStep();
+		watirHolder.add("ie.goto(\"www.test.org\")");
+		String script = watirHolder.toResultString();
+		assertTrue(script.contains("\t\tputs \"Starting test..\"\n\n\t\tie.goto(\"www.test.org\")\n"));
+		assertFalse(script.contains("STDIN"));
+	}
+}
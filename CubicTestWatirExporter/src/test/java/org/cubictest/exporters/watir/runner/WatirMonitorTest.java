@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2005, 2010 Stein K. Skytteren and Christian Schwarz
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *    Stein K. Skytteren and Christian Schwarz - initial API and implementation
+ *******************************************************************************/
+package org.cubictest.exporters.watir.runner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.cubictest.exporters.watir.holders.WatirHolder;
+import org.cubictest.model.Link;
+import org.cubictest.model.TestPartStatus;
+import org.cubictest.model.Title;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WatirMonitorTest {
+
+	private WatirHolder watirHolder;
+	private WatirMonitor watirMonitor;
+	private Link link;
+	private Title title;
+
+	@Before
+	public void setUp() {
+		watirHolder = new WatirHolder();
+		link = new Link();
+		title = new Title();
+		watirHolder.registerPageElement(link);
+		watirHolder.registerPageElement(title);
+		watirMonitor = new WatirMonitor(watirHolder, null, null, null);
+	}
+
+	@Test
+	public void testGetPageElementFromStatusLine() {
+		assertSame(link, watirMonitor.getPageElement(WatirHolder.PASS + "0", WatirHolder.PASS));
+		assertSame(title, watirMonitor.getPageElement(WatirHolder.FAIL + "1", WatirHolder.FAIL));
+	}
+
+	@Test
+	public void testGetPageElementFromExceptionLine() {
+		String line = WatirHolder.EXCEPTION + "1 -- unable to locate element, using :id, \"x12\"";
+		assertSame(title, watirMonitor.getPageElement(line, WatirHolder.EXCEPTION));
+	}
+
+	@Test
+	public void testGetPageElementWithoutKnownId() {
+		assertNull(watirMonitor.getPageElement(WatirHolder.PASS, WatirHolder.PASS));
+		assertNull(watirMonitor.getPageElement(WatirHolder.PASS + "link", WatirHolder.PASS));
+		assertNull(watirMonitor.getPageElement(WatirHolder.PASS + "2", WatirHolder.PASS));
+		assertNull(watirMonitor.getPageElement(WatirHolder.PASS + "99999999999", WatirHolder.PASS));
+	}
+
+	@Test
+	public void testHandleAddsResultForId() {
+		watirMonitor.handle(WatirHolder.PASS + "1");
+		watirMonitor.handle(WatirHolder.FAIL + "0");
+		assertEquals("1 steps passed, 1 steps failed", watirHolder.getResults());
+		assertEquals(TestPartStatus.PASS, title.getStatus());
+		assertEquals(TestPartStatus.FAIL, link.getStatus());
+	}
+}